@@ -0,0 +1,280 @@
+package top.lihuu.redis4j.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The results of a run of the {@link RegressionGate}, and the format of its baseline: a JSON object
+ * with the environment the run was measured in and the scenarios.
+ *
+ * <pre>
+ * {
+ *   "environment": {"redis": "8.0.2", "java": "21.0.1", "os": "Linux amd64", "processors": "8"},
+ *   "scenarios": [
+ *     {"name": "startup", "unit": "ms", "value": 41.2, "higherIsBetter": false},
+ *     {"name": "pipelined_set", "unit": "ops/s", "value": 812000, "higherIsBetter": true, "tolerance": 0.3}
+ *   ]
+ * }
+ * </pre>
+ *
+ * <p>A scenario of a baseline may set its own {@code tolerance}, kept when the baseline is updated.
+ */
+public record BenchmarkReport(Map<String, String> environment, List<ScenarioResult> scenarios) {
+
+    public ScenarioResult scenario(String name) {
+        return scenarios.stream().filter(scenario -> scenario.name().equals(name)).findFirst().orElse(null);
+    }
+
+    /**
+     * @param previous the baseline being replaced, or null
+     * @return this report with the tolerances set in the previous baseline
+     */
+    public BenchmarkReport withTolerancesOf(BenchmarkReport previous) {
+        if (previous == null) {
+            return this;
+        }
+        List<ScenarioResult> merged = new ArrayList<>(scenarios.size());
+        for (ScenarioResult scenario : scenarios) {
+            ScenarioResult before = previous.scenario(scenario.name());
+            merged.add(before == null ? scenario : new ScenarioResult(scenario.name(), scenario.unit(),
+                    scenario.value(), scenario.higherIsBetter(), before.tolerance()));
+        }
+        return new BenchmarkReport(environment, merged);
+    }
+
+    public void write(Path file) throws IOException {
+        StringBuilder json = new StringBuilder("{\n  \"environment\": {");
+        int i = 0;
+        for (Map.Entry<String, String> entry : environment.entrySet()) {
+            json.append(i++ == 0 ? "" : ", ").append(quote(entry.getKey())).append(": ").append(quote(entry.getValue()));
+        }
+        json.append("},\n  \"scenarios\": [");
+        for (i = 0; i < scenarios.size(); i++) {
+            ScenarioResult scenario = scenarios.get(i);
+            json.append(i == 0 ? "\n" : ",\n").append(String.format(
+                    "    {\"name\": %s, \"unit\": %s, \"value\": %s, \"higherIsBetter\": %b",
+                    quote(scenario.name()), quote(scenario.unit()), number(scenario.value()), scenario.higherIsBetter()));
+            if (scenario.tolerance() >= 0) {
+                json.append(", \"tolerance\": ").append(number(scenario.tolerance()));
+            }
+            json.append('}');
+        }
+        json.append("\n  ]\n}\n");
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        Files.writeString(file, json, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @throws IOException if the file cannot be read or is not a report
+     */
+    public static BenchmarkReport read(Path file) throws IOException {
+        Object parsed;
+        try {
+            parsed = new Parser(Files.readString(file, StandardCharsets.UTF_8)).parseDocument();
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Not a benchmark report: " + file + ": " + e.getMessage(), e);
+        }
+        if (!(parsed instanceof Map<?, ?> root) || !(root.get("scenarios") instanceof List<?> scenarios)) {
+            throw new IOException("Not a benchmark report, no scenarios: " + file);
+        }
+        Map<String, String> environment = new LinkedHashMap<>();
+        if (root.get("environment") instanceof Map<?, ?> values) {
+            values.forEach((key, value) -> environment.put(key.toString(), String.valueOf(value)));
+        }
+        List<ScenarioResult> results = new ArrayList<>();
+        for (Object element : scenarios) {
+            if (!(element instanceof Map<?, ?> scenario)
+                    || !(scenario.get("name") instanceof String name)
+                    || !(scenario.get("value") instanceof Double value)) {
+                throw new IOException("Not a benchmark report, a scenario has no name or value: " + file);
+            }
+            results.add(new ScenarioResult(name, String.valueOf(scenario.get("unit")), value,
+                    Boolean.TRUE.equals(scenario.get("higherIsBetter")),
+                    scenario.get("tolerance") instanceof Double tolerance ? tolerance : -1));
+        }
+        return new BenchmarkReport(environment, results);
+    }
+
+    private static String number(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15
+                ? Long.toString((long) value)
+                : String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Reads the JSON of a report: objects, arrays, strings, numbers as doubles, booleans and null.
+     */
+    private static final class Parser {
+
+        private final String json;
+        private int position;
+
+        Parser(String json) {
+            this.json = json;
+        }
+
+        Object parseDocument() {
+            Object value = parseValue();
+            skipWhitespace();
+            if (position < json.length()) {
+                throw error("unexpected content");
+            }
+            return value;
+        }
+
+        private Object parseValue() {
+            skipWhitespace();
+            if (position >= json.length()) {
+                throw error("unexpected end");
+            }
+            return switch (json.charAt(position)) {
+                case '{' -> parseObject();
+                case '[' -> parseArray();
+                case '"' -> parseString();
+                default -> parseLiteral();
+            };
+        }
+
+        private Object parseLiteral() {
+            for (Object literal : new Object[]{Boolean.TRUE, Boolean.FALSE, null}) {
+                String text = String.valueOf(literal);
+                if (json.startsWith(text, position)) {
+                    position += text.length();
+                    return literal;
+                }
+            }
+            return parseNumber();
+        }
+
+        private Map<String, Object> parseObject() {
+            Map<String, Object> object = new LinkedHashMap<>();
+            position++;
+            skipWhitespace();
+            if (consume('}')) {
+                return object;
+            }
+            do {
+                skipWhitespace();
+                if (position >= json.length() || json.charAt(position) != '"') {
+                    throw error("expected a name");
+                }
+                String name = parseString();
+                skipWhitespace();
+                if (!consume(':')) {
+                    throw error("expected ':'");
+                }
+                object.put(name, parseValue());
+                skipWhitespace();
+            } while (consume(','));
+            if (!consume('}')) {
+                throw error("expected '}'");
+            }
+            return object;
+        }
+
+        private List<Object> parseArray() {
+            List<Object> array = new ArrayList<>();
+            position++;
+            skipWhitespace();
+            if (consume(']')) {
+                return array;
+            }
+            do {
+                array.add(parseValue());
+                skipWhitespace();
+            } while (consume(','));
+            if (!consume(']')) {
+                throw error("expected ']'");
+            }
+            return array;
+        }
+
+        private String parseString() {
+            StringBuilder value = new StringBuilder();
+            position++;
+            while (position < json.length()) {
+                char c = json.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= json.length()) {
+                    break;
+                }
+                char escaped = json.charAt(position++);
+                switch (escaped) {
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'u' -> {
+                        if (position + 4 > json.length()) {
+                            throw error("bad escape");
+                        }
+                        value.append((char) Integer.parseInt(json.substring(position, position + 4), 16));
+                        position += 4;
+                    }
+                    default -> value.append(escaped);
+                }
+            }
+            throw error("unterminated string");
+        }
+
+        private Double parseNumber() {
+            int start = position;
+            while (position < json.length() && "+-0123456789.eE".indexOf(json.charAt(position)) >= 0) {
+                position++;
+            }
+            try {
+                return Double.parseDouble(json.substring(start, position));
+            } catch (NumberFormatException e) {
+                throw error("expected a value");
+            }
+        }
+
+        private boolean consume(char c) {
+            if (position < json.length() && json.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void skipWhitespace() {
+            while (position < json.length() && Character.isWhitespace(json.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at offset " + position);
+        }
+    }
+}
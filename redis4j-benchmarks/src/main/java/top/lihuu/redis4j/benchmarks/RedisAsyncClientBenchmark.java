@@ -0,0 +1,70 @@
+package top.lihuu.redis4j.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import top.lihuu.redis4j.Redis;
+import top.lihuu.redis4j.client.RedisAsyncClient;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of many threads sharing a {@link RedisAsyncClient}, each keeping a window of
+ * commands in flight.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class RedisAsyncClientBenchmark {
+
+    private static final int WINDOW = 16;
+
+    @Param({"1", "4"})
+    public int connections;
+
+    private Redis redis;
+    private RedisAsyncClient client;
+
+    @Setup
+    public void setUp() throws IOException {
+        redis = Redis.newEmbeddedRedis();
+        redis.start();
+        client = redis.openAsyncClient(connections);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+        redis.stop();
+    }
+
+    /**
+     * One operation is a window of {@value #WINDOW} commands.
+     */
+    @Benchmark
+    @OperationsPerInvocation(WINDOW)
+    public Object incrWindow() {
+        CompletableFuture<?>[] replies = new CompletableFuture<?>[WINDOW];
+        for (int i = 0; i < WINDOW; i++) {
+            replies[i] = client.execute("INCR", "bench:counter");
+        }
+        return CompletableFuture.allOf(replies).join();
+    }
+}
@@ -0,0 +1,70 @@
+package top.lihuu.redis4j.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import top.lihuu.redis4j.Redis;
+import top.lihuu.redis4j.client.RedisConnection;
+import top.lihuu.redis4j.client.RespType;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips against an embedded server over a {@link RedisConnection}. With {@code -prof gc}
+ * the client side allocates about 0 bytes per command when the reply is discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisConnectionBenchmark {
+
+    private final String[] set = {"SET", "bench:key", "x".repeat(100)};
+    private final String[] get = {"GET", "bench:key"};
+    private Redis redis;
+    private RedisConnection connection;
+
+    @Setup
+    public void setUp() throws IOException {
+        redis = Redis.newEmbeddedRedis();
+        redis.start();
+        connection = redis.openConnection();
+        connection.execute(set);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        connection.close();
+        redis.stop();
+    }
+
+    @Benchmark
+    public RespType set() throws IOException {
+        connection.send(set);
+        connection.flush();
+        return connection.discardReply();
+    }
+
+    @Benchmark
+    public RespType get() throws IOException {
+        connection.send(get);
+        connection.flush();
+        return connection.discardReply();
+    }
+
+    @Benchmark
+    public Object getAsString() throws IOException {
+        return connection.execute(get);
+    }
+}
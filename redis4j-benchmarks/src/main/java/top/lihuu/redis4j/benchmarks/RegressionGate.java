@@ -0,0 +1,119 @@
+package top.lihuu.redis4j.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs the {@link Scenarios} against an embedded server, writes the results as JSON and compares
+ * them with a baseline, exiting with status 1 if a scenario regressed by more than its tolerance.
+ *
+ * <p>Run by the {@code regression} profile of this module:
+ *
+ * <pre>
+ * mvn -B verify -pl redis4j-benchmarks -am -P regression
+ * mvn -B verify -pl redis4j-benchmarks -am -P regression -Dredis4j.updateBaseline=true
+ * </pre>
+ *
+ * The second command replaces the baseline with the results of the run, keeping the tolerances
+ * set per scenario; commit it. Baselines only compare with runs on the same hardware, record them
+ * where the gate runs. Without a baseline, the gate is skipped with a warning.
+ *
+ * <p>Options: {@code --baseline <file>}, {@code --results <file>}, {@code --tolerance <fraction>}
+ * (default 0.2), {@code --update-baseline <true|false>}, {@code --repetitions <n>} (default 5),
+ * {@code --operations <n>} (default 200000), {@code --pipeline <n>} (default 100),
+ * {@code --fixture-keys <n>} (default 100000).
+ */
+public final class RegressionGate {
+
+    private RegressionGate() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path baseline = Path.of("baseline.json");
+        Path results = Path.of("target", "benchmark-results.json");
+        double tolerance = 0.2;
+        boolean update = false;
+        int repetitions = 5;
+        int operations = 200_000;
+        int pipeline = 100;
+        int fixtureKeys = 100_000;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--baseline" -> baseline = Path.of(value(args, ++i));
+                case "--results" -> results = Path.of(value(args, ++i));
+                case "--tolerance" -> tolerance = Double.parseDouble(value(args, ++i));
+                case "--update-baseline" -> update = Boolean.parseBoolean(value(args, ++i));
+                case "--repetitions" -> repetitions = Integer.parseInt(value(args, ++i));
+                case "--operations" -> operations = Integer.parseInt(value(args, ++i));
+                case "--pipeline" -> pipeline = Integer.parseInt(value(args, ++i));
+                case "--fixture-keys" -> fixtureKeys = Integer.parseInt(value(args, ++i));
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        BenchmarkReport report = new Scenarios(repetitions, operations, pipeline, fixtureKeys).run();
+        report.write(results);
+        System.out.println("Wrote the results to " + results.toAbsolutePath());
+
+        BenchmarkReport previous = Files.exists(baseline) ? BenchmarkReport.read(baseline) : null;
+        if (update) {
+            report.withTolerancesOf(previous).write(baseline);
+            System.out.println("Updated the baseline " + baseline.toAbsolutePath());
+            return;
+        }
+        if (previous == null) {
+            // baselines are recorded on the machine of the gate, a checkout without one is not a regression
+            System.out.println("WARNING: no baseline at " + baseline.toAbsolutePath()
+                    + ", the gate is skipped; record one with -Dredis4j.updateBaseline=true and commit it");
+            return;
+        }
+        List<String> regressions = compare(previous, report, tolerance);
+        if (!regressions.isEmpty()) {
+            System.out.println(regressions.size() + " scenarios regressed: " + String.join(", ", regressions));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Prints a line per scenario.
+     *
+     * @return the names of the scenarios that regressed by more than their tolerance
+     */
+    static List<String> compare(BenchmarkReport baseline, BenchmarkReport actual, double tolerance) {
+        if (!baseline.environment().equals(actual.environment())) {
+            System.out.println("The baseline was measured in " + baseline.environment() + ", this run in "
+                    + actual.environment());
+        }
+        List<String> regressions = new ArrayList<>();
+        for (ScenarioResult result : actual.scenarios()) {
+            ScenarioResult expected = baseline.scenario(result.name());
+            if (expected == null) {
+                System.out.printf(Locale.ROOT, "%-14s %12.1f %-6s (not in the baseline)%n",
+                        result.name(), result.value(), result.unit());
+                continue;
+            }
+            double allowed = expected.tolerance() >= 0 ? expected.tolerance() : tolerance;
+            double regression = expected.regression(result);
+            boolean regressed = regression > allowed;
+            System.out.printf(Locale.ROOT, "%-14s %12.1f %-6s baseline %12.1f  %+6.1f%% %s%n",
+                    result.name(), result.value(), result.unit(), expected.value(),
+                    expected.value() == 0 ? 0 : (result.value() - expected.value()) / expected.value() * 100,
+                    regressed ? String.format(Locale.ROOT, "REGRESSION (tolerance %.0f%%)", allowed * 100) : "");
+            if (regressed) {
+                regressions.add(result.name());
+            }
+        }
+        return regressions;
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing the value of " + args[i - 1]);
+        }
+        return args[i];
+    }
+}
@@ -0,0 +1,92 @@
+package top.lihuu.redis4j.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import top.lihuu.redis4j.client.BufferPool;
+import top.lihuu.redis4j.client.RespDecoder;
+import top.lihuu.redis4j.client.RespEncoder;
+import top.lihuu.redis4j.client.RespType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding cost of the RESP layer without a server. Run with {@code -prof gc}:
+ * {@code gc.alloc.rate.norm} should stay at about 0 bytes per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RespCodecBenchmark {
+
+    private static final byte[] BULK_REPLY = "$11\r\nhello world\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ARRAY_REPLY =
+            "*3\r\n$3\r\nfoo\r\n:42\r\n*2\r\n+OK\r\n$-1\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final RespDecoder decoder = new RespDecoder();
+    private final String key = "user:1234567";
+    private final String value = "x".repeat(100);
+    private ByteBuffer out;
+    private ByteBuffer bulkReply;
+    private ByteBuffer arrayReply;
+    private long counter;
+
+    @Setup
+    public void setUp() {
+        out = BufferPool.shared().acquire(4096);
+        bulkReply = ByteBuffer.allocateDirect(BULK_REPLY.length).put(BULK_REPLY).flip();
+        arrayReply = ByteBuffer.allocateDirect(ARRAY_REPLY.length).put(ARRAY_REPLY).flip();
+    }
+
+    @Benchmark
+    public int encodeSet() {
+        out.clear();
+        RespEncoder.writeArrayHeader(out, 3);
+        RespEncoder.writeBulkString(out, "SET");
+        RespEncoder.writeBulkString(out, key);
+        RespEncoder.writeBulkString(out, value);
+        return out.position();
+    }
+
+    @Benchmark
+    public int encodeIncrBy() {
+        out.clear();
+        RespEncoder.writeArrayHeader(out, 3);
+        RespEncoder.writeBulkString(out, "INCRBY");
+        RespEncoder.writeBulkString(out, key);
+        RespEncoder.writeBulkString(out, counter++);
+        return out.position();
+    }
+
+    @Benchmark
+    public int decodeBulkString() throws IOException {
+        bulkReply.position(0);
+        decoder.next(bulkReply);
+        return decoder.getContentStart() + decoder.getContentLength();
+    }
+
+    @Benchmark
+    public long decodeNestedArray() throws IOException {
+        arrayReply.position(0);
+        long sum = 0;
+        RespType type;
+        do {
+            type = decoder.next(arrayReply);
+            sum += type.ordinal() + decoder.getValue();
+        } while (!decoder.isReplyComplete());
+        return sum;
+    }
+}
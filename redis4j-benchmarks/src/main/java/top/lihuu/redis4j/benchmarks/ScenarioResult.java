@@ -0,0 +1,30 @@
+package top.lihuu.redis4j.benchmarks;
+
+/**
+ * The measurement of one scenario of the {@link RegressionGate}.
+ *
+ * @param name           the scenario, e.g. {@code startup}
+ * @param unit           the unit of the value, e.g. {@code ms} or {@code ops/s}
+ * @param value          the median over the repetitions
+ * @param higherIsBetter whether a higher value is an improvement, as for a throughput
+ * @param tolerance      the relative change allowed before it is a regression, or a negative value
+ *                       for the tolerance of the gate; only set in a baseline
+ */
+public record ScenarioResult(String name, String unit, double value, boolean higherIsBetter, double tolerance) {
+
+    public ScenarioResult(String name, String unit, double value, boolean higherIsBetter) {
+        this(name, unit, value, higherIsBetter, -1);
+    }
+
+    /**
+     * @param actual the new measurement of the scenario
+     * @return the relative change from this baseline, positive when it got worse
+     */
+    public double regression(ScenarioResult actual) {
+        if (value == 0) {
+            return 0;
+        }
+        double change = (actual.value - value) / value;
+        return higherIsBetter ? -change : change;
+    }
+}
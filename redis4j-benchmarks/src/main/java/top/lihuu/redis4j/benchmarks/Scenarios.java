@@ -0,0 +1,186 @@
+package top.lihuu.redis4j.benchmarks;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import top.lihuu.redis4j.Redis;
+import top.lihuu.redis4j.RedisConfigurationBuilder;
+import top.lihuu.redis4j.client.RedisConnection;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The scenarios of the {@link RegressionGate}, each repeated and reported as its median:
+ * <ul>
+ *     <li>{@code startup}: creating and starting an embedded server, in ms;</li>
+ *     <li>{@code pipelined_set} and {@code pipelined_get}: throughput over one connection with a
+ *     full pipeline, in ops/s;</li>
+ *     <li>{@code fixture_load}: starting with an RDB fixture, in ms;</li>
+ *     <li>{@code stop}: stopping the server, in ms.</li>
+ * </ul>
+ * A first repetition, not measured, unpacks the binaries and warms up the JVM.
+ */
+final class Scenarios {
+
+    private static final Logger logger = LoggerFactory.getLogger(Scenarios.class);
+
+    private final int repetitions;
+    private final int operations;
+    private final int pipeline;
+    private final int fixtureKeys;
+
+    /**
+     * @param repetitions the measured repetitions of each scenario
+     * @param operations  the commands of a throughput measurement
+     * @param pipeline    the commands sent before reading their replies
+     * @param fixtureKeys the keys of the RDB fixture
+     */
+    Scenarios(int repetitions, int operations, int pipeline, int fixtureKeys) {
+        this.repetitions = repetitions;
+        this.operations = operations;
+        this.pipeline = pipeline;
+        this.fixtureKeys = fixtureKeys;
+    }
+
+    BenchmarkReport run() throws IOException {
+        double[] startup = new double[repetitions];
+        double[] stop = new double[repetitions];
+        double[] set = new double[repetitions];
+        double[] get = new double[repetitions];
+        String version = null;
+        for (int i = -1; i < repetitions; i++) {
+            long start = System.nanoTime();
+            Redis redis = Redis.newEmbeddedRedis();
+            redis.start();
+            double startMillis = millisSince(start);
+            try (RedisConnection connection = redis.openConnection()) {
+                double setThroughput = throughput(connection, "SET");
+                double getThroughput = throughput(connection, "GET");
+                if (i >= 0) {
+                    startup[i] = startMillis;
+                    set[i] = setThroughput;
+                    get[i] = getThroughput;
+                }
+                version = redis.info("server").get("redis_version");
+            } finally {
+                long stopStart = System.nanoTime();
+                redis.stop();
+                if (i >= 0) {
+                    stop[i] = millisSince(stopStart);
+                }
+            }
+        }
+        double[] fixtureLoad = fixtureLoad();
+
+        Map<String, String> environment = new LinkedHashMap<>();
+        environment.put("redis", version);
+        environment.put("java", System.getProperty("java.version"));
+        environment.put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+        environment.put("processors", Integer.toString(Runtime.getRuntime().availableProcessors()));
+        List<ScenarioResult> results = new ArrayList<>();
+        results.add(new ScenarioResult("startup", "ms", median(startup), false));
+        results.add(new ScenarioResult("pipelined_set", "ops/s", median(set), true));
+        results.add(new ScenarioResult("pipelined_get", "ops/s", median(get), true));
+        results.add(new ScenarioResult("fixture_load", "ms", median(fixtureLoad), false));
+        results.add(new ScenarioResult("stop", "ms", median(stop), false));
+        return new BenchmarkReport(environment, results);
+    }
+
+    /**
+     * Sends the command for {@code operations} keys, a pipeline at a time, and reads the replies.
+     *
+     * @return the commands per second
+     */
+    private double throughput(RedisConnection connection, String command) throws IOException {
+        String value = "x".repeat(100);
+        long start = System.nanoTime();
+        for (int sent = 0; sent < operations; ) {
+            int batch = Math.min(pipeline, operations - sent);
+            for (int i = 0; i < batch; i++) {
+                String key = "bench:" + (sent + i);
+                if (command.equals("SET")) {
+                    connection.send("SET", key, value);
+                } else {
+                    connection.send("GET", key);
+                }
+            }
+            connection.flush();
+            for (int i = 0; i < batch; i++) {
+                connection.discardReply();
+            }
+            sent += batch;
+        }
+        return operations * 1_000_000_000d / (System.nanoTime() - start);
+    }
+
+    private double[] fixtureLoad() throws IOException {
+        File fixture = Files.createTempFile("redis4j-benchmark-", ".rdb").toFile();
+        try {
+            writeFixture(fixture);
+            double[] load = new double[repetitions];
+            for (int i = -1; i < repetitions; i++) {
+                RedisConfigurationBuilder builder = RedisConfigurationBuilder.newBuilder().setInitRdbFile(fixture);
+                long start = System.nanoTime();
+                Redis redis = Redis.newEmbeddedRedis(builder.build());
+                redis.start();
+                double millis = millisSince(start);
+                try (RedisConnection connection = redis.openConnection()) {
+                    long keys = (Long) connection.execute("DBSIZE");
+                    if (keys != fixtureKeys) {
+                        throw new IOException("The fixture loaded " + keys + " keys instead of " + fixtureKeys);
+                    }
+                } finally {
+                    redis.stop();
+                }
+                if (i >= 0) {
+                    load[i] = millis;
+                }
+            }
+            return load;
+        } finally {
+            Files.deleteIfExists(fixture.toPath());
+        }
+    }
+
+    private void writeFixture(File fixture) throws IOException {
+        Redis redis = Redis.newEmbeddedRedis();
+        redis.start();
+        try (RedisConnection connection = redis.openConnection()) {
+            String value = "x".repeat(100);
+            for (int written = 0; written < fixtureKeys; ) {
+                int batch = Math.min(1000, fixtureKeys - written);
+                for (int i = 0; i < batch; i++) {
+                    connection.send("SET", "fixture:" + (written + i), value);
+                }
+                connection.flush();
+                for (int i = 0; i < batch; i++) {
+                    connection.discardReply();
+                }
+                written += batch;
+            }
+            connection.execute("SAVE");
+            FileUtils.copyFile(new File(redis.getConfiguration().getDataDir(), "dump.rdb"), fixture);
+            logger.info("Wrote a fixture of {} keys, {} bytes", fixtureKeys, fixture.length());
+        } finally {
+            redis.stop();
+        }
+    }
+
+    private static double millisSince(long start) {
+        return (System.nanoTime() - start) / 1_000_000d;
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+}
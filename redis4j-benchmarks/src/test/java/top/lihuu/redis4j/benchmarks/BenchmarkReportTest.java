@@ -0,0 +1,62 @@
+package top.lihuu.redis4j.benchmarks;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BenchmarkReportTest {
+
+    @Test
+    public void should_read_what_was_written(@TempDir Path tempDir) throws IOException {
+        Map<String, String> environment = new LinkedHashMap<>();
+        environment.put("redis", "8.0.2");
+        environment.put("os", "Linux \"amd64\" C:\\tmp\n\tnext\u0001");
+        BenchmarkReport report = new BenchmarkReport(environment, List.of(
+                new ScenarioResult("startup", "ms", 41.25, false),
+                new ScenarioResult("pipelined_set", "ops/s", 812000, true, 0.3),
+                new ScenarioResult("quoted \"name\"", "µs", 0.125, false, 0)));
+        Path file = tempDir.resolve("nested").resolve("baseline.json");
+
+        report.write(file);
+
+        assertEquals(report, BenchmarkReport.read(file));
+    }
+
+    @Test
+    public void should_reject_a_file_that_is_not_a_report(@TempDir Path tempDir) throws IOException {
+        Path file = Files.writeString(tempDir.resolve("baseline.json"), "{\"scenarios\": [{\"name\": \"startup\"}]}");
+        assertThrows(IOException.class, () -> BenchmarkReport.read(file));
+        Files.writeString(file, "{\"scenarios\": [");
+        assertThrows(IOException.class, () -> BenchmarkReport.read(file));
+    }
+
+    @Test
+    public void should_keep_the_tolerances_of_the_previous_baseline() {
+        BenchmarkReport previous = new BenchmarkReport(Map.of("redis", "7.2.4"), List.of(
+                new ScenarioResult("startup", "ms", 50, false),
+                new ScenarioResult("pipelined_set", "ops/s", 700000, true, 0.3),
+                new ScenarioResult("removed", "ms", 10, false, 0.5)));
+        BenchmarkReport report = new BenchmarkReport(Map.of("redis", "8.0.2"), List.of(
+                new ScenarioResult("startup", "ms", 41, false),
+                new ScenarioResult("pipelined_set", "ops/s", 812000, true),
+                new ScenarioResult("stop", "ms", 5, false)));
+
+        BenchmarkReport updated = report.withTolerancesOf(previous);
+
+        assertEquals(new BenchmarkReport(Map.of("redis", "8.0.2"), List.of(
+                new ScenarioResult("startup", "ms", 41, false),
+                new ScenarioResult("pipelined_set", "ops/s", 812000, true, 0.3),
+                new ScenarioResult("stop", "ms", 5, false))), updated);
+        assertSame(report, report.withTolerancesOf(null));
+    }
+}
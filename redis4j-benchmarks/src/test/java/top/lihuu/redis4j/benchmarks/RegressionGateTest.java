@@ -0,0 +1,41 @@
+package top.lihuu.redis4j.benchmarks;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RegressionGateTest {
+
+    private static final Map<String, String> ENVIRONMENT = Map.of("redis", "8.0.2");
+
+    @Test
+    public void should_flag_the_scenarios_past_the_tolerance() {
+        BenchmarkReport baseline = new BenchmarkReport(ENVIRONMENT, List.of(
+                new ScenarioResult("startup", "ms", 100, false),
+                new ScenarioResult("pipelined_set", "ops/s", 1000, true),
+                new ScenarioResult("pipelined_get", "ops/s", 1000, true)));
+        BenchmarkReport actual = new BenchmarkReport(ENVIRONMENT, List.of(
+                new ScenarioResult("startup", "ms", 105, false),
+                new ScenarioResult("pipelined_set", "ops/s", 850, true),
+                new ScenarioResult("pipelined_get", "ops/s", 1500, true),
+                new ScenarioResult("stop", "ms", 1000, false)));
+
+        assertEquals(List.of("pipelined_set"), RegressionGate.compare(baseline, actual, 0.1));
+        assertEquals(List.of(), RegressionGate.compare(baseline, actual, 0.2));
+    }
+
+    @Test
+    public void should_prefer_the_tolerance_of_the_baseline_scenario() {
+        BenchmarkReport baseline = new BenchmarkReport(ENVIRONMENT, List.of(
+                new ScenarioResult("startup", "ms", 100, false, 0.3),
+                new ScenarioResult("stop", "ms", 100, false, 0.05)));
+        BenchmarkReport actual = new BenchmarkReport(ENVIRONMENT, List.of(
+                new ScenarioResult("startup", "ms", 125, false),
+                new ScenarioResult("stop", "ms", 108, false)));
+
+        assertEquals(List.of("stop"), RegressionGate.compare(baseline, actual, 0.1));
+    }
+}
@@ -0,0 +1,28 @@
+package top.lihuu.redis4j.benchmarks;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ScenarioResultTest {
+
+    @Test
+    public void should_count_a_slower_time_as_a_regression() {
+        ScenarioResult baseline = new ScenarioResult("startup", "ms", 100, false);
+        assertEquals(0.2, baseline.regression(new ScenarioResult("startup", "ms", 120, false)), 1e-9);
+        assertEquals(-0.2, baseline.regression(new ScenarioResult("startup", "ms", 80, false)), 1e-9);
+    }
+
+    @Test
+    public void should_count_a_lower_throughput_as_a_regression() {
+        ScenarioResult baseline = new ScenarioResult("pipelined_get", "ops/s", 1000, true);
+        assertEquals(0.2, baseline.regression(new ScenarioResult("pipelined_get", "ops/s", 800, true)), 1e-9);
+        assertEquals(-0.2, baseline.regression(new ScenarioResult("pipelined_get", "ops/s", 1200, true)), 1e-9);
+    }
+
+    @Test
+    public void should_not_compare_with_a_zero_baseline() {
+        ScenarioResult baseline = new ScenarioResult("stop", "ms", 0, false);
+        assertEquals(0, baseline.regression(new ScenarioResult("stop", "ms", 5, false)));
+    }
+}
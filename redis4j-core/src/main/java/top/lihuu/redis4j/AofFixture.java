@@ -0,0 +1,182 @@
+package top.lihuu.redis4j;
+
+import ch.vorburger.exec.ManagedProcessException;
+import org.apache.commons.io.FileUtils;
+import top.lihuu.redis4j.rdb.RdbParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An append only file the data directory is initialized with: either a single file, which Redis 7
+ * migrates into its AOF directory on start, or the directory of a multi-part AOF, given as the
+ * directory or its manifest.
+ *
+ * <p>The files are checked before the server is started: each must begin like an AOF (a RESP
+ * command) or like an RDB file (the base of a multi-part AOF, or the preamble of a single file
+ * written with {@code aof-use-rdb-preamble}), an RDB part must pass its checksum, and the files
+ * named by a manifest must exist.
+ */
+final class AofFixture {
+
+    static final String DEFAULT_FILE_NAME = "appendonly.aof";
+    static final String DEFAULT_DIR_NAME = "appendonlydir";
+
+    private static final String MANIFEST_SUFFIX = ".manifest";
+
+    private final File source;
+    private final boolean multiPart;
+    private final String fileName;
+    private final List<File> files;
+
+    private AofFixture(File source, boolean multiPart, String fileName, List<File> files) {
+        this.source = source;
+        this.multiPart = multiPart;
+        this.fileName = fileName;
+        this.files = files;
+    }
+
+    /**
+     * @param source an AOF, the directory of a multi-part AOF, or its manifest
+     * @return the checked fixture
+     * @throws ManagedProcessException if the fixture does not exist or is not valid
+     */
+    static AofFixture of(File source) throws ManagedProcessException {
+        if (!source.exists()) {
+            throw new ManagedProcessException("The initial AOF does not exist: " + source.getAbsolutePath());
+        }
+        if (!source.canRead()) {
+            throw new ManagedProcessException("The initial AOF is not readable: " + source.getAbsolutePath());
+        }
+        try {
+            if (source.isDirectory()) {
+                return ofManifest(findManifest(source));
+            }
+            if (source.getName().endsWith(MANIFEST_SUFFIX)) {
+                return ofManifest(source);
+            }
+            checkPart(source);
+            return new AofFixture(source, false, null, List.of(source));
+        } catch (IOException e) {
+            throw new ManagedProcessException("The initial AOF is not valid: " + source.getAbsolutePath(), e);
+        }
+    }
+
+    private static File findManifest(File directory) throws IOException {
+        File[] manifests = directory.listFiles((dir, name) -> name.endsWith(MANIFEST_SUFFIX));
+        if (manifests == null || manifests.length != 1) {
+            throw new IOException("Expected one " + MANIFEST_SUFFIX + " file in " + directory + ", found "
+                    + (manifests == null ? 0 : manifests.length));
+        }
+        return manifests[0];
+    }
+
+    /**
+     * Reads a manifest, whose lines look like {@code file appendonly.aof.2.base.rdb seq 2 type b}.
+     * History files (type {@code h}) are not loaded and need not exist.
+     */
+    private static AofFixture ofManifest(File manifest) throws IOException {
+        File directory = manifest.getAbsoluteFile().getParentFile();
+        List<File> files = new ArrayList<>();
+        int bases = 0;
+        for (String line : Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8)) {
+            String[] fields = line.trim().split("\\s+");
+            if (fields.length < 2 || !"file".equals(fields[0])) {
+                continue;
+            }
+            String type = null;
+            for (int i = 2; i + 1 < fields.length; i += 2) {
+                if ("type".equals(fields[i])) {
+                    type = fields[i + 1];
+                }
+            }
+            if ("h".equals(type)) {
+                continue;
+            }
+            if (!"b".equals(type) && !"i".equals(type)) {
+                throw new IOException("Unknown file type in manifest line: " + line);
+            }
+            if ("b".equals(type)) {
+                bases++;
+            }
+            File part = new File(directory, fields[1]);
+            if (!part.isFile()) {
+                throw new IOException("The manifest names a file that does not exist: " + part);
+            }
+            checkPart(part);
+            files.add(part);
+        }
+        if (bases != 1) {
+            throw new IOException("Expected one base file in " + manifest + ", found " + bases);
+        }
+        String name = manifest.getName();
+        return new AofFixture(directory, true, name.substring(0, name.length() - MANIFEST_SUFFIX.length()), files);
+    }
+
+    private static void checkPart(File part) throws IOException {
+        byte[] head = new byte[5];
+        int read;
+        try (InputStream in = Files.newInputStream(part.toPath())) {
+            read = in.readNBytes(head, 0, head.length);
+        }
+        if (read == 0) {
+            // an empty incr file, as written right after a rewrite
+            return;
+        }
+        if (read == head.length && "REDIS".equals(new String(head, StandardCharsets.US_ASCII))) {
+            // reads up to the end of the RDB part and checks its checksum, AOF commands may follow
+            RdbParser.summarize(part.toPath());
+        } else if (head[0] != '*') {
+            throw new IOException("Neither an AOF nor an RDB file: " + part);
+        }
+    }
+
+    /**
+     * Copies the fixture into the data directory, where the server will look for it.
+     *
+     * @param dataDir  the data directory
+     * @param dirName  the name of the AOF directory ({@code appenddirname})
+     * @param fileName the base name of the AOF files ({@code appendfilename})
+     * @throws IOException if copying failed
+     */
+    void provision(File dataDir, String dirName, String fileName) throws IOException {
+        if (multiPart) {
+            File target = new File(dataDir, dirName);
+            FileUtils.deleteDirectory(target);
+            FileUtils.copyDirectory(source, target);
+        } else {
+            FileUtils.copyFile(source, new File(dataDir, fileName));
+        }
+    }
+
+    /**
+     * @return the {@code appendfilename} the server must be started with to find the manifest of a
+     * multi-part AOF, null for a single file, which can have any name
+     */
+    String getFileName() {
+        return fileName;
+    }
+
+    boolean isMultiPart() {
+        return multiPart;
+    }
+
+    long getSize() {
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return (multiPart ? "multi-part AOF of " + files.size() + " files" : "AOF") + " of " + getSize()
+                + " bytes from " + source.getAbsolutePath();
+    }
+}
@@ -0,0 +1,53 @@
+package top.lihuu.redis4j;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * What {@link Redis#cloneFrom(Redis)} took: the time from {@code REPLICAOF} to the promotion of
+ * the clone, and the bytes it received from the template, mostly the RDB payload of the full
+ * synchronization. Compare it with {@link Redis#getDatasetLoadTime()} of an instance provisioned
+ * with the RDB file of the template.
+ */
+public final class CloneStatistics {
+
+    private final Duration elapsed;
+    private final long bytesTransferred;
+    private final long keys;
+
+    CloneStatistics(Duration elapsed, long bytesTransferred, long keys) {
+        this.elapsed = elapsed;
+        this.bytesTransferred = bytesTransferred;
+        this.keys = keys;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * @return the replication bytes received by the clone, -1 before Redis 7 which does not
+     * report them
+     */
+    public long getBytesTransferred() {
+        return bytesTransferred;
+    }
+
+    /**
+     * @return the keys of the clone, in all databases
+     */
+    public long getKeys() {
+        return keys;
+    }
+
+    public double getBytesPerSecond() {
+        long nanos = elapsed.toNanos();
+        return nanos == 0 || bytesTransferred < 0 ? 0 : bytesTransferred * 1_000_000_000d / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d keys, %d bytes in %d ms (%.1f MB/s)",
+                keys, bytesTransferred, elapsed.toMillis(), getBytesPerSecond() / (1024 * 1024));
+    }
+}
@@ -0,0 +1,184 @@
+package top.lihuu.redis4j;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A single server parameter change, applied at runtime through {@code CONFIG SET} by {@link
+ * Redis#reconfigure(ConfigChange...)}.
+ *
+ * <p>The value is kept in the canonical form that {@code CONFIG GET} reports back, so the change
+ * can be verified after it has been applied. Parameters that can only be given on startup (for
+ * example {@code io-threads}) are rejected by the server and have to be passed with {@link
+ * RedisConfigurationBuilder#addArg(String)} instead.
+ */
+public final class ConfigChange {
+
+    /**
+     * The eviction policies accepted by {@code maxmemory-policy}.
+     */
+    public enum MaxMemoryPolicy {
+        VOLATILE_LRU,
+        ALLKEYS_LRU,
+        VOLATILE_LFU,
+        ALLKEYS_LFU,
+        VOLATILE_RANDOM,
+        ALLKEYS_RANDOM,
+        VOLATILE_TTL,
+        NOEVICTION;
+
+        /**
+         * @return the value as understood by {@code CONFIG SET maxmemory-policy}
+         */
+        public String configValue() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    private final String name;
+    private final String value;
+
+    private ConfigChange(String name, String value) {
+        this.name = Objects.requireNonNull(name, "name");
+        this.value = Objects.requireNonNull(value, "value");
+    }
+
+    /**
+     * An untyped change, for parameters without a dedicated factory method.
+     *
+     * @param name  the parameter name, e.g. {@code active-expire-effort}
+     * @param value the value in the form {@code CONFIG GET} reports it
+     * @return the change
+     */
+    public static ConfigChange of(String name, String value) {
+        return new ConfigChange(name.toLowerCase(Locale.ROOT), value);
+    }
+
+    public static ConfigChange hz(int hz) {
+        if (hz < 1 || hz > 500) {
+            throw new IllegalArgumentException("hz must be between 1 and 500: " + hz);
+        }
+        return of("hz", String.valueOf(hz));
+    }
+
+    public static ConfigChange dynamicHz(boolean enabled) {
+        return of("dynamic-hz", yesNo(enabled));
+    }
+
+    public static ConfigChange maxmemory(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("maxmemory must not be negative: " + bytes);
+        }
+        return of("maxmemory", String.valueOf(bytes));
+    }
+
+    public static ConfigChange maxmemoryPolicy(MaxMemoryPolicy policy) {
+        return of("maxmemory-policy", policy.configValue());
+    }
+
+    public static ConfigChange maxmemorySamples(int samples) {
+        return of("maxmemory-samples", String.valueOf(samples));
+    }
+
+    public static ConfigChange lazyfreeLazyEviction(boolean enabled) {
+        return of("lazyfree-lazy-eviction", yesNo(enabled));
+    }
+
+    public static ConfigChange lazyfreeLazyExpire(boolean enabled) {
+        return of("lazyfree-lazy-expire", yesNo(enabled));
+    }
+
+    public static ConfigChange lazyfreeLazyServerDel(boolean enabled) {
+        return of("lazyfree-lazy-server-del", yesNo(enabled));
+    }
+
+    public static ConfigChange lazyfreeLazyUserDel(boolean enabled) {
+        return of("lazyfree-lazy-user-del", yesNo(enabled));
+    }
+
+    public static ConfigChange lazyfreeLazyUserFlush(boolean enabled) {
+        return of("lazyfree-lazy-user-flush", yesNo(enabled));
+    }
+
+    public static ConfigChange activeDefrag(boolean enabled) {
+        return of("activedefrag", yesNo(enabled));
+    }
+
+    public static ConfigChange appendfsync(String policy) {
+        return of("appendfsync", policy.toLowerCase(Locale.ROOT));
+    }
+
+    public static ConfigChange slowlogLogSlowerThan(long micros) {
+        return of("slowlog-log-slower-than", String.valueOf(micros));
+    }
+
+    /**
+     * Enables keyspace notifications, see {@code notify-keyspace-events} in redis.conf.
+     *
+     * @param flags e.g. {@code KEA} for all events on both channels, empty to disable
+     * @return the change
+     */
+    public static ConfigChange notifyKeyspaceEvents(String flags) {
+        return of("notify-keyspace-events", flags);
+    }
+
+    private static String yesNo(boolean enabled) {
+        return enabled ? "yes" : "no";
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Whether the value reported by {@code CONFIG GET} matches this change.
+     *
+     * @param reported the value as read back from the server
+     * @return true if the server now runs with this value
+     */
+    boolean isAppliedAs(String reported) {
+        if (reported == null) {
+            return false;
+        }
+        if (name.equals("notify-keyspace-events")) {
+            // the server reorders the flags and reports "A" for the set of all event classes
+            return keyspaceEventFlags(value).equals(keyspaceEventFlags(reported.trim()));
+        }
+        return value.equalsIgnoreCase(reported.trim());
+    }
+
+    private static Set<Character> keyspaceEventFlags(String flags) {
+        Set<Character> result = new TreeSet<>();
+        for (char flag : flags.replace("A", "g$lshzxetd").toCharArray()) {
+            result.add(flag);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ConfigChange that)) {
+            return false;
+        }
+        return name.equals(that.name) && value.equals(that.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, value);
+    }
+
+    @Override
+    public String toString() {
+        return name + "=" + value;
+    }
+}
@@ -20,7 +20,6 @@
 
 package top.lihuu.redis4j;
 
-import ch.vorburger.exec.ManagedProcess;
 import ch.vorburger.exec.ManagedProcessException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,7 +51,7 @@ class DBShutdownHook extends Thread implements FileVisitor<Path> {
     private static final Logger logger = LoggerFactory.getLogger(DBShutdownHook.class);
 
     private final Redis db;
-    private final Supplier<ManagedProcess> processSupplier;
+    private final Supplier<RedisProcess> processSupplier;
     private final Supplier<File> dataDirSupplier;
     private final Supplier<File> baseDirSupplier;
     private final RedisConfiguration configuration;
@@ -71,7 +70,7 @@ class DBShutdownHook extends Thread implements FileVisitor<Path> {
     public DBShutdownHook(
         String threadName,
         Redis db,
-        Supplier<ManagedProcess> mysqldProcessSupplier,
+        Supplier<RedisProcess> mysqldProcessSupplier,
         Supplier<File> baseDirSupplier,
         Supplier<File> dataDirSupplier,
         RedisConfiguration configuration) {
@@ -295,10 +294,7 @@ class DBShutdownHook extends Thread implements FileVisitor<Path> {
      */
     @Override
     public void run() {
-        ManagedProcess redisProcess = processSupplier.get();
-        // ManagedProcess DestroyOnShutdown ProcessDestroyer does
-        // something similar, but it shouldn't hurt to better be save
-        // than sorry and do it again ourselves here as well.
+        RedisProcess redisProcess = processSupplier.get();
         try {
             // Shut up and don't log if it was already stop() before
             if (redisProcess != null && redisProcess.isAlive()) {
@@ -0,0 +1,114 @@
+package top.lihuu.redis4j;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * What a fault injected with {@link Redis#pause(Duration)}, {@link Redis#slowdown(Duration)},
+ * {@link Redis#crash()} or {@link Redis#restart()} took. Line {@link #getStartedAt()} up with the
+ * metrics of the service under test to see how long it took to recover after the server did.
+ */
+public final class FaultTiming {
+
+    public enum Fault {
+        /**
+         * The server was stopped with {@code SIGSTOP} and continued with {@code SIGCONT}: its
+         * connections stay open but nothing is answered.
+         */
+        PAUSE,
+        /**
+         * The event loop of the server was blocked with {@code DEBUG SLEEP}, like by a slow
+         * command.
+         */
+        SLOWDOWN,
+        /**
+         * The server was killed with {@code SIGKILL}, without saving.
+         */
+        CRASH,
+        /**
+         * The server was started again on the same port and data directory.
+         */
+        RESTART
+    }
+
+    private final Fault fault;
+    private final Instant startedAt;
+    private final Duration duration;
+    private final Duration recoveryTime;
+    private final Duration unavailableTime;
+    private final Duration datasetLoadTime;
+    private final long keys;
+
+    FaultTiming(Fault fault, Instant startedAt, Duration duration, Duration recoveryTime, Duration unavailableTime,
+                Duration datasetLoadTime, long keys) {
+        this.fault = fault;
+        this.startedAt = startedAt;
+        this.duration = duration;
+        this.recoveryTime = recoveryTime;
+        this.unavailableTime = unavailableTime;
+        this.datasetLoadTime = datasetLoadTime;
+        this.keys = keys;
+    }
+
+    public Fault getFault() {
+        return fault;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * @return how long the fault itself lasted: the time the server was stopped, the time the
+     * {@code DEBUG SLEEP} took to answer, the time the killed server took to exit, or the time
+     * from the restart until the server logged that it accepts connections
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return from the end of the fault until the server answered a {@code PING}, null after a
+     * crash or a slowdown, that ends as the server answers again
+     */
+    public Duration getRecoveryTime() {
+        return recoveryTime;
+    }
+
+    /**
+     * @return from the start of the fault, or of the last {@link Redis#crash()} for a restart,
+     * until the server answered a {@code PING}; for a slowdown, how long a command sent during it
+     * waited; null after a crash, and for a restart that did not follow one
+     */
+    public Duration getUnavailableTime() {
+        return unavailableTime;
+    }
+
+    /**
+     * @return the time the restarted server took to load its RDB file or AOF, as it logged it,
+     * null if there was nothing to load or the fault was not a restart
+     */
+    public Duration getDatasetLoadTime() {
+        return datasetLoadTime;
+    }
+
+    /**
+     * @return the keys of the restarted server, in all databases, -1 if the fault was not a
+     * restart
+     */
+    public long getKeys() {
+        return keys;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s at %s: %d ms, recovered in %s ms, unavailable for %s ms%s", fault, startedAt,
+                duration.toMillis(), millis(recoveryTime), millis(unavailableTime),
+                fault == Fault.RESTART ? String.format(", %d keys loaded in %s ms", keys, millis(datasetLoadTime))
+                        : "");
+    }
+
+    private static String millis(Duration duration) {
+        return duration == null ? "-" : String.valueOf(duration.toMillis());
+    }
+}
@@ -0,0 +1,214 @@
+package top.lihuu.redis4j;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The parsed output of an {@code INFO} command, taken at a known point in time.
+ *
+ * <p>Fields are kept per section ({@code # Stats}, {@code # Commandstats}, ...), field names are
+ * unique across sections so {@link #get(String)} looks through all of them.
+ */
+public final class InfoSnapshot {
+
+    /**
+     * Calls and CPU time of a single command, from the {@code commandstats} section.
+     *
+     * @param calls         number of calls
+     * @param usec          total time spent, in microseconds
+     * @param rejectedCalls calls rejected before execution
+     * @param failedCalls   calls that failed during execution
+     */
+    public record CommandStat(long calls, long usec, long rejectedCalls, long failedCalls) {
+
+        public double usecPerCall() {
+            return calls == 0 ? 0 : (double) usec / calls;
+        }
+    }
+
+    private final long capturedAtNanos;
+    private final long capturedAtMillis;
+    private final Map<String, Map<String, String>> sections;
+
+    private InfoSnapshot(long capturedAtNanos, long capturedAtMillis,
+                         Map<String, Map<String, String>> sections) {
+        this.capturedAtNanos = capturedAtNanos;
+        this.capturedAtMillis = capturedAtMillis;
+        this.sections = sections;
+    }
+
+    /**
+     * Parses the raw {@code INFO} reply.
+     *
+     * @param info the reply, as returned by the server or redis-cli
+     * @return the snapshot, time stamped now
+     */
+    public static InfoSnapshot parse(String info) {
+        Map<String, Map<String, String>> sections = new LinkedHashMap<>();
+        Map<String, String> current = new LinkedHashMap<>();
+        sections.put("", current);
+        for (String line : info.split("\r?\n")) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.startsWith("#")) {
+                current = sections.computeIfAbsent(line.substring(1).trim().toLowerCase(Locale.ROOT),
+                        s -> new LinkedHashMap<>());
+                continue;
+            }
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                current.put(line.substring(0, colon), line.substring(colon + 1));
+            }
+        }
+        return new InfoSnapshot(System.nanoTime(), System.currentTimeMillis(), sections);
+    }
+
+    public long getCapturedAtNanos() {
+        return capturedAtNanos;
+    }
+
+    public long getCapturedAtMillis() {
+        return capturedAtMillis;
+    }
+
+    /**
+     * @param section section name in lower case, e.g. {@code stats}
+     * @return the fields of that section, empty if it was not part of the reply
+     */
+    public Map<String, String> section(String section) {
+        return Collections.unmodifiableMap(sections.getOrDefault(section, Collections.emptyMap()));
+    }
+
+    /**
+     * @param field field name, e.g. {@code total_commands_processed}
+     * @return the value, or null if no section contains the field
+     */
+    public String get(String field) {
+        for (Map<String, String> fields : sections.values()) {
+            String value = fields.get(field);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    public long getLong(String field, long defaultValue) {
+        String value = get(field);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public double getDouble(String field, double defaultValue) {
+        String value = get(field);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @return per command statistics keyed by command name (e.g. {@code get}, {@code config|set})
+     */
+    public Map<String, CommandStat> commandStats() {
+        Map<String, CommandStat> stats = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : section("commandstats").entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith("cmdstat_")) {
+                continue;
+            }
+            Map<String, String> values = parseNested(entry.getValue());
+            stats.put(key.substring("cmdstat_".length()), new CommandStat(
+                    parseLong(values.get("calls")),
+                    parseLong(values.get("usec")),
+                    parseLong(values.get("rejected_calls")),
+                    parseLong(values.get("failed_calls"))));
+        }
+        return stats;
+    }
+
+    /**
+     * @return the number of keys per database, from the keyspace section, which leaves out the
+     * empty databases
+     */
+    public Map<Integer, Long> keyspace() {
+        Map<Integer, Long> keys = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : section("keyspace").entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith("db")) {
+                continue;
+            }
+            try {
+                keys.put(Integer.parseInt(key.substring(2)), parseLong(parseNested(entry.getValue()).get("keys")));
+            } catch (NumberFormatException e) {
+                // leave out what cannot be parsed
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * @return per command latency percentiles in microseconds keyed by command name and then by
+     * percentile (e.g. {@code p99}), from the latencystats section of Redis 7 or later; they
+     * cover all calls since the server started or {@code CONFIG RESETSTAT}
+     */
+    public Map<String, Map<String, Double>> latencyPercentiles() {
+        Map<String, Map<String, Double>> percentiles = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : section("latencystats").entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith("latency_percentiles_usec_")) {
+                continue;
+            }
+            Map<String, Double> values = new LinkedHashMap<>();
+            for (Map.Entry<String, String> value : parseNested(entry.getValue()).entrySet()) {
+                try {
+                    values.put(value.getKey(), Double.parseDouble(value.getValue().trim()));
+                } catch (NumberFormatException e) {
+                    // leave out what cannot be parsed
+                }
+            }
+            percentiles.put(key.substring("latency_percentiles_usec_".length()), values);
+        }
+        return percentiles;
+    }
+
+    /**
+     * Splits the {@code a=1,b=2} values used by the commandstats, latencystats and keyspace
+     * sections.
+     */
+    static Map<String, String> parseNested(String value) {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String pair : value.split(",")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                result.put(pair.substring(0, eq), pair.substring(eq + 1));
+            }
+        }
+        return result;
+    }
+
+    private static long parseLong(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
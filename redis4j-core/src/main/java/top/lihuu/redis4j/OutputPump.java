@@ -0,0 +1,46 @@
+package top.lihuu.redis4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Reads the output of all processes started by this library, line by line.
+ *
+ * <p>There is one pump per JVM. Every stream is read on its own virtual thread, so a process costs
+ * no platform thread no matter how many instances are running.
+ */
+final class OutputPump {
+
+    private static final ExecutorService EXECUTOR = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("redis4j-output-", 0).factory());
+
+    private OutputPump() {
+    }
+
+    /**
+     * Starts reading a stream until it reaches its end.
+     *
+     * @param stream the stream, closed when done
+     * @param lines  receives every line, without the line terminator
+     * @return completed when the end of the stream has been reached
+     */
+    static CompletableFuture<Void> pump(InputStream stream, Consumer<String> lines) {
+        return CompletableFuture.runAsync(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines.accept(line);
+                }
+            } catch (IOException e) {
+                // the process has gone away, nothing more to read
+            }
+        }, EXECUTOR);
+    }
+}
@@ -0,0 +1,78 @@
+package top.lihuu.redis4j;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Throughput and latency of the server between two {@link InfoSnapshot}s.
+ *
+ * <p>Latency is the server side execution time from {@code INFO commandstats}, averaged over all
+ * commands executed in the phase. It does not include network or queueing time.
+ */
+public final class PhaseStatistics {
+
+    private final Duration elapsed;
+    private final long commandsProcessed;
+    private final long calls;
+    private final long usec;
+
+    private PhaseStatistics(Duration elapsed, long commandsProcessed, long calls, long usec) {
+        this.elapsed = elapsed;
+        this.commandsProcessed = commandsProcessed;
+        this.calls = calls;
+        this.usec = usec;
+    }
+
+    /**
+     * @param from snapshot at the start of the phase
+     * @param to   snapshot at the end of the phase
+     * @return the statistics of the phase
+     */
+    public static PhaseStatistics between(InfoSnapshot from, InfoSnapshot to) {
+        Duration elapsed = Duration.ofNanos(to.getCapturedAtNanos() - from.getCapturedAtNanos());
+        long commands = to.getLong("total_commands_processed", 0)
+                - from.getLong("total_commands_processed", 0);
+
+        Map<String, InfoSnapshot.CommandStat> before = from.commandStats();
+        long calls = 0;
+        long usec = 0;
+        for (Map.Entry<String, InfoSnapshot.CommandStat> entry : to.commandStats().entrySet()) {
+            InfoSnapshot.CommandStat previous = before.get(entry.getKey());
+            long previousCalls = previous == null ? 0 : previous.calls();
+            long previousUsec = previous == null ? 0 : previous.usec();
+            // CONFIG RESETSTAT in between makes the counters go backwards, ignore those commands
+            if (entry.getValue().calls() >= previousCalls) {
+                calls += entry.getValue().calls() - previousCalls;
+                usec += entry.getValue().usec() - previousUsec;
+            }
+        }
+        return new PhaseStatistics(elapsed, Math.max(0, commands), calls, usec);
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    public long getCommandsProcessed() {
+        return commandsProcessed;
+    }
+
+    public double getOpsPerSecond() {
+        long nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : commandsProcessed * 1_000_000_000d / nanos;
+    }
+
+    /**
+     * @return average server side execution time per call in microseconds
+     */
+    public double getAverageLatencyMicros() {
+        return calls == 0 ? 0 : (double) usec / calls;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d commands in %d ms (%.1f ops/sec, %.2f usec/call)",
+                commandsProcessed, elapsed.toMillis(), getOpsPerSecond(), getAverageLatencyMicros());
+    }
+}
@@ -1,16 +1,43 @@
 package top.lihuu.redis4j;
 
-import ch.vorburger.exec.ManagedProcess;
-import ch.vorburger.exec.ManagedProcessBuilder;
 import ch.vorburger.exec.ManagedProcessException;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import top.lihuu.redis4j.client.NearCache;
+import top.lihuu.redis4j.client.PubSubSubscription;
+import top.lihuu.redis4j.client.RedisAsyncClient;
+import top.lihuu.redis4j.client.RedisConnection;
+import top.lihuu.redis4j.client.RedisConnectionPool;
+import top.lihuu.redis4j.client.SubscriptionOptions;
+import top.lihuu.redis4j.memory.MemoryAnalyzer;
+import top.lihuu.redis4j.memory.MemoryReport;
+import top.lihuu.redis4j.net.NetworkConditions;
+import top.lihuu.redis4j.net.NetworkProxy;
+import top.lihuu.redis4j.profile.ProfilingSession;
+import top.lihuu.redis4j.profile.RedisProfiler;
+import top.lihuu.redis4j.rdb.RdbParser;
+import top.lihuu.redis4j.rdb.RdbSummary;
+import top.lihuu.redis4j.trace.CommandCapture;
 
-import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.TimeoutException;
 
 import static top.lihuu.redis4j.RedisConfiguration.Executable.*;
 
@@ -18,16 +45,35 @@ public class Redis implements Closeable {
 
     private static final Logger logger = LoggerFactory.getLogger(Redis.class);
 
+    private static final int SERVER_LOG_LINES_RETAINED = 10000;
+
+    private static final String LOCALHOST = "127.0.0.1";
+
     protected final RedisConfiguration configuration;
 
     private File baseDir;
     private File dataDir;
-    private ManagedProcess redisProcess;
+    private int port;
+    private boolean reused;
+    private boolean leased;
+    private RedisProcess redisProcess;
+    private InfoSnapshot tuningMark;
+    private RdbSummary initRdbSummary;
+    private AofFixture initAof;
+    private Duration datasetLoadTime;
+    private long crashedAtNanos;
 
     protected int dbStartMaxWaitInMS = 30000;
 
+    protected int consoleLinesRetained = 100;
+
+    private final ServerLog serverLog;
+    private final List<RedisConnectionPool> connectionPools = new CopyOnWriteArrayList<>();
+
     protected Redis(RedisConfiguration config) {
         configuration = config;
+        port = config.getPort();
+        serverLog = new ServerLog("redis-server", SERVER_LOG_LINES_RETAINED);
     }
 
     /**
@@ -52,8 +98,49 @@ public class Redis implements Closeable {
         return db;
     }
 
+    /**
+     * The port of the server: the one of the configuration, unless a server left running for
+     * reuse was adopted, see {@link RedisConfigurationBuilder#setReusable(boolean)}.
+     *
+     * @return the port
+     */
     public int getPort() {
-        return configuration.getPort();
+        return port;
+    }
+
+    /**
+     * @return whether the last {@link #start()} adopted a server left running by an earlier run
+     * rather than starting one; the {@link #getServerLog() server log} is then empty
+     */
+    public boolean isReused() {
+        return reused;
+    }
+
+    /**
+     * The output of redis-server, across restarts of this instance. Use it to read the retained
+     * log lines or to subscribe to {@link ServerLogEvent}s such as background saves.
+     *
+     * @return the server log
+     */
+    public ServerLog getServerLog() {
+        return serverLog;
+    }
+
+    /**
+     * Completes with the exit value of the redis-server started by the last {@link #start()} or
+     * {@link #restart()} once it has exited and its output was read: after {@link #stop()}, a
+     * {@link #crash()}, or if it failed on its own. Completing the returned future does not affect
+     * the server.
+     *
+     * @return the exit of the server
+     * @throws IllegalStateException if this instance did not start a server, e.g. because it
+     *                               adopted a reusable one
+     */
+    public synchronized CompletableFuture<Integer> onExit() {
+        if (redisProcess == null) {
+            throw new IllegalStateException("No redis-server was started by this instance");
+        }
+        return redisProcess.onExit().copy();
     }
 
 
@@ -83,12 +170,32 @@ public class Redis implements Closeable {
     }
 
     public synchronized void start() throws ManagedProcessException {
+        if (configuration.getReuseKey() != null) {
+            if (adoptReusableServer()) {
+                return;
+            }
+            port = configuration.getPort();
+            dataDir = configuration.getDataDir();
+            prepareDataDirectory();
+        }
+        startServer();
+        if (configuration.getReuseKey() != null) {
+            registerForReuse();
+        }
+    }
+
+    /**
+     * Starts redis-server on the port and data directory of this instance, and waits until it
+     * accepts connections.
+     */
+    private void startServer() throws ManagedProcessException {
         logger.info("Starting up redis-server...");
         boolean ready;
+        long startMaxWaitInMS = getStartMaxWaitInMS();
+        Instant startedAt = Instant.now();
         try {
             redisProcess = startPreparation();
-            ready = redisProcess.startAndWaitForConsoleMessageMaxMs(
-                    getReadyForConnectionsTag(), dbStartMaxWaitInMS);
+            ready = redisProcess.waitForConsoleMessage(getReadyForConnectionsTag(), startMaxWaitInMS);
         } catch (Exception e) {
             logger.error("failed to start redis-server", e);
             throw new ManagedProcessException("An error occurred while starting redis-server", e);
@@ -99,12 +206,181 @@ public class Redis implements Closeable {
             }
             throw new ManagedProcessException(
                     "Database does not seem to have started up correctly? Magic string not seen in "
-                            + dbStartMaxWaitInMS
+                            + startMaxWaitInMS
                             + "ms: "
                             + getReadyForConnectionsTag()
                             + redisProcess.getLastConsoleLines());
         }
         logger.info("Database startup complete.");
+        recordDatasetLoadTime(startedAt);
+    }
+
+    /**
+     * Looks for an idle server started with the same configuration, and leases it if it can be
+     * emptied: with {@code FLUSHALL}, or, if there is a fixture, by checking that its dataset was
+     * not changed since it was loaded.
+     */
+    private boolean adoptReusableServer() throws ManagedProcessException {
+        String key = configuration.getReuseKey();
+        boolean fixture = configuration.getInitRdbFile() != null || configuration.getInitAofFile() != null;
+        long self = ProcessHandle.current().pid();
+        ReuseRegistry.Entry adopted;
+        try {
+            adopted = ReuseRegistry.getDefault().update(entries -> {
+                for (ReuseRegistry.Entry entry : new ArrayList<>(entries.values())) {
+                    if (!entry.key().equals(key) || entry.isLeased()) {
+                        continue;
+                    }
+                    if (entry.isServerAlive() && reset(entry.port(), fixture)) {
+                        ReuseRegistry.Entry leased = entry.withLease(self);
+                        entries.put(entry.port(), leased);
+                        return leased;
+                    }
+                    entries.remove(entry.port());
+                    if (Util.isTemporaryDirectory(entry.dataDir()) && !entry.dataDir().equals(dataDir)) {
+                        try {
+                            FileUtils.deleteDirectory(entry.dataDir());
+                        } catch (IOException e) {
+                            logger.warn("Could not delete the data directory {}", entry.dataDir(), e);
+                        }
+                    }
+                }
+                return null;
+            });
+        } catch (IOException e) {
+            throw new ManagedProcessException("Could not read the registry of reusable servers", e);
+        }
+        if (adopted == null) {
+            return false;
+        }
+        port = adopted.port();
+        dataDir = adopted.dataDir();
+        reused = true;
+        leased = true;
+        datasetLoadTime = null;
+        logger.info("Reusing redis-server on port {} (pid {})", port, adopted.pid());
+        return true;
+    }
+
+    /**
+     * @return true if the server can be used as if it was just started, false if it was shut down
+     * or cannot be reached
+     */
+    private static boolean reset(int port, boolean fixture) {
+        try (RedisConnection connection = RedisConnection.open(LOCALHOST, port)) {
+            connection.execute("PING");
+            if (fixture) {
+                InfoSnapshot persistence = InfoSnapshot.parse((String) connection.execute("INFO", "persistence"));
+                // a save resets the changes counter, and may have saved changes
+                if (persistence.getLong("rdb_changes_since_last_save", 1) != 0
+                        || persistence.getLong("rdb_saves", 0) != 0) {
+                    logger.info("The dataset of the reusable redis-server on port {} was changed, shutting it down",
+                            port);
+                    try {
+                        connection.execute("SHUTDOWN", "NOSAVE");
+                    } catch (IOException e) {
+                        // the connection is closed by the shutdown
+                    }
+                    return false;
+                }
+            } else {
+                connection.execute("FLUSHALL");
+            }
+            connection.execute("SCRIPT", "FLUSH");
+            connection.execute("CONFIG", "RESETSTAT");
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Registers the server just started as leased by this JVM, and starts its watchdog.
+     */
+    private void registerForReuse() throws ManagedProcessException {
+        ReuseRegistry registry = ReuseRegistry.getDefault();
+        try {
+            // the pid of the server itself, redisProcess may be a wrapper
+            long pid = info("server").getLong("process_id", redisProcess.pid());
+            ReuseRegistry.Entry entry = new ReuseRegistry.Entry(port, configuration.getReuseKey(), pid,
+                    ProcessHandle.current().pid(), dataDir);
+            registry.update(entries -> entries.put(port, entry));
+            ReuseWatchdog.spawn(registry, port, configuration.getReuseIdleTimeout());
+        } catch (IOException e) {
+            throw new ManagedProcessException("Could not register redis-server for reuse", e);
+        }
+        reused = false;
+        leased = true;
+        logger.info("redis-server on port {} will be left running for reuse", port);
+    }
+
+    /**
+     * Returns the server to the registry, for the next run to adopt.
+     */
+    private void releaseForReuse() throws ManagedProcessException {
+        if (!leased) {
+            return;
+        }
+        leased = false;
+        long self = ProcessHandle.current().pid();
+        try {
+            ReuseRegistry.getDefault().update(entries -> {
+                ReuseRegistry.Entry entry = entries.get(port);
+                if (entry != null && entry.leasedBy() == self) {
+                    entries.put(port, entry.withLease(0));
+                }
+                return null;
+            });
+        } catch (IOException e) {
+            throw new ManagedProcessException("Could not update the registry of reusable servers", e);
+        }
+        logger.info("Left redis-server on port {} running for reuse", port);
+    }
+
+    private void recordDatasetLoadTime(Instant startedAt) {
+        datasetLoadTime = null;
+        try {
+            // logged before the ready line, so it has been seen already if there was a dataset
+            serverLog.awaitEvent(ServerLogEvent.Type.DB_LOADED, startedAt, Duration.ZERO).ifPresent(event -> {
+                datasetLoadTime = Duration.ofNanos((long) (event.value() * 1_000_000_000L));
+                logger.info("Dataset loaded from {} in {} ms", initAof != null ? "AOF" : "RDB file",
+                        datasetLoadTime.toMillis());
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns how long the server took to load its dataset, from an RDB file or an AOF, at the
+     * last {@link #start()}, as the server logged it. Compare the load times of the same dataset
+     * provisioned with {@link RedisConfigurationBuilder#setInitRdbFile(File)} and {@link
+     * RedisConfigurationBuilder#setInitAofFile(File)}.
+     *
+     * @return the load time, with millisecond precision, or null if there was nothing to load
+     */
+    public Duration getDatasetLoadTime() {
+        return datasetLoadTime;
+    }
+
+    /**
+     * The time to wait for the server to become ready: {@link #dbStartMaxWaitInMS}, plus twice
+     * the estimated load time of the initial RDB file, so a large fixture does not time out.
+     */
+    private long getStartMaxWaitInMS() {
+        if (initRdbSummary == null) {
+            return dbStartMaxWaitInMS;
+        }
+        return dbStartMaxWaitInMS + 2 * initRdbSummary.estimateLoadTime().toMillis();
+    }
+
+    /**
+     * Returns the summary of the initial RDB file, read when the data directory was prepared.
+     *
+     * @return the summary, or null if no initial RDB file is configured
+     */
+    public RdbSummary getInitRdbSummary() {
+        return initRdbSummary;
     }
 
     /**
@@ -124,38 +400,44 @@ public class Redis implements Closeable {
         return path;
     }
 
-    synchronized ManagedProcess startPreparation() throws IOException {
-        ManagedProcessBuilder builder = new ManagedProcessBuilder(configuration.getExecutable(Server));
+    synchronized RedisProcess startPreparation() throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(configuration.getExecutable(Server).getAbsolutePath());
 
-        builder.addArgument(getSuitableFilePath(baseDir.getAbsolutePath() + File.separator + "redis.conf"));
+        command.add(getSuitableFilePath(baseDir.getAbsolutePath() + File.separator + "redis.conf"));
 
         // always use --daemonize no, we can catch output to confirm the redis-server has been started.
-        builder.addArgument("--daemonize");
-        builder.addArgument("no");
+        command.add("--daemonize");
+        command.add("no");
 
         if (!hasArgument("--appendonly")) {
-            builder.addArgument("--appendonly");
-            builder.addArgument("no");
+            command.add("--appendonly");
+            command.add(initAof != null ? "yes" : "no");
+        }
+
+        if (initAof != null && initAof.getFileName() != null && !hasArgument("--appendfilename")) {
+            command.add("--appendfilename");
+            command.add(initAof.getFileName());
         }
 
         if (!hasArgument("--protected-mode")) {
-            builder.addArgument("--protected-mode");
-            builder.addArgument("yes");
+            command.add("--protected-mode");
+            command.add("yes");
         }
 
 
-        builder.addArgument("--dir");
-        builder.addArgument(getSuitableFilePath(dataDir.getAbsolutePath()));
+        command.add("--dir");
+        command.add(getSuitableFilePath(dataDir.getAbsolutePath()));
 
-        addPortAndMaybeSocketArguments(builder);
-        for (String arg : configuration.getArgs()) {
-            builder.addArgument(arg);
-        }
+        addPortAndMaybeSocketArguments(command);
+        command.addAll(configuration.getArgs());
 
-        cleanupOnExit();
-        builder.setDestroyOnShutdown(false);
-        logger.info("redis executable: " + builder.getExecutable());
-        return builder.build();
+        if (configuration.getReuseKey() == null) {
+            cleanupOnExit();
+        }
+        logger.info("redis executable: " + command.get(0));
+        return RedisProcess.start(command, baseDir, configuration.getProcessListener(),
+                consoleLinesRetained, serverLog::append);
     }
 
     /**
@@ -168,18 +450,366 @@ public class Redis implements Closeable {
      * @throws ManagedProcessException
      */
     public String runCommand(String command) throws ManagedProcessException {
-        ManagedProcessBuilder managedProcessBuilder = new ManagedProcessBuilder(configuration.getExecutable(Client));
-        ByteArrayOutputStream stdOutput = new ByteArrayOutputStream();
-        managedProcessBuilder.addStdOut(stdOutput);
-        managedProcessBuilder.addArgument("-p");
-        managedProcessBuilder.addArgument(configuration.getPort() + "");
-        String[] commandParts = command.split(" ");
-        for (String part : commandParts) {
-            managedProcessBuilder.addArgument(part);
+        return runCommand(Arrays.asList(command.split(" ")));
+    }
+
+    /**
+     * Runs a command using the Redis client, passing each argument as is. Use this instead of
+     * {@link #runCommand(String)} when an argument contains spaces.
+     *
+     * @param args the command and its arguments
+     * @return the output of redis-cli
+     * @throws ManagedProcessException if redis-cli could not be run
+     */
+    public String runCommand(List<String> args) throws ManagedProcessException {
+        List<String> command = new ArrayList<>();
+        command.add(configuration.getExecutable(Client).getAbsolutePath());
+        command.add("-p");
+        command.add(String.valueOf(getPort()));
+        command.addAll(args);
+        ProcessBuilder builder = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD);
+        try {
+            Process process = builder.start();
+            process.getOutputStream().close();
+            String output;
+            try (InputStream stdOutput = process.getInputStream()) {
+                output = new String(stdOutput.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            process.waitFor();
+            return output;
+        } catch (IOException e) {
+            throw new ManagedProcessException("Could not run " + command, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagedProcessException("Interrupted while running " + command, e);
+        }
+    }
+
+    /**
+     * Runs {@code INFO} and parses the reply.
+     *
+     * @param section the section to query, e.g. {@code stats}, or {@code everything}
+     * @return the parsed reply
+     * @throws ManagedProcessException if redis-cli could not be run
+     */
+    public InfoSnapshot info(String section) throws ManagedProcessException {
+        return InfoSnapshot.parse(runCommand(List.of("INFO", section)));
+    }
+
+    /**
+     * Reads a server parameter with {@code CONFIG GET}.
+     *
+     * @param name the parameter name
+     * @return the value, or null if the server does not know the parameter
+     * @throws ManagedProcessException if redis-cli could not be run
+     */
+    public String configGet(String name) throws ManagedProcessException {
+        String[] lines = runCommand(List.of("CONFIG", "GET", name)).split("\r?\n", -1);
+        for (int i = 0; i + 1 < lines.length; i += 2) {
+            if (lines[i].equalsIgnoreCase(name)) {
+                return lines[i + 1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Applies a single change with {@code CONFIG SET} and verifies it with {@code CONFIG GET}.
+     *
+     * @param change the change
+     * @throws ManagedProcessException if the change was rejected or did not take effect
+     */
+    public void configSet(ConfigChange change) throws ManagedProcessException {
+        String result = runCommand(List.of("CONFIG", "SET", change.getName(), change.getValue()));
+        if (!"OK".equals(result.trim())) {
+            throw new ManagedProcessException("CONFIG SET " + change + " failed: " + result.trim());
+        }
+        String applied = configGet(change.getName());
+        if (!change.isAppliedAs(applied)) {
+            throw new ManagedProcessException(
+                    "CONFIG SET " + change + " did not take effect, CONFIG GET returned: " + applied);
+        }
+        logger.info("Reconfigured {}", change);
+    }
+
+    /**
+     * Applies server parameter changes at runtime with {@code CONFIG SET} and verifies each of them
+     * with {@code CONFIG GET}, without restarting the server.
+     *
+     * <p>An INFO snapshot is taken right before the changes are applied. It closes the phase that
+     * started with the previous call (measured in {@link TuningStep#getBefore()}) and opens the
+     * phase that {@link TuningStep#measure()} measures.
+     *
+     * @param changes the changes to apply, in order
+     * @return the tuning step
+     * @throws ManagedProcessException if a change was rejected or did not take effect
+     */
+    public synchronized TuningStep reconfigure(ConfigChange... changes) throws ManagedProcessException {
+        InfoSnapshot snapshot = info("everything");
+        PhaseStatistics before = tuningMark == null ? null : PhaseStatistics.between(tuningMark, snapshot);
+
+        for (ConfigChange change : changes) {
+            configSet(change);
+        }
+
+        tuningMark = snapshot;
+        TuningStep step = new TuningStep(this, Arrays.asList(changes), before, snapshot);
+        if (before != null) {
+            logger.info("Phase before {}: {}", step.getChanges(), before);
+        }
+        return step;
+    }
+
+    /**
+     * Copies the dataset of a running, already seeded template into this server through
+     * replication, with the timeout of {@link #start()}. See {@link #cloneFrom(Redis, Duration)}.
+     *
+     * @param template the server to copy
+     * @return the time and bytes of the copy
+     * @throws ManagedProcessException if the synchronization failed or timed out
+     */
+    public CloneStatistics cloneFrom(Redis template) throws ManagedProcessException {
+        return cloneFrom(template, Duration.ofMillis(dbStartMaxWaitInMS));
+    }
+
+    /**
+     * Copies the dataset of a running, already seeded template into this server through
+     * replication: this server becomes a replica of the template with {@code REPLICAOF}, receives
+     * a diskless full synchronization, and is promoted back to a master with {@code REPLICAOF NO
+     * ONE} once {@code master_sync_in_progress} is 0. Unlike an initial RDB file, the template
+     * serializes its dataset from memory and neither side writes or parses a file.
+     *
+     * <p>The previous dataset of this server is discarded. For the duration of the copy, the
+     * template syncs without delay ({@code repl-diskless-sync-delay 0}) and this server loads the
+     * payload from the socket ({@code repl-diskless-load on-empty-db}); both settings are restored
+     * afterwards. Keys written to the template after the synchronization are not copied.
+     *
+     * @param template the server to copy, started
+     * @param timeout  how long to wait for the synchronization at most
+     * @return the time and bytes of the copy
+     * @throws ManagedProcessException if the synchronization failed or timed out
+     */
+    public synchronized CloneStatistics cloneFrom(Redis template, Duration timeout) throws ManagedProcessException {
+        long start = System.nanoTime();
+        try (RedisConnection source = RedisConnection.open(LOCALHOST, template.getPort());
+             RedisConnection target = RedisConnection.open(LOCALHOST, getPort())) {
+            String disklessSync = configGet(source, "repl-diskless-sync");
+            String disklessSyncDelay = configGet(source, "repl-diskless-sync-delay");
+            String disklessLoad = configGet(target, "repl-diskless-load");
+            long inputBefore = InfoSnapshot.parse((String) target.execute("INFO", "stats"))
+                    .getLong("total_net_repl_input_bytes", -1);
+            source.execute("CONFIG", "SET", "repl-diskless-sync", "yes");
+            source.execute("CONFIG", "SET", "repl-diskless-sync-delay", "0");
+            target.execute("CONFIG", "SET", "repl-diskless-load", "on-empty-db");
+            try {
+                target.execute("REPLICAOF", LOCALHOST, Integer.toString(template.getPort()));
+                awaitSynchronized(target, template.getPort(), start + timeout.toNanos());
+            } finally {
+                target.execute("REPLICAOF", "NO", "ONE");
+                target.execute("CONFIG", "SET", "repl-diskless-load", disklessLoad);
+                source.execute("CONFIG", "SET", "repl-diskless-sync", disklessSync);
+                source.execute("CONFIG", "SET", "repl-diskless-sync-delay", disklessSyncDelay);
+            }
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            InfoSnapshot info = InfoSnapshot.parse((String) target.execute("INFO", "stats"));
+            long inputAfter = info.getLong("total_net_repl_input_bytes", -1);
+            long keys = InfoSnapshot.parse((String) target.execute("INFO", "keyspace")).keyspace().values().stream()
+                    .mapToLong(Long::longValue).sum();
+            CloneStatistics statistics = new CloneStatistics(elapsed,
+                    inputBefore < 0 || inputAfter < 0 ? -1 : inputAfter - inputBefore, keys);
+            logger.info("Cloned the dataset of port {}: {}", template.getPort(), statistics);
+            return statistics;
+        } catch (IOException e) {
+            throw new ManagedProcessException("Could not clone the dataset of port " + template.getPort(), e);
+        }
+    }
+
+    private static void awaitSynchronized(RedisConnection target, int templatePort, long deadline)
+            throws IOException, ManagedProcessException {
+        while (true) {
+            InfoSnapshot replication = InfoSnapshot.parse((String) target.execute("INFO", "replication"));
+            // the link is only up once the payload has been loaded
+            if ("up".equals(replication.get("master_link_status"))
+                    && replication.getLong("master_sync_in_progress", 1) == 0) {
+                return;
+            }
+            if (System.nanoTime() - deadline > 0) {
+                throw new ManagedProcessException("The synchronization with port " + templatePort
+                        + " did not complete in time: " + replication.section("replication"));
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ManagedProcessException("Interrupted while synchronizing with port " + templatePort, e);
+            }
+        }
+    }
+
+    private static String configGet(RedisConnection connection, String name) throws IOException {
+        return (String) ((List<?>) connection.execute("CONFIG", "GET", name)).get(1);
+    }
+
+    /**
+     * Opens a new connection to this server. The caller owns it and has to close it.
+     *
+     * @return the connection
+     * @throws IOException if the server cannot be reached
+     */
+    public RedisConnection openConnection() throws IOException {
+        return RedisConnection.open(LOCALHOST, getPort());
+    }
+
+    /**
+     * Opens a pool of connections to this server. {@link #stop()} drains and closes it before
+     * stopping the server.
+     *
+     * @param builder the pool settings, host and port are set here
+     * @return the pool
+     * @throws IOException if the initial connections cannot be opened
+     */
+    public RedisConnectionPool openConnectionPool(RedisConnectionPool.Builder builder) throws IOException {
+        RedisConnectionPool pool = builder.setHost(LOCALHOST).setPort(getPort()).build();
+        connectionPools.add(pool);
+        return pool;
+    }
+
+    /**
+     * Starts a proxy in front of this server that simulates a network between it and the clients
+     * that connect to {@link NetworkProxy#getPort()}. The caller owns it and has to close it.
+     *
+     * @param conditions the latency, jitter and bandwidth to simulate
+     * @return the running proxy
+     * @throws IOException if the proxy cannot listen
+     */
+    public NetworkProxy startProxy(NetworkConditions conditions) throws IOException {
+        return NetworkProxy.newBuilder().setHost(LOCALHOST).setPort(getPort()).setConditions(conditions).build();
+    }
+
+    /**
+     * Opens a non-blocking client whose connections are shared by all calling threads. The
+     * caller owns it and has to close it.
+     *
+     * @param connections the number of connections
+     * @return the client
+     * @throws IOException if the server cannot be reached
+     */
+    public RedisAsyncClient openAsyncClient(int connections) throws IOException {
+        return RedisAsyncClient.newBuilder()
+                .setHost(LOCALHOST)
+                .setPort(getPort())
+                .setConnections(connections)
+                .build();
+    }
+
+    /**
+     * Opens a client side cache kept up to date with {@code CLIENT TRACKING}. The caller owns it
+     * and has to close it.
+     *
+     * @param maxEntries the number of keys to cache at most
+     * @return the cache
+     * @throws IOException if the server cannot be reached
+     */
+    public NearCache openNearCache(int maxEntries) throws IOException {
+        return NearCache.open(LOCALHOST, getPort(), maxEntries);
+    }
+
+    /**
+     * Measures the memory used by the keys, grouped by key pattern and type, with the default
+     * settings of {@link MemoryAnalyzer}.
+     *
+     * @return the report
+     * @throws IOException if the server cannot be reached
+     */
+    public MemoryReport analyzeMemory() throws IOException {
+        return analyzeMemory(MemoryAnalyzer.newBuilder());
+    }
+
+    /**
+     * Measures the memory used by the keys, grouped by key pattern and type.
+     *
+     * @param builder the analyzer settings
+     * @return the report
+     * @throws IOException if the server cannot be reached
+     */
+    public MemoryReport analyzeMemory(MemoryAnalyzer.Builder builder) throws IOException {
+        return builder.build().analyze(LOCALHOST, getPort());
+    }
+
+    /**
+     * Starts a profiling window with the default settings of {@link RedisProfiler}: the report of
+     * {@link ProfilingSession#stop()} ranks the commands by execution time.
+     *
+     * @return the running session
+     * @throws IOException if the server cannot be reached
+     */
+    public ProfilingSession startProfiling() throws IOException {
+        return startProfiling(RedisProfiler.newBuilder());
+    }
+
+    /**
+     * Starts a profiling window, that can also rank the hottest keys.
+     *
+     * @param builder the profiler settings
+     * @return the running session
+     * @throws IOException if the server cannot be reached
+     */
+    public ProfilingSession startProfiling(RedisProfiler.Builder builder) throws IOException {
+        return builder.build().start(LOCALHOST, getPort());
+    }
+
+    /**
+     * Subscribes to channels and patterns on a dedicated connection. The returned subscription is
+     * a {@link java.util.concurrent.Flow.Publisher} of the received messages.
+     *
+     * @param options channels, patterns and buffering
+     * @return the subscription, close it to unsubscribe
+     * @throws IOException if the connection or a subscription failed
+     */
+    public PubSubSubscription subscribe(SubscriptionOptions options) throws IOException {
+        return PubSubSubscription.open(LOCALHOST, getPort(), options);
+    }
+
+    /**
+     * Enables or disables keyspace notifications at runtime, see {@code notify-keyspace-events}
+     * in redis.conf.
+     *
+     * @param flags e.g. {@code KEA} for all events on both keyspace and keyevent channels, {@code
+     *              Kx} for expirations on the keyspace channel only, empty to disable
+     * @throws ManagedProcessException if the flags were rejected
+     */
+    public void setKeyspaceNotifications(String flags) throws ManagedProcessException {
+        configSet(ConfigChange.notifyKeyspaceEvents(flags));
+    }
+
+    /**
+     * Starts recording every command this server executes into a binary trace file, through a
+     * MONITOR connection.
+     *
+     * @param traceFile the trace file, appended to if it exists
+     * @return the running capture, close it to stop recording
+     * @throws IOException if the connection or the file cannot be opened
+     */
+    public CommandCapture startCapture(Path traceFile) throws IOException {
+        return CommandCapture.start(LOCALHOST, getPort(), traceFile, "start");
+    }
+
+    /**
+     * @return the value following an argument, such as {@code x} for {@code --appendfilename x},
+     * or null if the argument is not given
+     */
+    protected String getArgumentValue(final String argumentName) {
+        List<String> args = configuration.getArgs();
+        for (int i = 0; i < args.size(); i++) {
+            String argument = args.get(i);
+            if (argument.equals(argumentName) && i + 1 < args.size()) {
+                return args.get(i + 1);
+            }
+            if (argument.startsWith(argumentName + " ")) {
+                return argument.substring(argumentName.length() + 1).trim();
+            }
         }
-        ManagedProcess process = managedProcessBuilder.build();
-        process.start();
-        return stdOutput.toString();
+        return null;
     }
 
     protected boolean hasArgument(final String argumentName) {
@@ -191,10 +821,10 @@ public class Redis implements Closeable {
         return false;
     }
 
-    protected void addPortAndMaybeSocketArguments(ManagedProcessBuilder builder)
+    protected void addPortAndMaybeSocketArguments(List<String> command)
             throws IOException {
-        builder.addArgument("--port");
-        builder.addArgument(String.valueOf(configuration.getPort()));
+        command.add("--port");
+        command.add(String.valueOf(configuration.getPort()));
     }
 
     /**
@@ -216,13 +846,205 @@ public class Redis implements Closeable {
      * @throws ch.vorburger.exec.ManagedProcessException if something fatal went wrong
      */
     public synchronized void stop() throws ManagedProcessException {
-        if (redisProcess != null && redisProcess.isAlive()) {
+        // let leased connections finish their commands before the server goes away
+        for (RedisConnectionPool pool : connectionPools) {
+            pool.close();
+        }
+        connectionPools.clear();
+        if (configuration.getReuseKey() != null) {
+            releaseForReuse();
+        } else if (redisProcess != null && redisProcess.isAlive()) {
             logger.debug("Stopping the database...");
             redisProcess.destroy();
             logger.info("Database stopped.");
         } else {
             logger.debug("Database was already stopped.");
         }
+        // the forwarding thread of the log would otherwise outlive this instance
+        serverLog.close();
+    }
+
+    /**
+     * Stops the server with {@code SIGSTOP} for a while and continues it with {@code SIGCONT}.
+     * Its connections stay open, but nothing is answered until it continues, like during a long
+     * GC pause of a VM or a network partition. Blocks for the duration. Not supported on Windows.
+     *
+     * @param duration how long to stop the server
+     * @return the time the server was stopped and took to answer again
+     * @throws ManagedProcessException if the server cannot be signalled or does not answer again
+     */
+    public synchronized FaultTiming pause(Duration duration) throws ManagedProcessException {
+        if (OSPlatform.isWindows()) {
+            throw new ManagedProcessException("Pausing redis-server is not supported on Windows");
+        }
+        try (RedisConnection probe = openConnection()) {
+            long pid = InfoSnapshot.parse((String) probe.execute("INFO", "server"))
+                    .getLong("process_id", redisProcess != null ? redisProcess.pid() : -1);
+            Instant startedAt = Instant.now();
+            long stopped = System.nanoTime();
+            signal(pid, "STOP");
+            long continued;
+            try {
+                Thread.sleep(duration);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                signal(pid, "CONT");
+                continued = System.nanoTime();
+            }
+            probe.execute("PING");
+            long answered = System.nanoTime();
+            FaultTiming timing = new FaultTiming(FaultTiming.Fault.PAUSE, startedAt,
+                    Duration.ofNanos(continued - stopped), Duration.ofNanos(answered - continued),
+                    Duration.ofNanos(answered - stopped), null, -1);
+            logger.info("{}", timing);
+            return timing;
+        } catch (IOException e) {
+            throw new ManagedProcessException("Could not pause redis-server on port " + port, e);
+        }
+    }
+
+    private static void signal(long pid, String signal) throws ManagedProcessException {
+        try {
+            Process kill = new ProcessBuilder("kill", "-" + signal, String.valueOf(pid))
+                    .redirectErrorStream(true)
+                    .start();
+            String output = new String(kill.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            if (kill.waitFor() != 0) {
+                throw new ManagedProcessException("kill -" + signal + " " + pid + " failed: " + output);
+            }
+        } catch (IOException e) {
+            throw new ManagedProcessException("Could not run kill -" + signal + " " + pid, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagedProcessException("Interrupted while running kill -" + signal + " " + pid, e);
+        }
+    }
+
+    /**
+     * Blocks the event loop of the server with {@code DEBUG SLEEP}, like a slow command such as
+     * {@code KEYS} on a large dataset would: every client waits until it is over. Blocks for the
+     * duration.
+     *
+     * <p>A probe connection asks the server for the last command of the sleeping connection, with
+     * a short back-off, until a reply shows {@code DEBUG}: that request was held by the sleep. The
+     * time from sending it to its reply is the unavailability, what a command sent just after the
+     * sleep started waited; it is bounded by the sleep itself.
+     *
+     * <p>Redis 7 and later refuse {@code DEBUG} unless started with {@code
+     * addArg("--enable-debug-command").addArg("local")}.
+     *
+     * @param duration how long to block the server
+     * @return the time the sleep took, and how long the probe waited
+     * @throws ManagedProcessException if the server refused the command or cannot be reached
+     */
+    public synchronized FaultTiming slowdown(Duration duration) throws ManagedProcessException {
+        try (RedisConnection sleeper = openConnection(); RedisConnection probe = openConnection()) {
+            String sleeperId = String.valueOf(sleeper.execute("CLIENT", "ID"));
+            Instant startedAt = Instant.now();
+            long start = System.nanoTime();
+            sleeper.send("DEBUG", "SLEEP", String.format(Locale.ROOT, "%.6f", duration.toNanos() / 1e9));
+            sleeper.flush();
+            long deadline = start + duration.toNanos() + TimeUnit.MILLISECONDS.toNanos(dbStartMaxWaitInMS);
+            long backOff = TimeUnit.MICROSECONDS.toNanos(100);
+            long sent;
+            long answered;
+            while (true) {
+                sent = System.nanoTime();
+                String client = (String) probe.execute("CLIENT", "LIST", "ID", sleeperId);
+                answered = System.nanoTime();
+                if (client.contains(" cmd=debug ")) {
+                    break;
+                }
+                // the sleeper's command was not read yet
+                if (answered > deadline) {
+                    throw new ManagedProcessException("DEBUG SLEEP did not start on port " + port);
+                }
+                LockSupport.parkNanos(backOff);
+                backOff = Math.min(2 * backOff, TimeUnit.MILLISECONDS.toNanos(10));
+            }
+            sleeper.readReply();
+            long slept = System.nanoTime();
+            // the event loop answers as soon as the sleep is over, there is nothing to recover from
+            FaultTiming timing = new FaultTiming(FaultTiming.Fault.SLOWDOWN, startedAt,
+                    Duration.ofNanos(slept - start), null, Duration.ofNanos(answered - sent), null, -1);
+            logger.info("{}", timing);
+            return timing;
+        } catch (IOException e) {
+            throw new ManagedProcessException("Could not slow down redis-server on port " + port
+                    + " (is --enable-debug-command set?)", e);
+        }
+    }
+
+    /**
+     * Kills the server with {@code SIGKILL}: nothing is saved, what was not written to the RDB
+     * file or the AOF yet is lost. Bring it back with {@link #restart()}.
+     *
+     * @return the time the server took to exit
+     * @throws ManagedProcessException if this instance did not start the server, or it does not
+     *                                 exit
+     */
+    public synchronized FaultTiming crash() throws ManagedProcessException {
+        if (configuration.getReuseKey() != null) {
+            throw new ManagedProcessException("Cannot crash a reusable redis-server");
+        }
+        if (redisProcess == null || !redisProcess.isAlive()) {
+            throw new ManagedProcessException("redis-server on port " + port + " is not running");
+        }
+        Instant startedAt = Instant.now();
+        crashedAtNanos = System.nanoTime();
+        // the server itself, redisProcess may be a wrapper
+        redisProcess.toHandle().descendants().forEach(ProcessHandle::destroyForcibly);
+        redisProcess.toHandle().destroyForcibly();
+        try {
+            redisProcess.onExit().get(dbStartMaxWaitInMS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagedProcessException("Interrupted while waiting for redis-server to exit", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new ManagedProcessException("redis-server on port " + port + " did not exit after SIGKILL", e);
+        }
+        serverLog.close();
+        FaultTiming timing = new FaultTiming(FaultTiming.Fault.CRASH, startedAt,
+                Duration.ofNanos(System.nanoTime() - crashedAtNanos), null, null, null, -1);
+        logger.info("{}", timing);
+        return timing;
+    }
+
+    /**
+     * Starts the server again after a {@link #crash()} or {@link #stop()}, on the same port and
+     * data directory, so that it loads what was persisted there, and waits until it answers.
+     *
+     * @return the time to ready again, the dataset load time and the keys loaded; after a crash,
+     * also the time since the crash
+     * @throws ManagedProcessException if the server is still running, or cannot be started
+     */
+    public synchronized FaultTiming restart() throws ManagedProcessException {
+        if (configuration.getReuseKey() != null) {
+            throw new ManagedProcessException("Cannot restart a reusable redis-server");
+        }
+        if (redisProcess != null && redisProcess.isAlive()) {
+            throw new ManagedProcessException("redis-server on port " + port + " is still running");
+        }
+        Instant startedAt = Instant.now();
+        long start = System.nanoTime();
+        startServer();
+        long ready = System.nanoTime();
+        try (RedisConnection probe = openConnection()) {
+            probe.execute("PING");
+            long answered = System.nanoTime();
+            long keys = InfoSnapshot.parse((String) probe.execute("INFO", "keyspace")).keyspace().values().stream()
+                    .mapToLong(Long::longValue)
+                    .sum();
+            FaultTiming timing = new FaultTiming(FaultTiming.Fault.RESTART, startedAt,
+                    Duration.ofNanos(ready - start), Duration.ofNanos(answered - ready),
+                    crashedAtNanos == 0 ? null : Duration.ofNanos(answered - crashedAtNanos), datasetLoadTime, keys);
+            crashedAtNanos = 0;
+            logger.info("{}", timing);
+            return timing;
+        } catch (IOException e) {
+            throw new ManagedProcessException("Restarted redis-server on port " + port + " cannot be reached", e);
+        }
     }
 
     /**
@@ -257,6 +1079,16 @@ public class Redis implements Closeable {
      */
     protected void prepareDirectories() throws ManagedProcessException {
         baseDir = Util.getDirectory(configuration.getBaseDir());
+        if (configuration.getReuseKey() != null) {
+            // it may be the data directory of a server left running for reuse, start() prepares it
+            // if no server is adopted
+            dataDir = configuration.getDataDir();
+            return;
+        }
+        prepareDataDirectory();
+    }
+
+    private void prepareDataDirectory() throws ManagedProcessException {
         try {
             File dataDirPath = configuration.getDataDir();
             if (Util.isTemporaryDirectory(dataDirPath)) {
@@ -280,7 +1112,20 @@ public class Redis implements Closeable {
                     throw new ManagedProcessException(
                             "The initial RDB file is not readable: " + initRdbFile.getAbsolutePath());
                 }
+                initRdbSummary = summarizeInitRdbFile(initRdbFile);
                 FileUtils.copyFile(initRdbFile, new File(dataDir, "dump.rdb"));
+            } else if (configuration.getInitAofFile() != null) {
+                initAof = AofFixture.of(configuration.getInitAofFile());
+                String fileName = getArgumentValue("--appendfilename");
+                if (fileName == null) {
+                    fileName = initAof.getFileName() != null ? initAof.getFileName() : AofFixture.DEFAULT_FILE_NAME;
+                } else if (initAof.getFileName() != null && !initAof.getFileName().equals(fileName)) {
+                    throw new ManagedProcessException("The manifest of the initial AOF is for appendfilename "
+                            + initAof.getFileName() + ", but --appendfilename is " + fileName);
+                }
+                String dirName = getArgumentValue("--appenddirname");
+                initAof.provision(dataDir, dirName != null ? dirName : AofFixture.DEFAULT_DIR_NAME, fileName);
+                logger.info("Initial {}", initAof);
             } else {
                 logger.info("No initial RDB file specified, starting with an empty database.");
             }
@@ -290,6 +1135,23 @@ public class Redis implements Closeable {
         }
     }
 
+    /**
+     * Reads the whole initial RDB file, so that a corrupt file, or one written by a newer Redis,
+     * fails here rather than by the server not starting.
+     */
+    private static RdbSummary summarizeInitRdbFile(File initRdbFile) throws ManagedProcessException {
+        RdbSummary summary;
+        try {
+            summary = RdbParser.summarize(initRdbFile.toPath());
+        } catch (IOException e) {
+            throw new ManagedProcessException(
+                    "The initial RDB file is not valid: " + initRdbFile.getAbsolutePath(), e);
+        }
+        logger.info("Initial RDB file {}: {}, estimated load time {} ms",
+                initRdbFile.getAbsolutePath(), summary, summary.estimateLoadTime().toMillis());
+        return summary;
+    }
+
     /**
      * Adds a shutdown hook to ensure that when the JVM exits, the database is stopped, and any
      * temporary data directories are cleaned up.
@@ -22,6 +22,7 @@ package top.lihuu.redis4j;
 import ch.vorburger.exec.ManagedProcessListener;
 
 import java.io.File;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Supplier;
@@ -73,6 +74,15 @@ public interface RedisConfiguration {
 
     File getInitRdbFile();
 
+    /**
+     * An append only file to initialize the data directory with: a single AOF, or the directory
+     * (or manifest) of a Redis 7 multi-part AOF. The server is then started with {@code
+     * appendonly yes}.
+     *
+     * @return the initial AOF, or null
+     */
+    File getInitAofFile();
+
     /**
      * Whether to delete the base and data directory on shutdown, if it is in a temporary directory.
      * NB: If you've set the base and data directories to non temporary directories, then they'll
@@ -89,6 +99,26 @@ public interface RedisConfiguration {
 
     List<String> getArgs();
 
+    /**
+     * The key of a server left running for reuse: a hash of the Redis version, the requested port,
+     * the arguments and the content of the initial RDB file or AOF. A running server is only
+     * adopted by a configuration with the same key.
+     *
+     * @return the key, or null if reuse is not enabled
+     */
+    default String getReuseKey() {
+        return null;
+    }
+
+    /**
+     * How long a server left running for reuse may stay idle before it shuts itself down.
+     *
+     * @return the idle timeout
+     */
+    default Duration getReuseIdleTimeout() {
+        return Duration.ZERO;
+    }
+
     /**
      * Returns an instance of ManagedProcessListener class.
      *
@@ -115,7 +145,10 @@ public interface RedisConfiguration {
         private final List<String> args;
         private final ManagedProcessListener listener;
         private final Map<Executable, Supplier<File>> executables;
+        private final File initRdbFile;
         private final File initAofFile;
+        private final String reuseKey;
+        private final Duration reuseIdleTimeout;
 
         Impl(
                 int port,
@@ -126,7 +159,8 @@ public interface RedisConfiguration {
                 List<String> args,
             boolean isDeletingTemporaryBaseAndDataDirsOnShutdown,
                 Map<Executable, Supplier<File>> executables,
-                ManagedProcessListener listener, File initAofFile) {
+                ManagedProcessListener listener, File initRdbFile, File initAofFile,
+                String reuseKey, Duration reuseIdleTimeout) {
             this.port = port;
             this.socket = socket;
             this.binariesClassPathLocation = binariesClassPathLocation;
@@ -137,7 +171,10 @@ public interface RedisConfiguration {
             this.args = args;
             this.listener = listener;
             this.executables = executables;
+            this.initRdbFile = initRdbFile;
             this.initAofFile = initAofFile;
+            this.reuseKey = reuseKey;
+            this.reuseIdleTimeout = reuseIdleTimeout;
         }
 
         @Override
@@ -168,6 +205,11 @@ public interface RedisConfiguration {
 
         @Override
         public File getInitRdbFile() {
+            return initRdbFile;
+        }
+
+        @Override
+        public File getInitAofFile() {
             return initAofFile;
         }
 
@@ -181,6 +223,16 @@ public interface RedisConfiguration {
             return args;
         }
 
+        @Override
+        public String getReuseKey() {
+            return reuseKey;
+        }
+
+        @Override
+        public Duration getReuseIdleTimeout() {
+            return reuseIdleTimeout;
+        }
+
         @Override
         public ManagedProcessListener getProcessListener() {
             return listener;
@@ -21,15 +21,30 @@ package top.lihuu.redis4j;
 
 import ch.vorburger.exec.ManagedProcessListener;
 import org.apache.commons.lang3.SystemUtils;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import static top.lihuu.redis4j.RedisConfiguration.Executable.*;
 
@@ -44,7 +59,10 @@ public class RedisConfigurationBuilder {
     protected File baseDir = new File(SystemUtils.JAVA_IO_TMPDIR + "/Redis4j/base");
 
     protected File dataDir = new File(SystemUtils.JAVA_IO_TMPDIR + "/Redis4j" + DEFAULT_DATA_DIR);
-    private File initRdbFile = null; // see initAofFile()
+    private File initRdbFile = null;
+    private File initAofFile = null;
+    private boolean reusable = false;
+    private Duration reuseIdleTimeout = Duration.ofMinutes(10);
     protected String socket = null; // see _getSocket()
     protected int port = 0;
     protected boolean isDeletingTemporaryBaseAndDataDirsOnShutdown = true;
@@ -171,18 +189,81 @@ public class RedisConfigurationBuilder {
             String p = SystemUtils.JAVA_IO_TMPDIR + "/" + path();
             this.baseDir = new File(p + "/base");
         }
+        if (databaseVersion != null && baseDir.equals(new File(SystemUtils.JAVA_IO_TMPDIR + "/Redis4j/base"))) {
+            // the binaries of another version must not overwrite those of a running server
+            this.baseDir = new File(SystemUtils.JAVA_IO_TMPDIR + "/Redis4j/" + databaseVersion + "/base");
+        }
 
+        if (initRdbFile != null && initAofFile != null) {
+            throw new IllegalStateException("An initial RDB file and an initial AOF cannot be used together");
+        }
+        boolean anyPort = getPort() == 0;
+        int port = _getPort();
+        File dataDir = _getDataDir();
+        String reuseKey = null;
+        if (reusable) {
+            reuseKey = reuseKey(anyPort);
+            if (dataDir.equals(new File(SystemUtils.JAVA_IO_TMPDIR + "/Redis4j" + DEFAULT_DATA_DIR))) {
+                // the shared default is emptied by every new instance, a server left running needs its own
+                dataDir = new File(SystemUtils.JAVA_IO_TMPDIR + "/Redis4j/reuse/" + port);
+            }
+        }
         frozen = true;
         return new RedisConfiguration.Impl(
-            _getPort(),
+            port,
             _getSocket(),
             _getBinariesClassPathLocation(),
             getBaseDir(),
-            _getDataDir(),
+            dataDir,
             _getArgs(),
             isSecurityDisabled(),
             buildExecutables(),
-            getProcessListener(), initRdbFile);
+            getProcessListener(), initRdbFile, initAofFile,
+            reuseKey, reuseIdleTimeout);
+    }
+
+    /**
+     * Hashes what makes two servers interchangeable: the binaries, the requested port, the
+     * arguments and the content of the fixture.
+     */
+    private String reuseKey(boolean anyPort) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String binaries = _getBinariesClassPathLocation();
+            if (binaries == null) {
+                File server = buildExecutables().get(Server).get();
+                binaries = server.getAbsolutePath() + ":" + server.length() + ":" + server.lastModified();
+            }
+            update(digest, binaries);
+            update(digest, anyPort ? "0" : Integer.toString(port));
+            for (String arg : args) {
+                update(digest, arg);
+            }
+            if (initRdbFile != null) {
+                update(digest, "rdb");
+                digest.update(Files.readAllBytes(initRdbFile.toPath()));
+            }
+            if (initAofFile != null) {
+                update(digest, "aof");
+                Path root = initAofFile.toPath();
+                try (Stream<Path> files = Files.walk(root)) {
+                    for (Path file : files.filter(Files::isRegularFile).sorted().toList()) {
+                        update(digest, root.relativize(file).toString());
+                        digest.update(Files.readAllBytes(file));
+                    }
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the fixture to compute the reuse key", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
     }
 
     public boolean isSecurityDisabled() {
@@ -254,6 +335,47 @@ public class RedisConfigurationBuilder {
         return databaseVersion;
     }
 
+    /**
+     * Finds the versions of the binaries for the OS of this builder on the class path, e.g. from
+     * several {@code redis4j-db-*} artifacts, each with a {@code redis-server} in
+     * {@code top/lihuu/redis4j/redis-<version>/<os>}.
+     *
+     * @return the names to pass to {@link #setDatabaseVersion(String)}, e.g. {@code redis-8.0.2},
+     * oldest first
+     * @throws IOException if the class path cannot be searched
+     */
+    public List<String> findDatabaseVersions() throws IOException {
+        String packagePath = getClass().getPackage().getName().replace(".", "/");
+        Pattern location = Pattern.compile(Pattern.quote(packagePath) + "/(redis-[^/]+)/" + Pattern.quote(getOS())
+                + "/redis-server[^/]*$");
+        Set<String> versions = new TreeSet<>(RedisConfigurationBuilder::compareVersions);
+        for (Resource resource : new PathMatchingResourcePatternResolver()
+                .getResources("classpath*:" + packagePath + "/redis-*/" + getOS() + "/redis-server*")) {
+            Matcher matcher = location.matcher(resource.getURL().toString());
+            if (matcher.find()) {
+                versions.add(matcher.group(1));
+            }
+        }
+        return new ArrayList<>(versions);
+    }
+
+    /**
+     * Orders {@code redis-7.2.4} before {@code redis-7.10.0}, by number then by text.
+     */
+    private static int compareVersions(String a, String b) {
+        String[] left = a.split("[.-]");
+        String[] right = b.split("[.-]");
+        for (int i = 0; i < Math.min(left.length, right.length); i++) {
+            boolean numbers = left[i].matches("\\d+") && right[i].matches("\\d+");
+            int order = numbers ? Long.compare(Long.parseLong(left[i]), Long.parseLong(right[i]))
+                    : left[i].compareTo(right[i]);
+            if (order != 0) {
+                return order;
+            }
+        }
+        return Integer.compare(left.length, right.length);
+    }
+
     protected String getBinariesClassPathLocation() {
         return getClass().getPackage().getName().replace(".", "/") +
             "/" + getRedisVersion() + "/" +
@@ -322,4 +444,49 @@ public class RedisConfigurationBuilder {
         this.initRdbFile = initRdbFile;
         return this;
     }
+
+    /**
+     * Initializes the data directory with an append only file and starts the server with {@code
+     * appendonly yes}, unless {@code --appendonly} is given as an argument.
+     *
+     * @param initAofFile a single AOF, which the server migrates into its AOF directory, or the
+     *                    directory (or manifest) of a multi-part AOF written by Redis 7 or later
+     * @return this
+     */
+    public RedisConfigurationBuilder setInitAofFile(File initAofFile) {
+        checkIfFrozen("setInitAofFile");
+        this.initAofFile = initAofFile;
+        return this;
+    }
+
+    /**
+     * Enables reuse: instead of starting a new server, {@link Redis#start()} adopts a server left
+     * running by an earlier run, on this machine, with the same version, port request, arguments
+     * and fixture. It is emptied with {@code FLUSHALL} first, or, with an initial RDB file or AOF,
+     * only adopted if its dataset was not changed. Otherwise a new server is started, and {@link
+     * Redis#stop()} leaves it running for the next run, until it has been idle for {@link
+     * #setReuseIdleTimeout(Duration)}.
+     *
+     * <p>Changes made with {@code CONFIG SET} by an earlier run are not reverted, and an adopted
+     * server has a different port than the one of the configuration, see {@link Redis#getPort()}.
+     *
+     * @param reusable whether to reuse servers, default false
+     * @return this
+     */
+    public RedisConfigurationBuilder setReusable(boolean reusable) {
+        checkIfFrozen("setReusable");
+        this.reusable = reusable;
+        return this;
+    }
+
+    /**
+     * @param reuseIdleTimeout how long a server left running for reuse waits for a next run
+     *                         before it shuts down, default 10 minutes
+     * @return this
+     */
+    public RedisConfigurationBuilder setReuseIdleTimeout(Duration reuseIdleTimeout) {
+        checkIfFrozen("setReuseIdleTimeout");
+        this.reuseIdleTimeout = reuseIdleTimeout;
+        return this;
+    }
 }
@@ -0,0 +1,207 @@
+package top.lihuu.redis4j;
+
+import ch.vorburger.exec.ManagedProcessException;
+import ch.vorburger.exec.ManagedProcessListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * A process started with {@link ProcessBuilder}, with its output read by the shared {@link
+ * OutputPump} and handed to an output consumer, usually a {@link ServerLog}.
+ *
+ * <p>Only the last {@code consoleLines} lines of output of this process are retained, for error
+ * messages.
+ */
+class RedisProcess {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisProcess.class);
+
+    private static final long DESTROY_TIMEOUT_MS = 10000;
+    private static final long OUTPUT_DRAIN_TIMEOUT_MS = 1000;
+
+    private final Process process;
+    private final String name;
+    private final int consoleLines;
+    private final Deque<String> console;
+    private final Consumer<String> output;
+    private final CompletableFuture<Integer> onExit;
+
+    private String awaitedMessage;
+    private CompletableFuture<Boolean> messageSeen;
+    private volatile boolean destroyed;
+
+    private RedisProcess(Process process, String name, int consoleLines, ManagedProcessListener listener,
+                         Consumer<String> output) {
+        this.process = process;
+        this.name = name;
+        this.consoleLines = consoleLines;
+        this.console = new ArrayDeque<>(consoleLines);
+        this.output = output;
+        CompletableFuture<Void> outputDone = OutputPump.pump(process.getInputStream(), this::onLine);
+        // the exit is only reported once all output has been read, unless a forked child still
+        // holds the stream open
+        this.onExit = process.onExit().thenCompose(p -> outputDone
+                .completeOnTimeout(null, OUTPUT_DRAIN_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .thenApply(v -> p.exitValue()));
+        this.onExit.thenAccept(exitValue -> onExited(exitValue, listener));
+    }
+
+    /**
+     * Starts a process, stderr is merged into stdout.
+     *
+     * @param command          the executable and its arguments
+     * @param workingDirectory the working directory
+     * @param listener         notified when the process exits, may be null
+     * @param consoleLines     the number of output lines to retain
+     * @param output           receives every line of output, must not block
+     * @return the started process
+     * @throws ManagedProcessException if the process could not be started
+     */
+    static RedisProcess start(List<String> command, File workingDirectory, ManagedProcessListener listener,
+                              int consoleLines, Consumer<String> output) throws ManagedProcessException {
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(workingDirectory)
+                .redirectErrorStream(true);
+        try {
+            Process process = builder.start();
+            process.getOutputStream().close();
+            logger.info("Started {} (pid {})", command, process.pid());
+            return new RedisProcess(process, new File(command.get(0)).getName(), consoleLines, listener, output);
+        } catch (IOException e) {
+            throw new ManagedProcessException("Could not start " + command, e);
+        }
+    }
+
+    private void onLine(String line) {
+        output.accept(line);
+        synchronized (console) {
+            if (console.size() == consoleLines) {
+                console.removeFirst();
+            }
+            console.addLast(line);
+            if (messageSeen != null && line.contains(awaitedMessage)) {
+                messageSeen.complete(true);
+            }
+        }
+    }
+
+    private void onExited(int exitValue, ManagedProcessListener listener) {
+        synchronized (console) {
+            if (messageSeen != null) {
+                messageSeen.complete(false);
+            }
+        }
+        if (listener == null) {
+            return;
+        }
+        if (exitValue == 0 || destroyed) {
+            listener.onProcessComplete(exitValue);
+        } else {
+            listener.onProcessFailed(exitValue,
+                    new ManagedProcessException(name + " exited with " + exitValue + getLastConsoleLines()));
+        }
+    }
+
+    /**
+     * Waits until the process prints a line containing the given message.
+     *
+     * @param message the message to wait for
+     * @param maxMs   how long to wait at most
+     * @return true if seen, false on timeout or if the process has exited
+     * @throws ManagedProcessException if interrupted
+     */
+    boolean waitForConsoleMessage(String message, long maxMs) throws ManagedProcessException {
+        CompletableFuture<Boolean> seen = new CompletableFuture<>();
+        synchronized (console) {
+            for (String line : console) {
+                if (line.contains(message)) {
+                    return true;
+                }
+            }
+            if (onExit.isDone()) {
+                return false;
+            }
+            awaitedMessage = message;
+            messageSeen = seen;
+        }
+        try {
+            return seen.get(maxMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagedProcessException("Interrupted while waiting for " + message, e);
+        } catch (ExecutionException e) {
+            throw new ManagedProcessException("Failed while waiting for " + message, e.getCause());
+        } finally {
+            synchronized (console) {
+                messageSeen = null;
+            }
+        }
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    long pid() {
+        return process.pid();
+    }
+
+    ProcessHandle toHandle() {
+        return process.toHandle();
+    }
+
+    /**
+     * @return completed with the exit value once the process has exited and its output was read
+     */
+    CompletableFuture<Integer> onExit() {
+        return onExit;
+    }
+
+    /**
+     * Asks the process to terminate and waits for it and its output, kills it if it does not exit
+     * in time.
+     *
+     * @throws ManagedProcessException if interrupted
+     */
+    void destroy() throws ManagedProcessException {
+        destroyed = true;
+        process.destroy();
+        try {
+            if (!process.waitFor(DESTROY_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                logger.warn("{} did not exit within {}ms, killing it", name, DESTROY_TIMEOUT_MS);
+                process.destroyForcibly().waitFor();
+            }
+            // bounded by the drain timeout
+            onExit.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagedProcessException("Interrupted while stopping " + name, e);
+        }
+    }
+
+    /**
+     * @return the retained output lines, prefixed with a header, for error messages
+     */
+    String getLastConsoleLines() {
+        synchronized (console) {
+            StringBuilder sb = new StringBuilder(", last ").append(console.size()).append(" lines of console:\n");
+            for (String line : console) {
+                sb.append(line).append('\n');
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package top.lihuu.redis4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The servers left running for reuse on this machine, by port, in a properties file shared by all
+ * JVMs. Every read and update happens in a {@link Transaction} that holds a file lock, so that a
+ * server is never adopted by two JVMs, nor adopted while its {@link ReuseWatchdog} shuts it down.
+ *
+ * <p>This class is also loaded by the watchdog process, which has only the Redis4j classes on its
+ * class path, so it uses the JDK only.
+ */
+final class ReuseRegistry {
+
+    /**
+     * File locks are held by the JVM, not by a thread, so threads of one JVM are serialized
+     * separately.
+     */
+    private static final ReentrantLock JVM_LOCK = new ReentrantLock();
+
+    private final Path directory;
+
+    ReuseRegistry(Path directory) {
+        this.directory = directory;
+    }
+
+    static ReuseRegistry getDefault() {
+        return new ReuseRegistry(Path.of(System.getProperty("java.io.tmpdir"), "Redis4j", "reuse"));
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * A server left running for reuse.
+     *
+     * @param port     its port
+     * @param key      the hash of the configuration it was started with
+     * @param pid      the process id of redis-server
+     * @param leasedBy the process id of the JVM using it, 0 if none
+     * @param dataDir  its data directory
+     */
+    record Entry(int port, String key, long pid, long leasedBy, File dataDir) {
+
+        Entry withLease(long leasedBy) {
+            return new Entry(port, key, pid, leasedBy, dataDir);
+        }
+
+        boolean isServerAlive() {
+            return isAlive(pid);
+        }
+
+        boolean isLeased() {
+            return leasedBy != 0 && isAlive(leasedBy);
+        }
+    }
+
+    @FunctionalInterface
+    interface Transaction<T> {
+
+        /**
+         * @param entries the entries by port, changes are written back when this returns
+         */
+        T apply(Map<Integer, Entry> entries) throws IOException;
+    }
+
+    <T> T update(Transaction<T> transaction) throws IOException {
+        Files.createDirectories(directory);
+        JVM_LOCK.lock();
+        try (FileChannel lockChannel = FileChannel.open(directory.resolve("registry.lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock lock = lockChannel.lock();
+            try {
+                Map<Integer, Entry> entries = read();
+                Map<Integer, Entry> before = new TreeMap<>(entries);
+                T result = transaction.apply(entries);
+                if (!entries.equals(before)) {
+                    write(entries);
+                }
+                return result;
+            } finally {
+                lock.release();
+            }
+        } finally {
+            JVM_LOCK.unlock();
+        }
+    }
+
+    private Map<Integer, Entry> read() throws IOException {
+        Map<Integer, Entry> entries = new TreeMap<>();
+        Path file = directory.resolve("registry.properties");
+        if (!Files.exists(file)) {
+            return entries;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        for (String name : properties.stringPropertyNames()) {
+            // key,pid,leasedBy,dataDir - the data directory last, as it may contain commas
+            String[] fields = properties.getProperty(name).split(",", 4);
+            try {
+                int port = Integer.parseInt(name);
+                entries.put(port, new Entry(port, fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                        new File(fields[3])));
+            } catch (RuntimeException e) {
+                // an entry that cannot be parsed is dropped on the next write
+            }
+        }
+        return entries;
+    }
+
+    private void write(Map<Integer, Entry> entries) throws IOException {
+        Properties properties = new Properties();
+        for (Entry entry : entries.values()) {
+            properties.setProperty(Integer.toString(entry.port()), entry.key() + "," + entry.pid() + ","
+                    + entry.leasedBy() + "," + entry.dataDir().getAbsolutePath());
+        }
+        Path file = directory.resolve("registry.properties");
+        Path temporary = directory.resolve("registry.properties.tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            properties.store(writer, "Redis4j servers left running for reuse");
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static boolean isAlive(long pid) {
+        return ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+    }
+}
@@ -0,0 +1,142 @@
+package top.lihuu.redis4j;
+
+import top.lihuu.redis4j.client.RedisConnection;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A small process started next to each server left running for reuse, that shuts the server down
+ * once it has been idle for the configured time: no JVM holds it, and no client but the watchdog
+ * is connected. It also removes the registry entry and the data directory of the server.
+ *
+ * <p>It runs in its own JVM, with only the Redis4j classes on its class path, so that the server
+ * outlives the JVM that started it but not for long.
+ */
+final class ReuseWatchdog {
+
+    private enum Poll {
+        BUSY, IDLE, SHUT_DOWN, GONE
+    }
+
+    private ReuseWatchdog() {
+    }
+
+    /**
+     * Starts a watchdog process for a registered server.
+     */
+    static void spawn(ReuseRegistry registry, int port, Duration idleTimeout) throws IOException {
+        String java = ProcessHandle.current().info().command()
+                .orElse(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        String classPath;
+        try {
+            classPath = new File(ReuseWatchdog.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                    .getAbsolutePath();
+        } catch (Exception e) {
+            throw new IOException("Cannot locate the Redis4j classes for the reuse watchdog", e);
+        }
+        List<String> command = List.of(java, "-Xmx16m", "-XX:+UseSerialGC", "-XX:TieredStopAtLevel=1",
+                "-cp", classPath, ReuseWatchdog.class.getName(),
+                registry.getDirectory().toString(), Integer.toString(port), Long.toString(idleTimeout.toMillis()));
+        new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start()
+                .getOutputStream()
+                .close();
+    }
+
+    /**
+     * @param args the registry directory, the port of the server and the idle timeout in
+     *             milliseconds
+     */
+    public static void main(String[] args) throws Exception {
+        ReuseRegistry registry = new ReuseRegistry(Path.of(args[0]));
+        int port = Integer.parseInt(args[1]);
+        long idleTimeoutMs = Long.parseLong(args[2]);
+        long pollMs = Math.max(100, Math.min(5000, idleTimeoutMs / 10));
+        ReuseRegistry.Entry watched = registry.update(entries -> entries.get(port));
+        if (watched == null) {
+            return;
+        }
+        long lastBusy = System.nanoTime();
+        RedisConnection connection = null;
+        try {
+            while (true) {
+                long clients;
+                try {
+                    if (connection == null) {
+                        connection = RedisConnection.open("127.0.0.1", port);
+                    }
+                    clients = InfoSnapshot.parse((String) connection.execute("INFO", "clients"))
+                            .getLong("connected_clients", 0);
+                } catch (IOException e) {
+                    // the server is gone, whoever shut it down owns its data directory
+                    registry.update(entries -> entries.values().removeIf(entry -> entry.pid() == watched.pid()));
+                    return;
+                }
+                long now = System.nanoTime();
+                long busySince = lastBusy;
+                final RedisConnection server = connection;
+                // decided under the lock, so that the server cannot be adopted while it shuts down
+                Poll poll = registry.update(entries -> {
+                    ReuseRegistry.Entry entry = entries.get(port);
+                    if (entry == null || entry.pid() != watched.pid()) {
+                        return Poll.GONE;
+                    }
+                    if (clients > 1 || entry.isLeased()) {
+                        return Poll.BUSY;
+                    }
+                    if (now - busySince < idleTimeoutMs * 1_000_000L) {
+                        return Poll.IDLE;
+                    }
+                    entries.remove(port);
+                    try {
+                        server.execute("SHUTDOWN", "NOSAVE");
+                    } catch (IOException e) {
+                        // the connection is closed by the shutdown
+                    }
+                    return Poll.SHUT_DOWN;
+                });
+                if (poll == Poll.GONE) {
+                    return;
+                }
+                if (poll == Poll.SHUT_DOWN) {
+                    break;
+                }
+                if (poll == Poll.BUSY) {
+                    lastBusy = now;
+                }
+                Thread.sleep(pollMs);
+            }
+        } finally {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (IOException e) {
+                    // ignored
+                }
+            }
+        }
+        deleteDataDir(registry, port, watched.dataDir());
+    }
+
+    private static void deleteDataDir(ReuseRegistry registry, int port, File dataDir) throws IOException {
+        registry.update(entries -> {
+            // a new server may have been registered on the port since
+            if (entries.containsKey(port) || !dataDir.isDirectory()) {
+                return null;
+            }
+            try (Stream<Path> files = Files.walk(dataDir.toPath())) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,221 @@
+package top.lihuu.redis4j;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * The output of a redis-server, kept in a bounded ring buffer and forwarded to SLF4J
+ * asynchronously.
+ *
+ * <p>Lines are appended by the thread reading the server's stdout, which never blocks: when the
+ * forwarding to SLF4J falls behind by more than the capacity, lines are dropped from the forwarding
+ * (but still retained in the ring buffer) and counted in {@link #getDroppedLines()}.
+ *
+ * <p>Known lines are parsed into {@link ServerLogEvent}s, which are delivered to subscribers on the
+ * forwarding thread, in order. Events are never dropped.
+ */
+public final class ServerLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServerLog.class);
+
+    private final String name;
+    private final String[] ring;
+    private long written;
+
+    /**
+     * Started by the first line, and stopped by {@link #close()} when the server stops.
+     */
+    private ExecutorService forwarder;
+    private final AtomicInteger pendingLines = new AtomicInteger();
+    private final AtomicLong droppedLines = new AtomicLong();
+
+    private final List<Consumer<ServerLogEvent>> subscribers = new CopyOnWriteArrayList<>();
+    private final Map<ServerLogEvent.Type, ServerLogEvent> lastEvents = new EnumMap<>(ServerLogEvent.Type.class);
+
+    /**
+     * @param name     prefixed to every forwarded line
+     * @param capacity the number of lines retained, also the forwarding backlog
+     */
+    ServerLog(String name, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.name = name;
+        this.ring = new String[capacity];
+    }
+
+    /**
+     * Appends a line of server output, called by the output pump.
+     */
+    void append(String line) {
+        synchronized (ring) {
+            ring[(int) (written++ % ring.length)] = line;
+        }
+
+        ServerLogEvent event = ServerLogEvent.parse(line, Instant.now());
+        if (event != null) {
+            synchronized (lastEvents) {
+                lastEvents.put(event.type(), event);
+                lastEvents.notifyAll();
+            }
+            forward(() -> {
+                logger.info("{}: {}", name, line);
+                publish(event);
+            });
+            return;
+        }
+
+        if (pendingLines.incrementAndGet() > ring.length) {
+            pendingLines.decrementAndGet();
+            droppedLines.incrementAndGet();
+            return;
+        }
+        forward(() -> {
+            pendingLines.decrementAndGet();
+            logger.info("{}: {}", name, line);
+        });
+    }
+
+    private synchronized void forward(Runnable task) {
+        if (forwarder == null) {
+            forwarder = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("redis4j-log-" + name).factory());
+        }
+        forwarder.execute(task);
+    }
+
+    /**
+     * Forwards the pending lines and events, and stops the forwarding thread, called when the server
+     * has stopped. The output of a restarted server starts a new one.
+     */
+    void close() {
+        ExecutorService executor;
+        synchronized (this) {
+            executor = forwarder;
+            forwarder = null;
+        }
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("The log of {} was not forwarded within 10 s", name);
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void publish(ServerLogEvent event) {
+        for (Consumer<ServerLogEvent> subscriber : subscribers) {
+            try {
+                subscriber.accept(event);
+            } catch (RuntimeException e) {
+                logger.warn("Server log subscriber failed on {}", event, e);
+            }
+        }
+    }
+
+    /**
+     * @return the retained lines, oldest first
+     */
+    public List<String> getLines() {
+        synchronized (ring) {
+            int size = (int) Math.min(written, ring.length);
+            List<String> lines = new ArrayList<>(size);
+            for (long i = written - size; i < written; i++) {
+                lines.add(ring[(int) (i % ring.length)]);
+            }
+            return lines;
+        }
+    }
+
+    /**
+     * @return the number of lines not forwarded to SLF4J because it fell behind
+     */
+    public long getDroppedLines() {
+        return droppedLines.get();
+    }
+
+    /**
+     * Subscribes to all events, delivered in order on the log forwarding thread.
+     *
+     * @param subscriber the subscriber, must not block
+     * @return closing it unsubscribes
+     */
+    public AutoCloseable subscribe(Consumer<ServerLogEvent> subscriber) {
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    /**
+     * Subscribes to events of one type.
+     *
+     * @param type       the event type
+     * @param subscriber the subscriber, must not block
+     * @return closing it unsubscribes
+     */
+    public AutoCloseable subscribe(ServerLogEvent.Type type, Consumer<ServerLogEvent> subscriber) {
+        return subscribe(event -> {
+            if (event.type() == type) {
+                subscriber.accept(event);
+            }
+        });
+    }
+
+    /**
+     * @param type the event type
+     * @return the most recent event of that type
+     */
+    public Optional<ServerLogEvent> lastEvent(ServerLogEvent.Type type) {
+        synchronized (lastEvents) {
+            return Optional.ofNullable(lastEvents.get(type));
+        }
+    }
+
+    /**
+     * Waits for an event of the given type that was logged at or after {@code since}.
+     *
+     * @param type    the event type
+     * @param since   events logged before this are ignored
+     * @param timeout how long to wait at most
+     * @return the event, or empty on timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Optional<ServerLogEvent> awaitEvent(ServerLogEvent.Type type, Instant since, Duration timeout)
+            throws InterruptedException {
+        // log timestamps have millisecond precision
+        Instant notBefore = since.truncatedTo(ChronoUnit.MILLIS);
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (lastEvents) {
+            while (true) {
+                ServerLogEvent event = lastEvents.get(type);
+                if (event != null && !event.timestamp().isBefore(notBefore)) {
+                    return Optional.of(event);
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return Optional.empty();
+                }
+                TimeUnit.NANOSECONDS.timedWait(lastEvents, remaining);
+            }
+        }
+    }
+}
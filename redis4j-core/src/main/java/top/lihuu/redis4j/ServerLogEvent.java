@@ -0,0 +1,128 @@
+package top.lihuu.redis4j;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A known redis-server log line, turned into a typed event.
+ *
+ * @param type      what happened
+ * @param timestamp when it happened, as logged by the server
+ * @param value     the number carried by the line (seconds, MB, pid), NaN if there is none
+ * @param message   the message part of the log line
+ */
+public record ServerLogEvent(Type type, Instant timestamp, double value, String message) {
+
+    public enum Type {
+        /**
+         * The server accepts connections.
+         */
+        READY,
+        /**
+         * The dataset was loaded from an RDB file or AOF, the value is the load time in seconds.
+         */
+        DB_LOADED,
+        /**
+         * A BGSAVE (or AOF rewrite) child was forked, the value is its pid. The fork time itself
+         * is not logged, it is reported as {@code latest_fork_usec} by {@code INFO stats}.
+         */
+        BACKGROUND_SAVE_STARTED,
+        /**
+         * A BGSAVE (or AOF rewrite) finished successfully.
+         */
+        BACKGROUND_SAVE_TERMINATED,
+        /**
+         * A BGSAVE (or AOF rewrite) failed.
+         */
+        BACKGROUND_SAVE_FAILED,
+        /**
+         * Copy-on-write memory used by a fork, the value is in MB.
+         */
+        FORK_COPY_ON_WRITE,
+        /**
+         * The server ran out of memory, or warned that it will when forking.
+         */
+        OUT_OF_MEMORY_WARNING,
+        /**
+         * The server is shutting down.
+         */
+        SHUTDOWN
+    }
+
+    /**
+     * {@code pid:role day month year time level message}, the format of every line logged by the
+     * server itself.
+     */
+    private static final Pattern LINE = Pattern.compile(
+            "^\\d+:[A-Z] (\\d{1,2} [A-Z][a-z]{2} \\d{4} \\d{2}:\\d{2}:\\d{2}\\.\\d{3}) [.\\-*#] (.*)$");
+
+    private static final DateTimeFormatter TIMESTAMP =
+            DateTimeFormatter.ofPattern("d MMM yyyy HH:mm:ss.SSS", Locale.ENGLISH);
+
+    private static final Pattern DB_LOADED =
+            Pattern.compile("DB loaded from (?:disk|append only file|base file [^:]*|incr file [^:]*): ([0-9.]+) seconds");
+    private static final Pattern SAVE_STARTED =
+            Pattern.compile("Background (?:saving|append only file rewriting) started by pid (\\d+)");
+    private static final Pattern COPY_ON_WRITE =
+            Pattern.compile("(?:Fork CoW for \\w+: current |(?:RDB|AOF rewrite): )(\\d+) MB");
+
+    /**
+     * Parses a line of server output.
+     *
+     * @param line       the line as printed by redis-server
+     * @param receivedAt used if the line carries no timestamp
+     * @return the event, or null if the line is not a known event
+     */
+    static ServerLogEvent parse(String line, Instant receivedAt) {
+        Matcher matcher = LINE.matcher(line);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String message = matcher.group(2);
+        Type type;
+        double value = Double.NaN;
+        Matcher m;
+        if (message.startsWith("Ready to accept connections")) {
+            type = Type.READY;
+        } else if ((m = DB_LOADED.matcher(message)).find()) {
+            type = Type.DB_LOADED;
+            value = Double.parseDouble(m.group(1));
+        } else if ((m = SAVE_STARTED.matcher(message)).find()) {
+            type = Type.BACKGROUND_SAVE_STARTED;
+            value = Double.parseDouble(m.group(1));
+        } else if (message.startsWith("Background saving terminated with success")
+                || message.startsWith("Background AOF rewrite terminated with success")) {
+            type = Type.BACKGROUND_SAVE_TERMINATED;
+        } else if (message.startsWith("Background saving error")
+                || message.startsWith("Background saving terminated by signal")
+                || message.startsWith("Background AOF rewrite terminated with error")
+                || message.startsWith("Background AOF rewrite terminated by signal")) {
+            type = Type.BACKGROUND_SAVE_FAILED;
+        } else if ((m = COPY_ON_WRITE.matcher(message)).find()) {
+            type = Type.FORK_COPY_ON_WRITE;
+            value = Double.parseDouble(m.group(1));
+        } else if (message.contains("Cannot allocate memory") || message.contains("Out Of Memory")
+                || message.contains("overcommit_memory") || message.contains("Memory overcommit")) {
+            type = Type.OUT_OF_MEMORY_WARNING;
+        } else if (message.startsWith("Redis is now ready to exit") || message.startsWith("User requested shutdown")) {
+            type = Type.SHUTDOWN;
+        } else {
+            return null;
+        }
+        return new ServerLogEvent(type, parseTimestamp(matcher.group(1), receivedAt), value, message);
+    }
+
+    private static Instant parseTimestamp(String timestamp, Instant fallback) {
+        try {
+            return LocalDateTime.parse(timestamp, TIMESTAMP).atZone(ZoneId.systemDefault()).toInstant();
+        } catch (DateTimeParseException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package top.lihuu.redis4j;
+
+import ch.vorburger.exec.ManagedProcessException;
+
+import java.util.List;
+
+/**
+ * The result of a {@link Redis#reconfigure(ConfigChange...)} call.
+ *
+ * <p>A step splits a load test into phases: the phase before the change (since the previous
+ * step) is measured when the change is applied, the phase after it is measured by {@link
+ * #measure()}. Comparing the two gives the effect of the change on throughput and latency.
+ */
+public final class TuningStep {
+
+    private final Redis redis;
+    private final List<ConfigChange> changes;
+    private final PhaseStatistics before;
+    private final InfoSnapshot appliedAt;
+    private PhaseStatistics after;
+
+    TuningStep(Redis redis, List<ConfigChange> changes, PhaseStatistics before, InfoSnapshot appliedAt) {
+        this.redis = redis;
+        this.changes = List.copyOf(changes);
+        this.before = before;
+        this.appliedAt = appliedAt;
+    }
+
+    public List<ConfigChange> getChanges() {
+        return changes;
+    }
+
+    /**
+     * @return the phase that ended when the change was applied, or null for the first step
+     */
+    public PhaseStatistics getBefore() {
+        return before;
+    }
+
+    /**
+     * @return the phase since the change was applied, as of the last {@link #measure()}, or null
+     */
+    public PhaseStatistics getAfter() {
+        return after;
+    }
+
+    /**
+     * @return the INFO snapshot taken right before the change was applied
+     */
+    public InfoSnapshot getAppliedAt() {
+        return appliedAt;
+    }
+
+    /**
+     * Takes an INFO snapshot now and measures the phase since the change was applied.
+     *
+     * @return the phase statistics
+     * @throws ManagedProcessException if the server could not be queried
+     */
+    public PhaseStatistics measure() throws ManagedProcessException {
+        after = PhaseStatistics.between(appliedAt, redis.info("everything"));
+        return after;
+    }
+
+    /**
+     * @return change of ops/sec from the previous phase to this one, or NaN if either is unknown
+     */
+    public double getOpsPerSecondDelta() {
+        if (before == null || after == null) {
+            return Double.NaN;
+        }
+        return after.getOpsPerSecond() - before.getOpsPerSecond();
+    }
+
+    /**
+     * @return change of the average usec per call from the previous phase to this one, or NaN if
+     * either is unknown
+     */
+    public double getLatencyMicrosDelta() {
+        if (before == null || after == null) {
+            return Double.NaN;
+        }
+        return after.getAverageLatencyMicros() - before.getAverageLatencyMicros();
+    }
+
+    @Override
+    public String toString() {
+        return "TuningStep" + changes + " before: " + before + ", after: " + after;
+    }
+}
@@ -0,0 +1,79 @@
+package top.lihuu.redis4j.client;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A pool of direct {@link ByteBuffer}s in power of two sizes, so connections do not allocate (and
+ * the GC does not have to free) native memory for every connection they open.
+ *
+ * <p>Acquiring and releasing a pooled buffer does not allocate. Buffers larger than {@link
+ * #MAX_POOLED_CAPACITY} are not pooled.
+ */
+public final class BufferPool {
+
+    public static final int MIN_CAPACITY = 4096;
+    public static final int MAX_POOLED_CAPACITY = 16 * 1024 * 1024;
+
+    private static final int BUFFERS_PER_SIZE = 64;
+    private static final BufferPool SHARED = new BufferPool();
+
+    private final List<ArrayBlockingQueue<ByteBuffer>> pools;
+
+    public BufferPool() {
+        int sizes = Integer.numberOfTrailingZeros(MAX_POOLED_CAPACITY) - Integer.numberOfTrailingZeros(MIN_CAPACITY) + 1;
+        pools = new ArrayList<>(sizes);
+        for (int i = 0; i < sizes; i++) {
+            pools.add(new ArrayBlockingQueue<>(BUFFERS_PER_SIZE));
+        }
+    }
+
+    /**
+     * @return the pool shared by all connections
+     */
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param minCapacity the capacity needed
+     * @return a cleared direct buffer with at least that capacity
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        int capacity = capacityFor(minCapacity);
+        if (capacity > MAX_POOLED_CAPACITY) {
+            return ByteBuffer.allocateDirect(minCapacity);
+        }
+        ByteBuffer buffer = pools.get(indexOf(capacity)).poll();
+        return buffer != null ? buffer.clear() : ByteBuffer.allocateDirect(capacity);
+    }
+
+    /**
+     * Returns a buffer to the pool. It must not be used afterwards.
+     *
+     * @param buffer a buffer from {@link #acquire(int)}
+     */
+    public void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        if (!buffer.isDirect() || Integer.bitCount(capacity) != 1 || capacity < MIN_CAPACITY
+                || capacity > MAX_POOLED_CAPACITY) {
+            return;
+        }
+        // when the pool is full the buffer is left to the GC
+        pools.get(indexOf(capacity)).offer(buffer);
+    }
+
+    private static int capacityFor(int minCapacity) {
+        if (minCapacity <= MIN_CAPACITY) {
+            return MIN_CAPACITY;
+        }
+        int capacity = Integer.highestOneBit(minCapacity - 1) << 1;
+        return capacity <= 0 ? Integer.MAX_VALUE : capacity;
+    }
+
+    private static int indexOf(int capacity) {
+        return Integer.numberOfTrailingZeros(capacity) - Integer.numberOfTrailingZeros(MIN_CAPACITY);
+    }
+}
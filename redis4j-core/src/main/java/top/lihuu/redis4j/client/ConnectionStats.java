@@ -0,0 +1,12 @@
+package top.lihuu.redis4j.client;
+
+/**
+ * Usage of one connection of a {@link RedisConnectionPool}.
+ *
+ * @param id       the number of the connection within its pool
+ * @param commands commands sent on it so far
+ * @param leases   how often it was leased
+ * @param leased   whether it is leased right now
+ */
+public record ConnectionStats(int id, long commands, long leases, boolean leased) {
+}
@@ -0,0 +1,247 @@
+package top.lihuu.redis4j.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A client side cache of string values, kept consistent by server assisted invalidation ({@code
+ * CLIENT TRACKING}), to measure hit rates and invalidation traffic like a service with a near
+ * cache would see them.
+ *
+ * <p>Two connections are used. Reads go through the data connection, which has tracking switched
+ * on: the server remembers which keys it read, and when one of them changes it sends an {@code
+ * invalidate} push message to the second connection, which speaks RESP3 and is read by a virtual
+ * thread. The invalidated keys are evicted. The cache holds at most {@code maxEntries} keys and
+ * evicts the least recently used one first. Thread safe.
+ *
+ * <p>A read that misses puts a placeholder in the cache before asking the server, and stores the
+ * reply only if the placeholder is still there; an invalidation arriving meanwhile removes it, so
+ * a stale value is never cached.
+ */
+public final class NearCache implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(NearCache.class);
+
+    private static final Object NULL_VALUE = new Object();
+
+    private final RedisConnection data;
+    private final RedisConnection invalidations;
+    private final ReentrantLock dataLock = new ReentrantLock();
+    private final Map<String, Object> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidated = new AtomicLong();
+    private final AtomicLong invalidationMessages = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final Thread reader;
+    private volatile boolean tracking = true;
+    private volatile boolean closed;
+
+    private NearCache(RedisConnection data, RedisConnection invalidations, int maxEntries) {
+        this.data = data;
+        this.invalidations = invalidations;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                if (size() > maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.reader = Thread.ofVirtual().name("redis4j-near-cache").unstarted(this::readInvalidations);
+    }
+
+    /**
+     * Opens the two connections and switches tracking on.
+     *
+     * @param host       the host
+     * @param port       the port
+     * @param maxEntries the number of keys to cache at most
+     * @return the cache
+     * @throws RedisErrorException if the server does not support RESP3 or tracking
+     * @throws IOException         if a connection failed
+     */
+    public static NearCache open(String host, int port, int maxEntries) throws IOException {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1: " + maxEntries);
+        }
+        RedisConnection invalidations = RedisConnection.open(host, port);
+        RedisConnection data = null;
+        try {
+            invalidations.hello(3);
+            Object clientId = invalidations.execute("CLIENT", "ID");
+            data = RedisConnection.open(host, port);
+            data.execute("CLIENT", "TRACKING", "ON", "REDIRECT", clientId.toString());
+            NearCache cache = new NearCache(data, invalidations, maxEntries);
+            cache.reader.start();
+            return cache;
+        } catch (IOException e) {
+            invalidations.close();
+            if (data != null) {
+                data.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @param key the key
+     * @return the value from the cache, or from the server if it is not cached; null if the key
+     * does not exist
+     * @throws IOException if the server cannot be reached
+     */
+    public String get(String key) throws IOException {
+        Object fetching = new Object();
+        synchronized (entries) {
+            Object cached = entries.get(key);
+            if (cached != null && !isPlaceholder(cached)) {
+                hits.incrementAndGet();
+                return cached == NULL_VALUE ? null : (String) cached;
+            }
+            if (tracking) {
+                entries.put(key, fetching);
+            }
+        }
+        misses.incrementAndGet();
+        Object value = execute("GET", key);
+        synchronized (entries) {
+            if (entries.get(key) == fetching) {
+                entries.put(key, value == null ? NULL_VALUE : value);
+            }
+        }
+        return (String) value;
+    }
+
+    /**
+     * Sets a value on the server and evicts it from the cache. It is cached again on the next
+     * {@link #get(String)}.
+     *
+     * @param key   the key
+     * @param value the value
+     * @throws IOException if the server cannot be reached
+     */
+    public void set(String key, String value) throws IOException {
+        execute("SET", key, value);
+        evict(key);
+    }
+
+    private Object execute(String... args) throws IOException {
+        dataLock.lock();
+        try {
+            return data.execute(args);
+        } finally {
+            dataLock.unlock();
+        }
+    }
+
+    private static boolean isPlaceholder(Object value) {
+        return value != NULL_VALUE && !(value instanceof String);
+    }
+
+    private boolean evict(String key) {
+        synchronized (entries) {
+            return entries.remove(key) != null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readInvalidations() {
+        try {
+            while (!closed) {
+                Object reply = invalidations.readReply();
+                if (!(reply instanceof List<?> message) || message.size() != 2
+                        || !"invalidate".equals(message.get(0))) {
+                    continue;
+                }
+                invalidationMessages.incrementAndGet();
+                if (message.get(1) == null) {
+                    // FLUSHALL, FLUSHDB or tracking lost its state
+                    synchronized (entries) {
+                        invalidated.addAndGet(entries.size());
+                        entries.clear();
+                    }
+                    continue;
+                }
+                for (Object key : (List<Object>) message.get(1)) {
+                    if (evict((String) key)) {
+                        invalidated.incrementAndGet();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                // without invalidations, cached values may be stale: stop caching
+                logger.warn("Near cache lost its invalidation connection, caching is disabled", e);
+                tracking = false;
+                synchronized (entries) {
+                    entries.clear();
+                }
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public double getHitRatio() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : hits.get() / (double) total;
+    }
+
+    /**
+     * @return cached keys evicted because the server invalidated them
+     */
+    public long getInvalidations() {
+        return invalidated.get();
+    }
+
+    /**
+     * @return invalidate messages received, each for one or more keys
+     */
+    public long getInvalidationMessages() {
+        return invalidationMessages.get();
+    }
+
+    /**
+     * @return keys evicted because the cache was full
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            invalidations.close();
+        } finally {
+            data.close();
+        }
+        logger.debug("Near cache closed: {} hits, {} misses, {} invalidations, {} evictions",
+                hits.get(), misses.get(), invalidated.get(), evictions.get());
+    }
+}
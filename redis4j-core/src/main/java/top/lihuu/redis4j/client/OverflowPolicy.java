@@ -0,0 +1,16 @@
+package top.lihuu.redis4j.client;
+
+/**
+ * What a subscription does with a message when the buffer of a slow subscriber is full.
+ */
+public enum OverflowPolicy {
+    /**
+     * Drop the new message and count it as dropped. The server keeps sending at full speed.
+     */
+    DROP,
+    /**
+     * Stop reading from the connection until there is room. The server buffers the messages, up
+     * to its {@code client-output-buffer-limit pubsub} and then disconnects the subscription.
+     */
+    BLOCK
+}
@@ -0,0 +1,72 @@
+package top.lihuu.redis4j.client;
+
+import java.io.IOException;
+
+/**
+ * A connection leased from a {@link RedisConnectionPool}. {@link #close()} returns it to the pool;
+ * it must not be used afterwards.
+ */
+public final class PooledConnection extends RedisConnection {
+
+    private final RedisConnectionPool pool;
+    private final int id;
+    private final long createdAtNanos;
+    private volatile long lastReleasedNanos;
+    private volatile long leases;
+    private volatile boolean leased;
+
+    PooledConnection(RedisConnectionPool pool, int id, String host, int port) throws IOException {
+        super(host, port);
+        this.pool = pool;
+        this.id = id;
+        this.createdAtNanos = System.nanoTime();
+        this.lastReleasedNanos = createdAtNanos;
+    }
+
+    /**
+     * @return the number of the connection within its pool, starting at 1
+     */
+    public int getId() {
+        return id;
+    }
+
+    public long getLeases() {
+        return leases;
+    }
+
+    public boolean isLeased() {
+        return leased;
+    }
+
+    long getCreatedAtNanos() {
+        return createdAtNanos;
+    }
+
+    long getLastReleasedNanos() {
+        return lastReleasedNanos;
+    }
+
+    void onLease() {
+        leased = true;
+        leases++;
+    }
+
+    void onRelease() {
+        leased = false;
+        lastReleasedNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns the connection to the pool.
+     */
+    @Override
+    public void close() throws IOException {
+        if (leased) {
+            pool.release(this);
+        }
+    }
+
+    void closeConnection() throws IOException {
+        super.close();
+    }
+}
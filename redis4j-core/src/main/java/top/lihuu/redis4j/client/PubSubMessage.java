@@ -0,0 +1,13 @@
+package top.lihuu.redis4j.client;
+
+/**
+ * A message received on a pub/sub connection.
+ *
+ * @param pattern         the pattern that matched, or null for a plain channel subscription
+ * @param channel         the channel the message was published to, for keyspace notifications
+ *                        {@code __keyspace@<db>__:<key>} or {@code __keyevent@<db>__:<event>}
+ * @param payload         the message, for keyspace notifications the event or the key
+ * @param receivedAtNanos {@link System#nanoTime()} when the message was read from the connection
+ */
+public record PubSubMessage(String pattern, String channel, String payload, long receivedAtNanos) {
+}
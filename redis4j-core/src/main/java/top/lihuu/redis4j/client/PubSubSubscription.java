@@ -0,0 +1,222 @@
+package top.lihuu.redis4j.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pub/sub subscription on a dedicated connection, publishing the received messages to {@link
+ * Flow.Subscriber}s.
+ *
+ * <p>Each subscriber has a bounded buffer, when it is full the {@link OverflowPolicy} decides
+ * whether messages are dropped or the connection stops being read. Reading starts when the first
+ * subscriber subscribes, messages arriving before that wait in the socket buffer.
+ *
+ * <p>The counters are meant for measuring fan-out: {@link #getReceived()} messages were read from
+ * the connection, {@link #getDelivered()} were handed to subscribers' {@code onNext} (once per
+ * subscriber), {@link #getDropped()} were discarded, and {@link #getLag()} are buffered and not yet
+ * delivered.
+ */
+public final class PubSubSubscription implements Flow.Publisher<PubSubMessage>, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PubSubSubscription.class);
+
+    private static final ExecutorService DELIVERY = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("redis4j-pubsub-", 0).factory());
+
+    private final RedisConnection connection;
+    private final OverflowPolicy overflowPolicy;
+    private final SubmissionPublisher<PubSubMessage> publisher;
+    private final AtomicBoolean reading = new AtomicBoolean();
+    private volatile boolean closed;
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong maxLag = new AtomicLong();
+
+    private PubSubSubscription(RedisConnection connection, SubscriptionOptions options) {
+        this.connection = connection;
+        this.overflowPolicy = options.getOverflowPolicy();
+        this.publisher = new SubmissionPublisher<>(DELIVERY, options.getBufferSize());
+    }
+
+    /**
+     * Opens a connection and subscribes. When this returns the server has confirmed all
+     * subscriptions, so no message published afterwards is missed.
+     *
+     * @param host    the host
+     * @param port    the port
+     * @param options channels, patterns and buffering
+     * @return the subscription
+     * @throws IOException if the connection or a subscription failed
+     */
+    public static PubSubSubscription open(String host, int port, SubscriptionOptions options) throws IOException {
+        RedisConnection connection = RedisConnection.open(host, port);
+        try {
+            int confirmations = 0;
+            if (!options.getChannels().isEmpty()) {
+                connection.send(prepend("SUBSCRIBE", options.getChannels()));
+                confirmations += options.getChannels().size();
+            }
+            if (!options.getPatterns().isEmpty()) {
+                connection.send(prepend("PSUBSCRIBE", options.getPatterns()));
+                confirmations += options.getPatterns().size();
+            }
+            connection.flush();
+            for (int i = 0; i < confirmations; i++) {
+                connection.readReply();
+            }
+            return new PubSubSubscription(connection, options);
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    private static String[] prepend(String command, List<String> args) {
+        String[] result = new String[args.size() + 1];
+        result[0] = command;
+        for (int i = 0; i < args.size(); i++) {
+            result[i + 1] = args.get(i);
+        }
+        return result;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super PubSubMessage> subscriber) {
+        publisher.subscribe(new CountingSubscriber(subscriber));
+        if (reading.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("redis4j-pubsub-reader").start(this::readLoop);
+        }
+    }
+
+    private void readLoop() {
+        try {
+            while (!closed) {
+                Object reply = connection.readReply();
+                PubSubMessage message = toMessage(reply);
+                if (message != null) {
+                    received.incrementAndGet();
+                    publish(message);
+                }
+            }
+            publisher.close();
+        } catch (IOException e) {
+            if (closed) {
+                publisher.close();
+            } else {
+                logger.warn("Pub/sub connection failed", e);
+                publisher.closeExceptionally(e);
+            }
+        }
+    }
+
+    private void publish(PubSubMessage message) {
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            publisher.submit(message);
+        } else {
+            publisher.offer(message, (subscriber, m) -> {
+                dropped.incrementAndGet();
+                return false;
+            });
+        }
+        long lag = publisher.estimateMaximumLag();
+        maxLag.accumulateAndGet(lag, Math::max);
+    }
+
+    private static PubSubMessage toMessage(Object reply) {
+        if (!(reply instanceof List<?> parts) || parts.isEmpty()) {
+            return null;
+        }
+        long now = System.nanoTime();
+        String kind = String.valueOf(parts.get(0));
+        if ("message".equals(kind) && parts.size() == 3) {
+            return new PubSubMessage(null, (String) parts.get(1), (String) parts.get(2), now);
+        }
+        if ("pmessage".equals(kind) && parts.size() == 4) {
+            return new PubSubMessage((String) parts.get(1), (String) parts.get(2), (String) parts.get(3), now);
+        }
+        // subscribe / unsubscribe confirmations
+        return null;
+    }
+
+    public long getReceived() {
+        return received.get();
+    }
+
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return messages buffered but not yet delivered, for the slowest subscriber
+     */
+    public long getLag() {
+        return publisher.estimateMaximumLag();
+    }
+
+    /**
+     * @return the highest {@link #getLag()} seen so far
+     */
+    public long getMaxLag() {
+        return maxLag.get();
+    }
+
+    /**
+     * Closes the connection, subscribers complete after their buffered messages.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            connection.close();
+        } finally {
+            if (!reading.get()) {
+                publisher.close();
+            }
+        }
+    }
+
+    private final class CountingSubscriber implements Flow.Subscriber<PubSubMessage> {
+
+        private final Flow.Subscriber<? super PubSubMessage> delegate;
+
+        CountingSubscriber(Flow.Subscriber<? super PubSubMessage> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            delegate.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(PubSubMessage item) {
+            delegate.onNext(item);
+            delivered.incrementAndGet();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            delegate.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            delegate.onComplete();
+        }
+    }
+}
@@ -0,0 +1,509 @@
+package top.lihuu.redis4j.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A non-blocking client that lets many threads share a few connections.
+ *
+ * <p>{@link #execute(String...)} hands the command to one of the connections, round robin, and
+ * returns at once. A single I/O thread drives all connections with a {@link Selector}: it takes
+ * every command queued for a connection since its last write, encodes them into one buffer and
+ * writes them together, so concurrent callers are pipelined automatically. Redis answers the
+ * commands of a connection in order, so replies are matched to their futures first in, first out.
+ * Consecutive commands of one caller may go to different connections, though: to make sure a
+ * command runs after another, wait for the future of the first.
+ *
+ * <p>Replies are mapped like {@link RedisConnection#readReply()} does; an error reply completes
+ * the future exceptionally with a {@link RedisErrorException}. With {@link Builder#setProtocol
+ * RESP3}, push messages are not matched to commands but handed to the push listener. Futures are
+ * completed on the I/O thread: keep dependent actions short, or use the {@code ...Async} variants
+ * of {@link CompletableFuture}. Blocking commands like {@code BLPOP} hold up every command queued
+ * behind them on the same connection.
+ *
+ * <pre>
+ * try (RedisAsyncClient client = RedisAsyncClient.newBuilder().setPort(port).setConnections(4).build()) {
+ *     CompletableFuture&lt;Object&gt; reply = client.execute("INCR", "counter");
+ * }
+ * </pre>
+ */
+public final class RedisAsyncClient implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisAsyncClient.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Selector selector;
+    private final Connection[] connections;
+    private final Thread ioThread;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private final AtomicLong commands = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final BufferPool pool = BufferPool.shared();
+    private volatile boolean closed;
+    private volatile IOException failure;
+    private final Consumer<List<Object>> pushListener;
+
+    private RedisAsyncClient(Builder builder) throws IOException {
+        pushListener = builder.pushListener;
+        selector = Selector.open();
+        connections = new Connection[builder.connections];
+        try {
+            for (int i = 0; i < connections.length; i++) {
+                connections[i] = new Connection(builder.host, builder.port, builder.protocol);
+            }
+        } catch (IOException e) {
+            for (Connection connection : connections) {
+                if (connection != null) {
+                    connection.channel.close();
+                    connection.releaseBuffers();
+                }
+            }
+            selector.close();
+            throw e;
+        }
+        ioThread = Thread.ofPlatform().daemon().name("redis4j-async-io-" + builder.port).start(this::ioLoop);
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Queues a command.
+     *
+     * @param args the command and its arguments
+     * @return the reply, completed on the I/O thread
+     */
+    public CompletableFuture<Object> execute(String... args) {
+        Request request = new Request(args);
+        if (closed || failure != null) {
+            request.future.completeExceptionally(closed ? new ClosedChannelException() : failure);
+            return request.future;
+        }
+        Connection connection = connections[Math.floorMod(next.getAndIncrement(), connections.length)];
+        connection.queue.offer(request);
+        if (closed || failure != null) {
+            // the queue may have been drained before the offer
+            request.future.completeExceptionally(closed ? new ClosedChannelException() : failure);
+        } else if (wakeupPending.compareAndSet(false, true)) {
+            // one wake-up covers every command queued until the I/O thread runs
+            selector.wakeup();
+        }
+        return request.future;
+    }
+
+    public int getConnections() {
+        return connections.length;
+    }
+
+    /**
+     * @return commands written so far
+     */
+    public long getCommands() {
+        return commands.get();
+    }
+
+    /**
+     * @return socket writes so far; much lower than {@link #getCommands()} when commands are
+     * coalesced
+     */
+    public long getWrites() {
+        return writes.get();
+    }
+
+    private void ioLoop() {
+        try {
+            while (!closed) {
+                selector.select();
+                wakeupPending.set(false);
+                for (SelectionKey key : selector.selectedKeys()) {
+                    Connection connection = (Connection) key.attachment();
+                    if (key.isValid() && key.isReadable()) {
+                        connection.read();
+                    }
+                }
+                selector.selectedKeys().clear();
+                for (Connection connection : connections) {
+                    connection.write();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            if (!closed) {
+                logger.warn("Redis async client failed", e);
+                failAll(e instanceof IOException io ? io : new IOException(e));
+            }
+        }
+    }
+
+    /**
+     * Fails every command not answered yet, and every command queued from now on.
+     */
+    private void failAll(IOException cause) {
+        failure = cause;
+        for (Connection connection : connections) {
+            connection.fail(cause);
+        }
+    }
+
+    /**
+     * Closes all connections. Commands that have not been answered yet fail with a {@link
+     * ClosedChannelException}.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        selector.wakeup();
+        try {
+            ioThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failAll(new ClosedChannelException());
+        for (Connection connection : connections) {
+            connection.channel.close();
+            connection.releaseBuffers();
+        }
+        selector.close();
+        logger.debug("Closed async client after {} commands in {} writes", commands.get(), writes.get());
+    }
+
+    /**
+     * An aggregate reply whose elements are collected as they arrive.
+     */
+    private static final class Aggregate {
+
+        private final RespType type;
+        private final int size;
+        private final List<Object> elements;
+
+        Aggregate(RespType type, int count) {
+            this.type = type;
+            this.size = type == RespType.MAP || type == RespType.ATTRIBUTE ? 2 * count : count;
+            this.elements = new ArrayList<>(size);
+        }
+
+        boolean isComplete() {
+            return elements.size() == size;
+        }
+
+        Object build() {
+            switch (type) {
+                case MAP: {
+                    Map<Object, Object> map = new LinkedHashMap<>();
+                    for (int i = 0; i < size; i += 2) {
+                        map.put(elements.get(i), elements.get(i + 1));
+                    }
+                    return map;
+                }
+                case SET:
+                    return new LinkedHashSet<>(elements);
+                default:
+                    return elements;
+            }
+        }
+    }
+
+    private static final class Request {
+
+        private final String[] args;
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        Request(String[] args) {
+            this.args = args;
+        }
+    }
+
+    /**
+     * A connection and its state. Everything but {@link #queue} is only touched by the I/O
+     * thread, and by {@link #close()} after that thread has stopped.
+     */
+    private final class Connection {
+
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final ConcurrentLinkedQueue<Request> queue = new ConcurrentLinkedQueue<>();
+        private final ArrayDeque<Request> pending = new ArrayDeque<>();
+        private final RespDecoder decoder = new RespDecoder();
+        /**
+         * Aggregates whose elements are still being read, innermost first.
+         */
+        private final ArrayDeque<Aggregate> aggregates = new ArrayDeque<>();
+        private ByteBuffer out;
+        private ByteBuffer in;
+
+        Connection(String host, int port, int protocol) throws IOException {
+            channel = SocketChannel.open();
+            try {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.connect(new InetSocketAddress(host, port));
+                if (protocol != 2) {
+                    hello(protocol);
+                }
+                channel.configureBlocking(false);
+                key = channel.register(selector, SelectionKey.OP_READ, this);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            out = pool.acquire(BUFFER_SIZE);
+            in = pool.acquire(BUFFER_SIZE).flip();
+        }
+
+        /**
+         * Negotiates the protocol while the channel is still blocking.
+         */
+        private void hello(int protocol) throws IOException {
+            ByteBuffer request = ByteBuffer.allocate(64);
+            RespEncoder.writeArrayHeader(request, 2);
+            RespEncoder.writeBulkString(request, "HELLO");
+            RespEncoder.writeBulkString(request, protocol);
+            request.flip();
+            while (request.hasRemaining()) {
+                channel.write(request);
+            }
+            ByteBuffer reply = ByteBuffer.allocate(BUFFER_SIZE).flip();
+            RespDecoder helloDecoder = new RespDecoder();
+            RespType type;
+            do {
+                while ((type = helloDecoder.next(reply)) == null) {
+                    reply.compact();
+                    if (helloDecoder.getNeeded() > reply.capacity() || channel.read(reply) < 0) {
+                        throw new IOException("No reply to HELLO " + protocol);
+                    }
+                    reply.flip();
+                }
+                if (type == RespType.ERROR) {
+                    throw new RedisErrorException(helloDecoder.getString(reply));
+                }
+            } while (!helloDecoder.isReplyComplete());
+        }
+
+        /**
+         * Encodes as many queued commands as fit into the buffer and writes them.
+         */
+        void write() throws IOException {
+            Request request;
+            while ((request = queue.peek()) != null) {
+                int size = sizeOf(request.args);
+                if (size > out.remaining()) {
+                    if (out.position() > 0) {
+                        // the buffer is full, send it and continue with the next select
+                        break;
+                    }
+                    ByteBuffer larger = pool.acquire(size);
+                    pool.release(out);
+                    out = larger;
+                }
+                queue.poll();
+                RespEncoder.writeArrayHeader(out, request.args.length);
+                for (String arg : request.args) {
+                    RespEncoder.writeBulkString(out, arg);
+                }
+                pending.add(request);
+                commands.incrementAndGet();
+            }
+            if (out.position() == 0) {
+                return;
+            }
+            out.flip();
+            channel.write(out);
+            writes.incrementAndGet();
+            out.compact();
+            boolean more = out.position() > 0 || !queue.isEmpty();
+            key.interestOps(more ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
+        private int sizeOf(String[] args) {
+            int size = RespEncoder.MAX_HEADER_SIZE;
+            for (String arg : args) {
+                size += RespEncoder.bulkStringSize(RespEncoder.utf8Length(arg));
+            }
+            return size;
+        }
+
+        void read() throws IOException {
+            in.compact();
+            int read;
+            try {
+                read = channel.read(in);
+            } finally {
+                in.flip();
+            }
+            if (read < 0) {
+                throw new EOFException("Connection closed by server");
+            }
+            RespType type;
+            while ((type = decoder.next(in)) != null) {
+                onToken(type);
+            }
+            if (decoder.getNeeded() > in.capacity()) {
+                ByteBuffer larger = pool.acquire(decoder.getNeeded());
+                larger.put(in).flip();
+                pool.release(in);
+                in = larger;
+            }
+        }
+
+        private void onToken(RespType type) throws IOException {
+            if (type.isAggregate() && decoder.getValue() > 0) {
+                aggregates.push(new Aggregate(type, (int) decoder.getValue()));
+                return;
+            }
+            Object value = type.isAggregate() ? new Aggregate(type, 0).build() : decoder.scalarValue(in);
+            if (type == RespType.ATTRIBUTE) {
+                return;
+            }
+            // add the value to its aggregate, completing aggregates as they fill up
+            while (!aggregates.isEmpty()) {
+                Aggregate aggregate = aggregates.peek();
+                aggregate.elements.add(value);
+                if (!aggregate.isComplete()) {
+                    return;
+                }
+                aggregates.pop();
+                if (aggregate.type == RespType.ATTRIBUTE) {
+                    // meta data about the value that follows
+                    return;
+                }
+                value = aggregate.build();
+                type = aggregate.type;
+            }
+            if (type == RespType.PUSH) {
+                onPush(value);
+                return;
+            }
+            Request request = pending.poll();
+            if (request == null) {
+                throw new IOException("Reply without a pending command");
+            }
+            if (value instanceof RedisErrorException e) {
+                request.future.completeExceptionally(e);
+            } else {
+                request.future.complete(value);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void onPush(Object message) {
+            if (pushListener != null) {
+                try {
+                    pushListener.accept((List<Object>) message);
+                } catch (RuntimeException e) {
+                    logger.warn("Push listener failed", e);
+                }
+            }
+        }
+
+        void fail(IOException cause) {
+            Request request;
+            while ((request = pending.poll()) != null) {
+                request.future.completeExceptionally(cause);
+            }
+            while ((request = queue.poll()) != null) {
+                request.future.completeExceptionally(cause);
+            }
+        }
+
+        void releaseBuffers() {
+            if (out != null) {
+                pool.release(out);
+                pool.release(in);
+                out = null;
+                in = null;
+            }
+        }
+    }
+
+    public static final class Builder {
+
+        private String host = "127.0.0.1";
+        private int port;
+        private int connections = 2;
+        private int protocol = 2;
+        private Consumer<List<Object>> pushListener;
+
+        private Builder() {
+        }
+
+        public Builder setHost(String host) {
+            this.host = host;
+            return this;
+        }
+
+        public Builder setPort(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * @param connections the number of connections the callers share, default 2
+         * @return this
+         */
+        public Builder setConnections(int connections) {
+            if (connections < 1) {
+                throw new IllegalArgumentException("connections must be at least 1: " + connections);
+            }
+            this.connections = connections;
+            return this;
+        }
+
+        /**
+         * @param protocol 3 to negotiate RESP3 with {@code HELLO 3} on every connection, default 2
+         * @return this
+         */
+        public Builder setProtocol(int protocol) {
+            this.protocol = protocol;
+            return this;
+        }
+
+        /**
+         * @param pushListener receives RESP3 push messages, on the I/O thread
+         * @return this
+         */
+        public Builder setPushListener(Consumer<List<Object>> pushListener) {
+            this.pushListener = pushListener;
+            return this;
+        }
+
+        /**
+         * Connects all connections.
+         *
+         * @return the client
+         * @throws IOException if a connection cannot be opened
+         */
+        public RedisAsyncClient build() throws IOException {
+            if (port <= 0) {
+                throw new IllegalStateException("No port set");
+            }
+            return new RedisAsyncClient(this);
+        }
+    }
+}
@@ -0,0 +1,528 @@
+package top.lihuu.redis4j.client;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * A blocking connection to a redis-server, not thread safe. It speaks RESP2 until {@link
+ * #hello(int) HELLO 3} switches it to RESP3.
+ *
+ * <p>Replies are mapped to Java types: simple, bulk and verbatim strings to {@link String},
+ * integers to {@link Long}, arrays to {@link List}, nil to null, and the RESP3 types as well: maps
+ * to {@link Map}, sets to {@link Set}, doubles to {@link Double}, big numbers to {@link
+ * java.math.BigInteger} and booleans to {@link Boolean}. Error replies are thrown as {@link
+ * RedisErrorException}. RESP3 push messages go to the {@link #setPushListener push listener}.
+ *
+ * <p>{@link #send(String...)}, or {@link #send(byte[]...)} for binary arguments, and {@link
+ * #readReply()} can be used separately, for pipelining or
+ * for connections that only receive, like pub/sub or MONITOR.
+ *
+ * <p>Requests and replies go through direct buffers from the {@link BufferPool}, encoded by
+ * {@link RespEncoder} and parsed by {@link RespDecoder}. Sending a command does not allocate.
+ * Callers that do not need the reply as Java objects can read it without allocating either, with
+ * {@link #discardReply()} or token by token with {@link #readToken()}.
+ */
+public class RedisConnection implements Closeable {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+
+    private final SocketChannel channel;
+    private final BufferPool pool = BufferPool.shared();
+    private final RespDecoder decoder = new RespDecoder();
+    /**
+     * Held during I/O, so that {@link #close()} from another thread returns the buffers to the
+     * pool only once they are no longer used.
+     */
+    private final ReentrantLock io = new ReentrantLock();
+    private ByteBuffer out;
+    /**
+     * In read mode: the unread input is between position and limit.
+     */
+    private ByteBuffer in;
+    private Selector selector;
+    private SelectionKey key;
+    private int readTimeoutMs;
+    private volatile Consumer<List<Object>> pushListener;
+    private volatile long commandCount;
+    private volatile boolean closed;
+
+    protected RedisConnection(String host, int port) throws IOException {
+        channel = SocketChannel.open();
+        try {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.socket().connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        out = pool.acquire(BUFFER_SIZE);
+        in = pool.acquire(BUFFER_SIZE).flip();
+    }
+
+    /**
+     * Opens a connection.
+     *
+     * @param host the host, usually {@code 127.0.0.1} for an embedded server
+     * @param port the port
+     * @return the connection
+     * @throws IOException if the server cannot be reached
+     */
+    public static RedisConnection open(String host, int port) throws IOException {
+        return new RedisConnection(host, port);
+    }
+
+    /**
+     * Sends a command and waits for its reply.
+     *
+     * @param args the command and its arguments
+     * @return the reply
+     * @throws RedisErrorException if the server replied with an error
+     * @throws IOException         if the connection failed
+     */
+    public Object execute(String... args) throws IOException {
+        send(args);
+        flush();
+        return readReply();
+    }
+
+    /**
+     * Sends all commands before reading any reply, so the batch costs a single round trip.
+     *
+     * @param commands the commands, each with its arguments
+     * @return the replies in order; an error reply is returned as a {@link RedisErrorException}
+     * instead of being thrown, so that the other replies are not lost
+     * @throws IOException if the connection failed
+     */
+    public List<Object> pipeline(List<String[]> commands) throws IOException {
+        for (String[] command : commands) {
+            send(command);
+        }
+        flush();
+        List<Object> replies = new ArrayList<>(commands.size());
+        for (int i = 0; i < commands.size(); i++) {
+            try {
+                replies.add(readReply());
+            } catch (RedisErrorException e) {
+                replies.add(e);
+            }
+        }
+        return replies;
+    }
+
+    /**
+     * Writes a command to the send buffer, without flushing it. Arguments larger than the buffer
+     * are written in pieces.
+     *
+     * @param args the command and its arguments
+     * @throws IOException if the connection failed
+     */
+    public void send(String... args) throws IOException {
+        io.lock();
+        try {
+            ensureOpen();
+            reserve(RespEncoder.MAX_HEADER_SIZE);
+            commandCount++;
+            RespEncoder.writeArrayHeader(out, args.length);
+            for (String arg : args) {
+                int length = RespEncoder.utf8Length(arg);
+                if (RespEncoder.bulkStringSize(length) <= out.remaining()) {
+                    RespEncoder.writeBulkString(out, arg);
+                    continue;
+                }
+                reserve(RespEncoder.MAX_HEADER_SIZE);
+                RespEncoder.writeHeader(out, (byte) '$', length);
+                int written = 0;
+                while ((written = RespEncoder.encodeUtf8(arg, written, out)) < arg.length()) {
+                    writeOut();
+                }
+                reserve(2);
+                RespEncoder.writeCrlf(out);
+            }
+        } finally {
+            io.unlock();
+        }
+    }
+
+    /**
+     * Writes a command with binary arguments to the send buffer, without flushing it. Arguments
+     * larger than the buffer are written in pieces.
+     *
+     * @param args the command and its arguments, sent as they are
+     * @throws IOException if the connection failed
+     */
+    public void send(byte[]... args) throws IOException {
+        io.lock();
+        try {
+            ensureOpen();
+            reserve(RespEncoder.MAX_HEADER_SIZE);
+            commandCount++;
+            RespEncoder.writeArrayHeader(out, args.length);
+            for (byte[] arg : args) {
+                if (RespEncoder.bulkStringSize(arg.length) <= out.remaining()) {
+                    RespEncoder.writeBulkString(out, ByteBuffer.wrap(arg));
+                    continue;
+                }
+                reserve(RespEncoder.MAX_HEADER_SIZE);
+                RespEncoder.writeHeader(out, (byte) '$', arg.length);
+                int written = 0;
+                while (written < arg.length) {
+                    int length = Math.min(out.remaining(), arg.length - written);
+                    out.put(arg, written, length);
+                    written += length;
+                    if (written < arg.length) {
+                        writeOut();
+                    }
+                }
+                reserve(2);
+                RespEncoder.writeCrlf(out);
+            }
+        } finally {
+            io.unlock();
+        }
+    }
+
+    public void flush() throws IOException {
+        io.lock();
+        try {
+            ensureOpen();
+            writeOut();
+        } finally {
+            io.unlock();
+        }
+    }
+
+    private void reserve(int bytes) throws IOException {
+        if (out.remaining() < bytes) {
+            writeOut();
+        }
+    }
+
+    private void writeOut() throws IOException {
+        out.flip();
+        try {
+            while (out.hasRemaining()) {
+                if (channel.write(out) == 0) {
+                    // only happens with a read timeout set, when the channel is non-blocking
+                    await(SelectionKey.OP_WRITE, 0);
+                }
+            }
+        } finally {
+            out.compact();
+        }
+    }
+
+    /**
+     * Switches the protocol with {@code HELLO}.
+     *
+     * @param protocol 2 or 3; with 3, RESP3 replies like maps and push messages are read too
+     * @return the server properties returned by HELLO, like {@code version}
+     * @throws RedisErrorException if the server does not support the protocol
+     * @throws IOException         if the connection failed
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Object, Object> hello(int protocol) throws IOException {
+        Object reply = execute("HELLO", Integer.toString(protocol));
+        if (reply instanceof Map<?, ?> map) {
+            return (Map<Object, Object>) map;
+        }
+        // RESP2 returns the properties as a flat list
+        Map<Object, Object> properties = new LinkedHashMap<>();
+        List<Object> list = (List<Object>) reply;
+        for (int i = 0; i + 1 < list.size(); i += 2) {
+            properties.put(list.get(i), list.get(i + 1));
+        }
+        return properties;
+    }
+
+    /**
+     * Handles RESP3 push messages, like tracking invalidations, that arrive while reading the
+     * replies of commands. Without a listener, {@link #readReply()} returns push messages like
+     * any other reply, as a {@link List}; that is what a pub/sub connection wants.
+     *
+     * @param pushListener receives the push messages, null to remove it
+     */
+    public void setPushListener(Consumer<List<Object>> pushListener) {
+        this.pushListener = pushListener;
+    }
+
+    /**
+     * Reads the next reply, blocking until it is complete.
+     *
+     * @return the reply
+     * @throws RedisErrorException if the reply is an error
+     * @throws IOException         if the connection failed
+     */
+    public Object readReply() throws IOException {
+        io.lock();
+        try {
+            ensureOpen();
+            Object reply = readTopLevel();
+            if (reply instanceof RedisErrorException e) {
+                throw e;
+            }
+            return reply;
+        } finally {
+            io.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readTopLevel() throws IOException {
+        while (true) {
+            RespType type = nextToken();
+            Object value = readValue(type);
+            if (type != RespType.PUSH || pushListener == null) {
+                return value;
+            }
+            pushListener.accept((List<Object>) value);
+        }
+    }
+
+    /**
+     * Converts the token just read, and the elements that follow if it is an aggregate.
+     */
+    private Object readValue(RespType type) throws IOException {
+        if (!type.isAggregate()) {
+            return decoder.scalarValue(in);
+        }
+        int count = (int) decoder.getValue();
+        switch (type) {
+            case MAP: {
+                Map<Object, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < count; i++) {
+                    map.put(readValue(nextToken()), readValue(nextToken()));
+                }
+                return map;
+            }
+            case SET: {
+                Set<Object> set = new LinkedHashSet<>();
+                for (int i = 0; i < count; i++) {
+                    set.add(readValue(nextToken()));
+                }
+                return set;
+            }
+            case ATTRIBUTE: {
+                // attributes are meta data about the value that follows, which is what we return
+                for (int i = 0; i < 2 * count; i++) {
+                    readValue(nextToken());
+                }
+                return readValue(nextToken());
+            }
+            default: {
+                // errors nested in arrays (e.g. EXEC) are part of the reply
+                List<Object> elements = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    elements.add(readValue(nextToken()));
+                }
+                return elements;
+            }
+        }
+    }
+
+    /**
+     * Reads a reply without converting it, e.g. when only the latency of a command matters. Does
+     * not allocate unless the reply is an error, or a push message for the push listener.
+     *
+     * @return the type of the reply
+     * @throws RedisErrorException if the reply is an error
+     * @throws IOException         if the connection failed
+     */
+    @SuppressWarnings("unchecked")
+    public RespType discardReply() throws IOException {
+        io.lock();
+        try {
+            ensureOpen();
+            while (true) {
+                RespType type = nextToken();
+                if (type == RespType.ERROR) {
+                    throw new RedisErrorException(decoder.getString(in));
+                }
+                if (type == RespType.PUSH && pushListener != null) {
+                    pushListener.accept((List<Object>) readValue(type));
+                    continue;
+                }
+                while (!decoder.isReplyComplete()) {
+                    nextToken();
+                }
+                return type;
+            }
+        } finally {
+            io.unlock();
+        }
+    }
+
+    /**
+     * Reads the next token of a reply, see {@link RespDecoder#next(ByteBuffer)}. Its value is
+     * available from {@link #getTokenValue()} and, for strings, {@link #getTokenContent()}.
+     * Errors are returned as {@link RespType#ERROR} tokens, not thrown.
+     *
+     * @return the type of the token
+     * @throws IOException if the connection failed
+     */
+    public RespType readToken() throws IOException {
+        io.lock();
+        try {
+            ensureOpen();
+            return nextToken();
+        } finally {
+            io.unlock();
+        }
+    }
+
+    /**
+     * @return the value of the last integer token, or the length of the last bulk string or array
+     * token
+     */
+    public long getTokenValue() {
+        return decoder.getValue();
+    }
+
+    /**
+     * @return a view of the content of the last string or error token, only valid until the next
+     * read from this connection
+     */
+    public ByteBuffer getTokenContent() {
+        return decoder.slice(in).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return true if the last token read by {@link #readToken()} completed a reply
+     */
+    public boolean isReplyComplete() {
+        return decoder.isReplyComplete();
+    }
+
+    private RespType nextToken() throws IOException {
+        RespType type;
+        while ((type = decoder.next(in)) == null) {
+            int needed = decoder.getNeeded();
+            if (needed > in.capacity()) {
+                ByteBuffer larger = pool.acquire(needed);
+                larger.put(in).flip();
+                pool.release(in);
+                in = larger;
+            }
+            in.compact();
+            try {
+                readIn();
+            } finally {
+                in.flip();
+            }
+        }
+        return type;
+    }
+
+    private void readIn() throws IOException {
+        int read;
+        try {
+            while ((read = channel.read(in)) == 0) {
+                await(SelectionKey.OP_READ, readTimeoutMs);
+            }
+        } catch (ClosedSelectorException e) {
+            throw new AsynchronousCloseException();
+        }
+        if (read < 0) {
+            throw new EOFException("Connection closed by server");
+        }
+    }
+
+    private void await(int operation, int timeoutMs) throws IOException {
+        key.interestOps(operation);
+        if (selector.select(timeoutMs) == 0 && operation == SelectionKey.OP_READ) {
+            throw new SocketTimeoutException("Read timed out after " + timeoutMs + " ms");
+        }
+        selector.selectedKeys().clear();
+    }
+
+    /**
+     * @param timeoutMs read timeout for {@link #readReply()}, 0 to block forever
+     * @throws IOException if the socket is closed
+     */
+    public void setReadTimeout(int timeoutMs) throws IOException {
+        io.lock();
+        try {
+            ensureOpen();
+            readTimeoutMs = timeoutMs;
+            if (timeoutMs > 0 && selector == null) {
+                // a blocking channel ignores SO_TIMEOUT, so reads with a timeout wait on a selector
+                selector = Selector.open();
+                channel.configureBlocking(false);
+                key = channel.register(selector, SelectionKey.OP_READ);
+            } else if (timeoutMs == 0 && selector != null) {
+                key.cancel();
+                selector.close();
+                selector = null;
+                key = null;
+                channel.configureBlocking(true);
+            }
+        } finally {
+            io.unlock();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    /**
+     * @return commands sent on this connection so far
+     */
+    public long getCommandCount() {
+        return commandCount;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes the connection. A read blocked in another thread fails with an {@link IOException}.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            channel.close();
+            if (selector != null) {
+                selector.close();
+            }
+        } finally {
+            io.lock();
+            try {
+                if (out != null) {
+                    pool.release(out);
+                    pool.release(in);
+                    out = null;
+                    in = null;
+                }
+            } finally {
+                io.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,440 @@
+package top.lihuu.redis4j.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import top.lihuu.redis4j.metrics.LatencyHistogram;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of {@link RedisConnection}s shared by many threads.
+ *
+ * <pre>
+ * try (PooledConnection connection = pool.lease()) {
+ *     connection.execute("INCR", "counter");
+ * }
+ * </pre>
+ *
+ * <p>Leasing takes a permit from a semaphore, which bounds the number of connections in use by
+ * {@code maxSize}, and the most recently returned connection from a lock-free deque. Neither takes
+ * a lock as long as a connection is idle; only when all {@code maxSize} connections are in use
+ * does the caller wait, at most for the lease timeout. A connection that has been idle for longer
+ * than the validation interval is checked with {@code PING} before it is handed out, and replaced
+ * if that fails. A background virtual thread closes connections idle for longer than the idle
+ * timeout, keeping at least {@code minSize}.
+ */
+public final class RedisConnectionPool implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisConnectionPool.class);
+
+    private final String host;
+    private final int port;
+    private final int minSize;
+    private final int maxSize;
+    private final Duration leaseTimeout;
+    private final Duration idleTimeout;
+    private final Duration validationInterval;
+    private final Duration drainTimeout;
+
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final Set<PooledConnection> all = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger ids = new AtomicInteger();
+    private final AtomicLong immediateLeases = new AtomicLong();
+    private final AtomicLong leaseTimeouts = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong retiredCommands = new AtomicLong();
+    /**
+     * Waits of leases that did not get a permit at once; guarded by itself.
+     */
+    private final LatencyHistogram leaseWaits = new LatencyHistogram();
+    private final Thread evictor;
+    private volatile boolean closed;
+
+    private RedisConnectionPool(Builder builder) {
+        this.host = builder.host;
+        this.port = builder.port;
+        this.minSize = builder.minSize;
+        this.maxSize = builder.maxSize;
+        this.leaseTimeout = builder.leaseTimeout;
+        this.idleTimeout = builder.idleTimeout;
+        this.validationInterval = builder.validationInterval;
+        this.drainTimeout = builder.drainTimeout;
+        this.permits = new Semaphore(maxSize);
+        this.evictor = Thread.ofVirtual().name("redis4j-pool-evictor-" + port).unstarted(this::evictLoop);
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Leases a connection, waiting up to the lease timeout if all are in use.
+     *
+     * @return the connection, close it to return it
+     * @throws IOException if no connection became free in time, the pool is closed, or a new
+     *                     connection could not be opened
+     */
+    public PooledConnection lease() throws IOException {
+        ensureOpen();
+        if (permits.tryAcquire()) {
+            immediateLeases.incrementAndGet();
+        } else {
+            long start = System.nanoTime();
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(leaseTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a connection", e);
+            }
+            long waited = System.nanoTime() - start;
+            synchronized (leaseWaits) {
+                leaseWaits.recordValue(waited);
+            }
+            if (!acquired) {
+                leaseTimeouts.incrementAndGet();
+                throw new IOException("No connection to port " + port + " became free within " + leaseTimeout);
+            }
+        }
+        try {
+            ensureOpen();
+            PooledConnection connection = takeIdle();
+            if (connection == null) {
+                connection = create();
+            }
+            connection.onLease();
+            return connection;
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeIdle() {
+        PooledConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            if (isUsable(connection)) {
+                return connection;
+            }
+            destroy(connection);
+        }
+        return null;
+    }
+
+    private boolean isUsable(PooledConnection connection) {
+        if (connection.isClosed()) {
+            return false;
+        }
+        if (System.nanoTime() - connection.getLastReleasedNanos() < validationInterval.toNanos()) {
+            return true;
+        }
+        try {
+            return "PONG".equals(connection.execute("PING"));
+        } catch (IOException e) {
+            logger.debug("Pooled connection {} failed validation", connection.getId(), e);
+            return false;
+        }
+    }
+
+    private PooledConnection create() throws IOException {
+        PooledConnection connection = new PooledConnection(this, ids.incrementAndGet(), host, port);
+        all.add(connection);
+        created.incrementAndGet();
+        return connection;
+    }
+
+    private void destroy(PooledConnection connection) {
+        if (all.remove(connection)) {
+            destroyed.incrementAndGet();
+            retiredCommands.addAndGet(connection.getCommandCount());
+        }
+        try {
+            connection.closeConnection();
+        } catch (IOException e) {
+            logger.debug("Failed to close pooled connection {}", connection.getId(), e);
+        }
+    }
+
+    void release(PooledConnection connection) {
+        connection.onRelease();
+        if (closed || connection.isClosed()) {
+            destroy(connection);
+        } else {
+            idle.offerFirst(connection);
+        }
+        permits.release();
+    }
+
+    private void evictLoop() {
+        long period = Math.max(10, Math.min(idleTimeout.toMillis(), validationInterval.toMillis()) / 2);
+        while (!closed) {
+            try {
+                Thread.sleep(period);
+            } catch (InterruptedException e) {
+                return;
+            }
+            evictIdle();
+            fillToMinimum();
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+        // the least recently used connections are at the end
+        for (PooledConnection connection : idle.reversed()) {
+            if (all.size() <= minSize) {
+                return;
+            }
+            if (now - connection.getLastReleasedNanos() > idleTimeout.toNanos() && idle.remove(connection)) {
+                destroy(connection);
+            }
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!closed && all.size() < minSize) {
+            try {
+                PooledConnection connection = create();
+                connection.onRelease();
+                idle.offerLast(connection);
+            } catch (IOException e) {
+                logger.debug("Could not open a pooled connection to port {}", port, e);
+                return;
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    public int getActive() {
+        return maxSize - permits.availablePermits();
+    }
+
+    public int getIdle() {
+        return idle.size();
+    }
+
+    public int getTotal() {
+        return all.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return leases that failed because no connection became free in time
+     */
+    public long getLeaseTimeouts() {
+        return leaseTimeouts.get();
+    }
+
+    public long getCreated() {
+        return created.get();
+    }
+
+    /**
+     * @return connections closed by idle eviction, failed validation or draining
+     */
+    public long getDestroyed() {
+        return destroyed.get();
+    }
+
+    /**
+     * @return commands sent on all connections of the pool, including closed ones
+     */
+    public long getCommandCount() {
+        long count = retiredCommands.get();
+        for (PooledConnection connection : all) {
+            count += connection.getCommandCount();
+        }
+        return count;
+    }
+
+    /**
+     * @return how long leases waited for a connection; leases that got one at once count as 0
+     */
+    public LatencyHistogram getLeaseWaitTimes() {
+        LatencyHistogram snapshot;
+        synchronized (leaseWaits) {
+            snapshot = leaseWaits.copy();
+        }
+        snapshot.recordValues(0, immediateLeases.get());
+        return snapshot;
+    }
+
+    /**
+     * @return usage of the open connections, by id
+     */
+    public List<ConnectionStats> getConnectionStats() {
+        List<ConnectionStats> stats = new ArrayList<>();
+        for (PooledConnection connection : all) {
+            stats.add(new ConnectionStats(connection.getId(), connection.getCommandCount(),
+                    connection.getLeases(), connection.isLeased()));
+        }
+        stats.sort(Comparator.comparingInt(ConnectionStats::id));
+        return stats;
+    }
+
+    /**
+     * Stops leasing, waits up to the drain timeout for leased connections to be returned, then
+     * closes all connections, leased or not.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        evictor.interrupt();
+        boolean drained = false;
+        try {
+            drained = permits.tryAcquire(maxSize, drainTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!drained) {
+            logger.warn("Closing {} connections to port {} that are still leased", getActive(), port);
+        }
+        PooledConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            destroy(connection);
+        }
+        for (PooledConnection remaining : all) {
+            destroy(remaining);
+        }
+        logger.debug("Connection pool of port {} closed: {} created, {} commands",
+                port, created.get(), getCommandCount());
+    }
+
+    public static final class Builder {
+
+        private String host = "127.0.0.1";
+        private int port;
+        private int minSize;
+        private int maxSize = 8;
+        private Duration leaseTimeout = Duration.ofSeconds(5);
+        private Duration idleTimeout = Duration.ofMinutes(1);
+        private Duration validationInterval = Duration.ofSeconds(1);
+        private Duration drainTimeout = Duration.ofSeconds(5);
+
+        private Builder() {
+        }
+
+        public Builder setHost(String host) {
+            this.host = host;
+            return this;
+        }
+
+        public Builder setPort(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * @param minSize connections kept open even when idle, default 0
+         * @return this
+         */
+        public Builder setMinSize(int minSize) {
+            this.minSize = minSize;
+            return this;
+        }
+
+        /**
+         * @param maxSize connections open at most, default 8
+         * @return this
+         */
+        public Builder setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * @param leaseTimeout how long {@link #lease()} waits when all connections are in use,
+         *                     default 5 seconds
+         * @return this
+         */
+        public Builder setLeaseTimeout(Duration leaseTimeout) {
+            this.leaseTimeout = leaseTimeout;
+            return this;
+        }
+
+        /**
+         * @param idleTimeout idle connections beyond the minimum are closed after this, default
+         *                    1 minute
+         * @return this
+         */
+        public Builder setIdleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        /**
+         * @param validationInterval connections idle for longer are checked with {@code PING}
+         *                           before being leased, default 1 second; zero checks every
+         *                           lease
+         * @return this
+         */
+        public Builder setValidationInterval(Duration validationInterval) {
+            this.validationInterval = validationInterval;
+            return this;
+        }
+
+        /**
+         * @param drainTimeout how long {@link #close()} waits for leased connections, default 5
+         *                     seconds
+         * @return this
+         */
+        public Builder setDrainTimeout(Duration drainTimeout) {
+            this.drainTimeout = drainTimeout;
+            return this;
+        }
+
+        /**
+         * Creates the pool and opens {@code minSize} connections.
+         *
+         * @return the pool
+         * @throws IOException if a connection cannot be opened
+         */
+        public RedisConnectionPool build() throws IOException {
+            if (port <= 0) {
+                throw new IllegalStateException("No port set");
+            }
+            if (maxSize < 1 || minSize < 0 || minSize > maxSize) {
+                throw new IllegalStateException("Invalid pool size: min " + minSize + ", max " + maxSize);
+            }
+            RedisConnectionPool pool = new RedisConnectionPool(this);
+            try {
+                for (int i = 0; i < minSize; i++) {
+                    PooledConnection connection = pool.create();
+                    connection.onRelease();
+                    pool.idle.offerLast(connection);
+                }
+            } catch (IOException e) {
+                pool.close();
+                throw e;
+            }
+            pool.evictor.start();
+            return pool;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package top.lihuu.redis4j.client;
+
+import java.io.IOException;
+
+/**
+ * An error reply from the server, e.g. {@code ERR unknown command} or {@code WRONGTYPE ...}.
+ */
+public class RedisErrorException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RedisErrorException(String message) {
+        super(message);
+    }
+
+    /**
+     * @return the error code, the first word of the message, e.g. {@code ERR} or {@code WRONGTYPE}
+     */
+    public String getErrorCode() {
+        String message = getMessage();
+        int space = message.indexOf(' ');
+        return space < 0 ? message : message.substring(0, space);
+    }
+}
@@ -0,0 +1,309 @@
+package top.lihuu.redis4j.client;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An incremental RESP reply parser that reads tokens straight from a {@link ByteBuffer}, without
+ * allocating.
+ *
+ * <p>{@link #next(ByteBuffer)} returns one token at a time: a string, a number, nil or the
+ * header of an aggregate (array, or the RESP3 map, set, push and attribute), whose elements follow
+ * as further tokens. RESP2 and RESP3 replies are both understood. If the buffer does not hold a
+ * complete token yet, it returns null and leaves the buffer untouched, so the caller can read more
+ * input and try again; {@link #getNeeded()} tells how large the buffer has to be. The decoder
+ * tracks the nesting of arrays across calls, {@link #isReplyComplete()} tells when a whole reply
+ * has been read.
+ *
+ * <p>The content of a string token stays in the buffer, between {@link #getContentStart()} and
+ * its length. It is valid until the buffer is compacted or refilled. Not thread safe.
+ */
+public final class RespDecoder {
+
+    private int[] remaining = new int[8];
+    private boolean[] attributes = new boolean[8];
+    private int depth;
+    private boolean awaitingValue;
+    private RespType type;
+    private long value;
+    private int contentStart;
+    private int contentLength;
+    private int needed;
+
+    /**
+     * Reads the next token from the buffer, from its position to its limit.
+     *
+     * @param in the buffer, its position is moved past the token
+     * @return the type of the token, or null if the buffer does not hold a complete one
+     * @throws IOException if the input is not RESP
+     */
+    public RespType next(ByteBuffer in) throws IOException {
+        int start = in.position();
+        int limit = in.limit();
+        if (start >= limit) {
+            needed = 1;
+            return null;
+        }
+        int lineEnd = findCrlf(in, start + 1, limit);
+        if (lineEnd < 0) {
+            // the line is not complete, at least one more byte is needed
+            needed = limit - start + 1;
+            return null;
+        }
+        byte prefix = in.get(start);
+        int next = lineEnd + 2;
+        switch (prefix) {
+            case '+', '-', ',', '(' -> {
+                type = switch (prefix) {
+                    case '+' -> RespType.SIMPLE_STRING;
+                    case '-' -> RespType.ERROR;
+                    case ',' -> RespType.DOUBLE;
+                    default -> RespType.BIG_NUMBER;
+                };
+                contentStart = start + 1;
+                contentLength = lineEnd - contentStart;
+            }
+            case ':' -> {
+                type = RespType.INTEGER;
+                value = parseLong(in, start + 1, lineEnd);
+            }
+            case '#' -> {
+                type = RespType.BOOLEAN;
+                value = in.get(start + 1) == 't' ? 1 : 0;
+            }
+            case '_' -> type = RespType.NULL;
+            case '$', '!', '=' -> {
+                long length = parseLong(in, start + 1, lineEnd);
+                if (length < 0) {
+                    type = RespType.NULL;
+                } else {
+                    long end = (long) next + length + 2;
+                    if (end - start > Integer.MAX_VALUE - 8) {
+                        throw new IOException("Bulk string of " + length + " bytes is too large");
+                    }
+                    if (end > limit) {
+                        needed = (int) (end - start);
+                        return null;
+                    }
+                    type = prefix == '$' ? RespType.BULK_STRING
+                            : prefix == '!' ? RespType.ERROR : RespType.VERBATIM_STRING;
+                    value = length;
+                    contentStart = next;
+                    contentLength = (int) length;
+                    if (type == RespType.VERBATIM_STRING && length >= 4) {
+                        // skip the format, e.g. "txt:"
+                        contentStart += 4;
+                        contentLength -= 4;
+                    }
+                    next = (int) end;
+                }
+            }
+            case '*', '%', '~', '>', '|' -> {
+                long count = parseLong(in, start + 1, lineEnd);
+                type = switch (prefix) {
+                    case '*' -> count < 0 ? RespType.NULL : RespType.ARRAY;
+                    case '%' -> RespType.MAP;
+                    case '~' -> RespType.SET;
+                    case '>' -> RespType.PUSH;
+                    default -> RespType.ATTRIBUTE;
+                };
+                value = count;
+            }
+            default -> throw new IOException("Unexpected reply type: " + (char) prefix);
+        }
+        in.position(next);
+        if (type.isAggregate()) {
+            long elements = type == RespType.MAP || type == RespType.ATTRIBUTE ? 2 * value : value;
+            if (elements > Integer.MAX_VALUE) {
+                throw new IOException("Aggregate of " + value + " elements is too large");
+            }
+            if (elements > 0) {
+                push((int) elements, type == RespType.ATTRIBUTE);
+            } else if (type == RespType.ATTRIBUTE) {
+                awaitingValue |= depth == 0;
+            } else {
+                completeValue();
+            }
+        } else {
+            completeValue();
+        }
+        return type;
+    }
+
+    private void push(int count, boolean attribute) {
+        if (depth == remaining.length) {
+            remaining = Arrays.copyOf(remaining, depth * 2);
+            attributes = Arrays.copyOf(attributes, depth * 2);
+        }
+        attributes[depth] = attribute;
+        remaining[depth++] = count;
+    }
+
+    private void completeValue() {
+        while (depth > 0) {
+            if (--remaining[depth - 1] > 0) {
+                return;
+            }
+            depth--;
+            if (attributes[depth]) {
+                // attributes describe the value that follows them, they are not a value themselves
+                awaitingValue |= depth == 0;
+                return;
+            }
+            // the aggregate is complete, and is itself an element of its parent
+        }
+        awaitingValue = false;
+    }
+
+    private static int findCrlf(ByteBuffer in, int from, int limit) {
+        for (int i = from; i < limit - 1; i++) {
+            if (in.get(i) == '\r' && in.get(i + 1) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long parseLong(ByteBuffer in, int from, int to) throws IOException {
+        boolean negative = from < to && in.get(from) == '-';
+        int i = negative ? from + 1 : from;
+        if (i == to) {
+            throw new IOException("Malformed number in reply");
+        }
+        long result = 0;
+        for (; i < to; i++) {
+            int digit = in.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IOException("Malformed number in reply");
+            }
+            result = result * 10 - digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * @return the type of the last token
+     */
+    public RespType getType() {
+        return type;
+    }
+
+    /**
+     * @return the value of an integer, the length of a bulk string, the element count of an
+     * array, set or push, the number of pairs of a map, or 1 for true and 0 for false
+     */
+    public long getValue() {
+        return value;
+    }
+
+    /**
+     * @return the position of the content of the last string or error token in the buffer
+     */
+    public int getContentStart() {
+        return contentStart;
+    }
+
+    public int getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * @param in the buffer the token was read from
+     * @return a view of the content of the last string or error token
+     */
+    public ByteBuffer slice(ByteBuffer in) {
+        return in.slice(contentStart, contentLength);
+    }
+
+    /**
+     * @param in the buffer the token was read from
+     * @return the content of the last string or error token, decoded as UTF-8
+     */
+    public String getString(ByteBuffer in) {
+        byte[] bytes = new byte[contentLength];
+        in.get(contentStart, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param in the buffer the token was read from
+     * @return the value of the last double token, including {@code inf}, {@code -inf} and
+     * {@code nan}
+     */
+    public double getDouble(ByteBuffer in) {
+        String text = getString(in);
+        return switch (text) {
+            case "inf" -> Double.POSITIVE_INFINITY;
+            case "-inf" -> Double.NEGATIVE_INFINITY;
+            case "nan" -> Double.NaN;
+            default -> Double.parseDouble(text);
+        };
+    }
+
+    /**
+     * Converts the last token to a Java object, if it is not an aggregate: strings to {@link
+     * String}, integers to {@link Long}, doubles to {@link Double}, big numbers to {@link
+     * BigInteger}, booleans to {@link Boolean}, errors to a {@link RedisErrorException} that is
+     * returned, not thrown, and nil to null.
+     *
+     * @param in the buffer the token was read from
+     * @return the value
+     */
+    Object scalarValue(ByteBuffer in) {
+        return switch (type) {
+            case SIMPLE_STRING, BULK_STRING, VERBATIM_STRING -> getString(in);
+            case ERROR -> new RedisErrorException(getString(in));
+            case INTEGER -> value;
+            case DOUBLE -> getDouble(in);
+            case BIG_NUMBER -> new BigInteger(getString(in));
+            case BOOLEAN -> value == 1;
+            default -> null;
+        };
+    }
+
+    /**
+     * @param in       the buffer the token was read from
+     * @param expected ASCII content
+     * @return whether the content of the last string token equals {@code expected}, without
+     * allocating
+     */
+    public boolean contentEquals(ByteBuffer in, String expected) {
+        if (contentLength != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < contentLength; i++) {
+            if (in.get(contentStart + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of bytes, counted from the buffer's position, that must be available
+     * before the next token can be read, after {@link #next(ByteBuffer)} returned null
+     */
+    public int getNeeded() {
+        return needed;
+    }
+
+    /**
+     * @return true if the last token completed a reply, i.e. it was not inside an aggregate or it
+     * was the last element of the outermost one
+     */
+    public boolean isReplyComplete() {
+        return depth == 0 && !awaitingValue;
+    }
+
+    /**
+     * Forgets any partially read reply, e.g. after the connection was reset.
+     */
+    public void reset() {
+        depth = 0;
+        awaitingValue = false;
+        type = null;
+    }
+}
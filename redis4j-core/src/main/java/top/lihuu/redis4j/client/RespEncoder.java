@@ -0,0 +1,185 @@
+package top.lihuu.redis4j.client;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes RESP requests into a {@link ByteBuffer} without allocating: numbers are written digit by
+ * digit and strings are encoded to UTF-8 straight into the buffer.
+ *
+ * <p>A command is an array header followed by one bulk string per argument:
+ *
+ * <pre>
+ * RespEncoder.writeArrayHeader(out, 3);
+ * RespEncoder.writeBulkString(out, "SET");
+ * RespEncoder.writeBulkString(out, key);
+ * RespEncoder.writeBulkString(out, 42);
+ * </pre>
+ *
+ * The methods do not check for space; {@link #bulkStringSize(int)} and {@link
+ * #MAX_HEADER_SIZE} tell how much is needed.
+ */
+public final class RespEncoder {
+
+    /**
+     * The largest array or bulk string header: prefix, 20 characters of a long and CRLF.
+     */
+    public static final int MAX_HEADER_SIZE = 1 + 20 + 2;
+
+    private RespEncoder() {
+    }
+
+    public static void writeArrayHeader(ByteBuffer out, int count) {
+        writeHeader(out, (byte) '*', count);
+    }
+
+    /**
+     * Writes {@code prefix}, the decimal digits of {@code value} and CRLF.
+     */
+    public static void writeHeader(ByteBuffer out, byte prefix, long value) {
+        out.put(prefix);
+        writeDecimal(out, value);
+        writeCrlf(out);
+    }
+
+    public static void writeBulkString(ByteBuffer out, CharSequence value) {
+        writeHeader(out, (byte) '$', utf8Length(value));
+        encodeUtf8(value, 0, out);
+        writeCrlf(out);
+    }
+
+    /**
+     * Writes a number as a bulk string, the way redis expects numeric arguments.
+     */
+    public static void writeBulkString(ByteBuffer out, long value) {
+        writeHeader(out, (byte) '$', decimalLength(value));
+        writeDecimal(out, value);
+        writeCrlf(out);
+    }
+
+    /**
+     * @param value written from its position to its limit, its position is not changed
+     */
+    public static void writeBulkString(ByteBuffer out, ByteBuffer value) {
+        writeHeader(out, (byte) '$', value.remaining());
+        out.put(out.position(), value, value.position(), value.remaining());
+        out.position(out.position() + value.remaining());
+        writeCrlf(out);
+    }
+
+    public static void writeCrlf(ByteBuffer out) {
+        out.put((byte) '\r').put((byte) '\n');
+    }
+
+    /**
+     * @param contentLength the length of the content in bytes
+     * @return the bytes the bulk string takes, including its header
+     */
+    public static int bulkStringSize(int contentLength) {
+        return 1 + decimalLength(contentLength) + 2 + contentLength + 2;
+    }
+
+    public static void writeDecimal(ByteBuffer out, long value) {
+        int length = decimalLength(value);
+        int end = out.position() + length;
+        // negative values avoid the overflow of -Long.MIN_VALUE
+        long remaining = value < 0 ? value : -value;
+        for (int i = end - 1; i >= end - length + (value < 0 ? 1 : 0); i--) {
+            out.put(i, (byte) ('0' - remaining % 10));
+            remaining /= 10;
+        }
+        if (value < 0) {
+            out.put(end - length, (byte) '-');
+        }
+        out.position(end);
+    }
+
+    public static int decimalLength(long value) {
+        int length = value < 0 ? 2 : 1;
+        long remaining = value < 0 ? value : -value;
+        while (remaining <= -10) {
+            remaining /= 10;
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * @return the number of bytes of the UTF-8 encoding of {@code value}
+     */
+    public static int utf8Length(CharSequence value) {
+        int length = 0;
+        int chars = value.length();
+        for (int i = 0; i < chars; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Encodes {@code value} to UTF-8, starting at character {@code from}, until it is done or the
+     * buffer is full. A character is never split across calls, so a large string can be written
+     * in pieces, emptying the buffer in between. Unpaired surrogates are encoded as {@code ?}.
+     *
+     * @return the index of the first character not written, {@code value.length()} when done
+     */
+    public static int encodeUtf8(CharSequence value, int from, ByteBuffer out) {
+        int chars = value.length();
+        int i = from;
+        while (i < chars) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (!out.hasRemaining()) {
+                    return i;
+                }
+                out.put((byte) c);
+                i++;
+            } else if (c < 0x800) {
+                if (out.remaining() < 2) {
+                    return i;
+                }
+                out.put((byte) (0xc0 | c >> 6)).put((byte) (0x80 | c & 0x3f));
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    if (out.remaining() < 4) {
+                        return i;
+                    }
+                    int cp = Character.toCodePoint(c, value.charAt(i + 1));
+                    out.put((byte) (0xf0 | cp >> 18))
+                            .put((byte) (0x80 | cp >> 12 & 0x3f))
+                            .put((byte) (0x80 | cp >> 6 & 0x3f))
+                            .put((byte) (0x80 | cp & 0x3f));
+                    i += 2;
+                } else {
+                    // like String.getBytes(UTF_8)
+                    if (!out.hasRemaining()) {
+                        return i;
+                    }
+                    out.put((byte) '?');
+                    i++;
+                }
+            } else {
+                if (out.remaining() < 3) {
+                    return i;
+                }
+                out.put((byte) (0xe0 | c >> 12))
+                        .put((byte) (0x80 | c >> 6 & 0x3f))
+                        .put((byte) (0x80 | c & 0x3f));
+                i++;
+            }
+        }
+        return i;
+    }
+}
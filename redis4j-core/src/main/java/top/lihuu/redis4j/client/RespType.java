@@ -0,0 +1,62 @@
+package top.lihuu.redis4j.client;
+
+/**
+ * The type of a token read by a {@link RespDecoder}.
+ */
+public enum RespType {
+    SIMPLE_STRING,
+    /**
+     * A simple error, or a RESP3 blob error.
+     */
+    ERROR,
+    INTEGER,
+    BULK_STRING,
+    /**
+     * The header of an array, its elements follow as separate tokens.
+     */
+    ARRAY,
+    /**
+     * A nil bulk string or nil array, or the RESP3 null.
+     */
+    NULL,
+    /**
+     * RESP3: the header of a map, its keys and values follow alternately.
+     */
+    MAP,
+    /**
+     * RESP3: the header of a set.
+     */
+    SET,
+    /**
+     * RESP3: the header of an out of band message, e.g. a pub/sub message or a tracking
+     * invalidation.
+     */
+    PUSH,
+    /**
+     * RESP3: the header of attributes describing the reply that follows them.
+     */
+    ATTRIBUTE,
+    /**
+     * RESP3
+     */
+    DOUBLE,
+    /**
+     * RESP3
+     */
+    BIG_NUMBER,
+    /**
+     * RESP3
+     */
+    BOOLEAN,
+    /**
+     * RESP3: a bulk string with a format, the content excludes the {@code txt:} prefix.
+     */
+    VERBATIM_STRING;
+
+    /**
+     * @return whether elements follow the token
+     */
+    public boolean isAggregate() {
+        return this == ARRAY || this == MAP || this == SET || this == PUSH || this == ATTRIBUTE;
+    }
+}
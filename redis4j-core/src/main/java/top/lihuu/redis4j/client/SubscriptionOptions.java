@@ -0,0 +1,113 @@
+package top.lihuu.redis4j.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What a {@link PubSubSubscription} subscribes to and how it buffers, built with {@link
+ * #newBuilder()}.
+ */
+public final class SubscriptionOptions {
+
+    private final List<String> channels;
+    private final List<String> patterns;
+    private final int bufferSize;
+    private final OverflowPolicy overflowPolicy;
+
+    private SubscriptionOptions(Builder builder) {
+        this.channels = List.copyOf(builder.channels);
+        this.patterns = List.copyOf(builder.patterns);
+        this.bufferSize = builder.bufferSize;
+        this.overflowPolicy = builder.overflowPolicy;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    public List<String> getChannels() {
+        return channels;
+    }
+
+    public List<String> getPatterns() {
+        return patterns;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public static final class Builder {
+
+        private final List<String> channels = new ArrayList<>();
+        private final List<String> patterns = new ArrayList<>();
+        private int bufferSize = 1024;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+        private Builder() {
+        }
+
+        public Builder addChannel(String... channels) {
+            this.channels.addAll(List.of(channels));
+            return this;
+        }
+
+        public Builder addPattern(String... patterns) {
+            this.patterns.addAll(List.of(patterns));
+            return this;
+        }
+
+        /**
+         * Subscribes to the keyspace notifications ({@code __keyspace@<db>__:<key>}) of matching
+         * keys. The server only sends them if enabled, see {@link
+         * top.lihuu.redis4j.Redis#setKeyspaceNotifications(String)}.
+         *
+         * @param db         the logical database
+         * @param keyPattern glob-style key pattern, e.g. {@code user:*}
+         * @return this
+         */
+        public Builder addKeyspacePattern(int db, String keyPattern) {
+            return addPattern("__keyspace@" + db + "__:" + keyPattern);
+        }
+
+        /**
+         * Subscribes to the keyevent notifications ({@code __keyevent@<db>__:<event>}) of matching
+         * events, the payload is the key.
+         *
+         * @param db           the logical database
+         * @param eventPattern glob-style event pattern, e.g. {@code expired} or {@code *}
+         * @return this
+         */
+        public Builder addKeyeventPattern(int db, String eventPattern) {
+            return addPattern("__keyevent@" + db + "__:" + eventPattern);
+        }
+
+        /**
+         * @param bufferSize messages buffered per subscriber, rounded up to a power of two
+         * @return this
+         */
+        public Builder setBufferSize(int bufferSize) {
+            if (bufferSize < 1) {
+                throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+            }
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        public Builder setOverflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        public SubscriptionOptions build() {
+            if (channels.isEmpty() && patterns.isEmpty()) {
+                throw new IllegalStateException("Subscribe to at least one channel or pattern");
+            }
+            return new SubscriptionOptions(this);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package top.lihuu.redis4j.load;
+
+import java.util.SplittableRandom;
+
+/**
+ * Picks which of {@code keyCount} keys the next command touches.
+ */
+public abstract class KeyDistribution {
+
+    private final long keyCount;
+
+    private KeyDistribution(long keyCount) {
+        if (keyCount < 1) {
+            throw new IllegalArgumentException("keyCount must be at least 1: " + keyCount);
+        }
+        this.keyCount = keyCount;
+    }
+
+    /**
+     * Every key is equally likely.
+     *
+     * @param keyCount the number of keys
+     * @return the distribution
+     */
+    public static KeyDistribution uniform(long keyCount) {
+        return new KeyDistribution(keyCount) {
+            @Override
+            public long next(SplittableRandom random) {
+                return random.nextLong(keyCount);
+            }
+
+            @Override
+            public String toString() {
+                return "uniform(" + keyCount + ")";
+            }
+        };
+    }
+
+    /**
+     * A few hot keys get most of the traffic: key {@code i} is picked with a probability
+     * proportional to {@code 1 / (i + 1)^theta}. With the usual {@code theta} of 0.99, the hottest
+     * 1% of a million keys get about half of the commands.
+     *
+     * <p>Creating the distribution costs {@code O(keyCount)}, picking a key is constant time
+     * (Gray et al., "Quickly generating billion-record synthetic databases").
+     *
+     * @param keyCount the number of keys
+     * @param theta    the skew, between 0 (exclusive) and 1 (exclusive)
+     * @return the distribution
+     */
+    public static KeyDistribution zipfian(long keyCount, double theta) {
+        if (!(theta > 0 && theta < 1)) {
+            throw new IllegalArgumentException("theta must be between 0 and 1: " + theta);
+        }
+        return new Zipfian(keyCount, theta);
+    }
+
+    public long getKeyCount() {
+        return keyCount;
+    }
+
+    /**
+     * @param random the random of the calling thread
+     * @return the index of the key, between 0 and {@code keyCount - 1}
+     */
+    public abstract long next(SplittableRandom random);
+
+    private static final class Zipfian extends KeyDistribution {
+
+        private final double theta;
+        private final double alpha;
+        private final double zetaN;
+        private final double eta;
+        private final double halfPowTheta;
+
+        Zipfian(long keyCount, double theta) {
+            super(keyCount);
+            this.theta = theta;
+            this.zetaN = zeta(keyCount, theta);
+            this.alpha = 1 / (1 - theta);
+            this.halfPowTheta = 1 + Math.pow(0.5, theta);
+            this.eta = (1 - Math.pow(2d / keyCount, 1 - theta)) / (1 - zeta(2, theta) / zetaN);
+        }
+
+        private static double zeta(long n, double theta) {
+            double sum = 0;
+            for (long i = 1; i <= n; i++) {
+                sum += 1 / Math.pow(i, theta);
+            }
+            return sum;
+        }
+
+        @Override
+        public long next(SplittableRandom random) {
+            double u = random.nextDouble();
+            double uz = u * zetaN;
+            if (uz < 1) {
+                return 0;
+            }
+            if (uz < halfPowTheta) {
+                return Math.min(1, getKeyCount() - 1);
+            }
+            long key = (long) (getKeyCount() * Math.pow(eta * u - eta + 1, alpha));
+            return Math.min(key, getKeyCount() - 1);
+        }
+
+        @Override
+        public String toString() {
+            return "zipfian(" + getKeyCount() + ", " + theta + ")";
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package top.lihuu.redis4j.load;
+
+import top.lihuu.redis4j.metrics.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * The outcome of a {@link RedisLoadGenerator} run, not counting the warm-up.
+ *
+ * <p>The histograms can be {@link LatencyHistogram#add(LatencyHistogram) merged} with those of
+ * other runs, e.g. of several generators driving the same server.
+ */
+public final class LoadResult {
+
+    private final long reads;
+    private final long writes;
+    private final long errors;
+    private final Duration elapsed;
+    private final LatencyHistogram readLatency;
+    private final LatencyHistogram writeLatency;
+
+    LoadResult(long reads, long writes, long errors, Duration elapsed, LatencyHistogram readLatency,
+               LatencyHistogram writeLatency) {
+        this.reads = reads;
+        this.writes = writes;
+        this.errors = errors;
+        this.elapsed = elapsed;
+        this.readLatency = readLatency;
+        this.writeLatency = writeLatency;
+    }
+
+    public long getOperations() {
+        return reads + writes;
+    }
+
+    public long getReads() {
+        return reads;
+    }
+
+    public long getWrites() {
+        return writes;
+    }
+
+    /**
+     * @return commands answered with an error reply
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    public double getThroughput() {
+        long nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : getOperations() * 1_000_000_000d / nanos;
+    }
+
+    public LatencyHistogram getReadLatency() {
+        return readLatency;
+    }
+
+    public LatencyHistogram getWriteLatency() {
+        return writeLatency;
+    }
+
+    /**
+     * @return reads and writes merged into a new histogram
+     */
+    public LatencyHistogram getLatency() {
+        LatencyHistogram all = readLatency.copy();
+        all.add(writeLatency);
+        return all;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d ops (%d reads, %d writes, %d errors) in %d ms, %.0f ops/sec, latency %s",
+                getOperations(), reads, writes, errors, elapsed.toMillis(), getThroughput(), getLatency().summary());
+    }
+}
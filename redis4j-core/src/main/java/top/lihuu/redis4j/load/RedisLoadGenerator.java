@@ -0,0 +1,346 @@
+package top.lihuu.redis4j.load;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import top.lihuu.redis4j.Redis;
+import top.lihuu.redis4j.client.RedisConnection;
+import top.lihuu.redis4j.client.RedisErrorException;
+import top.lihuu.redis4j.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a server with a {@link Workload} from a number of connections, each on its own virtual
+ * thread.
+ *
+ * <p>In closed-loop mode (the default) every connection sends its next command as soon as the
+ * previous one is answered, which measures the throughput the server can sustain. In open-loop
+ * mode commands are scheduled at a fixed arrival rate regardless of how fast the server answers,
+ * like real clients do; their latency is measured from when they were scheduled, so a stalled
+ * server shows up in the percentiles instead of just slowing down the load (coordinated
+ * omission).
+ *
+ * <pre>
+ * LoadResult result = RedisLoadGenerator.newBuilder()
+ *         .setWorkload(workload)
+ *         .setConnections(32)
+ *         .setOpenLoop(50_000)
+ *         .setDuration(Duration.ofSeconds(10))
+ *         .build()
+ *         .run(redis);
+ * </pre>
+ */
+public final class RedisLoadGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisLoadGenerator.class);
+
+    private static final int PRELOAD_BATCH = 1000;
+
+    private final Workload workload;
+    private final int connections;
+    private final double requestsPerSecond;
+    private final Duration warmup;
+    private final Duration duration;
+    private final boolean preload;
+    private final long seed;
+
+    private RedisLoadGenerator(Builder builder) {
+        this.workload = builder.workload;
+        this.connections = builder.connections;
+        this.requestsPerSecond = builder.requestsPerSecond;
+        this.warmup = builder.warmup;
+        this.duration = builder.duration;
+        this.preload = builder.preload;
+        this.seed = builder.seed;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Runs the load against the given server and waits until it is done.
+     *
+     * @param redis the server
+     * @return the result
+     * @throws IOException if a connection fails
+     */
+    public LoadResult run(Redis redis) throws IOException {
+        return run("127.0.0.1", redis.getPort());
+    }
+
+    /**
+     * Runs the load and waits until it is done. Error replies are counted, they do not stop the
+     * run.
+     *
+     * @param host the host
+     * @param port the port
+     * @return the result
+     * @throws IOException if a connection fails
+     */
+    public LoadResult run(String host, int port) throws IOException {
+        List<Client> clients = new ArrayList<>(connections);
+        try {
+            SplittableRandom seeds = new SplittableRandom(seed);
+            for (int i = 0; i < connections; i++) {
+                clients.add(new Client(RedisConnection.open(host, port), seeds.split()));
+            }
+            if (preload) {
+                preload(clients.get(0).connection);
+            }
+            long start = System.nanoTime();
+            long measureFrom = start + warmup.toNanos();
+            long end = measureFrom + duration.toNanos();
+            for (int i = 0; i < clients.size(); i++) {
+                Client client = clients.get(i);
+                long offset = i;
+                client.thread = Thread.ofVirtual().name("redis4j-load-" + i)
+                        .start(() -> client.run(start, offset, measureFrom, end));
+            }
+            return collect(clients, Duration.ofNanos(end - measureFrom));
+        } finally {
+            for (Client client : clients) {
+                client.connection.close();
+            }
+        }
+    }
+
+    private void preload(RedisConnection connection) throws IOException {
+        long keyCount = workload.getKeyDistribution().getKeyCount();
+        SplittableRandom random = new SplittableRandom(seed);
+        List<String[]> batch = new ArrayList<>(PRELOAD_BATCH);
+        for (long key = 0; key < keyCount; key++) {
+            batch.add(new String[]{"SET", workload.key(key), workload.nextValue(random)});
+            if (batch.size() == PRELOAD_BATCH || key == keyCount - 1) {
+                for (Object reply : connection.pipeline(batch)) {
+                    if (reply instanceof RedisErrorException e) {
+                        throw e;
+                    }
+                }
+                batch.clear();
+            }
+        }
+        logger.info("Preloaded {} keys", keyCount);
+    }
+
+    private LoadResult collect(List<Client> clients, Duration elapsed) throws IOException {
+        long reads = 0;
+        long writes = 0;
+        long errors = 0;
+        LatencyHistogram readLatency = new LatencyHistogram();
+        LatencyHistogram writeLatency = new LatencyHistogram();
+        for (Client client : clients) {
+            try {
+                client.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while generating load", e);
+            }
+        }
+        for (Client client : clients) {
+            if (client.failure != null) {
+                throw client.failure;
+            }
+            reads += client.reads;
+            writes += client.writes;
+            errors += client.errors;
+            readLatency.add(client.readLatency);
+            writeLatency.add(client.writeLatency);
+        }
+        LoadResult result = new LoadResult(reads, writes, errors, elapsed, readLatency, writeLatency);
+        logger.info("{} with {} connections, {}: {}", workload,
+                connections, requestsPerSecond > 0 ? requestsPerSecond + " req/s" : "closed loop", result);
+        return result;
+    }
+
+    /**
+     * One connection and its thread. The counters are only touched by that thread and read after
+     * it has been joined.
+     */
+    private final class Client {
+
+        private final RedisConnection connection;
+        private final SplittableRandom random;
+        private final LatencyHistogram readLatency = new LatencyHistogram();
+        private final LatencyHistogram writeLatency = new LatencyHistogram();
+        private long reads;
+        private long writes;
+        private long errors;
+        private Thread thread;
+        private volatile IOException failure;
+
+        Client(RedisConnection connection, SplittableRandom random) {
+            this.connection = connection;
+            this.random = random;
+        }
+
+        void run(long start, long offset, long measureFrom, long end) {
+            try {
+                if (requestsPerSecond > 0) {
+                    runOpenLoop(start, offset, measureFrom, end);
+                } else {
+                    runClosedLoop(measureFrom, end);
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        private void runClosedLoop(long measureFrom, long end) throws IOException {
+            long sent;
+            while ((sent = System.nanoTime()) < end) {
+                send(sent, sent >= measureFrom);
+            }
+        }
+
+        /**
+         * Each of the n connections sends every n-th command of the schedule.
+         */
+        private void runOpenLoop(long start, long offset, long measureFrom, long end) throws IOException {
+            double interval = connections * 1_000_000_000d / requestsPerSecond;
+            for (long n = 0; ; n++) {
+                long intended = start + (long) ((n + offset / (double) connections) * interval);
+                if (intended >= end) {
+                    return;
+                }
+                long wait;
+                while ((wait = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                send(intended, intended >= measureFrom);
+            }
+        }
+
+        private void send(long intended, boolean measured) throws IOException {
+            String[] command = workload.next(random);
+            try {
+                connection.send(command);
+                connection.flush();
+                connection.discardReply();
+            } catch (RedisErrorException e) {
+                if (measured) {
+                    errors++;
+                }
+            }
+            if (!measured) {
+                return;
+            }
+            long latency = System.nanoTime() - intended;
+            if (command.length == 2) {
+                reads++;
+                readLatency.recordValue(latency);
+            } else {
+                writes++;
+                writeLatency.recordValue(latency);
+            }
+        }
+    }
+
+    public static final class Builder {
+
+        private Workload workload = Workload.newBuilder().build();
+        private int connections = 8;
+        private double requestsPerSecond;
+        private Duration warmup = Duration.ZERO;
+        private Duration duration = Duration.ofSeconds(10);
+        private boolean preload;
+        private long seed = System.nanoTime();
+
+        private Builder() {
+        }
+
+        /**
+         * @param workload the workload, default 90% reads of 100 byte values over 10000 uniform
+         *                 keys
+         * @return this
+         */
+        public Builder setWorkload(Workload workload) {
+            this.workload = workload;
+            return this;
+        }
+
+        /**
+         * @param connections the number of connections, default 8
+         * @return this
+         */
+        public Builder setConnections(int connections) {
+            if (connections < 1) {
+                throw new IllegalArgumentException("connections must be at least 1: " + connections);
+            }
+            this.connections = connections;
+            return this;
+        }
+
+        /**
+         * Each connection sends as fast as the server answers. This is the default.
+         *
+         * @return this
+         */
+        public Builder setClosedLoop() {
+            this.requestsPerSecond = 0;
+            return this;
+        }
+
+        /**
+         * Commands are scheduled at a fixed rate, spread evenly over the connections. If the
+         * server falls behind, latencies grow instead of the rate dropping, as long as there are
+         * enough connections to keep up with the rate.
+         *
+         * @param requestsPerSecond the arrival rate across all connections
+         * @return this
+         */
+        public Builder setOpenLoop(double requestsPerSecond) {
+            if (!(requestsPerSecond > 0)) {
+                throw new IllegalArgumentException("requestsPerSecond must be positive: " + requestsPerSecond);
+            }
+            this.requestsPerSecond = requestsPerSecond;
+            return this;
+        }
+
+        /**
+         * @param warmup how long to run before measuring, default none
+         * @return this
+         */
+        public Builder setWarmup(Duration warmup) {
+            this.warmup = warmup;
+            return this;
+        }
+
+        /**
+         * @param duration how long to measure, default 10 seconds
+         * @return this
+         */
+        public Builder setDuration(Duration duration) {
+            this.duration = duration;
+            return this;
+        }
+
+        /**
+         * @param preload whether to {@code SET} every key once before starting, so reads hit;
+         *                default false
+         * @return this
+         */
+        public Builder setPreload(boolean preload) {
+            this.preload = preload;
+            return this;
+        }
+
+        /**
+         * @param seed the seed of the key and value choices, for repeatable runs
+         * @return this
+         */
+        public Builder setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public RedisLoadGenerator build() {
+            return new RedisLoadGenerator(this);
+        }
+    }
+}
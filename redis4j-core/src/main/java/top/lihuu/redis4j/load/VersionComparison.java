@@ -0,0 +1,59 @@
+package top.lihuu.redis4j.load;
+
+import top.lihuu.redis4j.metrics.LatencyHistogram;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The results of a {@link VersionMatrix} run, one per version, oldest first.
+ */
+public final class VersionComparison {
+
+    private final List<VersionResult> results;
+
+    VersionComparison(List<VersionResult> results) {
+        this.results = List.copyOf(results);
+    }
+
+    public List<VersionResult> getResults() {
+        return results;
+    }
+
+    /**
+     * @return a text table of throughput, with the change from the first version, latency
+     * percentiles in microseconds and memory in MiB, a row per version
+     */
+    public String toTable() {
+        StringBuilder table = new StringBuilder(String.format(Locale.ROOT,
+                "%-16s %-10s %12s %8s %9s %9s %9s %9s %9s %9s %9s%n",
+                "version", "server", "ops/s", "change", "p50", "p99", "p99.9", "max", "used", "rss", "peak"));
+        double first = results.isEmpty() ? 0 : results.get(0).getLoad().getThroughput();
+        for (VersionResult result : results) {
+            LatencyHistogram latency = result.getLoad().getLatency();
+            double throughput = result.getLoad().getThroughput();
+            table.append(String.format(Locale.ROOT,
+                    "%-16s %-10s %12.0f %+7.1f%% %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    result.getDatabaseVersion(), result.getServerVersion(), throughput,
+                    first == 0 ? 0 : (throughput - first) / first * 100,
+                    micros(latency.getValueAtPercentile(50)), micros(latency.getValueAtPercentile(99)),
+                    micros(latency.getValueAtPercentile(99.9)), micros(latency.getMax()),
+                    mebibytes(result.getUsedMemory()), mebibytes(result.getUsedMemoryRss()),
+                    mebibytes(result.getUsedMemoryPeak())));
+        }
+        return table.toString();
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000d;
+    }
+
+    private static double mebibytes(long bytes) {
+        return bytes / (1024d * 1024d);
+    }
+
+    @Override
+    public String toString() {
+        return toTable();
+    }
+}
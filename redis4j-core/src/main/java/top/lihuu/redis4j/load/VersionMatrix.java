@@ -0,0 +1,137 @@
+package top.lihuu.redis4j.load;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import top.lihuu.redis4j.InfoSnapshot;
+import top.lihuu.redis4j.Redis;
+import top.lihuu.redis4j.RedisConfigurationBuilder;
+import top.lihuu.redis4j.client.RedisConnection;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Runs the same load against several Redis versions, one after the other on a fresh server each,
+ * to compare them before an upgrade. By default, all the versions whose binaries are on the class
+ * path for this OS, e.g. from several {@code redis4j-db-*} artifacts.
+ *
+ * <pre>
+ * VersionComparison comparison = VersionMatrix.newBuilder()
+ *         .setLoadGenerator(RedisLoadGenerator.newBuilder().setWorkload(workload).setPreload(true).build())
+ *         .build()
+ *         .run();
+ * System.out.print(comparison.toTable());
+ * </pre>
+ *
+ * <p>The versions run on the same machine in turn rather than at the same time, so that they do not
+ * compete for the CPU; the generator is the same instance, with the same seed, for all of them.
+ */
+public final class VersionMatrix {
+
+    private static final Logger logger = LoggerFactory.getLogger(VersionMatrix.class);
+
+    private final List<String> versions;
+    private final RedisLoadGenerator generator;
+    private final Consumer<RedisConfigurationBuilder> configuration;
+
+    private VersionMatrix(Builder builder) {
+        this.versions = builder.versions;
+        this.generator = builder.generator;
+        this.configuration = builder.configuration;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Starts each version, runs the load against it and stops it.
+     *
+     * @return a result per version, in the order of the versions
+     * @throws IOException if no version is found, or a server cannot be started or loaded
+     */
+    public VersionComparison run() throws IOException {
+        List<String> toRun = versions;
+        if (toRun == null) {
+            toRun = RedisConfigurationBuilder.newBuilder().findDatabaseVersions();
+            if (toRun.isEmpty()) {
+                throw new IOException("No Redis binaries for this OS on the class path");
+            }
+        }
+        logger.info("Comparing {}", toRun);
+        List<VersionResult> results = new ArrayList<>(toRun.size());
+        for (String version : toRun) {
+            RedisConfigurationBuilder builder = RedisConfigurationBuilder.newBuilder();
+            builder.setDatabaseVersion(version);
+            configuration.accept(builder);
+            try (Redis redis = Redis.newEmbeddedRedis(builder.build())) {
+                redis.start();
+                LoadResult load = generator.run(redis);
+                InfoSnapshot info;
+                try (RedisConnection connection = redis.openConnection()) {
+                    info = InfoSnapshot.parse((String) connection.execute("INFO"));
+                }
+                VersionResult result = new VersionResult(version, info.get("redis_version"), load,
+                        info.getLong("used_memory", 0), info.getLong("used_memory_rss", 0),
+                        info.getLong("used_memory_peak", 0));
+                logger.info("{}", result);
+                results.add(result);
+            }
+        }
+        return new VersionComparison(results);
+    }
+
+    public static final class Builder {
+
+        private List<String> versions;
+        private RedisLoadGenerator generator;
+        private Consumer<RedisConfigurationBuilder> configuration = builder -> {
+        };
+
+        private Builder() {
+        }
+
+        /**
+         * @param versions the packages of the binaries, e.g. {@code redis-7.4.2}, default all those
+         *                 found by {@link RedisConfigurationBuilder#findDatabaseVersions()}
+         * @return this
+         */
+        public Builder setVersions(List<String> versions) {
+            this.versions = List.copyOf(versions);
+            return this;
+        }
+
+        /**
+         * @param generator the load, default that of {@link RedisLoadGenerator} with preloaded keys,
+         *                  a 2 second warm-up and a 10 second measurement
+         * @return this
+         */
+        public Builder setLoadGenerator(RedisLoadGenerator generator) {
+            this.generator = generator;
+            return this;
+        }
+
+        /**
+         * @param configuration applied to the configuration of every server after its version is
+         *                      set, e.g. to add arguments
+         * @return this
+         */
+        public Builder setConfiguration(Consumer<RedisConfigurationBuilder> configuration) {
+            this.configuration = configuration;
+            return this;
+        }
+
+        public VersionMatrix build() {
+            if (generator == null) {
+                generator = RedisLoadGenerator.newBuilder()
+                        .setPreload(true)
+                        .setWarmup(Duration.ofSeconds(2))
+                        .build();
+            }
+            return new VersionMatrix(this);
+        }
+    }
+}
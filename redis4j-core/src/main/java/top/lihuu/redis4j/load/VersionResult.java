@@ -0,0 +1,69 @@
+package top.lihuu.redis4j.load;
+
+/**
+ * How one Redis version did in a {@link VersionMatrix} run.
+ */
+public final class VersionResult {
+
+    private final String databaseVersion;
+    private final String serverVersion;
+    private final LoadResult load;
+    private final long usedMemory;
+    private final long usedMemoryRss;
+    private final long usedMemoryPeak;
+
+    VersionResult(String databaseVersion, String serverVersion, LoadResult load, long usedMemory,
+                  long usedMemoryRss, long usedMemoryPeak) {
+        this.databaseVersion = databaseVersion;
+        this.serverVersion = serverVersion;
+        this.load = load;
+        this.usedMemory = usedMemory;
+        this.usedMemoryRss = usedMemoryRss;
+        this.usedMemoryPeak = usedMemoryPeak;
+    }
+
+    /**
+     * @return the package of the binaries, e.g. {@code redis-8.0.2}
+     */
+    public String getDatabaseVersion() {
+        return databaseVersion;
+    }
+
+    /**
+     * @return the {@code redis_version} the server reported, which may differ from the package
+     */
+    public String getServerVersion() {
+        return serverVersion;
+    }
+
+    public LoadResult getLoad() {
+        return load;
+    }
+
+    /**
+     * @return {@code used_memory} after the load, in bytes
+     */
+    public long getUsedMemory() {
+        return usedMemory;
+    }
+
+    /**
+     * @return {@code used_memory_rss} after the load, in bytes
+     */
+    public long getUsedMemoryRss() {
+        return usedMemoryRss;
+    }
+
+    /**
+     * @return {@code used_memory_peak} of the run, in bytes
+     */
+    public long getUsedMemoryPeak() {
+        return usedMemoryPeak;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%s): %s, used_memory %d, rss %d, peak %d", databaseVersion, serverVersion, load,
+                usedMemory, usedMemoryRss, usedMemoryPeak);
+    }
+}
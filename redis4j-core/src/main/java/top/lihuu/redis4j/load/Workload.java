@@ -0,0 +1,165 @@
+package top.lihuu.redis4j.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * What a {@link RedisLoadGenerator} sends: {@code GET}s and {@code SET}s of string keys picked
+ * from a {@link KeyDistribution}, with value sizes drawn from a weighted mix.
+ *
+ * <pre>
+ * Workload workload = Workload.newBuilder()
+ *         .setKeyDistribution(KeyDistribution.zipfian(100_000, 0.99))
+ *         .addValueSize(100, 90)
+ *         .addValueSize(10_000, 10)
+ *         .setReadRatio(0.8)
+ *         .build();
+ * </pre>
+ */
+public final class Workload {
+
+    private final String keyPrefix;
+    private final KeyDistribution keys;
+    private final int[] valueSizes;
+    private final int[] cumulativeWeights;
+    private final double readRatio;
+    private final String values;
+
+    private Workload(Builder builder) {
+        this.keyPrefix = builder.keyPrefix;
+        this.keys = builder.keys;
+        this.readRatio = builder.readRatio;
+        this.valueSizes = new int[builder.sizes.size()];
+        this.cumulativeWeights = new int[valueSizes.length];
+        int total = 0;
+        int max = 0;
+        for (int i = 0; i < valueSizes.length; i++) {
+            valueSizes[i] = builder.sizes.get(i);
+            total += builder.weights.get(i);
+            cumulativeWeights[i] = total;
+            max = Math.max(max, valueSizes[i]);
+        }
+        this.values = "x".repeat(max);
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    public KeyDistribution getKeyDistribution() {
+        return keys;
+    }
+
+    public double getReadRatio() {
+        return readRatio;
+    }
+
+    /**
+     * @param index the index of the key
+     * @return the key
+     */
+    public String key(long index) {
+        return keyPrefix + index;
+    }
+
+    /**
+     * @param random the random of the calling thread
+     * @return true if the next command is a read
+     */
+    boolean nextIsRead(SplittableRandom random) {
+        return readRatio >= 1 || (readRatio > 0 && random.nextDouble() < readRatio);
+    }
+
+    /**
+     * @param random the random of the calling thread
+     * @return a value with a size drawn from the mix
+     */
+    String nextValue(SplittableRandom random) {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = 0;
+        while (cumulativeWeights[i] <= pick) {
+            i++;
+        }
+        return values.substring(0, valueSizes[i]);
+    }
+
+    /**
+     * @param random the random of the calling thread
+     * @return the next command
+     */
+    String[] next(SplittableRandom random) {
+        String key = key(keys.next(random));
+        return nextIsRead(random) ? new String[]{"GET", key} : new String[]{"SET", key, nextValue(random)};
+    }
+
+    @Override
+    public String toString() {
+        return "Workload{keys=" + keys + ", readRatio=" + readRatio + "}";
+    }
+
+    public static final class Builder {
+
+        private String keyPrefix = "key:";
+        private KeyDistribution keys = KeyDistribution.uniform(10_000);
+        private final List<Integer> sizes = new ArrayList<>();
+        private final List<Integer> weights = new ArrayList<>();
+        private double readRatio = 0.9;
+
+        private Builder() {
+        }
+
+        /**
+         * @param keyPrefix prepended to the index of each key, default {@code key:}
+         * @return this
+         */
+        public Builder setKeyPrefix(String keyPrefix) {
+            this.keyPrefix = keyPrefix;
+            return this;
+        }
+
+        /**
+         * @param keys the distribution, default uniform over 10000 keys
+         * @return this
+         */
+        public Builder setKeyDistribution(KeyDistribution keys) {
+            this.keys = keys;
+            return this;
+        }
+
+        /**
+         * Adds a value size to the mix. Without any, all values are 100 bytes.
+         *
+         * @param bytes  the size of the value
+         * @param weight how often this size is picked relative to the others
+         * @return this
+         */
+        public Builder addValueSize(int bytes, int weight) {
+            if (bytes < 0 || weight < 1) {
+                throw new IllegalArgumentException("Invalid value size " + bytes + " with weight " + weight);
+            }
+            sizes.add(bytes);
+            weights.add(weight);
+            return this;
+        }
+
+        /**
+         * @param readRatio the share of {@code GET}s, the rest are {@code SET}s, default 0.9
+         * @return this
+         */
+        public Builder setReadRatio(double readRatio) {
+            if (!(readRatio >= 0 && readRatio <= 1)) {
+                throw new IllegalArgumentException("readRatio must be between 0 and 1: " + readRatio);
+            }
+            this.readRatio = readRatio;
+            return this;
+        }
+
+        public Workload build() {
+            if (sizes.isEmpty()) {
+                addValueSize(100, 1);
+            }
+            return new Workload(this);
+        }
+    }
+}
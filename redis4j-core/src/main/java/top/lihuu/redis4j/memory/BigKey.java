@@ -0,0 +1,12 @@
+package top.lihuu.redis4j.memory;
+
+/**
+ * One of the keys using the most memory.
+ *
+ * @param key      the key
+ * @param type     the type, as {@code TYPE} reports it
+ * @param encoding the encoding, as {@code OBJECT ENCODING} reports it
+ * @param bytes    the {@code MEMORY USAGE}
+ */
+public record BigKey(String key, String type, String encoding, long bytes) {
+}
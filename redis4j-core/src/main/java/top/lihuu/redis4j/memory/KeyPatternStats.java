@@ -0,0 +1,22 @@
+package top.lihuu.redis4j.memory;
+
+import java.util.Map;
+
+/**
+ * Memory used by the sampled keys of one pattern and type.
+ *
+ * @param pattern   the key pattern, e.g. {@code user:*:profile}
+ * @param type      the type, as {@code TYPE} reports it
+ * @param keys      the sampled keys
+ * @param bytes     their {@code MEMORY USAGE}
+ * @param maxBytes  the {@code MEMORY USAGE} of the largest of them
+ * @param encodings the number of keys per {@code OBJECT ENCODING}, e.g. {@code listpack} and
+ *                  {@code hashtable}
+ */
+public record KeyPatternStats(String pattern, String type, long keys, long bytes, long maxBytes,
+                              Map<String, Long> encodings) {
+
+    public double averageBytes() {
+        return keys == 0 ? 0 : (double) bytes / keys;
+    }
+}
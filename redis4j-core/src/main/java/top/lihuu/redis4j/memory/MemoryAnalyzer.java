@@ -0,0 +1,390 @@
+package top.lihuu.redis4j.memory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import top.lihuu.redis4j.InfoSnapshot;
+import top.lihuu.redis4j.Redis;
+import top.lihuu.redis4j.client.RedisConnection;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Measures how much memory the keys of a server use, grouped by key pattern and type, to size a
+ * key schema before it goes to production.
+ *
+ * <pre>
+ * MemoryReport report = MemoryAnalyzer.newBuilder()
+ *         .setPatternDepth(2)
+ *         .build()
+ *         .analyze(redis);
+ * report.writeCsv(Path.of("memory-v2.csv"));
+ * </pre>
+ *
+ * <p>The keyspace is walked with {@code SCAN}; for each batch of keys, {@code TYPE}, {@code MEMORY
+ * USAGE} and {@code OBJECT ENCODING} of every key are sent as one pipeline. A key's pattern is its
+ * first {@code patternDepth} segments, with segments that look like ids (numbers, hex strings,
+ * UUIDs) replaced by {@code *}: {@code user:1042:profile} becomes {@code user:*:profile}. Only the
+ * current batch, one entry per pattern and the largest keys are held in memory, so the analyzer
+ * runs with a bounded heap over any number of keys; patterns beyond {@code maxPatterns} are
+ * counted under {@value #OTHER_PATTERN}.
+ *
+ * <p>With a sample ratio below 1, only that share of the keys is measured, chosen by a hash of the
+ * key so that the same keys are sampled in every run.
+ */
+public final class MemoryAnalyzer {
+
+    private static final Logger logger = LoggerFactory.getLogger(MemoryAnalyzer.class);
+
+    public static final String OTHER_PATTERN = "(other)";
+
+    private final int db;
+    private final String match;
+    private final int scanCount;
+    private final int memorySamples;
+    private final double sampleRatio;
+    private final String delimiter;
+    private final int patternDepth;
+    private final int maxPatterns;
+    private final int bigKeys;
+
+    private MemoryAnalyzer(Builder builder) {
+        this.db = builder.db;
+        this.match = builder.match;
+        this.scanCount = builder.scanCount;
+        this.memorySamples = builder.memorySamples;
+        this.sampleRatio = builder.sampleRatio;
+        this.delimiter = builder.delimiter;
+        this.patternDepth = builder.patternDepth;
+        this.maxPatterns = builder.maxPatterns;
+        this.bigKeys = builder.bigKeys;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * @param redis the server
+     * @return the report
+     * @throws IOException if the server cannot be reached
+     */
+    public MemoryReport analyze(Redis redis) throws IOException {
+        return analyze("127.0.0.1", redis.getPort());
+    }
+
+    /**
+     * Walks the keyspace of the configured database and measures the sampled keys. Keys deleted
+     * during the walk are left out.
+     *
+     * @param host the host
+     * @param port the port
+     * @return the report
+     * @throws IOException if the server cannot be reached
+     */
+    public MemoryReport analyze(String host, int port) throws IOException {
+        long start = System.nanoTime();
+        Map<String, Accumulator> patterns = new HashMap<>();
+        Set<String> tracked = new HashSet<>();
+        PriorityQueue<BigKey> largest = new PriorityQueue<>(Comparator.comparingLong(BigKey::bytes));
+        long scanned = 0;
+        long sampled = 0;
+        long sampledBytes = 0;
+        long usedMemory;
+        long datasetMemory;
+        try (RedisConnection connection = RedisConnection.open(host, port)) {
+            if (db != 0) {
+                connection.execute("SELECT", Integer.toString(db));
+            }
+            String samples = Integer.toString(memorySamples);
+            String cursor = "0";
+            do {
+                List<?> reply = (List<?>) (match == null
+                        ? connection.execute("SCAN", cursor, "COUNT", Integer.toString(scanCount))
+                        : connection.execute("SCAN", cursor, "MATCH", match, "COUNT", Integer.toString(scanCount)));
+                cursor = (String) reply.get(0);
+                List<String> keys = new ArrayList<>();
+                for (Object key : (List<?>) reply.get(1)) {
+                    scanned++;
+                    if (isSampled((String) key)) {
+                        keys.add((String) key);
+                    }
+                }
+                if (keys.isEmpty()) {
+                    continue;
+                }
+                List<String[]> commands = new ArrayList<>(keys.size() * 3);
+                for (String key : keys) {
+                    commands.add(new String[]{"TYPE", key});
+                    commands.add(new String[]{"MEMORY", "USAGE", key, "SAMPLES", samples});
+                    commands.add(new String[]{"OBJECT", "ENCODING", key});
+                }
+                List<Object> replies = connection.pipeline(commands);
+                for (int i = 0; i < keys.size(); i++) {
+                    Object type = replies.get(3 * i);
+                    Object bytes = replies.get(3 * i + 1);
+                    Object encoding = replies.get(3 * i + 2);
+                    if (!(type instanceof String) || "none".equals(type) || !(bytes instanceof Long)) {
+                        // deleted or expired since the SCAN
+                        continue;
+                    }
+                    String key = keys.get(i);
+                    String encodingName = encoding instanceof String ? (String) encoding : "unknown";
+                    long size = (Long) bytes;
+                    sampled++;
+                    sampledBytes += size;
+                    accumulator(patterns, tracked, patternOf(key), (String) type).add(size, encodingName);
+                    if (largest.size() < bigKeys) {
+                        largest.add(new BigKey(key, (String) type, encodingName, size));
+                    } else if (bigKeys > 0 && size > largest.peek().bytes()) {
+                        largest.poll();
+                        largest.add(new BigKey(key, (String) type, encodingName, size));
+                    }
+                }
+            } while (!"0".equals(cursor));
+            InfoSnapshot info = InfoSnapshot.parse((String) connection.execute("INFO", "memory"));
+            usedMemory = info.getLong("used_memory", -1);
+            datasetMemory = info.getLong("used_memory_dataset", -1);
+        }
+        List<KeyPatternStats> stats = new ArrayList<>(patterns.size());
+        for (Accumulator accumulator : patterns.values()) {
+            stats.add(accumulator.toStats());
+        }
+        stats.sort(Comparator.comparingLong(KeyPatternStats::bytes).reversed()
+                .thenComparing(KeyPatternStats::pattern));
+        List<BigKey> big = new ArrayList<>(largest);
+        big.sort(Comparator.comparingLong(BigKey::bytes).reversed());
+        MemoryReport report = new MemoryReport(scanned, sampled, sampledBytes, sampleRatio, usedMemory,
+                datasetMemory, Duration.ofNanos(System.nanoTime() - start), stats, big);
+        logger.info("Memory of port {}: {}", port, report);
+        return report;
+    }
+
+    /**
+     * @param tracked the distinct patterns with an accumulator of their own, whatever their types
+     */
+    private Accumulator accumulator(Map<String, Accumulator> patterns, Set<String> tracked, String pattern,
+                                    String type) {
+        String id = pattern + '\0' + type;
+        Accumulator accumulator = patterns.get(id);
+        if (accumulator == null) {
+            if (!tracked.contains(pattern) && tracked.size() >= maxPatterns) {
+                return patterns.computeIfAbsent(OTHER_PATTERN + '\0' + type, k -> new Accumulator(OTHER_PATTERN, type));
+            }
+            tracked.add(pattern);
+            accumulator = new Accumulator(pattern, type);
+            patterns.put(id, accumulator);
+        }
+        return accumulator;
+    }
+
+    private boolean isSampled(String key) {
+        if (sampleRatio >= 1) {
+            return true;
+        }
+        // the finalizer of MurmurHash3 spreads similar keys over the whole range
+        long h = key.hashCode() & 0xffffffffL;
+        h ^= h >>> 16;
+        h = (h * 0x85ebca6bL) & 0xffffffffL;
+        h ^= h >>> 13;
+        h = (h * 0xc2b2ae35L) & 0xffffffffL;
+        h ^= h >>> 16;
+        return h < sampleRatio * 0x1_0000_0000L;
+    }
+
+    String patternOf(String key) {
+        StringBuilder pattern = new StringBuilder();
+        int from = 0;
+        for (int segment = 0; ; segment++) {
+            if (segment == patternDepth) {
+                pattern.append('*');
+                break;
+            }
+            int end = key.indexOf(delimiter, from);
+            String part = end < 0 ? key.substring(from) : key.substring(from, end);
+            pattern.append(looksLikeId(part) ? "*" : part);
+            if (end < 0) {
+                break;
+            }
+            pattern.append(delimiter);
+            from = end + delimiter.length();
+        }
+        return pattern.toString();
+    }
+
+    private static boolean looksLikeId(String segment) {
+        if (segment.isEmpty()) {
+            return false;
+        }
+        boolean digits = true;
+        boolean hex = true;
+        int dashes = 0;
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c == '-') {
+                dashes++;
+                digits = false;
+            } else if (c < '0' || c > '9') {
+                digits = false;
+                if ((c < 'a' || c > 'f') && (c < 'A' || c > 'F')) {
+                    hex = false;
+                }
+            }
+        }
+        return digits
+                || hex && dashes == 0 && segment.length() >= 8
+                || hex && dashes == 4 && segment.length() == 36;
+    }
+
+    private static final class Accumulator {
+
+        private final String pattern;
+        private final String type;
+        private final Map<String, Long> encodings = new HashMap<>(4);
+        private long keys;
+        private long bytes;
+        private long maxBytes;
+
+        Accumulator(String pattern, String type) {
+            this.pattern = pattern;
+            this.type = type;
+        }
+
+        void add(long size, String encoding) {
+            keys++;
+            bytes += size;
+            maxBytes = Math.max(maxBytes, size);
+            encodings.merge(encoding, 1L, Long::sum);
+        }
+
+        KeyPatternStats toStats() {
+            return new KeyPatternStats(pattern, type, keys, bytes, maxBytes, Map.copyOf(encodings));
+        }
+    }
+
+    public static final class Builder {
+
+        private int db;
+        private String match;
+        private int scanCount = 1000;
+        private int memorySamples = 5;
+        private double sampleRatio = 1;
+        private String delimiter = ":";
+        private int patternDepth = 3;
+        private int maxPatterns = 10_000;
+        private int bigKeys = 20;
+
+        private Builder() {
+        }
+
+        /**
+         * @param db the database to analyze, default 0
+         * @return this
+         */
+        public Builder setDb(int db) {
+            this.db = db;
+            return this;
+        }
+
+        /**
+         * @param match a {@code SCAN MATCH} pattern to analyze only some keys, default all keys
+         * @return this
+         */
+        public Builder setMatch(String match) {
+            this.match = match;
+            return this;
+        }
+
+        /**
+         * @param scanCount the {@code COUNT} hint of {@code SCAN}, and so the size of the
+         *                  pipelined batches, default 1000
+         * @return this
+         */
+        public Builder setScanCount(int scanCount) {
+            if (scanCount < 1) {
+                throw new IllegalArgumentException("scanCount must be at least 1: " + scanCount);
+            }
+            this.scanCount = scanCount;
+            return this;
+        }
+
+        /**
+         * @param memorySamples the elements of an aggregate {@code MEMORY USAGE} looks at to
+         *                      estimate its size, default 5 as in Redis; 0 looks at all
+         * @return this
+         */
+        public Builder setMemorySamples(int memorySamples) {
+            this.memorySamples = memorySamples;
+            return this;
+        }
+
+        /**
+         * @param sampleRatio the share of keys to measure, greater than 0 and at most 1 (the
+         *                    default)
+         * @return this
+         */
+        public Builder setSampleRatio(double sampleRatio) {
+            if (!(sampleRatio > 0 && sampleRatio <= 1)) {
+                throw new IllegalArgumentException("sampleRatio must be in (0, 1]: " + sampleRatio);
+            }
+            this.sampleRatio = sampleRatio;
+            return this;
+        }
+
+        /**
+         * @param delimiter the separator of key segments, default {@code :}
+         * @return this
+         */
+        public Builder setDelimiter(String delimiter) {
+            if (delimiter.isEmpty()) {
+                throw new IllegalArgumentException("The delimiter must not be empty");
+            }
+            this.delimiter = delimiter;
+            return this;
+        }
+
+        /**
+         * @param patternDepth the key segments kept in a pattern, default 3; further segments
+         *                     become a single {@code *}
+         * @return this
+         */
+        public Builder setPatternDepth(int patternDepth) {
+            if (patternDepth < 1) {
+                throw new IllegalArgumentException("patternDepth must be at least 1: " + patternDepth);
+            }
+            this.patternDepth = patternDepth;
+            return this;
+        }
+
+        /**
+         * @param maxPatterns the distinct patterns tracked at most, default 10000; a tracked pattern
+         *                    is tracked for every type of its keys
+         * @return this
+         */
+        public Builder setMaxPatterns(int maxPatterns) {
+            this.maxPatterns = maxPatterns;
+            return this;
+        }
+
+        /**
+         * @param bigKeys the number of largest keys to report, default 20
+         * @return this
+         */
+        public Builder setBigKeys(int bigKeys) {
+            this.bigKeys = bigKeys;
+            return this;
+        }
+
+        public MemoryAnalyzer build() {
+            return new MemoryAnalyzer(this);
+        }
+    }
+}
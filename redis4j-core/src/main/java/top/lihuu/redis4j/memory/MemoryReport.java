@@ -0,0 +1,159 @@
+package top.lihuu.redis4j.memory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The outcome of a {@link MemoryAnalyzer} run.
+ *
+ * <p>If only a share of the keys was sampled, the per pattern figures are those of the sampled
+ * keys; the {@code getEstimated...} methods and the estimated columns of the CSV scale them up to
+ * all keys.
+ */
+public final class MemoryReport {
+
+    private final long scannedKeys;
+    private final long sampledKeys;
+    private final long sampledBytes;
+    private final double sampleRatio;
+    private final long usedMemory;
+    private final long datasetMemory;
+    private final Duration elapsed;
+    private final List<KeyPatternStats> patterns;
+    private final List<BigKey> bigKeys;
+
+    MemoryReport(long scannedKeys, long sampledKeys, long sampledBytes, double sampleRatio, long usedMemory,
+                 long datasetMemory, Duration elapsed, List<KeyPatternStats> patterns, List<BigKey> bigKeys) {
+        this.scannedKeys = scannedKeys;
+        this.sampledKeys = sampledKeys;
+        this.sampledBytes = sampledBytes;
+        this.sampleRatio = sampleRatio;
+        this.usedMemory = usedMemory;
+        this.datasetMemory = datasetMemory;
+        this.elapsed = elapsed;
+        this.patterns = patterns;
+        this.bigKeys = bigKeys;
+    }
+
+    /**
+     * @return the keys returned by {@code SCAN}
+     */
+    public long getScannedKeys() {
+        return scannedKeys;
+    }
+
+    /**
+     * @return the keys whose memory usage was measured
+     */
+    public long getSampledKeys() {
+        return sampledKeys;
+    }
+
+    public long getSampledBytes() {
+        return sampledBytes;
+    }
+
+    public double getSampleRatio() {
+        return sampleRatio;
+    }
+
+    public long getEstimatedBytes() {
+        return Math.round(sampledBytes / sampleRatio);
+    }
+
+    /**
+     * @return {@code used_memory} of {@code INFO memory} after the scan
+     */
+    public long getUsedMemory() {
+        return usedMemory;
+    }
+
+    /**
+     * @return {@code used_memory_dataset} of {@code INFO memory} after the scan, the memory of all
+     * keys and values including the overhead of the keyspace
+     */
+    public long getDatasetMemory() {
+        return datasetMemory;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * @return the statistics per pattern and type, the patterns using the most memory first
+     */
+    public List<KeyPatternStats> getPatterns() {
+        return patterns;
+    }
+
+    /**
+     * @return the sampled keys using the most memory, largest first
+     */
+    public List<BigKey> getBigKeys() {
+        return bigKeys;
+    }
+
+    /**
+     * Writes the per pattern statistics as CSV, ordered by pattern and type rather than by size,
+     * so that the reports of two schema versions can be compared with {@code diff}.
+     *
+     * @param out the writer
+     * @throws IOException if writing failed
+     */
+    public void writeCsv(Writer out) throws IOException {
+        out.write("pattern,type,keys,bytes,avg_bytes,max_bytes,estimated_keys,estimated_bytes,encodings\n");
+        Map<String, KeyPatternStats> ordered = new TreeMap<>();
+        for (KeyPatternStats stats : patterns) {
+            ordered.put(stats.pattern() + '\0' + stats.type(), stats);
+        }
+        for (KeyPatternStats stats : ordered.values()) {
+            StringBuilder encodings = new StringBuilder();
+            for (Map.Entry<String, Long> encoding : new TreeMap<>(stats.encodings()).entrySet()) {
+                if (!encodings.isEmpty()) {
+                    encodings.append(' ');
+                }
+                encodings.append(encoding.getKey()).append('=').append(encoding.getValue());
+            }
+            out.write(String.format(Locale.ROOT, "%s,%s,%d,%d,%.1f,%d,%d,%d,%s%n",
+                    csvField(stats.pattern()), stats.type(), stats.keys(), stats.bytes(), stats.averageBytes(),
+                    stats.maxBytes(), Math.round(stats.keys() / sampleRatio),
+                    Math.round(stats.bytes() / sampleRatio), encodings));
+        }
+    }
+
+    /**
+     * Writes the per pattern statistics as CSV to a file.
+     *
+     * @param file the file, replaced if it exists
+     * @throws IOException if writing failed
+     * @see #writeCsv(Writer)
+     */
+    public void writeCsv(Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeCsv(out);
+        }
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d of %d keys sampled in %d ms: %d bytes (estimated %d of %d bytes dataset), %d patterns",
+                sampledKeys, scannedKeys, elapsed.toMillis(), sampledBytes, getEstimatedBytes(), datasetMemory,
+                patterns.size());
+    }
+}
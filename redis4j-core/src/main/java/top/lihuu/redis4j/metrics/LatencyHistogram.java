@@ -0,0 +1,195 @@
+package top.lihuu.redis4j.metrics;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A log-linear histogram of latencies in nanoseconds, in the style of HdrHistogram.
+ *
+ * <p>Values are counted in buckets whose width grows with the value, so every value is kept with a
+ * relative error below 1% (two significant digits) from one nanosecond up to {@link
+ * Long#MAX_VALUE}, in a fixed 60 KB of counts. Recording is allocation free and not thread safe:
+ * give each thread its own histogram and {@link #add(LatencyHistogram) merge} them afterwards.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Values below {@code 2^SUB_BUCKET_BITS} are counted exactly, above that each power of two is
+     * split into {@code 2^(SUB_BUCKET_BITS - 1)} buckets.
+     */
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 2) * SUB_BUCKET_HALF;
+
+    private final long[] counts = new long[BUCKETS];
+    private long totalCount;
+    private long min = Long.MAX_VALUE;
+    private long max;
+    private double sum;
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift << (SUB_BUCKET_BITS - 1)) + (int) (value >>> shift);
+    }
+
+    static long lowestValueAt(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_HALF - 1;
+        return (long) (index - shift * SUB_BUCKET_HALF) << shift;
+    }
+
+    static long highestValueAt(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_HALF - 1;
+        return lowestValueAt(index) + (1L << shift) - 1;
+    }
+
+    /**
+     * @param nanos the latency, negative values are counted as 0
+     */
+    public void recordValue(long nanos) {
+        recordValues(nanos, 1);
+    }
+
+    /**
+     * Records the same latency several times, e.g. a number of operations that did not wait at
+     * all.
+     *
+     * @param nanos the latency, negative values are counted as 0
+     * @param count how often to record it
+     */
+    public void recordValues(long nanos, long count) {
+        if (count <= 0) {
+            return;
+        }
+        long value = Math.max(0, nanos);
+        counts[indexOf(value)] += count;
+        totalCount += count;
+        sum += (double) value * count;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Records a latency and corrects for coordinated omission: if the value is larger than the
+     * interval at which requests were supposed to be sent, the requests that would have been sent
+     * (and delayed) in the meantime are recorded too, with linearly decreasing latencies.
+     *
+     * <p>Only use this for latencies measured from the actual send time. Latencies measured from
+     * the intended send time are already corrected and are recorded with {@link
+     * #recordValue(long)}.
+     *
+     * @param nanos                 the latency
+     * @param expectedIntervalNanos the interval between requests, 0 to disable the correction
+     */
+    public void recordValueWithExpectedInterval(long nanos, long expectedIntervalNanos) {
+        recordValue(nanos);
+        if (expectedIntervalNanos <= 0) {
+            return;
+        }
+        for (long missing = nanos - expectedIntervalNanos; missing >= expectedIntervalNanos;
+             missing -= expectedIntervalNanos) {
+            recordValue(missing);
+        }
+    }
+
+    /**
+     * Adds all values of another histogram to this one.
+     *
+     * @param other the histogram to merge, unchanged
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public LatencyHistogram copy() {
+        LatencyHistogram copy = new LatencyHistogram();
+        copy.add(this);
+        return copy;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMin() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? 0 : sum / totalCount;
+    }
+
+    /**
+     * @param percentile between 0 and 100, e.g. 99.9
+     * @return the value at or below which that percentage of the values fall, within the
+     * precision of the histogram
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        double p = Math.min(Math.max(percentile, 0), 100);
+        long countAtPercentile = Math.max(1, (long) Math.ceil(p / 100 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= countAtPercentile) {
+                return Math.min(highestValueAt(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return p50, p99, p99.9 and max in microseconds, for logs
+     */
+    public String summary() {
+        return String.format(Locale.ROOT, "count=%d p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                totalCount,
+                toMicros(getValueAtPercentile(50)),
+                toMicros(getValueAtPercentile(99)),
+                toMicros(getValueAtPercentile(99.9)),
+                toMicros(max));
+    }
+
+    private static double toMicros(long nanos) {
+        return nanos / (double) TimeUnit.MICROSECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{" + summary() + "}";
+    }
+}
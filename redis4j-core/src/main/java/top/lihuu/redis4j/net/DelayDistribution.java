@@ -0,0 +1,50 @@
+package top.lihuu.redis4j.net;
+
+import java.util.SplittableRandom;
+
+/**
+ * How the delay of a {@link NetworkProxy} varies around the latency of its {@link
+ * NetworkConditions}.
+ */
+public enum DelayDistribution {
+
+    /**
+     * Always the latency, the jitter is ignored.
+     */
+    CONSTANT,
+    /**
+     * Uniform between the latency minus and plus the jitter.
+     */
+    UNIFORM,
+    /**
+     * Normal around the latency, with the jitter as standard deviation.
+     */
+    NORMAL,
+    /**
+     * The latency plus a Pareto distributed delay whose mean is the jitter: most chunks are close
+     * to the latency, a few are delayed many times the jitter, like on a congested link.
+     */
+    PARETO;
+
+    /**
+     * The shape of {@link #PARETO}: heavy tailed, but with a finite variance.
+     */
+    private static final double PARETO_SHAPE = 3;
+
+    /**
+     * @return a delay in nanoseconds, never negative
+     */
+    long sample(long latency, long jitter, SplittableRandom random) {
+        if (jitter <= 0) {
+            return latency;
+        }
+        double delay = switch (this) {
+            case CONSTANT -> latency;
+            case UNIFORM -> latency + (2 * random.nextDouble() - 1) * jitter;
+            case NORMAL -> latency + random.nextGaussian() * jitter;
+            case PARETO -> latency + (Math.pow(1 - random.nextDouble(), -1 / PARETO_SHAPE) - 1)
+                    * (PARETO_SHAPE - 1) * jitter;
+        };
+        return Math.max(0, (long) delay);
+    }
+}
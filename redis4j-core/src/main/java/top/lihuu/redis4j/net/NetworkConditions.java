@@ -0,0 +1,163 @@
+package top.lihuu.redis4j.net;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+/**
+ * The conditions a {@link NetworkProxy} simulates, the same in each direction: a round trip
+ * takes twice the latency.
+ *
+ * <pre>
+ * NetworkConditions crossZone = NetworkConditions.newBuilder()
+ *         .setLatency(Duration.ofNanos(600_000))
+ *         .setJitter(Duration.ofNanos(150_000))
+ *         .setDistribution(DelayDistribution.NORMAL)
+ *         .setBandwidth(128L * 1024 * 1024)
+ *         .build();
+ * </pre>
+ *
+ * <p>Measure the latency to simulate between the hosts it stands for, e.g. with {@code
+ * redis-cli --latency}: it varies a lot between providers and regions.
+ */
+public final class NetworkConditions {
+
+    private static final NetworkConditions NONE = newBuilder().build();
+
+    private final long latency;
+    private final long jitter;
+    private final DelayDistribution distribution;
+    private final long bandwidth;
+    private final long burst;
+
+    private NetworkConditions(Builder builder) {
+        this.latency = builder.latency.toNanos();
+        this.jitter = builder.jitter.toNanos();
+        this.distribution = builder.distribution;
+        this.bandwidth = builder.bandwidth;
+        this.burst = builder.burst;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * @return conditions that forward everything at once
+     */
+    public static NetworkConditions none() {
+        return NONE;
+    }
+
+    public Duration getLatency() {
+        return Duration.ofNanos(latency);
+    }
+
+    public Duration getJitter() {
+        return Duration.ofNanos(jitter);
+    }
+
+    public DelayDistribution getDistribution() {
+        return distribution;
+    }
+
+    /**
+     * @return bytes per second in each direction, 0 if unlimited
+     */
+    public long getBandwidth() {
+        return bandwidth;
+    }
+
+    /**
+     * @return bytes sent at once before the bandwidth limits an idle direction
+     */
+    public long getBurst() {
+        return burst;
+    }
+
+    /**
+     * @return a one way delay in nanoseconds
+     */
+    long nextDelay(SplittableRandom random) {
+        return distribution.sample(latency, jitter, random);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("latency %d us, jitter %d us %s, bandwidth %s", latency / 1000, jitter / 1000,
+                distribution, bandwidth == 0 ? "unlimited" : bandwidth + " B/s, burst " + burst + " B");
+    }
+
+    public static final class Builder {
+
+        private Duration latency = Duration.ZERO;
+        private Duration jitter = Duration.ZERO;
+        private DelayDistribution distribution = DelayDistribution.UNIFORM;
+        private long bandwidth;
+        private long burst = 64 * 1024;
+
+        private Builder() {
+        }
+
+        /**
+         * @param latency the delay added in each direction, default none
+         * @return this
+         */
+        public Builder setLatency(Duration latency) {
+            if (latency.isNegative()) {
+                throw new IllegalArgumentException("The latency must not be negative: " + latency);
+            }
+            this.latency = latency;
+            return this;
+        }
+
+        /**
+         * @param jitter how much the delay varies, see {@link DelayDistribution}, default none
+         * @return this
+         */
+        public Builder setJitter(Duration jitter) {
+            if (jitter.isNegative()) {
+                throw new IllegalArgumentException("The jitter must not be negative: " + jitter);
+            }
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * @param distribution the distribution of the delay, default {@link DelayDistribution#UNIFORM}
+         * @return this
+         */
+        public Builder setDistribution(DelayDistribution distribution) {
+            this.distribution = distribution;
+            return this;
+        }
+
+        /**
+         * @param bandwidth bytes per second in each direction, default 0 for unlimited
+         * @return this
+         */
+        public Builder setBandwidth(long bandwidth) {
+            if (bandwidth < 0) {
+                throw new IllegalArgumentException("The bandwidth must not be negative: " + bandwidth);
+            }
+            this.bandwidth = bandwidth;
+            return this;
+        }
+
+        /**
+         * @param burst bytes sent at once before the bandwidth limits an idle direction, default 64
+         *              KiB
+         * @return this
+         */
+        public Builder setBurst(long burst) {
+            if (burst < 0) {
+                throw new IllegalArgumentException("The burst must not be negative: " + burst);
+            }
+            this.burst = burst;
+            return this;
+        }
+
+        public NetworkConditions build() {
+            return new NetworkConditions(this);
+        }
+    }
+}
@@ -0,0 +1,465 @@
+package top.lihuu.redis4j.net;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A TCP proxy that delays, and optionally throttles, what it forwards to a server, so that
+ * timeouts, pipelining depth and pool sizes can be tuned on loopback against the round trip times
+ * of a real network. Clients connect to {@link #getPort()} instead of the port of the server.
+ *
+ * <pre>
+ * try (NetworkProxy proxy = redis.startProxy(crossZone);
+ *      RedisConnection connection = RedisConnection.open("127.0.0.1", proxy.getPort())) {
+ *     connection.execute("PING");
+ * }
+ * </pre>
+ *
+ * <p>A single I/O thread drives all connections with a {@link Selector}. Every read from one side
+ * is a chunk, delivered to the other side once its delay from the {@link NetworkConditions} has
+ * passed. Like TCP, a direction never reorders: a chunk delayed by the jitter holds back those read
+ * after it. The bandwidth is a token bucket per direction; a direction stops reading when
+ * {@link #MAX_QUEUED} bytes wait in it, so a throttled sender is slowed down by TCP flow control
+ * instead of filling the heap. Delays are timed with {@link System#nanoTime()}; as {@link
+ * Selector#select(long)} only has millisecond resolution, the I/O thread polls during the last two
+ * milliseconds before a chunk is due, so that sub millisecond latencies stay accurate.
+ */
+public final class NetworkProxy implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(NetworkProxy.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * Bytes waiting in a direction before it stops reading.
+     */
+    public static final int MAX_QUEUED = 1024 * 1024;
+
+    private final InetSocketAddress target;
+    private final Selector selector;
+    private final ServerSocketChannel acceptor;
+    private final Thread ioThread;
+    private final Set<Link> links = new LinkedHashSet<>();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final SplittableRandom random;
+    private final AtomicLong connections = new AtomicLong();
+    private final AtomicLong upstreamBytes = new AtomicLong();
+    private final AtomicLong downstreamBytes = new AtomicLong();
+    private volatile NetworkConditions conditions;
+    private volatile boolean closed;
+
+    private NetworkProxy(Builder builder) throws IOException {
+        target = new InetSocketAddress(builder.host, builder.port);
+        conditions = builder.conditions;
+        random = builder.seed == null ? new SplittableRandom() : new SplittableRandom(builder.seed);
+        selector = Selector.open();
+        acceptor = ServerSocketChannel.open();
+        try {
+            acceptor.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), builder.listenPort));
+            acceptor.configureBlocking(false);
+            acceptor.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            acceptor.close();
+            selector.close();
+            throw e;
+        }
+        ioThread = Thread.ofPlatform().daemon().name("redis4j-proxy-" + builder.port).start(this::ioLoop);
+        logger.info("Proxying port {} to {} with {}", getPort(), target, conditions);
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the port clients connect to
+     */
+    public int getPort() {
+        return acceptor.socket().getLocalPort();
+    }
+
+    public NetworkConditions getConditions() {
+        return conditions;
+    }
+
+    /**
+     * Changes the conditions of the chunks read from now on, e.g. to step the latency up during a
+     * benchmark. Chunks already waiting keep their delay.
+     *
+     * @param conditions the new conditions
+     */
+    public void setConditions(NetworkConditions conditions) {
+        this.conditions = conditions;
+        logger.info("Proxying port {} with {}", getPort(), conditions);
+    }
+
+    /**
+     * @return connections accepted so far
+     */
+    public long getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * @return bytes forwarded from the clients to the server so far
+     */
+    public long getUpstreamBytes() {
+        return upstreamBytes.get();
+    }
+
+    /**
+     * @return bytes forwarded from the server to the clients so far
+     */
+    public long getDownstreamBytes() {
+        return downstreamBytes.get();
+    }
+
+    private void ioLoop() {
+        try {
+            while (!closed) {
+                long now = System.nanoTime();
+                long next = Long.MAX_VALUE;
+                for (Link link : new ArrayList<>(links)) {
+                    next = Math.min(next, link.flush(now));
+                }
+                long wait = next - System.nanoTime();
+                if (next == Long.MAX_VALUE) {
+                    selector.select();
+                } else if (wait >= 2_000_000) {
+                    selector.select(wait / 1_000_000 - 1);
+                } else {
+                    if (wait > 0) {
+                        LockSupport.parkNanos(Math.min(wait, 50_000));
+                    }
+                    selector.selectNow();
+                }
+                now = System.nanoTime();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        ((Link) key.attachment()).handle(key, now);
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (IOException | RuntimeException e) {
+            if (!closed) {
+                logger.warn("Network proxy on port {} failed", getPort(), e);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel client = acceptor.accept();
+        if (client == null) {
+            return;
+        }
+        SocketChannel server = null;
+        try {
+            server = SocketChannel.open();
+            for (SocketChannel channel : new SocketChannel[]{client, server}) {
+                channel.configureBlocking(false);
+                // coalescing small writes would add a delay the conditions do not ask for
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            }
+            boolean connected = server.connect(target);
+            links.add(new Link(client, server, connected));
+            connections.incrementAndGet();
+        } catch (IOException e) {
+            logger.warn("Cannot connect to {}", target, e);
+            client.close();
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    /**
+     * Closes the listening socket and every connection, dropping the chunks still waiting.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        selector.wakeup();
+        try {
+            ioThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Link link : new ArrayList<>(links)) {
+            link.close();
+        }
+        acceptor.close();
+        selector.close();
+        logger.debug("Closed proxy on port {} after {} connections, {} bytes up, {} bytes down", getPort(),
+                connections.get(), upstreamBytes.get(), downstreamBytes.get());
+    }
+
+    private record Chunk(ByteBuffer data, long deliverAt) {
+    }
+
+    /**
+     * The bytes read from one side that wait to be written to the other.
+     */
+    private final class Direction {
+
+        private final SocketChannel source;
+        private final SocketChannel sink;
+        private final AtomicLong forwarded;
+        private final ArrayDeque<Chunk> chunks = new ArrayDeque<>();
+        private long queued;
+        private long lastDelivery;
+        /**
+         * When the token bucket would be full again if nothing else were sent, see GCRA.
+         */
+        private long bucketTime;
+        private boolean sinkBlocked;
+        private boolean endOfStream;
+        private boolean shutdown;
+
+        Direction(SocketChannel source, SocketChannel sink, AtomicLong forwarded) {
+            this.source = source;
+            this.sink = sink;
+            this.forwarded = forwarded;
+        }
+
+        boolean wantsRead() {
+            return !endOfStream && queued < MAX_QUEUED;
+        }
+
+        void read(long now) throws IOException {
+            buffer.clear();
+            int read = source.read(buffer);
+            if (read < 0) {
+                endOfStream = true;
+                return;
+            }
+            if (read == 0) {
+                return;
+            }
+            buffer.flip();
+            ByteBuffer data = ByteBuffer.allocate(read);
+            data.put(buffer).flip();
+            chunks.add(new Chunk(data, deliverAt(read, now)));
+            queued += read;
+        }
+
+        private long deliverAt(int bytes, long now) {
+            NetworkConditions current = conditions;
+            long departure = now;
+            if (current.getBandwidth() > 0) {
+                long cost = bytes * 1_000_000_000L / current.getBandwidth();
+                long tolerance = current.getBurst() * 1_000_000_000L / current.getBandwidth();
+                bucketTime = Math.max(bucketTime, now);
+                departure = Math.max(now, bucketTime + cost - tolerance);
+                bucketTime += cost;
+            }
+            // no reordering within a direction, like TCP
+            lastDelivery = Math.max(departure + current.nextDelay(random), lastDelivery);
+            return lastDelivery;
+        }
+
+        /**
+         * Writes the chunks that are due.
+         *
+         * @return when the next chunk is due, {@link Long#MAX_VALUE} if there is none or the sink
+         * cannot take more
+         */
+        long flush(long now) throws IOException {
+            Chunk chunk;
+            while ((chunk = chunks.peek()) != null && chunk.deliverAt() <= now) {
+                int written = sink.write(chunk.data());
+                forwarded.addAndGet(written);
+                if (chunk.data().hasRemaining()) {
+                    sinkBlocked = true;
+                    return Long.MAX_VALUE;
+                }
+                chunks.poll();
+                queued -= chunk.data().capacity();
+            }
+            sinkBlocked = false;
+            if (chunk != null) {
+                return chunk.deliverAt();
+            }
+            if (endOfStream && !shutdown) {
+                shutdown = true;
+                sink.shutdownOutput();
+            }
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * A client connection and the connection to the server opened for it.
+     */
+    private final class Link {
+
+        private final SocketChannel client;
+        private final SocketChannel server;
+        private final SelectionKey clientKey;
+        private final SelectionKey serverKey;
+        private final Direction upstream;
+        private final Direction downstream;
+        private boolean connected;
+
+        Link(SocketChannel client, SocketChannel server, boolean connected) throws IOException {
+            this.client = client;
+            this.server = server;
+            this.connected = connected;
+            upstream = new Direction(client, server, upstreamBytes);
+            downstream = new Direction(server, client, downstreamBytes);
+            clientKey = client.register(selector, 0, this);
+            serverKey = server.register(selector, 0, this);
+            updateInterest();
+        }
+
+        void handle(SelectionKey key, long now) {
+            try {
+                if (key == serverKey && key.isConnectable()) {
+                    server.finishConnect();
+                    connected = true;
+                }
+                if (key.isValid() && key.isReadable()) {
+                    (key == clientKey ? upstream : downstream).read(now);
+                }
+                // writable sinks are flushed by the loop
+                updateInterest();
+            } catch (IOException e) {
+                logger.debug("Closing proxied connection", e);
+                close();
+            }
+        }
+
+        long flush(long now) {
+            try {
+                long next = Long.MAX_VALUE;
+                if (connected) {
+                    next = Math.min(upstream.flush(now), downstream.flush(now));
+                }
+                if (upstream.shutdown && downstream.shutdown) {
+                    close();
+                    return Long.MAX_VALUE;
+                }
+                updateInterest();
+                return next;
+            } catch (IOException e) {
+                logger.debug("Closing proxied connection", e);
+                close();
+                return Long.MAX_VALUE;
+            }
+        }
+
+        private void updateInterest() {
+            if (!clientKey.isValid() || !serverKey.isValid()) {
+                return;
+            }
+            clientKey.interestOps((upstream.wantsRead() ? SelectionKey.OP_READ : 0)
+                    | (downstream.sinkBlocked ? SelectionKey.OP_WRITE : 0));
+            serverKey.interestOps(!connected ? SelectionKey.OP_CONNECT
+                    : (downstream.wantsRead() ? SelectionKey.OP_READ : 0)
+                    | (upstream.sinkBlocked ? SelectionKey.OP_WRITE : 0));
+        }
+
+        void close() {
+            links.remove(this);
+            for (SocketChannel channel : new SocketChannel[]{client, server}) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    logger.debug("Cannot close proxied connection", e);
+                }
+            }
+        }
+    }
+
+    public static final class Builder {
+
+        private String host = "127.0.0.1";
+        private int port = 6379;
+        private int listenPort;
+        private NetworkConditions conditions = NetworkConditions.none();
+        private Long seed;
+
+        private Builder() {
+        }
+
+        /**
+         * @param host the host of the server, default {@code 127.0.0.1}
+         * @return this
+         */
+        public Builder setHost(String host) {
+            this.host = host;
+            return this;
+        }
+
+        /**
+         * @param port the port of the server, default 6379
+         * @return this
+         */
+        public Builder setPort(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * @param listenPort the loopback port clients connect to, default 0 for a free one
+         * @return this
+         */
+        public Builder setListenPort(int listenPort) {
+            this.listenPort = listenPort;
+            return this;
+        }
+
+        /**
+         * @param conditions the conditions to simulate, default {@link NetworkConditions#none()}
+         * @return this
+         */
+        public Builder setConditions(NetworkConditions conditions) {
+            this.conditions = conditions;
+            return this;
+        }
+
+        /**
+         * @param seed the seed of the jitter, so that runs can be repeated, default random
+         * @return this
+         */
+        public Builder setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Binds the listening port and starts forwarding.
+         *
+         * @return the running proxy
+         * @throws IOException if the port cannot be bound
+         */
+        public NetworkProxy build() throws IOException {
+            return new NetworkProxy(this);
+        }
+    }
+}
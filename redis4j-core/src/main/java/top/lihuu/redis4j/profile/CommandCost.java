@@ -0,0 +1,23 @@
+package top.lihuu.redis4j.profile;
+
+import java.util.Map;
+
+/**
+ * What one command cost the server during a profiling window.
+ *
+ * @param command            the command, e.g. {@code get} or {@code config|set}
+ * @param calls              calls in the window
+ * @param usec               server side execution time of those calls, in microseconds
+ * @param failedCalls        calls that failed during execution
+ * @param rejectedCalls      calls rejected before execution
+ * @param latencyPercentiles latency percentiles in microseconds by name, e.g. {@code p99}; over the
+ *                           window if the statistics were reset at its start, otherwise since the
+ *                           last reset; empty before Redis 7
+ */
+public record CommandCost(String command, long calls, long usec, long failedCalls, long rejectedCalls,
+                          Map<String, Double> latencyPercentiles) {
+
+    public double usecPerCall() {
+        return calls == 0 ? 0 : (double) usec / calls;
+    }
+}
@@ -0,0 +1,11 @@
+package top.lihuu.redis4j.profile;
+
+/**
+ * A frequently accessed key.
+ *
+ * @param key       the key
+ * @param frequency the LFU counter of {@code OBJECT FREQ}: logarithmic, 0 to 255, and decaying
+ *                  while the key is not accessed
+ */
+public record HotKey(String key, int frequency) {
+}
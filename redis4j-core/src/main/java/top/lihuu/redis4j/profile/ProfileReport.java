@@ -0,0 +1,87 @@
+package top.lihuu.redis4j.profile;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The outcome of a {@link ProfilingSession}: the commands that cost the server the most time, and
+ * the hottest keys if they were sampled.
+ */
+public final class ProfileReport {
+
+    private final Duration elapsed;
+    private final List<CommandCost> commands;
+    private final List<HotKey> hotKeys;
+    private final long keysSampled;
+
+    ProfileReport(Duration elapsed, List<CommandCost> commands, List<HotKey> hotKeys, long keysSampled) {
+        this.elapsed = elapsed;
+        this.commands = commands;
+        this.hotKeys = hotKeys;
+        this.keysSampled = keysSampled;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * @return the commands called in the window, by total execution time, the most expensive
+     * first
+     */
+    public List<CommandCost> getCommands() {
+        return commands;
+    }
+
+    /**
+     * @return the same commands, the most expensive per call first
+     */
+    public List<CommandCost> getCommandsByCostPerCall() {
+        return commands.stream()
+                .sorted((a, b) -> Double.compare(b.usecPerCall(), a.usecPerCall()))
+                .toList();
+    }
+
+    public long getTotalUsec() {
+        long usec = 0;
+        for (CommandCost command : commands) {
+            usec += command.usec();
+        }
+        return usec;
+    }
+
+    /**
+     * @return the keys with the highest LFU counter, hottest first; empty if hot keys were not
+     * sampled
+     */
+    public List<HotKey> getHotKeys() {
+        return hotKeys;
+    }
+
+    /**
+     * @return the keys whose LFU counter was read
+     */
+    public long getKeysSampled() {
+        return keysSampled;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder(String.format(Locale.ROOT,
+                "%d commands, %d usec in %d ms", commands.size(), getTotalUsec(), elapsed.toMillis()));
+        long total = Math.max(1, getTotalUsec());
+        for (CommandCost command : commands) {
+            report.append(String.format(Locale.ROOT, "%n  %-20s %10d calls %12d usec (%5.1f%%) %10.2f usec/call",
+                    command.command(), command.calls(), command.usec(), command.usec() * 100.0 / total,
+                    command.usecPerCall()));
+        }
+        if (!hotKeys.isEmpty()) {
+            report.append(String.format(Locale.ROOT, "%nHottest of %d keys:", keysSampled));
+            for (HotKey key : hotKeys) {
+                report.append(String.format(Locale.ROOT, "%n  %3d %s", key.frequency(), key.key()));
+            }
+        }
+        return report.toString();
+    }
+}
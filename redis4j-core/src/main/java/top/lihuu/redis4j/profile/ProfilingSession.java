@@ -0,0 +1,207 @@
+package top.lihuu.redis4j.profile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import top.lihuu.redis4j.InfoSnapshot;
+import top.lihuu.redis4j.client.RedisConnection;
+import top.lihuu.redis4j.client.RedisErrorException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A running profiling window, started by {@link RedisProfiler#start(String, int)}. The window ends
+ * with {@link #stop()}; closing a session that was not stopped only restores the
+ * {@code maxmemory-policy}.
+ *
+ * <p>The {@code INFO} calls of the profiler itself take place inside the window and so show up
+ * in the report, as a few calls of {@code info}.
+ */
+public final class ProfilingSession implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProfilingSession.class);
+
+    private final RedisProfiler profiler;
+    private final String host;
+    private final int port;
+    private final InfoSnapshot first;
+    private final long startedAt;
+    /**
+     * The policy to restore at the end, null if it was not changed.
+     */
+    private String previousPolicy;
+    private boolean ended;
+
+    private ProfilingSession(RedisProfiler profiler, String host, int port, InfoSnapshot first,
+                             long startedAt, String previousPolicy) {
+        this.profiler = profiler;
+        this.host = host;
+        this.port = port;
+        this.first = first;
+        this.startedAt = startedAt;
+        this.previousPolicy = previousPolicy;
+    }
+
+    static ProfilingSession start(RedisProfiler profiler, String host, int port) throws IOException {
+        try (RedisConnection connection = RedisConnection.open(host, port)) {
+            String previousPolicy = null;
+            if (profiler.hotKeys) {
+                String policy = policy(connection);
+                if (!policy.endsWith("-lfu")) {
+                    connection.execute("CONFIG", "SET", "maxmemory-policy", profiler.lfuPolicy.configValue());
+                    logger.info("Switched maxmemory-policy from {} to {} to track key frequencies", policy,
+                            profiler.lfuPolicy.configValue());
+                    previousPolicy = policy;
+                }
+            }
+            if (profiler.resetStats) {
+                connection.execute("CONFIG", "RESETSTAT");
+            }
+            InfoSnapshot first = info(connection);
+            return new ProfilingSession(profiler, host, port, first, System.nanoTime(), previousPolicy);
+        }
+    }
+
+    /**
+     * Ends the window: takes the second {@code INFO} snapshot, ranks the hottest keys if
+     * configured and restores the {@code maxmemory-policy}. If it fails, closing the session still
+     * restores the policy.
+     *
+     * @return the report
+     * @throws IOException if the server cannot be reached
+     */
+    public ProfileReport stop() throws IOException {
+        if (ended) {
+            throw new IllegalStateException("The profiling session has already ended");
+        }
+        try (RedisConnection connection = RedisConnection.open(host, port)) {
+            InfoSnapshot second = info(connection);
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - startedAt);
+            List<CommandCost> commands = commandCosts(first, second);
+            List<HotKey> hotKeys = Collections.emptyList();
+            long keysSampled = 0;
+            if (profiler.hotKeys) {
+                PriorityQueue<HotKey> hottest = new PriorityQueue<>(Comparator.comparingInt(HotKey::frequency));
+                keysSampled = sampleFrequencies(connection, hottest);
+                List<HotKey> ranked = new ArrayList<>(hottest);
+                ranked.sort(Comparator.comparingInt(HotKey::frequency).reversed());
+                hotKeys = Collections.unmodifiableList(ranked);
+            }
+            restorePolicy(connection);
+            ended = true;
+            return new ProfileReport(elapsed, commands, hotKeys, keysSampled);
+        }
+    }
+
+    /**
+     * Restores the {@code maxmemory-policy} if the window was not stopped.
+     */
+    @Override
+    public void close() throws IOException {
+        if (ended) {
+            return;
+        }
+        ended = true;
+        if (previousPolicy != null) {
+            try (RedisConnection connection = RedisConnection.open(host, port)) {
+                restorePolicy(connection);
+            }
+        }
+    }
+
+    static List<CommandCost> commandCosts(InfoSnapshot first, InfoSnapshot second) {
+        Map<String, InfoSnapshot.CommandStat> before = first.commandStats();
+        Map<String, Map<String, Double>> percentiles = second.latencyPercentiles();
+        List<CommandCost> commands = new ArrayList<>();
+        for (Map.Entry<String, InfoSnapshot.CommandStat> entry : second.commandStats().entrySet()) {
+            InfoSnapshot.CommandStat after = entry.getValue();
+            InfoSnapshot.CommandStat start = before.getOrDefault(entry.getKey(),
+                    new InfoSnapshot.CommandStat(0, 0, 0, 0));
+            long calls = after.calls() - start.calls();
+            if (calls < 0) {
+                // the statistics were reset in the window, the difference is meaningless
+                continue;
+            }
+            if (calls == 0 && after.failedCalls() == start.failedCalls()
+                    && after.rejectedCalls() == start.rejectedCalls()) {
+                continue;
+            }
+            commands.add(new CommandCost(entry.getKey(), calls, after.usec() - start.usec(),
+                    after.failedCalls() - start.failedCalls(), after.rejectedCalls() - start.rejectedCalls(),
+                    percentiles.getOrDefault(entry.getKey(), Collections.emptyMap())));
+        }
+        commands.sort(Comparator.comparingLong(CommandCost::usec).reversed());
+        return Collections.unmodifiableList(commands);
+    }
+
+    private long sampleFrequencies(RedisConnection connection, PriorityQueue<HotKey> hottest) throws IOException {
+        String count = Integer.toString(profiler.scanCount);
+        long sampled = 0;
+        String cursor = "0";
+        do {
+            List<?> reply = (List<?>) (profiler.match == null
+                    ? connection.execute("SCAN", cursor, "COUNT", count)
+                    : connection.execute("SCAN", cursor, "MATCH", profiler.match, "COUNT", count));
+            cursor = (String) reply.get(0);
+            List<String> keys = new ArrayList<>();
+            for (Object key : (List<?>) reply.get(1)) {
+                if (sampled + keys.size() >= profiler.maxKeysSampled) {
+                    break;
+                }
+                keys.add((String) key);
+            }
+            if (keys.isEmpty()) {
+                continue;
+            }
+            List<String[]> commands = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                commands.add(new String[]{"OBJECT", "FREQ", key});
+            }
+            List<Object> replies = connection.pipeline(commands);
+            for (int i = 0; i < keys.size(); i++) {
+                if (!(replies.get(i) instanceof Long frequency)) {
+                    // deleted or expired since the SCAN
+                    continue;
+                }
+                sampled++;
+                HotKey key = new HotKey(keys.get(i), frequency.intValue());
+                if (hottest.size() < profiler.topKeys) {
+                    hottest.add(key);
+                } else if (profiler.topKeys > 0 && key.frequency() > hottest.peek().frequency()) {
+                    hottest.poll();
+                    hottest.add(key);
+                }
+            }
+        } while (!"0".equals(cursor) && sampled < profiler.maxKeysSampled);
+        return sampled;
+    }
+
+    private void restorePolicy(RedisConnection connection) throws IOException {
+        if (previousPolicy != null) {
+            connection.execute("CONFIG", "SET", "maxmemory-policy", previousPolicy);
+            logger.info("Restored maxmemory-policy {}", previousPolicy);
+            previousPolicy = null;
+        }
+    }
+
+    private static String policy(RedisConnection connection) throws IOException {
+        List<?> reply = (List<?>) connection.execute("CONFIG", "GET", "maxmemory-policy");
+        return (String) reply.get(1);
+    }
+
+    private static InfoSnapshot info(RedisConnection connection) throws IOException {
+        try {
+            return InfoSnapshot.parse((String) connection.execute("INFO", "commandstats", "latencystats"));
+        } catch (RedisErrorException e) {
+            // before Redis 7, INFO takes one section and there are no latency statistics
+            return InfoSnapshot.parse((String) connection.execute("INFO", "commandstats"));
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package top.lihuu.redis4j.profile;
+
+import top.lihuu.redis4j.ConfigChange;
+import top.lihuu.redis4j.Redis;
+
+import java.io.IOException;
+
+/**
+ * Finds what costs a server the most over a window of time: the commands with the highest total
+ * and per call execution time, from the difference of {@code INFO commandstats} at the start and
+ * the end of the window, and optionally the hottest keys by their LFU counters.
+ *
+ * <pre>
+ * try (ProfilingSession session = RedisProfiler.newBuilder()
+ *         .setHotKeys(true)
+ *         .build()
+ *         .start(redis)) {
+ *     runWorkload();
+ *     System.out.println(session.stop());
+ * }
+ * </pre>
+ *
+ * <p>Access frequencies are only tracked under an LFU {@code maxmemory-policy}. With hot keys
+ * enabled and another policy in effect, the session switches to an LFU policy at its start and
+ * switches back when it ends. Keys that were last accessed before the switch report meaningless
+ * counters until they are accessed again, so the ranking is most accurate when the server was
+ * started with an LFU policy or the data is written after the session started.
+ */
+public final class RedisProfiler {
+
+    final boolean hotKeys;
+    final ConfigChange.MaxMemoryPolicy lfuPolicy;
+    final boolean resetStats;
+    final int topKeys;
+    final int maxKeysSampled;
+    final int scanCount;
+    final String match;
+
+    private RedisProfiler(Builder builder) {
+        this.hotKeys = builder.hotKeys;
+        this.lfuPolicy = builder.lfuPolicy;
+        this.resetStats = builder.resetStats;
+        this.topKeys = builder.topKeys;
+        this.maxKeysSampled = builder.maxKeysSampled;
+        this.scanCount = builder.scanCount;
+        this.match = builder.match;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * @param redis the server
+     * @return the running session
+     * @throws IOException if the server cannot be reached
+     */
+    public ProfilingSession start(Redis redis) throws IOException {
+        return start("127.0.0.1", redis.getPort());
+    }
+
+    /**
+     * Starts the window: switches to an LFU policy if needed, resets the statistics if configured
+     * and takes the first {@code INFO} snapshot.
+     *
+     * @param host the host
+     * @param port the port
+     * @return the running session
+     * @throws IOException if the server cannot be reached
+     */
+    public ProfilingSession start(String host, int port) throws IOException {
+        return ProfilingSession.start(this, host, port);
+    }
+
+    public static final class Builder {
+
+        private boolean hotKeys;
+        private ConfigChange.MaxMemoryPolicy lfuPolicy = ConfigChange.MaxMemoryPolicy.ALLKEYS_LFU;
+        private boolean resetStats;
+        private int topKeys = 20;
+        private int maxKeysSampled = 100_000;
+        private int scanCount = 1000;
+        private String match;
+
+        private Builder() {
+        }
+
+        /**
+         * @param hotKeys whether to rank keys by {@code OBJECT FREQ} at the end of the window,
+         *                default false
+         * @return this
+         */
+        public Builder setHotKeys(boolean hotKeys) {
+            this.hotKeys = hotKeys;
+            return this;
+        }
+
+        /**
+         * @param lfuPolicy the policy to switch to if the server does not use an LFU policy,
+         *                  default {@code allkeys-lfu}
+         * @return this
+         */
+        public Builder setLfuPolicy(ConfigChange.MaxMemoryPolicy lfuPolicy) {
+            if (!lfuPolicy.configValue().endsWith("-lfu")) {
+                throw new IllegalArgumentException("Not an LFU policy: " + lfuPolicy);
+            }
+            this.lfuPolicy = lfuPolicy;
+            return this;
+        }
+
+        /**
+         * @param resetStats whether to run {@code CONFIG RESETSTAT} at the start, so that latency
+         *                   percentiles cover the window only; this resets the statistics for all
+         *                   clients of the server; default false
+         * @return this
+         */
+        public Builder setResetStats(boolean resetStats) {
+            this.resetStats = resetStats;
+            return this;
+        }
+
+        /**
+         * @param topKeys the number of hottest keys to report, default 20
+         * @return this
+         */
+        public Builder setTopKeys(int topKeys) {
+            this.topKeys = topKeys;
+            return this;
+        }
+
+        /**
+         * @param maxKeysSampled the keys to read the LFU counter of at most, default 100000
+         * @return this
+         */
+        public Builder setMaxKeysSampled(int maxKeysSampled) {
+            this.maxKeysSampled = maxKeysSampled;
+            return this;
+        }
+
+        /**
+         * @param scanCount the {@code COUNT} hint of {@code SCAN}, default 1000
+         * @return this
+         */
+        public Builder setScanCount(int scanCount) {
+            if (scanCount < 1) {
+                throw new IllegalArgumentException("scanCount must be at least 1: " + scanCount);
+            }
+            this.scanCount = scanCount;
+            return this;
+        }
+
+        /**
+         * @param match a {@code SCAN MATCH} pattern to rank only some keys, default all keys
+         * @return this
+         */
+        public Builder setMatch(String match) {
+            this.match = match;
+            return this;
+        }
+
+        public RedisProfiler build() {
+            return new RedisProfiler(this);
+        }
+    }
+}
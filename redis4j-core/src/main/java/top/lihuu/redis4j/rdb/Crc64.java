@@ -0,0 +1,66 @@
+package top.lihuu.redis4j.rdb;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The CRC-64 variant (Jones polynomial, reflected, no final xor) that Redis appends to RDB files.
+ * Computed eight bytes at a time with the slicing-by-8 tables.
+ */
+final class Crc64 {
+
+    private static final long POLYNOMIAL = 0x95AC9329AC4BC9B5L;
+
+    private static final long[][] TABLES = new long[8][256];
+
+    static {
+        for (int n = 0; n < 256; n++) {
+            long crc = n;
+            for (int k = 0; k < 8; k++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLYNOMIAL : crc >>> 1;
+            }
+            TABLES[0][n] = crc;
+        }
+        for (int n = 0; n < 256; n++) {
+            long crc = TABLES[0][n];
+            for (int k = 1; k < 8; k++) {
+                crc = TABLES[0][(int) (crc & 0xff)] ^ (crc >>> 8);
+                TABLES[k][n] = crc;
+            }
+        }
+    }
+
+    private Crc64() {
+    }
+
+    /**
+     * @param crc    the checksum of the bytes before, 0 at the start
+     * @param buffer the buffer, its position and limit are not used or changed
+     * @param from   the index of the first byte
+     * @param to     the index after the last byte
+     * @return the checksum including the bytes {@code from} to {@code to}
+     */
+    static long update(long crc, ByteBuffer buffer, int from, int to) {
+        long[] t0 = TABLES[0];
+        int i = from;
+        if (buffer.order() == ByteOrder.LITTLE_ENDIAN) {
+            long[] t1 = TABLES[1], t2 = TABLES[2], t3 = TABLES[3];
+            long[] t4 = TABLES[4], t5 = TABLES[5], t6 = TABLES[6], t7 = TABLES[7];
+            for (; to - i >= 8; i += 8) {
+                long v = crc ^ buffer.getLong(i);
+                crc = t7[(int) (v & 0xff)] ^ t6[(int) ((v >>> 8) & 0xff)]
+                        ^ t5[(int) ((v >>> 16) & 0xff)] ^ t4[(int) ((v >>> 24) & 0xff)]
+                        ^ t3[(int) ((v >>> 32) & 0xff)] ^ t2[(int) ((v >>> 40) & 0xff)]
+                        ^ t1[(int) ((v >>> 48) & 0xff)] ^ t0[(int) (v >>> 56)];
+            }
+        }
+        for (; i < to; i++) {
+            crc = t0[(int) ((crc ^ buffer.get(i)) & 0xff)] ^ (crc >>> 8);
+        }
+        return crc;
+    }
+
+    static long of(byte[] bytes) {
+        return update(0, ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN), 0, bytes.length);
+    }
+}
@@ -0,0 +1,50 @@
+package top.lihuu.redis4j.rdb;
+
+import java.io.IOException;
+
+/**
+ * Decompresses the LZF compressed strings of RDB files.
+ */
+final class Lzf {
+
+    private Lzf() {
+    }
+
+    static byte[] decompress(byte[] in, int length) throws IOException {
+        byte[] out = new byte[length];
+        int ip = 0;
+        int op = 0;
+        try {
+            while (ip < in.length) {
+                int control = in[ip++] & 0xff;
+                if (control < 32) {
+                    // a run of control + 1 literal bytes
+                    int run = control + 1;
+                    System.arraycopy(in, ip, out, op, run);
+                    ip += run;
+                    op += run;
+                } else {
+                    // a back reference, which may overlap the bytes it produces
+                    int run = control >> 5;
+                    if (run == 7) {
+                        run += in[ip++] & 0xff;
+                    }
+                    run += 2;
+                    int ref = op - ((control & 0x1f) << 8) - (in[ip++] & 0xff) - 1;
+                    if (ref < 0) {
+                        throw new IOException("Corrupt LZF data: reference before the start");
+                    }
+                    for (int i = 0; i < run; i++) {
+                        out[op++] = out[ref++];
+                    }
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt LZF data", e);
+        }
+        if (op != length) {
+            throw new IOException("Corrupt LZF data: " + op + " bytes instead of " + length);
+        }
+        return out;
+    }
+}
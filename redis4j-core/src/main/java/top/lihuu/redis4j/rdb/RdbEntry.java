@@ -0,0 +1,23 @@
+package top.lihuu.redis4j.rdb;
+
+/**
+ * A key read from an RDB file by {@link RdbParser}.
+ *
+ * @param db             the database number
+ * @param key            the key, decoded as UTF-8
+ * @param type           the type
+ * @param valueType      the RDB value type code, which also tells the encoding, e.g. 16 for a hash
+ *                       stored as a listpack
+ * @param expireAtMillis the expiry as a Unix time in milliseconds, or -1 if the key does not expire
+ * @param length         the length {@code STRLEN}, {@code LLEN}, {@code SCARD}, {@code ZCARD},
+ *                       {@code HLEN} or {@code XLEN} would report, -1 for module values
+ * @param serializedSize the size of key and value in the file, an approximation of the memory
+ *                       they will take
+ */
+public record RdbEntry(int db, String key, RdbType type, int valueType, long expireAtMillis, long length,
+                       long serializedSize) {
+
+    public boolean hasExpiry() {
+        return expireAtMillis >= 0;
+    }
+}
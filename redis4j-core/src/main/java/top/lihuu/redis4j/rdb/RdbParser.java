@@ -0,0 +1,758 @@
+package top.lihuu.redis4j.rdb;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads the keys of an RDB file one at a time, without a server and without holding more than one
+ * key in memory.
+ *
+ * <pre>
+ * try (RdbParser parser = RdbParser.open(file)) {
+ *     RdbEntry entry;
+ *     while ((entry = parser.next()) != null) {
+ *         System.out.println(entry.key() + " " + entry.type() + " " + entry.serializedSize());
+ *     }
+ * }
+ * </pre>
+ *
+ * <p>Values are skipped rather than decoded; only what is needed to tell their length is read,
+ * which for compact encodings (listpack, ziplist, intset) is the header of the encoded blob. The
+ * checksum at the end of the file is verified when {@link #next()} reaches it, so a file is only
+ * known to be intact once {@code next()} has returned null. Files of RDB versions 1 to {@value
+ * #MAX_VERSION} are understood; function libraries and module auxiliary data are skipped. Not
+ * thread safe.
+ */
+public final class RdbParser implements Closeable {
+
+    /**
+     * The newest RDB version understood, written by Redis 7.4 and 8.0.
+     */
+    public static final int MAX_VERSION = 12;
+
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final long MAPPED_REGION_SIZE = 1L << 30;
+
+    private static final int OPCODE_SLOT_INFO = 244;
+    private static final int OPCODE_FUNCTION2 = 245;
+    private static final int OPCODE_FUNCTION_PRE_GA = 246;
+    private static final int OPCODE_MODULE_AUX = 247;
+    private static final int OPCODE_IDLE = 248;
+    private static final int OPCODE_FREQ = 249;
+    private static final int OPCODE_AUX = 250;
+    private static final int OPCODE_RESIZEDB = 251;
+    private static final int OPCODE_EXPIRETIME_MS = 252;
+    private static final int OPCODE_EXPIRETIME = 253;
+    private static final int OPCODE_SELECTDB = 254;
+    private static final int OPCODE_EOF = 255;
+
+    private static final int TYPE_STRING = 0;
+    private static final int TYPE_LIST = 1;
+    private static final int TYPE_SET = 2;
+    private static final int TYPE_ZSET = 3;
+    private static final int TYPE_HASH = 4;
+    private static final int TYPE_ZSET_2 = 5;
+    private static final int TYPE_MODULE_2 = 7;
+    private static final int TYPE_HASH_ZIPMAP = 9;
+    private static final int TYPE_LIST_ZIPLIST = 10;
+    private static final int TYPE_SET_INTSET = 11;
+    private static final int TYPE_ZSET_ZIPLIST = 12;
+    private static final int TYPE_HASH_ZIPLIST = 13;
+    private static final int TYPE_LIST_QUICKLIST = 14;
+    private static final int TYPE_STREAM_LISTPACKS = 15;
+    private static final int TYPE_HASH_LISTPACK = 16;
+    private static final int TYPE_ZSET_LISTPACK = 17;
+    private static final int TYPE_LIST_QUICKLIST_2 = 18;
+    private static final int TYPE_STREAM_LISTPACKS_2 = 19;
+    private static final int TYPE_SET_LISTPACK = 20;
+    private static final int TYPE_STREAM_LISTPACKS_3 = 21;
+    private static final int TYPE_HASH_METADATA_PRE_GA = 22;
+    private static final int TYPE_HASH_LISTPACK_EX_PRE_GA = 23;
+    private static final int TYPE_HASH_METADATA = 24;
+    private static final int TYPE_HASH_LISTPACK_EX = 25;
+
+    private static final int ENCODING_INT8 = 0;
+    private static final int ENCODING_INT16 = 1;
+    private static final int ENCODING_INT32 = 2;
+    private static final int ENCODING_LZF = 3;
+
+    private static final int QUICKLIST_NODE_PLAIN = 1;
+
+    private static final int MODULE_OPCODE_EOF = 0;
+    private static final int MODULE_OPCODE_SINT = 1;
+    private static final int MODULE_OPCODE_UINT = 2;
+    private static final int MODULE_OPCODE_FLOAT = 3;
+    private static final int MODULE_OPCODE_DOUBLE = 4;
+    private static final int MODULE_OPCODE_STRING = 5;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long fileSize;
+    private final boolean mapped;
+    private final Map<String, String> auxFields = new LinkedHashMap<>();
+    private ByteBuffer buffer;
+    /**
+     * The file offset of index 0 of the buffer.
+     */
+    private long bufferOffset;
+    /**
+     * The bytes of the buffer before this index are included in {@link #crc}.
+     */
+    private int crcFrom;
+    private long crc;
+    private int version;
+    private int db;
+    private boolean finished;
+    private boolean checksumVerified;
+
+    private RdbParser(Path file, boolean mapped) throws IOException {
+        this.file = file;
+        this.mapped = mapped;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            this.fileSize = channel.size();
+            this.buffer = (mapped ? ByteBuffer.allocate(0) : ByteBuffer.allocate(STREAM_BUFFER_SIZE).flip())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            readHeader();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a file to read it through a small buffer.
+     *
+     * @param file the RDB file
+     * @return the parser, positioned before the first key
+     * @throws IOException if the file cannot be read or is not an RDB file of a supported version
+     */
+    public static RdbParser open(Path file) throws IOException {
+        return new RdbParser(file, false);
+    }
+
+    /**
+     * Opens a file to read it through memory mappings of up to 1 GB, which saves copying it into
+     * a buffer. The mappings are released when they are garbage collected, not on {@link
+     * #close()}.
+     *
+     * @param file the RDB file
+     * @return the parser, positioned before the first key
+     * @throws IOException if the file cannot be read or is not an RDB file of a supported version
+     */
+    public static RdbParser openMapped(Path file) throws IOException {
+        return new RdbParser(file, true);
+    }
+
+    /**
+     * Reads a whole file through a small buffer and sums up its keys. The file is closed when this
+     * returns, so that it can be deleted or replaced right away, also on Windows.
+     *
+     * @param file the RDB file
+     * @return the summary
+     * @throws IOException if the file cannot be read, is not an RDB file of a supported version, is
+     *                     corrupt or fails its checksum
+     */
+    public static RdbSummary summarize(Path file) throws IOException {
+        return summarize(file, false);
+    }
+
+    /**
+     * Reads a whole file and sums up its keys.
+     *
+     * @param file   the RDB file
+     * @param mapped whether to read it like {@link #openMapped(Path)}, faster for large files, but
+     *               the file stays mapped, and locked on Windows, until the mappings are garbage
+     *               collected
+     * @return the summary
+     * @throws IOException if the file cannot be read, is not an RDB file of a supported version, is
+     *                     corrupt or fails its checksum
+     */
+    public static RdbSummary summarize(Path file, boolean mapped) throws IOException {
+        long start = System.nanoTime();
+        try (RdbParser parser = mapped ? openMapped(file) : open(file)) {
+            RdbSummary summary = new RdbSummary(parser.fileSize, parser.version);
+            long now = System.currentTimeMillis();
+            RdbEntry entry;
+            while ((entry = parser.next()) != null) {
+                summary.add(entry, now);
+            }
+            summary.finish(parser.auxFields, parser.checksumVerified, System.nanoTime() - start);
+            return summary;
+        }
+    }
+
+    private void readHeader() throws IOException {
+        require(9);
+        byte[] magic = new byte[9];
+        buffer.get(magic);
+        String header = new String(magic, StandardCharsets.US_ASCII);
+        if (!header.startsWith("REDIS") || !header.substring(5).chars().allMatch(Character::isDigit)) {
+            throw new IOException("Not an RDB file: " + file);
+        }
+        version = Integer.parseInt(header.substring(5));
+        if (version < 1 || version > MAX_VERSION) {
+            throw new IOException("Unsupported RDB version " + version + " of " + file
+                    + ", versions up to " + MAX_VERSION + " are supported");
+        }
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the auxiliary fields read so far, such as {@code redis-ver} and {@code ctime}; Redis
+     * writes them all before the first key
+     */
+    public Map<String, String> getAuxFields() {
+        return Collections.unmodifiableMap(auxFields);
+    }
+
+    /**
+     * @return true if the end of the file was reached and its checksum matched, false if it was
+     * not reached yet or the file was written without a checksum
+     */
+    public boolean isChecksumVerified() {
+        return checksumVerified;
+    }
+
+    /**
+     * @return the next key, or null at the end of the file
+     * @throws IOException if the file cannot be read, is corrupt or fails its checksum
+     */
+    public RdbEntry next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        long expireAtMillis = -1;
+        while (true) {
+            long start = position();
+            int opcode = readUnsignedByte();
+            switch (opcode) {
+                case OPCODE_EOF -> {
+                    finish();
+                    return null;
+                }
+                case OPCODE_SELECTDB -> db = (int) readLength();
+                case OPCODE_RESIZEDB -> {
+                    readLength();
+                    readLength();
+                }
+                case OPCODE_AUX -> auxFields.put(readUtf8(), readUtf8());
+                case OPCODE_EXPIRETIME -> {
+                    require(4);
+                    expireAtMillis = (buffer.getInt() & 0xffffffffL) * 1000;
+                }
+                case OPCODE_EXPIRETIME_MS -> {
+                    require(8);
+                    expireAtMillis = buffer.getLong();
+                }
+                case OPCODE_FREQ -> readUnsignedByte();
+                case OPCODE_IDLE -> readLength();
+                case OPCODE_MODULE_AUX -> {
+                    readLength(); // module id
+                    readLength(); // when opcode
+                    readLength(); // when
+                    skipModuleValue();
+                }
+                case OPCODE_FUNCTION2 -> skipString();
+                case OPCODE_FUNCTION_PRE_GA -> throw new IOException(
+                        "Functions written by Redis 7.0 release candidates are not supported, at offset " + start);
+                case OPCODE_SLOT_INFO -> {
+                    readLength(); // slot
+                    readLength(); // keys
+                    readLength(); // keys with an expiry
+                }
+                default -> {
+                    String key = readUtf8();
+                    long length = skipValue(opcode, start);
+                    return new RdbEntry(db, key, typeOf(opcode), opcode, expireAtMillis, length, position() - start);
+                }
+            }
+        }
+    }
+
+    private void finish() throws IOException {
+        finished = true;
+        if (version < 5) {
+            return;
+        }
+        updateCrc();
+        long actual = crc;
+        require(8);
+        long expected = buffer.getLong();
+        // a zero checksum means the server was configured with rdbchecksum no
+        if (expected != 0 && expected != actual) {
+            throw new IOException(String.format("Checksum mismatch in %s: expected %016x, computed %016x",
+                    file, expected, actual));
+        }
+        checksumVerified = expected != 0;
+    }
+
+    private static RdbType typeOf(int valueType) {
+        return switch (valueType) {
+            case TYPE_STRING -> RdbType.STRING;
+            case TYPE_LIST, TYPE_LIST_ZIPLIST, TYPE_LIST_QUICKLIST, TYPE_LIST_QUICKLIST_2 -> RdbType.LIST;
+            case TYPE_SET, TYPE_SET_INTSET, TYPE_SET_LISTPACK -> RdbType.SET;
+            case TYPE_ZSET, TYPE_ZSET_2, TYPE_ZSET_ZIPLIST, TYPE_ZSET_LISTPACK -> RdbType.ZSET;
+            case TYPE_STREAM_LISTPACKS, TYPE_STREAM_LISTPACKS_2, TYPE_STREAM_LISTPACKS_3 -> RdbType.STREAM;
+            case TYPE_MODULE_2 -> RdbType.MODULE;
+            default -> RdbType.HASH;
+        };
+    }
+
+    /**
+     * Skips a value and returns its length.
+     */
+    private long skipValue(int valueType, long start) throws IOException {
+        switch (valueType) {
+            case TYPE_STRING:
+                return skipString();
+            case TYPE_LIST:
+            case TYPE_SET: {
+                long length = readLength();
+                for (long i = 0; i < length; i++) {
+                    skipString();
+                }
+                return length;
+            }
+            case TYPE_ZSET: {
+                long length = readLength();
+                for (long i = 0; i < length; i++) {
+                    skipString();
+                    int scoreLength = readUnsignedByte();
+                    // 253 to 255 stand for nan, +inf and -inf
+                    if (scoreLength < 253) {
+                        skip(scoreLength);
+                    }
+                }
+                return length;
+            }
+            case TYPE_ZSET_2: {
+                long length = readLength();
+                for (long i = 0; i < length; i++) {
+                    skipString();
+                    skip(Double.BYTES);
+                }
+                return length;
+            }
+            case TYPE_HASH: {
+                long length = readLength();
+                for (long i = 0; i < length; i++) {
+                    skipString();
+                    skipString();
+                }
+                return length;
+            }
+            case TYPE_MODULE_2:
+                readLength(); // module id
+                skipModuleValue();
+                return -1;
+            case TYPE_HASH_ZIPMAP:
+                return zipmapLength(readString());
+            case TYPE_LIST_ZIPLIST:
+                return ziplistLength(readString());
+            case TYPE_SET_INTSET:
+                return intsetLength(readString());
+            case TYPE_ZSET_ZIPLIST:
+            case TYPE_HASH_ZIPLIST:
+                return ziplistLength(readString()) / 2;
+            case TYPE_LIST_QUICKLIST: {
+                long nodes = readLength();
+                long length = 0;
+                for (long i = 0; i < nodes; i++) {
+                    length += ziplistLength(readString());
+                }
+                return length;
+            }
+            case TYPE_LIST_QUICKLIST_2: {
+                long nodes = readLength();
+                long length = 0;
+                for (long i = 0; i < nodes; i++) {
+                    if (readLength() == QUICKLIST_NODE_PLAIN) {
+                        skipString();
+                        length++;
+                    } else {
+                        length += listpackLength(readString());
+                    }
+                }
+                return length;
+            }
+            case TYPE_SET_LISTPACK:
+                return listpackLength(readString());
+            case TYPE_HASH_LISTPACK:
+            case TYPE_ZSET_LISTPACK:
+                return listpackLength(readString()) / 2;
+            case TYPE_STREAM_LISTPACKS:
+            case TYPE_STREAM_LISTPACKS_2:
+            case TYPE_STREAM_LISTPACKS_3:
+                return skipStream(valueType);
+            case TYPE_HASH_METADATA_PRE_GA:
+            case TYPE_HASH_METADATA: {
+                if (valueType == TYPE_HASH_METADATA) {
+                    skip(Long.BYTES); // the earliest field expiry
+                }
+                long length = readLength();
+                for (long i = 0; i < length; i++) {
+                    if (valueType == TYPE_HASH_METADATA) {
+                        readLength();
+                    } else {
+                        skip(Long.BYTES);
+                    }
+                    skipString();
+                    skipString();
+                }
+                return length;
+            }
+            case TYPE_HASH_LISTPACK_EX:
+                skip(Long.BYTES); // the earliest field expiry
+                return listpackLength(readString()) / 3;
+            case TYPE_HASH_LISTPACK_EX_PRE_GA:
+                // field, value and expiry
+                return listpackLength(readString()) / 3;
+            default:
+                throw new IOException("Unknown value type " + valueType + " at offset " + start + " of " + file);
+        }
+    }
+
+    private long skipStream(int valueType) throws IOException {
+        long listpacks = readLength();
+        for (long i = 0; i < listpacks; i++) {
+            skipString(); // the master entry id
+            skipString(); // the entries
+        }
+        long length = readLength();
+        readLength(); // last id
+        readLength();
+        if (valueType >= TYPE_STREAM_LISTPACKS_2) {
+            readLength(); // first id
+            readLength();
+            readLength(); // max deleted id
+            readLength();
+            readLength(); // entries added
+        }
+        long groups = readLength();
+        for (long i = 0; i < groups; i++) {
+            skipString(); // name
+            readLength(); // last delivered id
+            readLength();
+            if (valueType >= TYPE_STREAM_LISTPACKS_2) {
+                readLength(); // entries read
+            }
+            long pending = readLength();
+            for (long j = 0; j < pending; j++) {
+                skip(16 + Long.BYTES); // id and delivery time
+                readLength(); // delivery count
+            }
+            long consumers = readLength();
+            for (long j = 0; j < consumers; j++) {
+                skipString(); // name
+                skip(valueType >= TYPE_STREAM_LISTPACKS_3 ? 2 * Long.BYTES : Long.BYTES); // seen and active time
+                skip(16 * readLength()); // ids of the pending entries
+            }
+        }
+        return length;
+    }
+
+    private void skipModuleValue() throws IOException {
+        while (true) {
+            int opcode = (int) readLength();
+            switch (opcode) {
+                case MODULE_OPCODE_EOF -> {
+                    return;
+                }
+                case MODULE_OPCODE_SINT, MODULE_OPCODE_UINT -> readLength();
+                case MODULE_OPCODE_FLOAT -> skip(Float.BYTES);
+                case MODULE_OPCODE_DOUBLE -> skip(Double.BYTES);
+                case MODULE_OPCODE_STRING -> skipString();
+                default -> throw new IOException("Unknown module value opcode " + opcode + " at offset " + position());
+            }
+        }
+    }
+
+    private long readLength() throws IOException {
+        int first = readUnsignedByte();
+        if (first >> 6 == 3) {
+            throw new IOException("Encoded string where a length was expected at offset " + (position() - 1));
+        }
+        return lengthFrom(first);
+    }
+
+    private long lengthFrom(int first) throws IOException {
+        switch (first >> 6) {
+            case 0:
+                return first & 0x3f;
+            case 1:
+                return (first & 0x3f) << 8 | readUnsignedByte();
+            default:
+                if (first == 0x80) {
+                    require(4);
+                    return Integer.reverseBytes(buffer.getInt()) & 0xffffffffL;
+                }
+                if (first == 0x81) {
+                    require(8);
+                    return Long.reverseBytes(buffer.getLong());
+                }
+                throw new IOException("Unknown length encoding " + first + " at offset " + (position() - 1));
+        }
+    }
+
+    private String readUtf8() throws IOException {
+        return new String(readString(), StandardCharsets.UTF_8);
+    }
+
+    private byte[] readString() throws IOException {
+        int first = readUnsignedByte();
+        if (first >> 6 != 3) {
+            return readBytes(lengthFrom(first));
+        }
+        switch (first & 0x3f) {
+            case ENCODING_INT8:
+                require(1);
+                return Integer.toString(buffer.get()).getBytes(StandardCharsets.US_ASCII);
+            case ENCODING_INT16:
+                require(2);
+                return Integer.toString(buffer.getShort()).getBytes(StandardCharsets.US_ASCII);
+            case ENCODING_INT32:
+                require(4);
+                return Integer.toString(buffer.getInt()).getBytes(StandardCharsets.US_ASCII);
+            case ENCODING_LZF: {
+                long compressedLength = readLength();
+                long length = readLength();
+                return Lzf.decompress(readBytes(compressedLength), checkedLength(length));
+            }
+            default:
+                throw new IOException("Unknown string encoding " + first + " at offset " + (position() - 1));
+        }
+    }
+
+    /**
+     * Skips a string and returns its length.
+     */
+    private long skipString() throws IOException {
+        int first = readUnsignedByte();
+        if (first >> 6 != 3) {
+            long length = lengthFrom(first);
+            skip(length);
+            return length;
+        }
+        switch (first & 0x3f) {
+            case ENCODING_INT8:
+                require(1);
+                return Integer.toString(buffer.get()).length();
+            case ENCODING_INT16:
+                require(2);
+                return Integer.toString(buffer.getShort()).length();
+            case ENCODING_INT32:
+                require(4);
+                return Integer.toString(buffer.getInt()).length();
+            case ENCODING_LZF: {
+                long compressedLength = readLength();
+                long length = readLength();
+                skip(compressedLength);
+                return length;
+            }
+            default:
+                throw new IOException("Unknown string encoding " + first + " at offset " + (position() - 1));
+        }
+    }
+
+    private static long zipmapLength(byte[] zipmap) throws IOException {
+        int length = zipmap[0] & 0xff;
+        if (length < 254) {
+            return length;
+        }
+        // the count did not fit into the header, walk the pairs
+        try {
+            int p = 1;
+            int pairs = 0;
+            while ((zipmap[p] & 0xff) != 255) {
+                p = skipZipmapString(zipmap, p, false);
+                p = skipZipmapString(zipmap, p, true);
+                pairs++;
+            }
+            return pairs;
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt zipmap", e);
+        }
+    }
+
+    private static int skipZipmapString(byte[] zipmap, int p, boolean withFree) {
+        int length = zipmap[p] & 0xff;
+        p++;
+        if (length == 254) {
+            length = ByteBuffer.wrap(zipmap, p, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+            p += 4;
+        }
+        if (withFree) {
+            length += (zipmap[p] & 0xff) + 1;
+        }
+        return p + length;
+    }
+
+    private static long ziplistLength(byte[] ziplist) throws IOException {
+        try {
+            ByteBuffer header = ByteBuffer.wrap(ziplist).order(ByteOrder.LITTLE_ENDIAN);
+            int length = header.getShort(8) & 0xffff;
+            if (length < 0xffff) {
+                return length;
+            }
+            int p = 10;
+            long entries = 0;
+            while ((ziplist[p] & 0xff) != 0xff) {
+                p += (ziplist[p] & 0xff) == 254 ? 5 : 1; // the length of the previous entry
+                int encoding = ziplist[p] & 0xff;
+                p += switch (encoding >> 6) {
+                    case 0 -> 1 + (encoding & 0x3f);
+                    case 1 -> 2 + ((encoding & 0x3f) << 8 | ziplist[p + 1] & 0xff);
+                    case 2 -> 5 + Integer.reverseBytes(header.getInt(p + 1));
+                    default -> switch (encoding) {
+                        case 0xc0 -> 1 + Short.BYTES;
+                        case 0xd0 -> 1 + Integer.BYTES;
+                        case 0xe0 -> 1 + Long.BYTES;
+                        case 0xf0 -> 1 + 3;
+                        case 0xfe -> 1 + 1;
+                        default -> 1; // 0 to 12 in the encoding byte
+                    };
+                };
+                entries++;
+            }
+            return entries;
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt ziplist", e);
+        }
+    }
+
+    private static long listpackLength(byte[] listpack) throws IOException {
+        try {
+            ByteBuffer header = ByteBuffer.wrap(listpack).order(ByteOrder.LITTLE_ENDIAN);
+            int length = header.getShort(4) & 0xffff;
+            if (length < 0xffff) {
+                return length;
+            }
+            int p = 6;
+            long entries = 0;
+            while ((listpack[p] & 0xff) != 0xff) {
+                int encoding = listpack[p] & 0xff;
+                int size;
+                if ((encoding & 0x80) == 0) {
+                    size = 1;
+                } else if ((encoding & 0xc0) == 0x80) {
+                    size = 1 + (encoding & 0x3f);
+                } else if ((encoding & 0xe0) == 0xc0) {
+                    size = 2;
+                } else if ((encoding & 0xf0) == 0xe0) {
+                    size = 2 + ((encoding & 0x0f) << 8 | listpack[p + 1] & 0xff);
+                } else {
+                    size = switch (encoding) {
+                        case 0xf0 -> 5 + header.getInt(p + 1);
+                        case 0xf1 -> 3;
+                        case 0xf2 -> 4;
+                        case 0xf3 -> 5;
+                        case 0xf4 -> 9;
+                        default -> throw new IOException("Corrupt listpack entry encoding " + encoding);
+                    };
+                }
+                // each entry ends with its own size, in 1 to 5 bytes of 7 bits
+                p += size + (size < 128 ? 1 : size < 16384 ? 2 : size < 2097152 ? 3 : size < 268435456 ? 4 : 5);
+                entries++;
+            }
+            return entries;
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt listpack", e);
+        }
+    }
+
+    private static long intsetLength(byte[] intset) throws IOException {
+        if (intset.length < 8) {
+            throw new IOException("Corrupt intset");
+        }
+        return ByteBuffer.wrap(intset).order(ByteOrder.LITTLE_ENDIAN).getInt(4) & 0xffffffffL;
+    }
+
+    private long position() {
+        return bufferOffset + buffer.position();
+    }
+
+    private int readUnsignedByte() throws IOException {
+        require(1);
+        return buffer.get() & 0xff;
+    }
+
+    private byte[] readBytes(long length) throws IOException {
+        byte[] bytes = new byte[checkedLength(length)];
+        int offset = 0;
+        while (offset < bytes.length) {
+            require(1);
+            int chunk = Math.min(bytes.length - offset, buffer.remaining());
+            buffer.get(bytes, offset, chunk);
+            offset += chunk;
+        }
+        return bytes;
+    }
+
+    private int checkedLength(long length) throws IOException {
+        if (length < 0 || length > Integer.MAX_VALUE - 8) {
+            throw new IOException("Implausible string length " + length + " at offset " + position());
+        }
+        return (int) length;
+    }
+
+    private void skip(long length) throws IOException {
+        while (length > 0) {
+            require(1);
+            int chunk = (int) Math.min(length, buffer.remaining());
+            buffer.position(buffer.position() + chunk);
+            length -= chunk;
+        }
+    }
+
+    private void require(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            refill(bytes);
+        }
+    }
+
+    private void refill(int bytes) throws IOException {
+        updateCrc();
+        long position = position();
+        if (mapped) {
+            long size = Math.min(MAPPED_REGION_SIZE, fileSize - position);
+            if (size < bytes) {
+                throw new EOFException("Truncated RDB file " + file + " at offset " + fileSize);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+        } else {
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Truncated RDB file " + file + " at offset " + fileSize);
+                }
+            }
+            buffer.flip();
+        }
+        bufferOffset = position;
+        crcFrom = 0;
+    }
+
+    private void updateCrc() {
+        crc = Crc64.update(crc, buffer, crcFrom, buffer.position());
+        crcFrom = buffer.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
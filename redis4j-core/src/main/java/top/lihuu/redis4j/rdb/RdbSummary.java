@@ -0,0 +1,182 @@
+package top.lihuu.redis4j.rdb;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Statistics of the keys of an RDB file, computed by {@link RdbParser#summarize(java.nio.file.Path)}
+ * without starting a server.
+ */
+public final class RdbSummary {
+
+    private static final int LARGEST_KEYS = 10;
+
+    /*
+     * The cost model of estimateLoadTime(), fitted to the load times Redis 7.0 logged for files of
+     * a million small strings, of large strings, and of small (listpack) and large (hash table)
+     * hashes.
+     */
+    private static final long NANOS_PER_KEY = 2000;
+    private static final long NANOS_PER_ELEMENT = 60;
+    private static final long STRING_BYTES_PER_SECOND = 300_000_000L;
+
+    private final long fileSize;
+    private final int version;
+    private final Map<RdbType, Long> keysByType = new EnumMap<>(RdbType.class);
+    private final Map<RdbType, Long> bytesByType = new EnumMap<>(RdbType.class);
+    private final Map<Integer, Long> keysByDb = new TreeMap<>();
+    private final PriorityQueue<RdbEntry> largest =
+            new PriorityQueue<>(Comparator.comparingLong(RdbEntry::serializedSize));
+    private long keys;
+    private long expiringKeys;
+    private long expiredKeys;
+    private long elements;
+    private long stringBytes;
+    private Map<String, String> auxFields = Map.of();
+    private boolean checksumVerified;
+    private Duration parseTime = Duration.ZERO;
+
+    RdbSummary(long fileSize, int version) {
+        this.fileSize = fileSize;
+        this.version = version;
+    }
+
+    void add(RdbEntry entry, long nowMillis) {
+        keys++;
+        keysByType.merge(entry.type(), 1L, Long::sum);
+        bytesByType.merge(entry.type(), entry.serializedSize(), Long::sum);
+        keysByDb.merge(entry.db(), 1L, Long::sum);
+        if (entry.hasExpiry()) {
+            expiringKeys++;
+            if (entry.expireAtMillis() <= nowMillis) {
+                expiredKeys++;
+            }
+        }
+        if (entry.type() == RdbType.STRING) {
+            stringBytes += entry.length();
+        } else if (entry.length() > 0) {
+            elements += entry.length();
+        }
+        largest.add(entry);
+        if (largest.size() > LARGEST_KEYS) {
+            largest.poll();
+        }
+    }
+
+    void finish(Map<String, String> auxFields, boolean checksumVerified, long parseNanos) {
+        this.auxFields = Map.copyOf(auxFields);
+        this.checksumVerified = checksumVerified;
+        this.parseTime = Duration.ofNanos(parseNanos);
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the version of the server that wrote the file, or null if it did not say
+     */
+    public String getRedisVersion() {
+        return auxFields.get("redis-ver");
+    }
+
+    public Map<String, String> getAuxFields() {
+        return auxFields;
+    }
+
+    /**
+     * @return false if the file was written without a checksum ({@code rdbchecksum no}) or by a
+     * version before 5
+     */
+    public boolean isChecksumVerified() {
+        return checksumVerified;
+    }
+
+    public long getKeys() {
+        return keys;
+    }
+
+    public long getKeys(RdbType type) {
+        return keysByType.getOrDefault(type, 0L);
+    }
+
+    /**
+     * @return the serialized size of the keys of the type and their values
+     */
+    public long getBytes(RdbType type) {
+        return bytesByType.getOrDefault(type, 0L);
+    }
+
+    /**
+     * @return the number of keys of each database that has any
+     */
+    public Map<Integer, Long> getKeysByDb() {
+        return Collections.unmodifiableMap(keysByDb);
+    }
+
+    public long getExpiringKeys() {
+        return expiringKeys;
+    }
+
+    /**
+     * @return keys whose expiry had passed when the file was read; a server loading the file as a
+     * primary drops them
+     */
+    public long getExpiredKeys() {
+        return expiredKeys;
+    }
+
+    /**
+     * @return the elements of all lists, sets, sorted sets, hashes and streams
+     */
+    public long getElements() {
+        return elements;
+    }
+
+    /**
+     * @return the keys with the largest serialized size, largest first
+     */
+    public List<RdbEntry> getLargestKeys() {
+        List<RdbEntry> entries = new ArrayList<>(largest);
+        entries.sort(Comparator.comparingLong(RdbEntry::serializedSize).reversed());
+        return entries;
+    }
+
+    /**
+     * @return how long reading the file took
+     */
+    public Duration getParseTime() {
+        return parseTime;
+    }
+
+    /**
+     * Estimates how long a server will take to load the file, from its keys, their elements and
+     * the uncompressed size of its strings. This is a rough figure, meant to tell a fixture that
+     * loads in milliseconds from one that takes minutes; the actual time depends on the machine
+     * and on how the values are encoded.
+     *
+     * @return the estimated load time
+     */
+    public Duration estimateLoadTime() {
+        long nanos = keys * NANOS_PER_KEY + elements * NANOS_PER_ELEMENT
+                + stringBytes * 1_000_000_000L / STRING_BYTES_PER_SECOND;
+        return Duration.ofNanos(nanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RDB version %d, %d bytes, %d keys (%d expiring, %d expired) %s, %d elements",
+                version, fileSize, keys, expiringKeys, expiredKeys, keysByType, elements);
+    }
+}
@@ -0,0 +1,14 @@
+package top.lihuu.redis4j.rdb;
+
+/**
+ * The type of a key, as {@code TYPE} would report it.
+ */
+public enum RdbType {
+    STRING,
+    LIST,
+    SET,
+    ZSET,
+    HASH,
+    STREAM,
+    MODULE
+}
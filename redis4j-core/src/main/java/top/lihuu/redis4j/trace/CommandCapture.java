@@ -0,0 +1,247 @@
+package top.lihuu.redis4j.trace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import top.lihuu.redis4j.client.RedisConnection;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records every command a server executes, read from a {@code MONITOR} connection, into a trace
+ * file.
+ *
+ * <p>The connection is read on a virtual thread that only parses and appends to the current
+ * block of the {@link TraceWriter}, compression and file writes happen once per block. MONITOR
+ * itself costs the server some throughput, so compare recorded runs with recorded runs.
+ */
+public final class CommandCapture implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommandCapture.class);
+
+    private final RedisConnection connection;
+    private final TraceWriter writer;
+    private final Thread reader;
+    private final AtomicLong captured = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private volatile boolean stopping;
+    private boolean closed;
+
+    private CommandCapture(RedisConnection connection, TraceWriter writer) {
+        this.connection = connection;
+        this.writer = writer;
+        this.reader = Thread.ofVirtual().name("redis4j-capture").unstarted(this::readLoop);
+    }
+
+    /**
+     * Starts recording. A {@link TraceRecord.Type#START} marker is written first.
+     *
+     * @param host  the host
+     * @param port  the port
+     * @param file  the trace file, appended to if it exists
+     * @param label the label of the start marker
+     * @return the running capture, close it to stop
+     * @throws IOException if the connection or the file cannot be opened
+     */
+    public static CommandCapture start(String host, int port, Path file, String label) throws IOException {
+        TraceWriter writer = new TraceWriter(file);
+        RedisConnection connection = null;
+        try {
+            connection = RedisConnection.open(host, port);
+            Object reply = connection.execute("MONITOR");
+            if (!"OK".equals(reply)) {
+                throw new IOException("MONITOR failed: " + reply);
+            }
+            writer.write(TraceRecord.marker(TraceRecord.Type.START, label));
+            CommandCapture capture = new CommandCapture(connection, writer);
+            capture.reader.start();
+            logger.info("Capturing commands of port {} to {}", port, file);
+            return capture;
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.close();
+            }
+            writer.close();
+            throw e;
+        }
+    }
+
+    private void readLoop() {
+        try {
+            while (!stopping) {
+                Object reply = connection.readReply();
+                TraceRecord record = reply instanceof String line ? parse(line) : null;
+                if (record == null) {
+                    skipped.incrementAndGet();
+                    continue;
+                }
+                synchronized (writer) {
+                    try {
+                        writer.write(record);
+                        captured.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        // a single oversized command, keep recording the rest
+                        skipped.incrementAndGet();
+                        logger.warn("Skipped command: {}", e.getMessage());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (!stopping) {
+                logger.warn("Command capture stopped unexpectedly", e);
+            }
+        }
+    }
+
+    /**
+     * Writes a {@link TraceRecord.Type#MARK} marker, e.g. between phases of a test.
+     *
+     * @param label the label
+     * @throws IOException if writing failed
+     */
+    public void mark(String label) throws IOException {
+        synchronized (writer) {
+            writer.write(TraceRecord.marker(TraceRecord.Type.MARK, label));
+        }
+    }
+
+    public long getCaptured() {
+        return captured.get();
+    }
+
+    /**
+     * @return MONITOR lines that could not be parsed, or commands too large to record
+     */
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * @return bytes written to the trace file so far, compressed
+     */
+    public long getBytesWritten() {
+        synchronized (writer) {
+            return writer.getBytesWritten();
+        }
+    }
+
+    /**
+     * Stops recording and writes a {@link TraceRecord.Type#STOP} marker. Commands the server has
+     * not sent to the MONITOR connection yet are not recorded.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        stopping = true;
+        try {
+            connection.close();
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (writer) {
+                try {
+                    writer.write(TraceRecord.marker(TraceRecord.Type.STOP, "stop"));
+                } finally {
+                    writer.close();
+                }
+            }
+        }
+        logger.info("Captured {} commands ({} skipped)", captured.get(), skipped.get());
+    }
+
+    /**
+     * Parses a MONITOR line: {@code 1339518083.107412 [0 127.0.0.1:60866] "set" "k" "v"}.
+     *
+     * @param line the line
+     * @return the record, or null if the line is not in that format
+     */
+    static TraceRecord parse(String line) {
+        int space = line.indexOf(' ');
+        int dot = line.indexOf('.');
+        if (space < 0 || dot < 0 || dot > space || line.length() < space + 2 || line.charAt(space + 1) != '[') {
+            return null;
+        }
+        int close = line.indexOf(']', space);
+        if (close < 0) {
+            return null;
+        }
+        long micros;
+        int db;
+        try {
+            micros = Long.parseLong(line.substring(0, dot)) * 1_000_000L + Long.parseLong(line.substring(dot + 1, space));
+            int clientStart = line.indexOf(' ', space + 2);
+            if (clientStart < 0 || clientStart > close) {
+                return null;
+            }
+            db = Integer.parseInt(line.substring(space + 2, clientStart));
+            String client = line.substring(clientStart + 1, close);
+            List<byte[]> args = parseArgs(line, close + 1);
+            return args == null || args.isEmpty() ? null : new TraceRecord(TraceRecord.Type.COMMAND, micros, db, client, args);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses the quoted arguments, undoing the escaping of {@code sdscatrepr}, back to the bytes
+     * the server received.
+     */
+    private static List<byte[]> parseArgs(String line, int from) {
+        List<byte[]> args = new ArrayList<>();
+        ByteArrayOutputStream arg = new ByteArrayOutputStream();
+        int i = from;
+        while (i < line.length()) {
+            if (line.charAt(i) == ' ') {
+                i++;
+                continue;
+            }
+            if (line.charAt(i) != '"') {
+                return null;
+            }
+            i++;
+            arg.reset();
+            while (true) {
+                if (i >= line.length()) {
+                    return null;
+                }
+                char c = line.charAt(i++);
+                if (c == '"') {
+                    break;
+                }
+                if (c != '\\') {
+                    arg.write(c);
+                    continue;
+                }
+                if (i >= line.length()) {
+                    return null;
+                }
+                char escaped = line.charAt(i++);
+                switch (escaped) {
+                    case 'n' -> arg.write('\n');
+                    case 'r' -> arg.write('\r');
+                    case 't' -> arg.write('\t');
+                    case 'a' -> arg.write(7);
+                    case 'b' -> arg.write('\b');
+                    case 'x' -> {
+                        if (i + 2 > line.length()) {
+                            return null;
+                        }
+                        arg.write(Integer.parseInt(line.substring(i, i + 2), 16));
+                        i += 2;
+                    }
+                    default -> arg.write(escaped);
+                }
+            }
+            args.add(arg.toByteArray());
+        }
+        return args;
+    }
+}
@@ -0,0 +1,84 @@
+package top.lihuu.redis4j.trace;
+
+import top.lihuu.redis4j.metrics.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * The outcome of a {@link TraceReplayer} run.
+ *
+ * <p>{@link #getLatency()} is measured from the time each command was due, not from when it was
+ * actually sent, so time spent waiting behind a slow command counts (coordinated omission
+ * corrected). {@link #getServiceTime()} is measured from the actual send and shows the server's
+ * response time alone.
+ */
+public final class ReplayResult {
+
+    private final long commands;
+    private final long errors;
+    private final long skipped;
+    private final Duration elapsed;
+    private final LatencyHistogram latency;
+    private final LatencyHistogram serviceTime;
+    private final long[] throughputTimeline;
+
+    ReplayResult(long commands, long errors, long skipped, Duration elapsed, LatencyHistogram latency,
+                 LatencyHistogram serviceTime, long[] throughputTimeline) {
+        this.commands = commands;
+        this.errors = errors;
+        this.skipped = skipped;
+        this.elapsed = elapsed;
+        this.latency = latency;
+        this.serviceTime = serviceTime;
+        this.throughputTimeline = throughputTimeline;
+    }
+
+    public long getCommands() {
+        return commands;
+    }
+
+    /**
+     * @return commands answered with an error reply
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return trace records not replayed, like MONITOR or SUBSCRIBE
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    public double getThroughput() {
+        long nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : commands * 1_000_000_000d / nanos;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public LatencyHistogram getServiceTime() {
+        return serviceTime;
+    }
+
+    /**
+     * @return completed commands per second of the replay, index 0 is the first second
+     */
+    public long[] getThroughputTimeline() {
+        return throughputTimeline.clone();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d commands (%d errors, %d skipped) in %d ms, %.0f ops/sec, latency %s",
+                commands, errors, skipped, elapsed.toMillis(), getThroughput(), latency.summary());
+    }
+}
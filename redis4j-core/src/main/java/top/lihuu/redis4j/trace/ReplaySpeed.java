@@ -0,0 +1,65 @@
+package top.lihuu.redis4j.trace;
+
+/**
+ * How fast a trace is replayed.
+ */
+public final class ReplaySpeed {
+
+    private final double multiplier;
+    private final double requestsPerSecond;
+
+    private ReplaySpeed(double multiplier, double requestsPerSecond) {
+        this.multiplier = multiplier;
+        this.requestsPerSecond = requestsPerSecond;
+    }
+
+    /**
+     * Commands are sent with the same gaps between them as when they were recorded.
+     */
+    public static ReplaySpeed asRecorded() {
+        return new ReplaySpeed(1, 0);
+    }
+
+    /**
+     * Commands are sent with the recorded gaps divided by {@code multiplier}.
+     *
+     * @param multiplier e.g. 2 to replay twice as fast as recorded
+     * @return the speed
+     */
+    public static ReplaySpeed multiplier(double multiplier) {
+        if (!(multiplier > 0)) {
+            throw new IllegalArgumentException("multiplier must be positive: " + multiplier);
+        }
+        return new ReplaySpeed(multiplier, 0);
+    }
+
+    /**
+     * Commands are sent at a fixed rate, ignoring the recorded timing.
+     *
+     * @param requestsPerSecond the rate, across all connections
+     * @return the speed
+     */
+    public static ReplaySpeed fixedRate(double requestsPerSecond) {
+        if (!(requestsPerSecond > 0)) {
+            throw new IllegalArgumentException("requestsPerSecond must be positive: " + requestsPerSecond);
+        }
+        return new ReplaySpeed(0, requestsPerSecond);
+    }
+
+    /**
+     * @param index         position of the command in the trace
+     * @param offsetMicros  recorded time of the command since the first recorded command
+     * @return when the command is due, in nanoseconds since the start of the replay
+     */
+    long dueNanos(long index, long offsetMicros) {
+        if (requestsPerSecond > 0) {
+            return (long) (index * 1_000_000_000d / requestsPerSecond);
+        }
+        return (long) (offsetMicros * 1000d / multiplier);
+    }
+
+    @Override
+    public String toString() {
+        return requestsPerSecond > 0 ? requestsPerSecond + " req/s" : multiplier + "x";
+    }
+}
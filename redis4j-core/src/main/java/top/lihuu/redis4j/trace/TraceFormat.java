@@ -0,0 +1,75 @@
+package top.lihuu.redis4j.trace;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Constants of the binary trace file format, see {@link TraceWriter}.
+ */
+final class TraceFormat {
+
+    static final byte[] MAGIC = {'R', '4', 'J', 'T', 'R', 'A', 'C', 'E'};
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = MAGIC.length + Short.BYTES;
+
+    /**
+     * A block is written once it holds this many bytes of records.
+     */
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    /**
+     * The largest record, a command with a value of about a megabyte.
+     */
+    static final int MAX_RECORD_SIZE = 1024 * 1024;
+
+    static final int MAX_BLOCK_SIZE = BLOCK_SIZE + MAX_RECORD_SIZE;
+
+    private TraceFormat() {
+    }
+
+    static void readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.position(0);
+        while (header.hasRemaining()) {
+            if (channel.read(header) < 0) {
+                throw new IOException("Not a trace file, header is truncated");
+            }
+        }
+        header.flip();
+        byte[] magic = new byte[MAGIC.length];
+        header.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a trace file, magic is " + Arrays.toString(magic));
+        }
+        short version = header.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported trace file version " + version);
+        }
+    }
+
+    /**
+     * Walks the block headers after the file header.
+     *
+     * @return the end of the last complete block, where appending can continue
+     */
+    static long endOfLastCompleteBlock(FileChannel channel) throws IOException {
+        long position = HEADER_SIZE;
+        long size = channel.size();
+        ByteBuffer blockHeader = ByteBuffer.allocate(2 * Integer.BYTES);
+        while (position + blockHeader.capacity() <= size) {
+            blockHeader.clear();
+            channel.read(blockHeader, position);
+            blockHeader.flip();
+            int rawLength = blockHeader.getInt();
+            int compressedLength = blockHeader.getInt();
+            long end = position + blockHeader.capacity() + compressedLength;
+            if (rawLength <= 0 || rawLength > MAX_BLOCK_SIZE || compressedLength <= 0 || end > size) {
+                break;
+            }
+            position = end;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,114 @@
+package top.lihuu.redis4j.trace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the records of a trace file written by {@link TraceWriter}, in order, one block in memory
+ * at a time. Not thread safe.
+ */
+public class TraceReader implements Closeable {
+
+    private static final TraceRecord.Type[] TYPES = TraceRecord.Type.values();
+
+    private final FileChannel channel;
+    private final Inflater inflater = new Inflater();
+    private final ByteBuffer blockHeader = ByteBuffer.allocate(2 * Integer.BYTES);
+    private ByteBuffer block = ByteBuffer.allocate(0);
+    private byte[] compressed = new byte[0];
+
+    public TraceReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            TraceFormat.readHeader(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the next record, or null at the end of the file (or of its last complete block)
+     * @throws IOException if the file cannot be read or is corrupt
+     */
+    public TraceRecord next() throws IOException {
+        if (!block.hasRemaining() && !readBlock()) {
+            return null;
+        }
+        TraceRecord.Type type = TYPES[block.get()];
+        long timestampMicros = block.getLong();
+        int db = block.getInt();
+        String client = new String(getBytes(), StandardCharsets.UTF_8);
+        int argc = block.getInt();
+        List<byte[]> args = new ArrayList<>(argc);
+        for (int i = 0; i < argc; i++) {
+            args.add(getBytes());
+        }
+        return new TraceRecord(type, timestampMicros, db, client, args);
+    }
+
+    private byte[] getBytes() {
+        byte[] value = new byte[block.getInt()];
+        block.get(value);
+        return value;
+    }
+
+    private boolean readBlock() throws IOException {
+        blockHeader.clear();
+        if (!readFully(blockHeader)) {
+            return false;
+        }
+        blockHeader.flip();
+        int rawLength = blockHeader.getInt();
+        int compressedLength = blockHeader.getInt();
+        if (rawLength <= 0 || rawLength > TraceFormat.MAX_BLOCK_SIZE || compressedLength <= 0) {
+            throw new IOException("Corrupt trace block header at " + (channel.position() - blockHeader.capacity()));
+        }
+        if (compressed.length < compressedLength) {
+            compressed = new byte[compressedLength];
+        }
+        if (!readFully(ByteBuffer.wrap(compressed, 0, compressedLength))) {
+            // the writer crashed while writing this block
+            return false;
+        }
+        if (block.capacity() < rawLength) {
+            block = ByteBuffer.allocate(rawLength);
+        }
+        inflater.reset();
+        inflater.setInput(compressed, 0, compressedLength);
+        try {
+            int inflated = inflater.inflate(block.array(), 0, rawLength);
+            if (inflated != rawLength) {
+                throw new IOException("Corrupt trace block, expected " + rawLength + " bytes but got " + inflated);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt trace block", e);
+        }
+        block.clear().limit(rawLength);
+        return true;
+    }
+
+    private boolean readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+}
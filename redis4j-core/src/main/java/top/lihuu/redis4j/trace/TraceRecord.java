@@ -0,0 +1,49 @@
+package top.lihuu.redis4j.trace;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * An entry of a command trace.
+ *
+ * @param type            a command or a marker
+ * @param timestampMicros server time of a command (from MONITOR), local wall clock time of a
+ *                        marker, in microseconds since the epoch
+ * @param db              the logical database the command ran against, -1 for markers
+ * @param client          the client address of a command (e.g. {@code 127.0.0.1:50712}), the
+ *                        label of a marker
+ * @param args            the command and its arguments, exactly the bytes the server received,
+ *                        empty for markers; the arrays are not copied
+ */
+public record TraceRecord(Type type, long timestampMicros, int db, String client, List<byte[]> args) {
+
+    public enum Type {
+        COMMAND,
+        START,
+        MARK,
+        STOP
+    }
+
+    public TraceRecord {
+        args = List.copyOf(args);
+    }
+
+    static TraceRecord marker(Type type, String label) {
+        Instant now = Instant.now();
+        long micros = now.getEpochSecond() * 1_000_000L + now.getNano() / 1000;
+        return new TraceRecord(type, micros, -1, label, List.of());
+    }
+
+    public boolean isCommand() {
+        return type == Type.COMMAND;
+    }
+
+    /**
+     * @param index the index of the argument, 0 for the command name
+     * @return the argument decoded as UTF-8, for display: binary values do not survive it
+     */
+    public String arg(int index) {
+        return new String(args.get(index), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,333 @@
+package top.lihuu.redis4j.trace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import top.lihuu.redis4j.Redis;
+import top.lihuu.redis4j.client.RedisConnection;
+import top.lihuu.redis4j.client.RedisErrorException;
+import top.lihuu.redis4j.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a trace recorded by {@link CommandCapture} against a server, at the recorded speed, a
+ * multiple of it or a fixed rate.
+ *
+ * <p>Commands are spread over a number of connections, each served by its own virtual thread.
+ * All commands of one recorded client go to the same connection, so their order is preserved. A
+ * command is sent when it is due; if its connection is still busy with earlier commands it is sent
+ * late, and its latency is measured from when it was due, not from when it was sent.
+ *
+ * <pre>
+ * ReplayResult result = TraceReplayer.newBuilder()
+ *         .setTraceFile(trace)
+ *         .setConnections(16)
+ *         .setSpeed(ReplaySpeed.multiplier(4))
+ *         .build()
+ *         .replay(redis);
+ * </pre>
+ */
+public final class TraceReplayer {
+
+    private static final Logger logger = LoggerFactory.getLogger(TraceReplayer.class);
+
+    /**
+     * Commands that would change the state of the connection in a way the replay cannot follow,
+     * or stop the server.
+     */
+    private static final Set<String> NOT_REPLAYED = Set.of(
+            "SELECT", "MONITOR", "SUBSCRIBE", "PSUBSCRIBE", "SSUBSCRIBE", "QUIT", "RESET", "SHUTDOWN");
+
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private final Path traceFile;
+    private final int connections;
+    private final ReplaySpeed speed;
+
+    private TraceReplayer(Builder builder) {
+        this.traceFile = builder.traceFile;
+        this.connections = builder.connections;
+        this.speed = builder.speed;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Replays the trace against the given server and waits until all commands are answered.
+     *
+     * @param redis the server
+     * @return the result
+     * @throws IOException if the trace cannot be read or a connection fails
+     */
+    public ReplayResult replay(Redis redis) throws IOException {
+        return replay("127.0.0.1", redis.getPort());
+    }
+
+    /**
+     * Replays the trace against the given server and waits until all commands are answered. Error
+     * replies are counted, they do not stop the replay.
+     *
+     * @param host the host
+     * @param port the port
+     * @return the result
+     * @throws IOException if the trace cannot be read or a connection fails
+     */
+    public ReplayResult replay(String host, int port) throws IOException {
+        List<Lane> lanes = new ArrayList<>(connections);
+        try {
+            for (int i = 0; i < connections; i++) {
+                lanes.add(new Lane(RedisConnection.open(host, port)));
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < lanes.size(); i++) {
+                lanes.get(i).start(start, i);
+            }
+            long skipped;
+            try {
+                skipped = dispatch(lanes);
+            } finally {
+                for (Lane lane : lanes) {
+                    lane.finish();
+                }
+            }
+            for (Lane lane : lanes) {
+                lane.join();
+            }
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            return merge(lanes, skipped, elapsed);
+        } finally {
+            for (Lane lane : lanes) {
+                lane.connection.close();
+            }
+        }
+    }
+
+    private long dispatch(List<Lane> lanes) throws IOException {
+        long skipped = 0;
+        long index = 0;
+        long firstMicros = -1;
+        try (TraceReader reader = new TraceReader(traceFile)) {
+            TraceRecord record;
+            while ((record = reader.next()) != null) {
+                if (record.type() != TraceRecord.Type.COMMAND) {
+                    continue;
+                }
+                if (NOT_REPLAYED.contains(record.arg(0).toUpperCase(Locale.ROOT))) {
+                    skipped++;
+                    continue;
+                }
+                if (firstMicros < 0) {
+                    firstMicros = record.timestampMicros();
+                }
+                long due = speed.dueNanos(index++, record.timestampMicros() - firstMicros);
+                Lane lane = lanes.get(Math.floorMod(record.client().hashCode(), lanes.size()));
+                if (lane.failure != null) {
+                    throw lane.failure;
+                }
+                lane.submit(new Command(due, record.db(), record.args().toArray(new byte[0][])));
+            }
+        }
+        return skipped;
+    }
+
+    private ReplayResult merge(List<Lane> lanes, long skipped, Duration elapsed) throws IOException {
+        long commands = 0;
+        long errors = 0;
+        LatencyHistogram latency = new LatencyHistogram();
+        LatencyHistogram serviceTime = new LatencyHistogram();
+        long[] timeline = new long[0];
+        for (Lane lane : lanes) {
+            if (lane.failure != null) {
+                throw lane.failure;
+            }
+            commands += lane.commands;
+            errors += lane.errors;
+            latency.add(lane.latency);
+            serviceTime.add(lane.serviceTime);
+            if (lane.timeline.length > timeline.length) {
+                timeline = Arrays.copyOf(timeline, lane.timeline.length);
+            }
+            for (int second = 0; second < lane.timeline.length; second++) {
+                timeline[second] += lane.timeline[second];
+            }
+        }
+        int seconds = timeline.length;
+        while (seconds > 0 && timeline[seconds - 1] == 0) {
+            seconds--;
+        }
+        ReplayResult result = new ReplayResult(commands, errors, skipped, elapsed, latency, serviceTime,
+                Arrays.copyOf(timeline, seconds));
+        logger.info("Replayed {} at {}: {}", traceFile, speed, result);
+        return result;
+    }
+
+    private record Command(long dueNanos, int db, byte[][] args) {
+    }
+
+    private static final Command END = new Command(0, 0, new byte[0][]);
+
+    /**
+     * One connection and the thread sending its commands. The counters are only touched by that
+     * thread and read after it has been joined.
+     */
+    private static final class Lane {
+
+        private final RedisConnection connection;
+        private final BlockingQueue<Command> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram serviceTime = new LatencyHistogram();
+        private long[] timeline = new long[16];
+        private long commands;
+        private long errors;
+        private int db;
+        private Thread thread;
+        private volatile IOException failure;
+
+        Lane(RedisConnection connection) {
+            this.connection = connection;
+        }
+
+        void start(long start, int number) {
+            thread = Thread.ofVirtual().name("redis4j-replay-" + number).start(() -> run(start));
+        }
+
+        void submit(Command command) throws IOException {
+            try {
+                // blocks when the lane is behind, the dispatcher has no reason to read further ahead
+                while (!queue.offer(command, 100, TimeUnit.MILLISECONDS)) {
+                    if (failure != null) {
+                        throw failure;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while replaying", e);
+            }
+        }
+
+        void finish() {
+            if (thread != null) {
+                // a failed lane clears its queue and stops taking, END is not needed then
+                while (failure == null && !queue.offer(END)) {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+
+        void join() throws IOException {
+            if (thread == null) {
+                return;
+            }
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while replaying", e);
+            }
+        }
+
+        private void run(long start) {
+            try {
+                Command command;
+                while ((command = queue.take()) != END) {
+                    send(start, command);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                failure = e;
+                queue.clear();
+            }
+        }
+
+        private void send(long start, Command command) throws IOException {
+            if (command.db != db) {
+                connection.execute("SELECT", Integer.toString(command.db));
+                db = command.db;
+            }
+            long due = start + command.dueNanos;
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            long sent = System.nanoTime();
+            try {
+                connection.send(command.args);
+                connection.flush();
+                connection.discardReply();
+            } catch (RedisErrorException e) {
+                errors++;
+            }
+            long done = System.nanoTime();
+            latency.recordValue(done - due);
+            serviceTime.recordValue(done - sent);
+            commands++;
+            int second = (int) ((done - start) / 1_000_000_000L);
+            if (second >= timeline.length) {
+                timeline = Arrays.copyOf(timeline, Math.max(second + 1, timeline.length * 2));
+            }
+            timeline[second]++;
+        }
+    }
+
+    public static final class Builder {
+
+        private Path traceFile;
+        private int connections = 8;
+        private ReplaySpeed speed = ReplaySpeed.asRecorded();
+
+        private Builder() {
+        }
+
+        /**
+         * @param traceFile a trace written by {@link CommandCapture} or {@link TraceWriter}
+         * @return this
+         */
+        public Builder setTraceFile(Path traceFile) {
+            this.traceFile = traceFile;
+            return this;
+        }
+
+        /**
+         * @param connections the number of connections to spread the recorded clients over,
+         *                    default 8
+         * @return this
+         */
+        public Builder setConnections(int connections) {
+            if (connections < 1) {
+                throw new IllegalArgumentException("connections must be at least 1: " + connections);
+            }
+            this.connections = connections;
+            return this;
+        }
+
+        /**
+         * @param speed the speed, default {@link ReplaySpeed#asRecorded()}
+         * @return this
+         */
+        public Builder setSpeed(ReplaySpeed speed) {
+            this.speed = speed;
+            return this;
+        }
+
+        public TraceReplayer build() {
+            if (traceFile == null) {
+                throw new IllegalStateException("No trace file set");
+            }
+            return new TraceReplayer(this);
+        }
+    }
+}
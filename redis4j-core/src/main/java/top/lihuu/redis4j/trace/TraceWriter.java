@@ -0,0 +1,142 @@
+package top.lihuu.redis4j.trace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Appends {@link TraceRecord}s to a binary trace file, not thread safe.
+ *
+ * <p>The file starts with {@link TraceFormat#MAGIC} and a version, followed by blocks. A block is
+ * {@code int rawLength, int compressedLength} and that many deflated bytes. Records are collected
+ * in a block until it reaches {@link TraceFormat#BLOCK_SIZE} bytes, then the block is compressed
+ * and written with a single {@link FileChannel#write(ByteBuffer)}. The format is append only, a
+ * file whose writer crashed is readable up to its last complete block.
+ */
+public class TraceWriter implements Closeable {
+
+    private final FileChannel channel;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final ByteBuffer block = ByteBuffer.allocate(TraceFormat.MAX_BLOCK_SIZE);
+    private final byte[] compressed = new byte[TraceFormat.MAX_BLOCK_SIZE + TraceFormat.MAX_BLOCK_SIZE / 1000 + 64];
+    private long records;
+    private long bytesWritten;
+
+    /**
+     * Creates the file, or appends to it if it already is a trace file. A block left incomplete by
+     * a crashed writer is cut off before appending.
+     *
+     * @param file the trace file
+     * @throws IOException if the file cannot be opened, or is not a trace file
+     */
+    public TraceWriter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        try {
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(TraceFormat.HEADER_SIZE);
+                header.put(TraceFormat.MAGIC).putShort(TraceFormat.VERSION).flip();
+                write(header);
+            } else {
+                TraceFormat.readHeader(channel);
+                channel.truncate(TraceFormat.endOfLastCompleteBlock(channel));
+                channel.position(channel.size());
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Adds a record to the current block, writing the block if it is full.
+     *
+     * @param record the record
+     * @throws IllegalArgumentException if the record is larger than {@link
+     *                                  TraceFormat#MAX_RECORD_SIZE}, nothing is added
+     * @throws IOException              if writing failed
+     */
+    public void write(TraceRecord record) throws IOException {
+        byte[] client = record.client().getBytes(StandardCharsets.UTF_8);
+        List<byte[]> args = record.args();
+        long size = 1 + Long.BYTES + 3 * Integer.BYTES + client.length;
+        for (byte[] arg : args) {
+            size += Integer.BYTES + arg.length;
+        }
+        if (size > TraceFormat.MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException(
+                    "Trace record of " + size + " bytes exceeds " + TraceFormat.MAX_RECORD_SIZE);
+        }
+        if (block.position() + size > block.capacity()) {
+            flush();
+        }
+
+        block.put((byte) record.type().ordinal());
+        block.putLong(record.timestampMicros());
+        block.putInt(record.db());
+        block.putInt(client.length).put(client);
+        block.putInt(args.size());
+        for (byte[] arg : args) {
+            block.putInt(arg.length).put(arg);
+        }
+        records++;
+        if (block.position() >= TraceFormat.BLOCK_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Compresses and writes the current block, even if it is not full.
+     *
+     * @throws IOException if writing failed
+     */
+    public void flush() throws IOException {
+        if (block.position() == 0) {
+            return;
+        }
+        deflater.reset();
+        deflater.setInput(block.array(), 0, block.position());
+        deflater.finish();
+        int length = deflater.deflate(compressed);
+        if (!deflater.finished()) {
+            throw new IOException("Compressed trace block does not fit its buffer");
+        }
+        ByteBuffer out = ByteBuffer.allocate(2 * Integer.BYTES + length);
+        out.putInt(block.position()).putInt(length).put(compressed, 0, length).flip();
+        write(out);
+        block.clear();
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * @return bytes written to the file by this writer, after compression
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            channel.force(false);
+        } finally {
+            deflater.end();
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package top.lihuu.redis4j;
+
+import ch.vorburger.exec.ManagedProcessException;
+import org.junit.jupiter.api.Test;
+import top.lihuu.redis4j.client.RedisConnection;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FaultInjectionTest {
+
+    @Test
+    public void should_pause_and_slow_down_the_server() throws Exception {
+        RedisConfiguration config = RedisConfigurationBuilder.newBuilder()
+                .addArg("--enable-debug-command")
+                .addArg("local")
+                .build();
+        try (Redis db = Redis.newEmbeddedRedis(config)) {
+            db.start();
+            try (RedisConnection connection = db.openConnection()) {
+                connection.execute("SET", "hello", "world");
+            }
+
+            FaultTiming pause = db.pause(Duration.ofMillis(300));
+            assertEquals(FaultTiming.Fault.PAUSE, pause.getFault());
+            assertTrue(pause.getDuration().toMillis() >= 300, pause.toString());
+            assertTrue(pause.getUnavailableTime().compareTo(pause.getDuration()) >= 0, pause.toString());
+
+            FaultTiming slowdown = db.slowdown(Duration.ofMillis(300));
+            assertTrue(slowdown.getDuration().toMillis() >= 300, slowdown.toString());
+            assertNull(slowdown.getRecoveryTime());
+            // a probe sent during the sleep waited, at most for all of it
+            assertTrue(slowdown.getUnavailableTime().toMillis() >= 100, slowdown.toString());
+            assertTrue(slowdown.getUnavailableTime().compareTo(slowdown.getDuration()) <= 0, slowdown.toString());
+
+            try (RedisConnection connection = db.openConnection()) {
+                assertEquals("world", connection.execute("GET", "hello"));
+            }
+        }
+    }
+
+    @Test
+    public void should_reload_persisted_data_when_restarted_after_a_crash() throws Exception {
+        RedisConfiguration config = RedisConfigurationBuilder.newBuilder()
+                .addArg("--appendonly")
+                .addArg("yes")
+                .addArg("--appendfsync")
+                .addArg("always")
+                .build();
+        try (Redis db = Redis.newEmbeddedRedis(config)) {
+            db.start();
+            try (RedisConnection connection = db.openConnection()) {
+                List<String[]> commands = new ArrayList<>();
+                for (int i = 0; i < 1000; i++) {
+                    commands.add(new String[]{"SET", "key:" + i, "value " + i});
+                }
+                connection.pipeline(commands);
+            }
+            assertThrows(ManagedProcessException.class, db::restart);
+
+            FaultTiming crash = db.crash();
+            assertEquals(FaultTiming.Fault.CRASH, crash.getFault());
+            assertNull(crash.getUnavailableTime());
+            assertThrows(IOException.class, db::openConnection);
+
+            FaultTiming restart = db.restart();
+            assertEquals(1000, restart.getKeys());
+            assertNotNull(restart.getUnavailableTime());
+            assertTrue(restart.getUnavailableTime().compareTo(restart.getDuration()) >= 0, restart.toString());
+            try (RedisConnection connection = db.openConnection()) {
+                assertEquals("value 999", connection.execute("GET", "key:999"));
+            }
+
+            db.stop();
+            assertNull(db.restart().getUnavailableTime());
+        }
+    }
+}
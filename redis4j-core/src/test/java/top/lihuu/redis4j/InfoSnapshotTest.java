@@ -0,0 +1,27 @@
+package top.lihuu.redis4j;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class InfoSnapshotTest {
+
+    @Test
+    public void should_find_sections_whatever_the_default_locale() {
+        Locale locale = Locale.getDefault();
+        // in Turkish, "I" lower cases to a dotless i, e.g. in the upper case sections of modules
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            InfoSnapshot info = InfoSnapshot.parse("# Server\r\nredis_version:7.0.15\r\n\r\n# Keyspace\r\n"
+                    + "db0:keys=3,expires=0,avg_ttl=0\r\n# SEARCH_INDEXES\r\nsearch_number_of_indexes:2\r\n");
+            assertEquals("7.0.15", info.section("server").get("redis_version"));
+            assertEquals(Map.of(0, 3L), info.keyspace());
+            assertEquals("2", info.section("search_indexes").get("search_number_of_indexes"));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+}
@@ -1,11 +1,32 @@
 package top.lihuu.redis4j;
 
+import ch.vorburger.exec.ManagedProcessException;
+import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import top.lihuu.redis4j.client.PubSubMessage;
+import top.lihuu.redis4j.client.PubSubSubscription;
+import top.lihuu.redis4j.client.RedisConnection;
+import top.lihuu.redis4j.client.SubscriptionOptions;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -29,6 +50,18 @@ public class RedisTest {
         }
     }
 
+    @Test
+    public void should_complete_on_exit_when_stopped() throws Exception {
+        try (Redis db = Redis.newEmbeddedRedis()) {
+            Assertions.assertThrows(IllegalStateException.class, db::onExit);
+            db.start();
+            CompletableFuture<Integer> exit = db.onExit();
+            Assertions.assertFalse(exit.isDone());
+            db.stop();
+            Assertions.assertNotNull(exit.get(10, TimeUnit.SECONDS));
+        }
+    }
+
     @Test
     public void should_run_redis_command_successfully() {
         try (Redis db = Redis.newEmbeddedRedis()) {
@@ -63,9 +96,223 @@ public class RedisTest {
             result = db.runCommand("CONFIG GET dbfilename");
             System.out.println("The result of CONFIG GET dbfilename is: " + result);
             assertEquals("world\n", db.runCommand("GET hello"));
+            Assertions.assertNotNull(db.getDatasetLoadTime());
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    public void should_run_with_multi_part_aof_fixture_successfully(@TempDir Path tempDir) throws Exception {
+        File fixture = tempDir.resolve("appendonlydir").toFile();
+        RedisConfiguration writer = RedisConfigurationBuilder.newBuilder()
+                .addArg("--appendonly")
+                .addArg("yes")
+                .build();
+        try (Redis db = Redis.newEmbeddedRedis(writer)) {
+            db.start();
+            db.runCommand("SET base value");
+            Instant since = Instant.now();
+            db.runCommand("BGREWRITEAOF");
+            Assertions.assertTrue(db.getServerLog()
+                    .awaitEvent(ServerLogEvent.Type.BACKGROUND_SAVE_TERMINATED, since, Duration.ofSeconds(10))
+                    .isPresent());
+            db.runCommand("SET incr value");
+            File dir = new File(db.configGet("dir"));
+            db.stop();
+            FileUtils.copyDirectory(new File(dir, "appendonlydir"), fixture);
+        }
+
+        RedisConfiguration config = RedisConfigurationBuilder.newBuilder()
+                .setInitAofFile(fixture)
+                .build();
+        try (Redis db = Redis.newEmbeddedRedis(config)) {
+            db.start();
+            assertEquals("yes", db.configGet("appendonly"));
+            assertEquals("value\n", db.runCommand("GET base"));
+            assertEquals("value\n", db.runCommand("GET incr"));
+            Assertions.assertNotNull(db.getDatasetLoadTime());
+        }
+    }
+
+    @Test
+    public void should_run_with_single_aof_file_successfully(@TempDir Path tempDir) throws Exception {
+        Path aof = Files.writeString(tempDir.resolve("fixture.aof"),
+                "*3\r\n$3\r\nSET\r\n$5\r\nhello\r\n$3\r\naof\r\n", StandardCharsets.US_ASCII);
+        RedisConfiguration config = RedisConfigurationBuilder.newBuilder()
+                .setInitAofFile(aof.toFile())
+                .build();
+        try (Redis db = Redis.newEmbeddedRedis(config)) {
+            db.start();
+            assertEquals("aof\n", db.runCommand("GET hello"));
+        }
+
+        Path invalid = Files.writeString(tempDir.resolve("invalid.aof"), "SET hello aof\n");
+        Assertions.assertThrows(ManagedProcessException.class, () -> Redis.newEmbeddedRedis(
+                RedisConfigurationBuilder.newBuilder().setInitAofFile(invalid.toFile()).build()));
+    }
+
+    @Test
+    public void should_reconfigure_at_runtime_successfully() {
+        try (Redis db = Redis.newEmbeddedRedis()) {
+            db.start();
+            TuningStep first = db.reconfigure(ConfigChange.hz(50),
+                    ConfigChange.maxmemoryPolicy(ConfigChange.MaxMemoryPolicy.ALLKEYS_LFU));
+            assertEquals("50", db.configGet("hz"));
+            assertEquals("allkeys-lfu", db.configGet("maxmemory-policy"));
+            Assertions.assertNull(first.getBefore());
+
+            db.runCommand("SET HELLO world");
+            TuningStep second = db.reconfigure(ConfigChange.lazyfreeLazyEviction(true));
+            Assertions.assertNotNull(second.getBefore());
+            Assertions.assertTrue(second.getBefore().getCommandsProcessed() > 0);
+            Assertions.assertNotNull(second.measure());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void should_report_background_save_events() throws InterruptedException {
+        try (Redis db = Redis.newEmbeddedRedis()) {
+            db.start();
+            Assertions.assertTrue(db.getServerLog().lastEvent(ServerLogEvent.Type.READY).isPresent());
+
+            Instant since = Instant.now();
+            db.runCommand("BGSAVE");
+            Assertions.assertTrue(db.getServerLog()
+                    .awaitEvent(ServerLogEvent.Type.BACKGROUND_SAVE_TERMINATED, since, Duration.ofSeconds(10))
+                    .isPresent());
+            Assertions.assertFalse(db.getServerLog().getLines().isEmpty());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void should_stream_keyspace_notifications() throws Exception {
+        try (Redis db = Redis.newEmbeddedRedis()) {
+            db.start();
+            db.setKeyspaceNotifications("KEA");
+            SubscriptionOptions options = SubscriptionOptions.newBuilder()
+                    .addKeyspacePattern(0, "user:*")
+                    .setBufferSize(16)
+                    .build();
+            try (PubSubSubscription subscription = db.subscribe(options)) {
+                BlockingQueue<PubSubMessage> received = new LinkedBlockingQueue<>();
+                subscription.subscribe(new Flow.Subscriber<>() {
+                    @Override
+                    public void onSubscribe(Flow.Subscription s) {
+                        s.request(Long.MAX_VALUE);
+                    }
+
+                    @Override
+                    public void onNext(PubSubMessage item) {
+                        received.add(item);
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                    }
+
+                    @Override
+                    public void onComplete() {
+                    }
+                });
+                try (RedisConnection connection = db.openConnection()) {
+                    assertEquals("OK", connection.execute("SET", "user:1", "alice"));
+                }
+                PubSubMessage message = received.poll(10, TimeUnit.SECONDS);
+                Assertions.assertNotNull(message);
+                assertEquals("__keyspace@0__:user:1", message.channel());
+                assertEquals("set", message.payload());
+                assertEquals(1, subscription.getReceived());
+            }
+        }
+    }
+
+
+    @Test
+    public void should_clone_a_seeded_template() throws Exception {
+        try (Redis template = Redis.newEmbeddedRedis(); Redis clone = Redis.newEmbeddedRedis()) {
+            template.start();
+            clone.start();
+            try (RedisConnection connection = template.openConnection()) {
+                List<String[]> commands = new ArrayList<>();
+                for (int i = 0; i < 10_000; i++) {
+                    commands.add(new String[]{"SET", "key:" + i, "value-" + i});
+                }
+                connection.pipeline(commands);
+            }
+            String syncDelay = template.configGet("repl-diskless-sync-delay");
+
+            CloneStatistics statistics = clone.cloneFrom(template);
+            assertEquals(10_000, statistics.getKeys());
+            Assertions.assertTrue(statistics.getBytesTransferred() > 10_000 * 10, statistics.toString());
+            try (RedisConnection connection = clone.openConnection()) {
+                assertEquals("value-42", connection.execute("GET", "key:42"));
+                assertEquals("OK", connection.execute("SET", "key:42", "changed"));
+                assertEquals("master", InfoSnapshot.parse((String) connection.execute("INFO", "replication"))
+                        .get("role"));
+            }
+            try (RedisConnection connection = template.openConnection()) {
+                assertEquals("value-42", connection.execute("GET", "key:42"));
+            }
+            assertEquals(syncDelay, template.configGet("repl-diskless-sync-delay"));
+            assertEquals("disabled", clone.configGet("repl-diskless-load"));
+        }
+    }
+
+    @Test
+    public void should_reuse_a_server_left_running() throws Exception {
+        // a unique argument, so that servers left running by other builds are not adopted
+        String maxmemory = ThreadLocalRandom.current().nextInt(100, 1_000_000) + "mb";
+        Supplier<RedisConfiguration> config = () -> RedisConfigurationBuilder.newBuilder()
+                .setReusable(true)
+                .setReuseIdleTimeout(Duration.ofSeconds(1))
+                .addArg("--maxmemory")
+                .addArg(maxmemory)
+                .build();
+        Redis first = Redis.newEmbeddedRedis(config.get());
+        first.start();
+        Assertions.assertFalse(first.isReused());
+        first.runCommand("SET HELLO world");
+        long pid = first.info("server").getLong("process_id", 0);
+        first.stop();
+
+        int third;
+        try (Redis second = Redis.newEmbeddedRedis(config.get())) {
+            second.start();
+            Assertions.assertTrue(second.isReused());
+            assertEquals(first.getPort(), second.getPort());
+            assertEquals(pid, second.info("server").getLong("process_id", 0));
+            try (RedisConnection connection = second.openConnection()) {
+                Assertions.assertNull(connection.execute("GET", "HELLO"));
+            }
+
+            // leased by the second instance, so a new server is started
+            try (Redis other = Redis.newEmbeddedRedis(config.get())) {
+                other.start();
+                Assertions.assertFalse(other.isReused());
+                third = other.getPort();
+            }
+        }
+
+        // both shut down by their watchdog once idle
+        for (int port : new int[]{first.getPort(), third}) {
+            Instant deadline = Instant.now().plusSeconds(30);
+            while (isListening(port)) {
+                Assertions.assertTrue(Instant.now().isBefore(deadline), "still running on port " + port);
+                Thread.sleep(200);
+            }
+        }
+    }
+
+    private static boolean isListening(int port) {
+        try (RedisConnection connection = RedisConnection.open("127.0.0.1", port)) {
+            return "PONG".equals(connection.execute("PING"));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
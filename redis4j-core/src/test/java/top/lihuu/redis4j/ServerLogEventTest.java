@@ -0,0 +1,54 @@
+package top.lihuu.redis4j;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ServerLogEventTest {
+
+    @Test
+    public void should_parse_known_server_log_lines() {
+        Instant now = Instant.now();
+        ServerLogEvent loaded = ServerLogEvent.parse(
+                "1345:M 18 Oct 2026 19:41:21.163 * DB loaded from disk: 0.250 seconds", now);
+        assertEquals(ServerLogEvent.Type.DB_LOADED, loaded.type());
+        assertEquals(0.25, loaded.value());
+
+        ServerLogEvent started = ServerLogEvent.parse(
+                "1345:M 18 Oct 2026 19:41:22.001 * Background saving started by pid 1400", now);
+        assertEquals(ServerLogEvent.Type.BACKGROUND_SAVE_STARTED, started.type());
+        assertEquals(1400, started.value());
+
+        ServerLogEvent cow = ServerLogEvent.parse(
+                "1345:M 18 Oct 2026 19:41:22.101 * Fork CoW for RDB: current 3 MB, peak 3 MB, average 2 MB", now);
+        assertEquals(ServerLogEvent.Type.FORK_COPY_ON_WRITE, cow.type());
+        assertEquals(3, cow.value());
+
+        assertEquals(ServerLogEvent.Type.BACKGROUND_SAVE_TERMINATED, ServerLogEvent.parse(
+                "1345:M 18 Oct 2026 19:41:22.102 * Background saving terminated with success", now).type());
+        assertNull(ServerLogEvent.parse("1345:M 18 Oct 2026 19:41:21.163 * Server initialized", now));
+        assertNull(ServerLogEvent.parse("not a log line", now));
+    }
+
+    @Test
+    public void should_deliver_pending_events_when_the_log_is_closed() throws Exception {
+        ServerLog log = new ServerLog("test", 10);
+        List<ServerLogEvent.Type> delivered = new CopyOnWriteArrayList<>();
+        log.subscribe(event -> delivered.add(event.type()));
+        log.append("1345:M 18 Oct 2026 19:41:21.163 * DB loaded from disk: 0.250 seconds");
+        log.close();
+        assertEquals(List.of(ServerLogEvent.Type.DB_LOADED), delivered);
+
+        // a restarted server logs again
+        log.append("1345:M 18 Oct 2026 19:41:22.102 * Background saving terminated with success");
+        log.close();
+        assertEquals(List.of(ServerLogEvent.Type.DB_LOADED, ServerLogEvent.Type.BACKGROUND_SAVE_TERMINATED),
+                delivered);
+        assertEquals(2, log.getLines().size());
+    }
+}
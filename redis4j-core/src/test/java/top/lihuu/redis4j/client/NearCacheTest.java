@@ -0,0 +1,53 @@
+package top.lihuu.redis4j.client;
+
+import org.junit.jupiter.api.Test;
+import top.lihuu.redis4j.Redis;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NearCacheTest {
+
+    @Test
+    public void should_cache_until_invalidated() throws IOException, InterruptedException {
+        try (Redis db = Redis.newEmbeddedRedis()) {
+            db.start();
+            try (NearCache cache = db.openNearCache(2);
+                 RedisConnection writer = db.openConnection()) {
+                writer.execute("SET", "a", "1");
+                assertEquals("1", cache.get("a"));
+                assertEquals("1", cache.get("a"));
+                assertNull(cache.get("missing"));
+                assertNull(cache.get("missing"));
+                assertEquals(2, cache.getHits());
+                assertEquals(2, cache.getMisses());
+
+                writer.execute("SET", "a", "2");
+                awaitInvalidations(cache, 1);
+                assertEquals("2", cache.get("a"));
+                assertEquals(3, cache.getMisses());
+
+                cache.set("b", "3");
+                assertEquals("3", cache.get("b"));
+                assertEquals(1, cache.getEvictions());
+                assertEquals(2, cache.size());
+
+                writer.execute("FLUSHALL");
+                awaitInvalidations(cache, 3);
+                assertEquals(0, cache.size());
+                assertTrue(cache.getHitRatio() > 0);
+            }
+        }
+    }
+
+    private static void awaitInvalidations(NearCache cache, long count) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (cache.getInvalidations() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, cache.getInvalidations());
+    }
+}
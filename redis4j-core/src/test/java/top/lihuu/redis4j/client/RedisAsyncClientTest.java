@@ -0,0 +1,77 @@
+package top.lihuu.redis4j.client;
+
+import org.junit.jupiter.api.Test;
+import top.lihuu.redis4j.Redis;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RedisAsyncClientTest {
+
+    @Test
+    public void should_pipeline_commands_of_many_callers() throws Exception {
+        try (Redis db = Redis.newEmbeddedRedis()) {
+            db.start();
+            try (RedisAsyncClient client = db.openAsyncClient(3);
+                 ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<CompletableFuture<Object>> gets = new ArrayList<>();
+                for (int caller = 0; caller < 100; caller++) {
+                    int id = caller;
+                    callers.submit(() -> {
+                        for (int i = 0; i < 1000; i++) {
+                            client.execute("INCR", "counter");
+                        }
+                        client.execute("SET", "caller:" + id, "value " + id).join();
+                    });
+                }
+                callers.shutdown();
+                callers.awaitTermination(1, TimeUnit.MINUTES);
+                for (int caller = 0; caller < 100; caller++) {
+                    gets.add(client.execute("GET", "caller:" + caller));
+                }
+                for (int caller = 0; caller < 100; caller++) {
+                    assertEquals("value " + caller, gets.get(caller).get());
+                }
+                assertEquals("100000", client.execute("GET", "counter").get());
+                assertTrue(client.getWrites() < client.getCommands(),
+                        client.getWrites() + " writes for " + client.getCommands() + " commands");
+
+                String large = "v".repeat(200_000);
+                client.execute("SET", "large", large).join();
+                assertTrue(large.equals(client.execute("GET", "large").get()));
+                assertEquals(List.of("v".repeat(200_000), List.of()), client.execute("EVAL",
+                        "return {redis.call('GET', KEYS[1]), {}}", "1", "large").get());
+
+                ExecutionException error = assertThrows(ExecutionException.class,
+                        () -> client.execute("INCR", "large").get());
+                assertInstanceOf(RedisErrorException.class, error.getCause());
+                assertEquals(1L, client.execute("EXISTS", "large").get());
+            }
+        }
+    }
+
+    @Test
+    public void should_fail_pending_commands_on_close() throws IOException {
+        try (Redis db = Redis.newEmbeddedRedis()) {
+            db.start();
+            RedisAsyncClient client = db.openAsyncClient(1);
+            CompletableFuture<Object> blocked = client.execute("BLPOP", "nothing", "0");
+            client.close();
+            ExecutionException error = assertThrows(ExecutionException.class, blocked::get);
+            assertInstanceOf(ClosedChannelException.class, error.getCause());
+            assertTrue(client.execute("PING").isCompletedExceptionally());
+        }
+    }
+}
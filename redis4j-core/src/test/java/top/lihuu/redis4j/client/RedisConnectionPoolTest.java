@@ -0,0 +1,93 @@
+package top.lihuu.redis4j.client;
+
+import org.junit.jupiter.api.Test;
+import top.lihuu.redis4j.Redis;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RedisConnectionPoolTest {
+
+    @Test
+    public void should_share_connections_between_threads() throws Exception {
+        try (Redis db = Redis.newEmbeddedRedis()) {
+            db.start();
+            RedisConnectionPool pool = db.openConnectionPool(RedisConnectionPool.newBuilder().setMaxSize(2));
+            try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int caller = 0; caller < 20; caller++) {
+                    callers.submit(() -> {
+                        for (int i = 0; i < 50; i++) {
+                            try (PooledConnection connection = pool.lease()) {
+                                connection.execute("INCR", "counter");
+                            }
+                        }
+                        return null;
+                    });
+                }
+                callers.shutdown();
+                assertTrue(callers.awaitTermination(1, TimeUnit.MINUTES));
+            }
+            try (PooledConnection connection = pool.lease()) {
+                assertEquals("1000", connection.execute("GET", "counter"));
+            }
+            assertEquals(2, pool.getTotal());
+            assertEquals(0, pool.getActive());
+            assertEquals(1001, pool.getCommandCount());
+            assertEquals(1001, pool.getLeaseWaitTimes().getTotalCount());
+            assertEquals(1001, pool.getConnectionStats().stream().mapToLong(ConnectionStats::leases).sum());
+
+            db.stop();
+            assertThrows(ClosedChannelException.class, pool::lease);
+            assertEquals(0, pool.getTotal());
+        }
+    }
+
+    @Test
+    public void should_time_out_validate_and_evict() throws IOException, InterruptedException {
+        try (Redis db = Redis.newEmbeddedRedis()) {
+            db.start();
+            try (RedisConnectionPool pool = db.openConnectionPool(RedisConnectionPool.newBuilder()
+                    .setMinSize(1)
+                    .setMaxSize(2)
+                    .setLeaseTimeout(Duration.ofMillis(100))
+                    .setIdleTimeout(Duration.ofMillis(100))
+                    .setValidationInterval(Duration.ZERO))) {
+                PooledConnection first = pool.lease();
+                PooledConnection second = pool.lease();
+                assertThrows(IOException.class, pool::lease);
+                assertEquals(1, pool.getLeaseTimeouts());
+
+                int firstId = first.getId();
+                Object clientId = first.execute("CLIENT", "ID");
+                first.close();
+                second.close();
+                try (RedisConnection admin = db.openConnection()) {
+                    admin.execute("CLIENT", "KILL", "ID", clientId.toString());
+                }
+                // the most recently returned connection is second, take both to reach the killed one
+                PooledConnection a = pool.lease();
+                PooledConnection b = pool.lease();
+                assertNotEquals(firstId, a.getId());
+                assertNotEquals(firstId, b.getId());
+                assertEquals(1, pool.getDestroyed());
+                a.close();
+                b.close();
+
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (pool.getTotal() > 1 && System.nanoTime() < deadline) {
+                    Thread.sleep(20);
+                }
+                assertEquals(1, pool.getTotal());
+            }
+        }
+    }
+}
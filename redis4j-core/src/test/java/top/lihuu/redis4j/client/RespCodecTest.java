@@ -0,0 +1,158 @@
+package top.lihuu.redis4j.client;
+
+import org.junit.jupiter.api.Test;
+import top.lihuu.redis4j.Redis;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RespCodecTest {
+
+    @Test
+    public void should_encode_like_string_bytes() {
+        ByteBuffer out = ByteBuffer.allocate(256);
+        RespEncoder.writeArrayHeader(out, 3);
+        RespEncoder.writeBulkString(out, "SET");
+        RespEncoder.writeBulkString(out, "ké你😀\ud800");
+        RespEncoder.writeBulkString(out, Long.MIN_VALUE);
+        String expected = "*3\r\n$3\r\nSET\r\n$" + "ké你😀\ud800".getBytes(StandardCharsets.UTF_8).length
+                + "\r\nké你😀\ud800\r\n$20\r\n" + Long.MIN_VALUE + "\r\n";
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), bytes(out.flip()));
+
+        out.clear();
+        RespEncoder.writeDecimal(out, 0);
+        RespEncoder.writeDecimal(out, -7);
+        RespEncoder.writeDecimal(out, 1234567890123L);
+        assertEquals("0-71234567890123", new String(bytes(out.flip()), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void should_decode_incrementally_across_partial_input() throws IOException {
+        byte[] reply = "*3\r\n:-42\r\n$5\r\nhello\r\n*2\r\n$-1\r\n-ERR bad\r\n+OK\r\n".getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer in = ByteBuffer.allocate(reply.length).flip();
+        RespDecoder decoder = new RespDecoder();
+        List<String> tokens = new ArrayList<>();
+        for (byte b : reply) {
+            in.compact().put(b).flip();
+            RespType type;
+            while ((type = decoder.next(in)) != null) {
+                tokens.add(switch (type) {
+                    case INTEGER, ARRAY -> type + ":" + decoder.getValue();
+                    case NULL -> type.toString();
+                    default -> type + ":" + decoder.getString(in);
+                });
+                tokens.add(Boolean.toString(decoder.isReplyComplete()));
+            }
+        }
+        assertEquals(List.of("ARRAY:3", "false", "INTEGER:-42", "false", "BULK_STRING:hello", "false",
+                "ARRAY:2", "false", "NULL", "false", "ERROR:ERR bad", "true", "SIMPLE_STRING:OK", "true"), tokens);
+    }
+
+    @Test
+    public void should_decode_resp3_types() throws IOException {
+        byte[] reply = ("|1\r\n+ttl\r\n:3600\r\n%3\r\n+pi\r\n,3.14\r\n+big\r\n(3492890328409238509324850943850943825024385\r\n"
+                + "+flags\r\n~2\r\n#t\r\n_\r\n=15\r\ntxt:Some string\r\n").getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer in = ByteBuffer.wrap(reply);
+        RespDecoder decoder = new RespDecoder();
+        List<Object> tokens = new ArrayList<>();
+        RespType type;
+        while ((type = decoder.next(in)) != null) {
+            tokens.add(type.isAggregate() ? type + ":" + decoder.getValue() : decoder.scalarValue(in));
+            tokens.add(decoder.isReplyComplete());
+        }
+        assertEquals(List.of("ATTRIBUTE:1", false, "ttl", false, 3600L, false,
+                "MAP:3", false, "pi", false, 3.14, false, "big", false,
+                new BigInteger("3492890328409238509324850943850943825024385"), false,
+                "flags", false, "SET:2", false, true, false, "NULL", true,
+                "Some string", true), tokens.stream().map(t -> t == null ? "NULL" : t).toList());
+    }
+
+    @Test
+    public void should_read_resp3_replies() throws IOException {
+        try (Redis db = Redis.newEmbeddedRedis()) {
+            db.start();
+            try (RedisConnection connection = db.openConnection()) {
+                assertEquals(3L, connection.hello(3).get("proto"));
+                connection.execute("HSET", "hash", "a", "1", "b", "2");
+                assertEquals(Map.of("a", "1", "b", "2"), connection.execute("HGETALL", "hash"));
+                connection.execute("SADD", "set", "x", "y");
+                assertEquals(Set.of("x", "y"), connection.execute("SMEMBERS", "set"));
+                connection.execute("ZADD", "zset", "1.5", "m");
+                assertEquals(1.5, connection.execute("ZSCORE", "zset", "m"));
+            }
+            try (RedisAsyncClient client = RedisAsyncClient.newBuilder()
+                    .setPort(db.getPort())
+                    .setProtocol(3)
+                    .build()) {
+                assertEquals(Map.of("a", "1", "b", "2"), client.execute("HGETALL", "hash").join());
+            }
+        }
+    }
+
+    @Test
+    public void should_reuse_pooled_buffers() {
+        BufferPool pool = new BufferPool();
+        ByteBuffer buffer = pool.acquire(5000);
+        assertTrue(buffer.isDirect());
+        assertEquals(8192, buffer.capacity());
+        pool.release(buffer);
+        assertTrue(buffer == pool.acquire(8000));
+    }
+
+    @Test
+    public void should_exchange_values_larger_than_the_buffers() throws IOException {
+        String large = "你".repeat(100_000);
+        try (Redis db = Redis.newEmbeddedRedis()) {
+            db.start();
+            try (RedisConnection connection = db.openConnection()) {
+                assertEquals("OK", connection.execute("SET", "large", large));
+                assertEquals(large, connection.execute("GET", "large"));
+
+                connection.send("GET", "large");
+                connection.flush();
+                assertEquals(RespType.BULK_STRING, connection.readToken());
+                assertEquals(300_000, connection.getTokenContent().remaining());
+                assertTrue(connection.isReplyComplete());
+
+                byte[] binary = new byte[100_000];
+                Arrays.fill(binary, (byte) 0xff);
+                connection.send("SET".getBytes(StandardCharsets.US_ASCII),
+                        "binary".getBytes(StandardCharsets.US_ASCII), binary);
+                connection.flush();
+                assertEquals("OK", connection.readReply());
+                assertEquals(100_000L, connection.execute("STRLEN", "binary"));
+
+                connection.send("MGET", "large", "missing");
+                connection.flush();
+                assertEquals(RespType.ARRAY, connection.discardReply());
+                assertNull(connection.execute("GET", "missing"));
+
+                connection.setReadTimeout(100);
+                assertEquals(1L, connection.execute("EXISTS", "large"));
+                assertThrows(SocketTimeoutException.class, connection::readReply);
+                connection.close();
+                assertTrue(connection.isClosed());
+            }
+        }
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
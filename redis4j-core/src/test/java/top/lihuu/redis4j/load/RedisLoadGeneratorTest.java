@@ -0,0 +1,67 @@
+package top.lihuu.redis4j.load;
+
+import org.junit.jupiter.api.Test;
+import top.lihuu.redis4j.Redis;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RedisLoadGeneratorTest {
+
+    @Test
+    public void should_skew_zipfian_keys_towards_the_first() {
+        KeyDistribution zipfian = KeyDistribution.zipfian(10_000, 0.99);
+        SplittableRandom random = new SplittableRandom(42);
+        long[] counts = new long[10_000];
+        for (int i = 0; i < 100_000; i++) {
+            counts[(int) zipfian.next(random)]++;
+        }
+        long hottest = 0;
+        for (int i = 0; i < 100; i++) {
+            hottest += counts[i];
+        }
+        // the hottest 1% of the keys get well over a third of the traffic
+        assertTrue(hottest > 35_000, "hottest 1% got " + hottest);
+        assertTrue(counts[0] > counts[10] && counts[10] > counts[1000]);
+    }
+
+    @Test
+    public void should_run_closed_and_open_loop_load() throws IOException {
+        Workload workload = Workload.newBuilder()
+                .setKeyDistribution(KeyDistribution.uniform(1000))
+                .addValueSize(10, 9)
+                .addValueSize(1000, 1)
+                .setReadRatio(0.5)
+                .build();
+        try (Redis db = Redis.newEmbeddedRedis()) {
+            db.start();
+            LoadResult closed = RedisLoadGenerator.newBuilder()
+                    .setWorkload(workload)
+                    .setConnections(4)
+                    .setPreload(true)
+                    .setDuration(Duration.ofMillis(500))
+                    .setSeed(1)
+                    .build()
+                    .run(db);
+            assertTrue(closed.getReads() > 0 && closed.getWrites() > 0);
+            assertEquals(0, closed.getErrors());
+            assertEquals(closed.getOperations(), closed.getLatency().getTotalCount());
+            assertEquals("1000", db.runCommand("DBSIZE").trim());
+
+            LoadResult open = RedisLoadGenerator.newBuilder()
+                    .setWorkload(workload)
+                    .setConnections(4)
+                    .setOpenLoop(2000)
+                    .setWarmup(Duration.ofMillis(100))
+                    .setDuration(Duration.ofMillis(500))
+                    .build()
+                    .run(db);
+            // 2000/s over half a second, give or take the rounding of the schedule
+            assertTrue(Math.abs(open.getOperations() - 1000) <= 4, "operations " + open.getOperations());
+        }
+    }
+}
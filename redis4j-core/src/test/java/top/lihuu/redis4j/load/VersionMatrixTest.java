@@ -0,0 +1,43 @@
+package top.lihuu.redis4j.load;
+
+import org.junit.jupiter.api.Test;
+import top.lihuu.redis4j.RedisConfigurationBuilder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VersionMatrixTest {
+
+    @Test
+    public void should_find_the_bundled_versions() throws IOException {
+        List<String> versions = RedisConfigurationBuilder.newBuilder().findDatabaseVersions();
+        assertTrue(versions.contains("redis-8.0.2"), "found " + versions);
+        assertTrue(RedisConfigurationBuilder.newBuilder().setOS("no-such-os").findDatabaseVersions().isEmpty());
+    }
+
+    @Test
+    public void should_run_the_same_load_against_every_version() throws IOException {
+        VersionComparison comparison = VersionMatrix.newBuilder()
+                .setLoadGenerator(RedisLoadGenerator.newBuilder()
+                        .setWorkload(Workload.newBuilder().setKeyDistribution(KeyDistribution.uniform(1000)).build())
+                        .setConnections(2)
+                        .setPreload(true)
+                        .setDuration(Duration.ofMillis(300))
+                        .build())
+                .setConfiguration(builder -> builder.addArg("--save").addArg(""))
+                .build()
+                .run();
+        List<String> versions = RedisConfigurationBuilder.newBuilder().findDatabaseVersions();
+        assertEquals(versions.size(), comparison.getResults().size());
+        for (VersionResult result : comparison.getResults()) {
+            assertTrue(result.getLoad().getOperations() > 0);
+            assertEquals(0, result.getLoad().getErrors());
+            assertTrue(result.getUsedMemory() > 0 && result.getUsedMemoryPeak() >= result.getUsedMemory());
+            assertTrue(comparison.toTable().contains(result.getDatabaseVersion()));
+        }
+    }
+}
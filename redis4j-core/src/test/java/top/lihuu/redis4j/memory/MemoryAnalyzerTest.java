@@ -0,0 +1,114 @@
+package top.lihuu.redis4j.memory;
+
+import org.junit.jupiter.api.Test;
+import top.lihuu.redis4j.Redis;
+import top.lihuu.redis4j.client.RedisConnection;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MemoryAnalyzerTest {
+
+    @Test
+    public void should_replace_id_segments_in_key_patterns() {
+        MemoryAnalyzer analyzer = MemoryAnalyzer.newBuilder().setPatternDepth(3).build();
+        assertEquals("user:*:profile", analyzer.patternOf("user:1042:profile"));
+        assertEquals("session:*", analyzer.patternOf("session:" + UUID.randomUUID()));
+        assertEquals("cache:*", analyzer.patternOf("cache:deadbeef01"));
+        assertEquals("a:b:c:*", analyzer.patternOf("a:b:c:d:e"));
+        assertEquals("counter", analyzer.patternOf("counter"));
+        assertEquals("cache:beef", analyzer.patternOf("cache:beef"));
+    }
+
+    @Test
+    public void should_aggregate_memory_by_pattern_and_encoding() throws IOException {
+        try (Redis db = Redis.newEmbeddedRedis()) {
+            db.start();
+            try (RedisConnection connection = db.openConnection()) {
+                List<String[]> commands = new ArrayList<>();
+                for (int i = 0; i < 500; i++) {
+                    commands.add(new String[]{"HSET", "user:" + i + ":profile", "name", "user" + i, "age", "42"});
+                    commands.add(new String[]{"SET", "session:" + UUID.randomUUID(), "x".repeat(100)});
+                }
+                connection.pipeline(commands);
+                for (int i = 0; i < 1000; i++) {
+                    connection.execute("HSET", "user:0:history", "event-" + i, "value-" + i);
+                }
+            }
+
+            MemoryReport report = db.analyzeMemory(MemoryAnalyzer.newBuilder().setBigKeys(3));
+            assertEquals(1001, report.getScannedKeys());
+            assertEquals(1001, report.getSampledKeys());
+            KeyPatternStats profiles = find(report, "user:*:profile");
+            assertEquals("hash", profiles.type());
+            assertEquals(500, profiles.keys());
+            assertEquals(500L, profiles.encodings().get("listpack"));
+            KeyPatternStats sessions = find(report, "session:*");
+            assertEquals(500, sessions.keys());
+            assertTrue(sessions.averageBytes() > 100, "avg " + sessions.averageBytes());
+
+            BigKey biggest = report.getBigKeys().get(0);
+            assertEquals("user:0:history", biggest.key());
+            assertEquals("hashtable", biggest.encoding());
+            assertEquals(3, report.getBigKeys().size());
+            assertEquals(report.getSampledBytes(),
+                    report.getPatterns().stream().mapToLong(KeyPatternStats::bytes).sum());
+
+            StringWriter csv = new StringWriter();
+            report.writeCsv(csv);
+            String[] lines = csv.toString().split("\n");
+            assertEquals(4, lines.length);
+            assertTrue(lines[1].startsWith("session:*,string,500,"), lines[1]);
+            assertTrue(lines[3].startsWith("user:*:profile,hash,500,"), lines[3]);
+            assertTrue(lines[3].endsWith("listpack=500"), lines[3]);
+
+            MemoryReport sampled = db.analyzeMemory(MemoryAnalyzer.newBuilder().setSampleRatio(0.25));
+            assertEquals(1001, sampled.getScannedKeys());
+            assertTrue(sampled.getSampledKeys() > 150 && sampled.getSampledKeys() < 350,
+                    "sampled " + sampled.getSampledKeys());
+        }
+    }
+
+    @Test
+    public void should_count_patterns_beyond_the_limit_as_other() throws IOException {
+        try (Redis db = Redis.newEmbeddedRedis()) {
+            db.start();
+            try (RedisConnection connection = db.openConnection()) {
+                connection.execute("SET", "alpha:1", "v");
+                connection.execute("RPUSH", "alpha:2", "v");
+                connection.execute("SET", "beta:1", "v");
+                connection.execute("RPUSH", "beta:2", "v");
+            }
+
+            MemoryReport report = db.analyzeMemory(MemoryAnalyzer.newBuilder().setMaxPatterns(1));
+            // the pattern of the first key scanned is tracked, for both of its types, the other one
+            // is counted as other for both types
+            String tracked = report.getPatterns().stream()
+                    .map(KeyPatternStats::pattern)
+                    .filter(pattern -> !pattern.equals(MemoryAnalyzer.OTHER_PATTERN))
+                    .findFirst()
+                    .orElseThrow();
+            Map<String, Long> keys = new TreeMap<>();
+            for (KeyPatternStats stats : report.getPatterns()) {
+                keys.put(stats.pattern() + " " + stats.type(), stats.keys());
+            }
+            assertEquals(Map.of(tracked + " string", 1L, tracked + " list", 1L,
+                    MemoryAnalyzer.OTHER_PATTERN + " string", 1L, MemoryAnalyzer.OTHER_PATTERN + " list", 1L), keys);
+        }
+    }
+
+    private static KeyPatternStats find(MemoryReport report, String pattern) {
+        return report.getPatterns().stream()
+                .filter(stats -> stats.pattern().equals(pattern))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError(pattern + " not in " + report.getPatterns()));
+    }
+}
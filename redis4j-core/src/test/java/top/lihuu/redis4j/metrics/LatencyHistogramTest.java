@@ -0,0 +1,51 @@
+package top.lihuu.redis4j.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void should_report_percentiles_within_one_percent() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.recordValue(value * 1000);
+        }
+        assertEquals(100_000, histogram.getTotalCount());
+        assertEquals(1000, histogram.getMin());
+        assertEquals(100_000_000L, histogram.getMax());
+        assertWithinOnePercent(50_000_000L, histogram.getValueAtPercentile(50));
+        assertWithinOnePercent(99_000_000L, histogram.getValueAtPercentile(99));
+        assertWithinOnePercent(99_900_000L, histogram.getValueAtPercentile(99.9));
+        assertEquals(100_000_000L, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void should_map_every_value_to_a_bucket_containing_it() {
+        for (long value : new long[]{0, 1, 255, 256, 257, 1023, 1_000_000_007L, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(LatencyHistogram.lowestValueAt(index) <= value, "lowest of " + value);
+            assertTrue(LatencyHistogram.highestValueAt(index) >= value, "highest of " + value);
+        }
+    }
+
+    @Test
+    public void should_merge_and_correct_coordinated_omission() {
+        LatencyHistogram a = new LatencyHistogram();
+        a.recordValueWithExpectedInterval(10_000, 1000);
+        assertEquals(10, a.getTotalCount());
+
+        LatencyHistogram b = new LatencyHistogram();
+        b.recordValue(5);
+        b.add(a);
+        assertEquals(11, b.getTotalCount());
+        assertEquals(5, b.getMin());
+        assertEquals(10_000, b.getMax());
+    }
+
+    private static void assertWithinOnePercent(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 100, expected + " vs " + actual);
+    }
+}
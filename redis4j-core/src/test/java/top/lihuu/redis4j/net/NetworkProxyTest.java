@@ -0,0 +1,92 @@
+package top.lihuu.redis4j.net;
+
+import org.junit.jupiter.api.Test;
+import top.lihuu.redis4j.Redis;
+import top.lihuu.redis4j.client.RedisConnection;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NetworkProxyTest {
+
+    @Test
+    public void should_add_the_latency_to_every_round_trip() throws Exception {
+        try (Redis db = Redis.newEmbeddedRedis()) {
+            db.start();
+            NetworkConditions conditions = NetworkConditions.newBuilder()
+                    .setLatency(Duration.ofMillis(20))
+                    .setJitter(Duration.ofMillis(2))
+                    .setDistribution(DelayDistribution.NORMAL)
+                    .build();
+            try (NetworkProxy proxy = db.startProxy(conditions);
+                 RedisConnection connection = RedisConnection.open("127.0.0.1", proxy.getPort())) {
+                connection.execute("PING");
+                long start = System.nanoTime();
+                for (int i = 0; i < 5; i++) {
+                    assertEquals("PONG", connection.execute("PING"));
+                }
+                long roundTrip = (System.nanoTime() - start) / 5;
+                assertTrue(roundTrip > 30_000_000 && roundTrip < 200_000_000, "round trip " + roundTrip);
+
+                List<String[]> commands = new ArrayList<>();
+                for (int i = 0; i < 100; i++) {
+                    commands.add(new String[]{"SET", "key:" + i, "value " + i});
+                }
+                start = System.nanoTime();
+                connection.pipeline(commands);
+                long pipelined = System.nanoTime() - start;
+                assertTrue(pipelined < 5 * roundTrip, "100 pipelined commands took " + pipelined);
+                assertEquals("value 99", connection.execute("GET", "key:99"));
+
+                proxy.setConditions(NetworkConditions.none());
+                start = System.nanoTime();
+                connection.execute("PING");
+                assertTrue(System.nanoTime() - start < 20_000_000);
+                assertEquals(1, proxy.getConnections());
+                assertTrue(proxy.getUpstreamBytes() > 0 && proxy.getDownstreamBytes() > 0);
+            }
+        }
+    }
+
+    @Test
+    public void should_limit_the_bandwidth() throws Exception {
+        try (Redis db = Redis.newEmbeddedRedis()) {
+            db.start();
+            String value = "v".repeat(512 * 1024);
+            try (RedisConnection direct = db.openConnection()) {
+                direct.execute("SET", "large", value);
+            }
+            NetworkConditions conditions = NetworkConditions.newBuilder()
+                    .setBandwidth(1024 * 1024)
+                    .setBurst(64 * 1024)
+                    .build();
+            try (NetworkProxy proxy = db.startProxy(conditions);
+                 RedisConnection connection = RedisConnection.open("127.0.0.1", proxy.getPort())) {
+                long start = System.nanoTime();
+                assertEquals(value, connection.execute("GET", "large"));
+                long elapsed = System.nanoTime() - start;
+                // 448 KiB beyond the burst at 1 MiB/s
+                assertTrue(elapsed > 400_000_000 && elapsed < 2_000_000_000L, "took " + elapsed);
+            }
+        }
+    }
+
+    @Test
+    public void should_close_the_client_when_the_server_goes_away() throws Exception {
+        Redis db = Redis.newEmbeddedRedis();
+        db.start();
+        try (NetworkProxy proxy = db.startProxy(NetworkConditions.none());
+             RedisConnection connection = RedisConnection.open("127.0.0.1", proxy.getPort())) {
+            assertEquals("PONG", connection.execute("PING"));
+            db.stop();
+            connection.setReadTimeout(5000);
+            assertThrows(IOException.class, () -> connection.execute("PING"));
+        }
+    }
+}
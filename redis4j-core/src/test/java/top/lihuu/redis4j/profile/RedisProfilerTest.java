@@ -0,0 +1,96 @@
+package top.lihuu.redis4j.profile;
+
+import org.junit.jupiter.api.Test;
+import top.lihuu.redis4j.Redis;
+import top.lihuu.redis4j.client.RedisConnection;
+import top.lihuu.redis4j.client.RedisErrorException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RedisProfilerTest {
+
+    @Test
+    public void should_rank_commands_and_hot_keys() throws Exception {
+        try (Redis db = Redis.newEmbeddedRedis()) {
+            db.start();
+            ProfileReport report;
+            try (ProfilingSession session = db.startProfiling(RedisProfiler.newBuilder()
+                    .setHotKeys(true)
+                    .setResetStats(true)
+                    .setTopKeys(3));
+                 RedisConnection connection = db.openConnection()) {
+                assertEquals("allkeys-lfu", ((List<?>) connection.execute("CONFIG", "GET", "maxmemory-policy")).get(1));
+                List<String[]> commands = new ArrayList<>();
+                for (int i = 0; i < 100; i++) {
+                    commands.add(new String[]{"SET", "cold:" + i, "v"});
+                }
+                for (int i = 0; i < 2000; i++) {
+                    commands.add(new String[]{"GET", "hot"});
+                }
+                commands.add(new String[]{"SET", "hot", "v"});
+                for (int i = 0; i < 200; i++) {
+                    commands.add(new String[]{"GET", "warm"});
+                }
+                commands.add(new String[]{"SET", "warm", "v"});
+                for (int i = 0; i < 2000; i++) {
+                    commands.add(new String[]{"GET", "hot"});
+                }
+                for (int i = 0; i < 200; i++) {
+                    commands.add(new String[]{"GET", "warm"});
+                }
+                connection.pipeline(commands);
+                for (int i = 0; i < 5; i++) {
+                    connection.execute("KEYS", "*");
+                }
+                report = session.stop();
+            }
+
+            CommandCost get = find(report, "get");
+            assertEquals(4400, get.calls());
+            assertTrue(get.usec() > 0);
+            assertFalse(get.latencyPercentiles().isEmpty(), "percentiles " + get.latencyPercentiles());
+            assertEquals(102, find(report, "set").calls());
+            assertEquals(5, find(report, "keys").calls());
+            assertTrue(find(report, "keys").usecPerCall() > get.usecPerCall(), report.toString());
+            for (int i = 1; i < report.getCommands().size(); i++) {
+                assertTrue(report.getCommands().get(i - 1).usec() >= report.getCommands().get(i).usec());
+            }
+
+            assertEquals(102, report.getKeysSampled());
+            assertEquals(3, report.getHotKeys().size());
+            assertEquals("hot", report.getHotKeys().get(0).key());
+            assertEquals("warm", report.getHotKeys().get(1).key());
+            assertTrue(report.getHotKeys().get(0).frequency() > report.getHotKeys().get(2).frequency());
+
+            assertEquals("noeviction", db.configGet("maxmemory-policy"));
+        }
+    }
+
+    @Test
+    public void should_restore_the_policy_when_stop_fails() throws Exception {
+        try (Redis db = Redis.newEmbeddedRedis()) {
+            db.start();
+            try (ProfilingSession session = db.startProfiling(RedisProfiler.newBuilder().setHotKeys(true));
+                 RedisConnection connection = db.openConnection()) {
+                connection.execute("SET", "hello", "world");
+                connection.execute("ACL", "SETUSER", "default", "-scan");
+                assertThrows(RedisErrorException.class, session::stop);
+                assertEquals("allkeys-lfu", db.configGet("maxmemory-policy"));
+            }
+            assertEquals("noeviction", db.configGet("maxmemory-policy"));
+        }
+    }
+
+    private static CommandCost find(ProfileReport report, String command) {
+        return report.getCommands().stream()
+                .filter(cost -> cost.command().equals(command))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError(command + " not in " + report));
+    }
+}
@@ -0,0 +1,177 @@
+package top.lihuu.redis4j.rdb;
+
+import ch.vorburger.exec.ManagedProcessException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import top.lihuu.redis4j.Redis;
+import top.lihuu.redis4j.RedisConfigurationBuilder;
+import top.lihuu.redis4j.client.RedisConnection;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RdbParserTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void should_compute_the_redis_crc64() {
+        assertEquals(0xe9c6d914c4b8d9caL, Crc64.of("123456789".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    public void should_read_the_keys_of_a_fixture() throws Exception {
+        try (RdbParser parser = RdbParser.open(fixture())) {
+            assertEquals(10, parser.getVersion());
+            RdbEntry entry = parser.next();
+            assertEquals("7.0.15", parser.getAuxFields().get("redis-ver"));
+            assertEquals(new RdbEntry(0, "hello", RdbType.STRING, 0, -1, 5, entry.serializedSize()), entry);
+            assertNull(parser.next());
+            assertTrue(parser.isChecksumVerified());
+        }
+    }
+
+    @Test
+    public void should_reject_corrupt_truncated_and_newer_files() throws Exception {
+        byte[] bytes = Files.readAllBytes(fixture());
+        int value = indexOf(bytes, "world".getBytes(StandardCharsets.US_ASCII));
+
+        byte[] corrupt = bytes.clone();
+        corrupt[value] = 'W';
+        IOException mismatch = assertThrows(IOException.class, () -> RdbParser.summarize(write("corrupt.rdb", corrupt)));
+        assertTrue(mismatch.getMessage().contains("Checksum mismatch"), mismatch.getMessage());
+
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 4);
+        assertThrows(EOFException.class, () -> RdbParser.summarize(write("truncated.rdb", truncated)));
+
+        byte[] newer = bytes.clone();
+        System.arraycopy("0099".getBytes(StandardCharsets.US_ASCII), 0, newer, 5, 4);
+        IOException unsupported = assertThrows(IOException.class, () -> RdbParser.open(write("newer.rdb", newer)));
+        assertTrue(unsupported.getMessage().contains("Unsupported RDB version 99"), unsupported.getMessage());
+    }
+
+    @Test
+    public void should_fail_fast_on_a_corrupt_initial_rdb_file() throws Exception {
+        byte[] bytes = Files.readAllBytes(fixture());
+        bytes[bytes.length - 1] ^= 1;
+        File corrupt = write("dump.rdb", bytes).toFile();
+        ManagedProcessException e = assertThrows(ManagedProcessException.class, () -> Redis.newEmbeddedRedis(
+                RedisConfigurationBuilder.newBuilder().setInitRdbFile(corrupt).build()));
+        assertTrue(e.getCause().getMessage().contains("not valid"), e.getCause().getMessage());
+    }
+
+    @Test
+    public void should_read_the_types_and_encodings_written_by_the_server() throws Exception {
+        Path dump;
+        try (Redis redis = Redis.newEmbeddedRedis()) {
+            redis.start();
+            try (RedisConnection connection = RedisConnection.open("127.0.0.1", redis.getPort())) {
+                connection.execute("SET", "string", "x".repeat(10_000));
+                connection.execute("SET", "number", "12345");
+                connection.execute("SET", "expiring", "value", "EX", "3600");
+                connection.execute("RPUSH", "small-list", "a", "b", "c");
+                for (int i = 0; i < 2000; i++) {
+                    connection.execute("RPUSH", "large-list", "element-" + i);
+                    connection.execute("SADD", "large-set", "member-" + i);
+                    connection.execute("ZADD", "large-zset", Integer.toString(i), "member-" + i);
+                    connection.execute("HSET", "large-hash", "field-" + i, "value");
+                }
+                connection.execute("SADD", "intset", "1", "2", "3");
+                connection.execute("SADD", "small-set", "a", "b");
+                connection.execute("ZADD", "small-zset", "1", "a", "2", "b");
+                connection.execute("HSET", "small-hash", "a", "1", "b", "2");
+                connection.execute("XADD", "stream", "*", "field", "value");
+                connection.execute("XADD", "stream", "*", "field", "value");
+                connection.execute("XGROUP", "CREATE", "stream", "group", "0");
+                connection.execute("XREADGROUP", "GROUP", "group", "consumer", "COUNT", "1", "STREAMS", "stream", ">");
+                connection.execute("SELECT", "1");
+                connection.execute("SET", "other-db", "value");
+                connection.execute("SAVE");
+                List<?> dir = (List<?>) connection.execute("CONFIG", "GET", "dir");
+                dump = Files.copy(Path.of((String) dir.get(1), "dump.rdb"), tempDir.resolve("server.rdb"));
+            }
+        }
+
+        Map<String, RdbEntry> entries = new HashMap<>();
+        try (RdbParser parser = RdbParser.openMapped(dump)) {
+            RdbEntry entry;
+            while ((entry = parser.next()) != null) {
+                entries.put(entry.key(), entry);
+            }
+            assertTrue(parser.isChecksumVerified());
+        }
+        assertEquals(10_000, entries.get("string").length());
+        assertEquals(5, entries.get("number").length());
+        assertTrue(entries.get("expiring").expireAtMillis() > System.currentTimeMillis());
+        assertEquals(-1, entries.get("string").expireAtMillis());
+        assertLength(entries, "small-list", RdbType.LIST, 3);
+        assertLength(entries, "large-list", RdbType.LIST, 2000);
+        assertLength(entries, "large-set", RdbType.SET, 2000);
+        assertLength(entries, "large-zset", RdbType.ZSET, 2000);
+        assertLength(entries, "large-hash", RdbType.HASH, 2000);
+        assertLength(entries, "intset", RdbType.SET, 3);
+        assertLength(entries, "small-set", RdbType.SET, 2);
+        assertLength(entries, "small-zset", RdbType.ZSET, 2);
+        assertLength(entries, "small-hash", RdbType.HASH, 2);
+        assertLength(entries, "stream", RdbType.STREAM, 2);
+        assertEquals(1, entries.get("other-db").db());
+
+        RdbSummary summary = RdbParser.summarize(dump);
+        assertEquals(entries.size(), summary.getKeys());
+        assertEquals(summary.getKeysByDb(), RdbParser.summarize(dump, true).getKeysByDb());
+        assertEquals(Map.of(0, (long) entries.size() - 1, 1, 1L), summary.getKeysByDb());
+        assertEquals(1, summary.getExpiringKeys());
+        assertEquals(0, summary.getExpiredKeys());
+        assertEquals(4, summary.getKeys(RdbType.STRING));
+        assertEquals(3 + 2000 * 4 + 3 + 2 + 2 + 2 + 2, summary.getElements());
+        // the long string is LZF compressed, so it takes less space than the large collections
+        assertEquals(entries.values().stream().mapToLong(RdbEntry::serializedSize).max().getAsLong(),
+                summary.getLargestKeys().get(0).serializedSize());
+        assertTrue(entries.get("string").serializedSize() < 10_000);
+        assertTrue(summary.estimateLoadTime().toNanos() > 0);
+    }
+
+    private static void assertLength(Map<String, RdbEntry> entries, String key, RdbType type, long length) {
+        RdbEntry entry = entries.get(key);
+        assertNotNull(entry, key);
+        assertEquals(type, entry.type(), key);
+        assertEquals(length, entry.length(), key);
+    }
+
+    private Path fixture() throws URISyntaxException {
+        return Path.of(getClass().getClassLoader().getResource("dump.rdb").toURI());
+    }
+
+    private Path write(String name, byte[] bytes) throws IOException {
+        return Files.write(tempDir.resolve(name), bytes);
+    }
+
+    private static int indexOf(byte[] bytes, byte[] part) {
+        outer:
+        for (int i = 0; i <= bytes.length - part.length; i++) {
+            for (int j = 0; j < part.length; j++) {
+                if (bytes[i + j] != part[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        throw new AssertionError("not found");
+    }
+}
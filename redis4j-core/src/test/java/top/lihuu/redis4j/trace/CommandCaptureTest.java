@@ -0,0 +1,97 @@
+package top.lihuu.redis4j.trace;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import top.lihuu.redis4j.Redis;
+import top.lihuu.redis4j.client.RedisConnection;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class CommandCaptureTest {
+
+    @Test
+    public void should_parse_monitor_lines() {
+        TraceRecord record = CommandCapture.parse(
+                "1339518083.107412 [3 127.0.0.1:60866] \"set\" \"a \\\"b\\\"\" \"\\xe4\\xbd\\xa0\"");
+        assertNotNull(record);
+        assertEquals(1339518083107412L, record.timestampMicros());
+        assertEquals(3, record.db());
+        assertEquals("127.0.0.1:60866", record.client());
+        assertEquals(List.of("set", "a \"b\"", "你"), strings(record));
+        assertNull(CommandCapture.parse("OK"));
+    }
+
+    @Test
+    public void should_capture_commands_to_trace_file(@TempDir Path dir) throws IOException, InterruptedException {
+        Path file = dir.resolve("commands.trace");
+        try (Redis db = Redis.newEmbeddedRedis()) {
+            db.start();
+            try (CommandCapture capture = db.startCapture(file);
+                 RedisConnection connection = db.openConnection()) {
+                connection.execute("SET", "hello", "world");
+                awaitCaptured(capture, 1);
+                capture.mark("reads");
+                connection.execute("GET", "hello");
+                awaitCaptured(capture, 2);
+            }
+        }
+
+        List<TraceRecord> records = new ArrayList<>();
+        try (TraceReader reader = new TraceReader(file)) {
+            TraceRecord record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+        }
+        assertEquals(TraceRecord.Type.START, records.get(0).type());
+        assertEquals(List.of("SET", "hello", "world"), strings(records.get(1)));
+        assertEquals(TraceRecord.Type.MARK, records.get(2).type());
+        assertEquals(List.of("GET", "hello"), strings(records.get(3)));
+        assertEquals(TraceRecord.Type.STOP, records.get(records.size() - 1).type());
+    }
+
+    @Test
+    public void should_capture_binary_values_exactly(@TempDir Path dir) throws IOException, InterruptedException {
+        Path file = dir.resolve("commands.trace");
+        byte[] value = {(byte) 0xff, (byte) 0xfe, 0, 'a', (byte) 0xc3, '"', '\\', '\n'};
+        try (Redis db = Redis.newEmbeddedRedis()) {
+            db.start();
+            try (CommandCapture capture = db.startCapture(file);
+                 RedisConnection connection = db.openConnection()) {
+                connection.send("SET".getBytes(StandardCharsets.US_ASCII), "binary".getBytes(StandardCharsets.US_ASCII),
+                        value);
+                connection.flush();
+                assertEquals("OK", connection.readReply());
+                assertEquals(8L, connection.execute("STRLEN", "binary"));
+                awaitCaptured(capture, 1);
+            }
+        }
+
+        try (TraceReader reader = new TraceReader(file)) {
+            assertEquals(TraceRecord.Type.START, reader.next().type());
+            TraceRecord record = reader.next();
+            assertEquals("binary", record.arg(1));
+            assertArrayEquals(value, record.args().get(2));
+        }
+    }
+
+    private static List<String> strings(TraceRecord record) {
+        return record.args().stream().map(arg -> new String(arg, StandardCharsets.UTF_8)).toList();
+    }
+
+    private static void awaitCaptured(CommandCapture capture, long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (capture.getCaptured() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
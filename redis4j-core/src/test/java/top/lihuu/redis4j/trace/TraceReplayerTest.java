@@ -0,0 +1,75 @@
+package top.lihuu.redis4j.trace;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import top.lihuu.redis4j.Redis;
+import top.lihuu.redis4j.client.RedisConnection;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TraceReplayerTest {
+
+    @Test
+    public void should_replay_trace_preserving_per_client_order(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("commands.trace");
+        try (TraceWriter writer = new TraceWriter(file)) {
+            writer.write(TraceRecord.marker(TraceRecord.Type.START, "start"));
+            for (int i = 0; i < 200; i++) {
+                String client = "127.0.0.1:" + (50000 + i % 4);
+                writer.write(new TraceRecord(TraceRecord.Type.COMMAND, 1_000_000L + i * 100L, i % 4 == 3 ? 1 : 0,
+                        client, args("RPUSH", "list:" + client, Integer.toString(i))));
+            }
+            writer.write(new TraceRecord(TraceRecord.Type.COMMAND, 1_020_000L, 0, "127.0.0.1:50000",
+                    args("INCR", "list:127.0.0.1:50000")));
+            writer.write(new TraceRecord(TraceRecord.Type.COMMAND, 1_020_100L, 0, "127.0.0.1:50000",
+                    args("MONITOR")));
+            writer.write(new TraceRecord(TraceRecord.Type.COMMAND, 1_020_200L, 0, "127.0.0.1:50001",
+                    List.of("SET".getBytes(StandardCharsets.US_ASCII), "binary".getBytes(StandardCharsets.US_ASCII),
+                            new byte[]{(byte) 0xff, (byte) 0x80, 0})));
+        }
+
+        try (Redis db = Redis.newEmbeddedRedis()) {
+            db.start();
+            ReplayResult result = TraceReplayer.newBuilder()
+                    .setTraceFile(file)
+                    .setConnections(3)
+                    .setSpeed(ReplaySpeed.fixedRate(5000))
+                    .build()
+                    .replay(db);
+
+            assertEquals(202, result.getCommands());
+            assertEquals(1, result.getErrors());
+            assertEquals(1, result.getSkipped());
+            assertEquals(202, result.getLatency().getTotalCount());
+            assertEquals(202, Arrays.stream(result.getThroughputTimeline()).sum());
+            assertTrue(result.getLatency().getValueAtPercentile(99) >= result.getServiceTime().getValueAtPercentile(50));
+
+            try (RedisConnection connection = db.openConnection()) {
+                Object values = connection.execute("LRANGE", "list:127.0.0.1:50000", "0", "2");
+                assertEquals(List.of("0", "4", "8"), values);
+                // sent as the bytes of the trace, not decoded to replacement characters
+                assertEquals(3L, connection.execute("STRLEN", "binary"));
+                connection.execute("SELECT", "1");
+                assertEquals(50L, connection.execute("LLEN", "list:127.0.0.1:50003"));
+            }
+        }
+    }
+
+    private static List<byte[]> args(String... args) {
+        return Arrays.stream(args).map(arg -> arg.getBytes(StandardCharsets.UTF_8)).toList();
+    }
+
+    @Test
+    public void should_space_commands_by_speed() {
+        assertEquals(2_000_000L, ReplaySpeed.fixedRate(500).dueNanos(1, 0));
+        assertEquals(500_000L, ReplaySpeed.multiplier(2).dueNanos(7, 1000));
+        assertEquals(1_000_000L, ReplaySpeed.asRecorded().dueNanos(7, 1000));
+    }
+}
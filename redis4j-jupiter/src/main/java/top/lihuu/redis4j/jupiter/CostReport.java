@@ -0,0 +1,108 @@
+package top.lihuu.redis4j.jupiter;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The costs of the tests of the run, kept in the root store and written when the run ends: as a
+ * JSON array if the file name ends with {@code .json}, as CSV otherwise, slowest tests by server
+ * time first.
+ */
+final class CostReport implements ExtensionContext.Store.CloseableResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(CostReport.class);
+
+    private final Path file;
+    private final List<RedisTestCost> costs = new ArrayList<>();
+
+    CostReport(Path file) {
+        this.file = file;
+    }
+
+    synchronized void add(RedisTestCost cost) {
+        costs.add(cost);
+    }
+
+    @Override
+    public synchronized void close() {
+        costs.sort(Comparator.comparingLong(RedisTestCost::usec).reversed());
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                if (file.getFileName().toString().endsWith(".json")) {
+                    writeJson(writer);
+                } else {
+                    writeCsv(writer);
+                }
+            }
+            logger.info("Wrote the Redis cost of {} tests to {}", costs.size(), file.toAbsolutePath());
+        } catch (IOException e) {
+            logger.warn("Could not write the Redis cost of the tests to {}", file.toAbsolutePath(), e);
+        }
+    }
+
+    private void writeCsv(Writer writer) throws IOException {
+        writer.write("class,test,port,exclusive,elapsed_ms,commands,usec,keys_created,peak_memory,slowlog_entries\n");
+        for (RedisTestCost cost : costs) {
+            writer.write(String.join(",", csv(cost.testClass()), csv(cost.test()), Integer.toString(cost.port()),
+                    Boolean.toString(cost.exclusive()), Long.toString(cost.elapsed().toMillis()),
+                    Long.toString(cost.commands()), Long.toString(cost.usec()), Long.toString(cost.keysCreated()),
+                    Long.toString(cost.peakMemory()), Long.toString(cost.slowlogEntries())));
+            writer.write('\n');
+        }
+    }
+
+    private void writeJson(Writer writer) throws IOException {
+        writer.write("[");
+        for (int i = 0; i < costs.size(); i++) {
+            RedisTestCost cost = costs.get(i);
+            writer.write(String.format("%s%n  {\"class\": %s, \"test\": %s, \"port\": %d, \"exclusive\": %b, "
+                            + "\"elapsedMs\": %d, \"commands\": %d, \"usec\": %d, \"keysCreated\": %d, "
+                            + "\"peakMemory\": %d, \"slowlogEntries\": %d}",
+                    i == 0 ? "" : ",", json(cost.testClass()), json(cost.test()), cost.port(), cost.exclusive(),
+                    cost.elapsed().toMillis(), cost.commands(), cost.usec(), cost.keysCreated(), cost.peakMemory(),
+                    cost.slowlogEntries()));
+        }
+        writer.write(String.format("%n]%n"));
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String json(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
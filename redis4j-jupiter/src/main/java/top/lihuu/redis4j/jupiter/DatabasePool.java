@@ -0,0 +1,45 @@
+package top.lihuu.redis4j.jupiter;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The logical databases of a server that tests lease under {@link Isolation#DATABASE}. Database 0
+ * is never leased, it is the one of class level injections.
+ */
+final class DatabasePool {
+
+    private static final long LEASE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private final int databases;
+    private final BitSet leased = new BitSet();
+
+    DatabasePool(int databases) {
+        this.databases = databases;
+        leased.set(0);
+    }
+
+    /**
+     * @return a free database, waiting for one if all are leased
+     * @throws InterruptedException if interrupted while waiting
+     */
+    synchronized int lease() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + LEASE_TIMEOUT_MS;
+        int database;
+        while ((database = leased.nextClearBit(0)) >= databases) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new IllegalStateException("All " + (databases - 1) + " databases are leased, "
+                        + "more tests run in parallel than the server was started for");
+            }
+            wait(remaining);
+        }
+        leased.set(database);
+        return database;
+    }
+
+    synchronized void release(int database) {
+        leased.clear(database);
+        notifyAll();
+    }
+}
@@ -0,0 +1,29 @@
+package top.lihuu.redis4j.jupiter;
+
+/**
+ * How the tests sharing one server are kept apart, so that they can run in parallel.
+ *
+ * @author lihuu
+ */
+public enum Isolation {
+
+    /**
+     * All tests use database 0 and see each other's keys.
+     */
+    NONE,
+
+    /**
+     * Each running test leases a logical database of its own, selected on the connections
+     * injected into it, and flushed with {@code FLUSHDB ASYNC} after it. The server is started with
+     * enough {@code databases} for the parallelism of the run.
+     */
+    DATABASE,
+
+    /**
+     * Each running test gets a key prefix, enforced by an ACL user that the connections injected
+     * into it are authenticated as: its keys and channels must start with the prefix, and {@code
+     * FLUSHDB}, {@code FLUSHALL} and {@code SWAPDB} are denied. The keys are unlinked and the user
+     * deleted after the test. Requires Redis 7.
+     */
+    KEY_PREFIX
+}
@@ -0,0 +1,47 @@
+package top.lihuu.redis4j.jupiter;
+
+import java.util.List;
+
+/**
+ * Sets of server arguments for common test setups, applied before the arguments of {@link
+ * RedisInstance#args()}, so those win.
+ *
+ * @author lihuu
+ */
+public enum PerformanceProfile {
+
+    /**
+     * The redis.conf shipped with the binaries, unchanged.
+     */
+    DEFAULT(),
+
+    /**
+     * No RDB snapshots: nothing is written to disk, for tests that never restart the server.
+     */
+    EPHEMERAL("--save", ""),
+
+    /**
+     * No snapshots, lazy freeing of deleted and expired keys and a higher {@code hz}, so that
+     * deletes and expirations do not stall the commands of the test.
+     */
+    LOW_LATENCY("--save", "", "--lazyfree-lazy-user-del", "yes", "--lazyfree-lazy-expire", "yes",
+            "--lazyfree-lazy-server-del", "yes", "--hz", "50"),
+
+    /**
+     * An append only file synced on every write, for tests of the cost of persistence.
+     */
+    DURABLE("--appendonly", "yes", "--appendfsync", "always");
+
+    private final List<String> args;
+
+    PerformanceProfile(String... args) {
+        this.args = List.of(args);
+    }
+
+    /**
+     * @return the server arguments of this profile
+     */
+    public List<String> args() {
+        return args;
+    }
+}
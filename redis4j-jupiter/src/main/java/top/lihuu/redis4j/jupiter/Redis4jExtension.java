@@ -1,64 +1,360 @@
 package top.lihuu.redis4j.jupiter;
 
 import ch.vorburger.exec.ManagedProcessException;
+import org.apache.commons.lang3.SystemUtils;
+import org.junit.jupiter.api.extension.AfterEachCallback;
 import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
 import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolutionException;
+import org.junit.jupiter.api.extension.ParameterResolver;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import top.lihuu.redis4j.Redis;
+import top.lihuu.redis4j.RedisConfigurationBuilder;
+import top.lihuu.redis4j.client.RedisConnection;
 
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * Starts the Redis servers of the test classes and injects them, or connections to them, into
+ * test constructors and methods.
+ *
+ * <p>A test class configures its server with {@link RedisInstance}, or gets the default one. The
+ * servers are kept in the store of the root context, keyed by configuration: test classes with
+ * the same configuration share one server, which is started once and stopped when the run ends.
+ * The port of the default server is published as the {@code redis.port} system property.
+ *
+ * <p>A configuration with several {@link RedisInstance#shards() shards} starts a server per shard,
+ * in parallel. Each test class is assigned to a shard by the {@link ShardPolicy} when it starts,
+ * and its nested classes use the same one; the shard is published as the {@code redis4j.shard}
+ * report entry and can be injected as a {@link RedisShard}. When the run ends, the classes, tests,
+ * commands and CPU time of every shard are logged, to tell how evenly the load was spread.
+ *
+ * <p>A {@link RedisConnection} parameter gets a new connection, closed after the test method, or
+ * after the test class for a constructor parameter. With an {@link Isolation}, every test method
+ * gets a {@link RedisNamespace} before its {@code @BeforeEach} methods run, and the connections
+ * injected into those and into the test method are confined to it. Class level connections, of
+ * constructors and {@code @BeforeAll} methods, use database 0 without restrictions.
+ *
+ * <p>Every test method reports the Redis work it did on the server of its class as a
+ * {@link RedisTestCost}, from {@code INFO} and {@code SLOWLOG} snapshots taken around the test, after
+ * its namespace is set up and before it is cleaned up. The cost is published as {@code redis4j.*}
+ * report entries, and the costs of the run are written to {@code target/redis4j-report.csv}, to spot
+ * the tests whose Redis cost regressed. Two configuration parameters control it:
+ * <ul>
+ *     <li>{@code redis4j.report.enabled}: {@code false} to take no snapshots;</li>
+ *     <li>{@code redis4j.report.file}: the file to write, as JSON if it ends with {@code .json}, empty
+ *     to write none; with several forks, give each its own, e.g. with surefire's
+ *     {@code ${surefire.forkNumber}} in a system property.</li>
+ * </ul>
+ *
  * @author lihu <1449488533qq@gmail.com>
  * @since 2025/6/18
  */
-public class Redis4jExtension implements BeforeAllCallback, ExtensionContext.Store.CloseableResource {
-    private static final AtomicBoolean started = new AtomicBoolean(false);
+public class Redis4jExtension implements BeforeAllCallback, BeforeEachCallback, AfterEachCallback, ParameterResolver {
 
-    private static ExtensionContext rootContext;
+    private static final Logger logger = LoggerFactory.getLogger(Redis4jExtension.class);
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(Redis4jExtension.class);
+
+    /**
+     * The shards of the test classes, apart from the shard groups in the root store.
+     */
+    private static final ExtensionContext.Namespace SHARDS = NAMESPACE.append(ShardGroup.class);
+
+    private static final InstanceKey DEFAULT = new InstanceKey(0, "", "", "", PerformanceProfile.DEFAULT,
+            Isolation.NONE, 0, 1, ShardPolicy.CONSISTENT_HASH, List.of());
+
+    private static final AtomicLong PREFIXES = new AtomicLong();
+
+    private static final String REPORT_ENABLED = "redis4j.report.enabled";
+
+    private static final String REPORT_FILE = "redis4j.report.file";
+
+    private static final String DEFAULT_REPORT_FILE = "target/redis4j-report.csv";
 
     @Override
     public void beforeAll(ExtensionContext context) throws Exception {
-        if (started.get()) {
-            return;
+        // started here rather than on first injection, so that tests reading redis.port find it
+        ShardGroup.Shard shard = getShard(context, classKey(context));
+        if (shard.handle().getCount() > 1) {
+            context.publishReportEntry("redis4j.shard", shard.handle().toString());
         }
+    }
 
-        synchronized (Redis4jExtension.class) {
-            // Double-check to avoid multiple initializations when running tests in parallel
-            if (started.get()) {
-                return;
+    @Override
+    public void beforeEach(ExtensionContext context) throws Exception {
+        InstanceKey key = classKey(context);
+        ShardGroup.Shard shard = getShard(context, key);
+        boolean alone = shard.testStarted();
+        ExtensionContext.Store store = context.getStore(NAMESPACE);
+        store.put(ShardGroup.Shard.class, (ExtensionContext.Store.CloseableResource) shard::testFinished);
+        int database = -1;
+        if (key.isolation() != Isolation.NONE) {
+            IsolatedNamespace namespace = key.isolation() == Isolation.DATABASE
+                    ? new IsolatedNamespace(shard, new RedisNamespace(shard.databases().lease(), "", null))
+                    : IsolatedNamespace.withPrefix(shard, "t" + PREFIXES.incrementAndGet() + ":");
+            store.put(RedisNamespace.class, namespace);
+            if (key.isolation() == Isolation.DATABASE) {
+                database = namespace.namespace().getDatabase();
             }
-            Redis redis = startRedis();
-            started.set(true);
-            rootContext = context.getRoot();
-            // We use the global store to share the Redis instance across tests
-            ExtensionContext.Store globalStore = rootContext.getStore(ExtensionContext.Namespace.GLOBAL);
-            globalStore.put(Redis4jExtension.class, this);
-            globalStore.put(Redis.class, redis);
         }
+        if (context.getConfigurationParameter(REPORT_ENABLED, Boolean::parseBoolean).orElse(true)) {
+            try {
+                store.put(TestCostProbe.class, TestCostProbe.start(shard, database, alone));
+            } catch (IOException e) {
+                // the cost of the test is not worth failing it
+                logger.warn("Could not take the Redis statistics before {}", context.getDisplayName(), e);
+            }
+        }
+    }
 
+    @Override
+    public void afterEach(ExtensionContext context) {
+        TestCostProbe probe = context.getStore(NAMESPACE).get(TestCostProbe.class, TestCostProbe.class);
+        if (probe == null) {
+            return;
+        }
+        RedisTestCost cost;
+        try {
+            cost = probe.finish(context.getRequiredTestClass().getName(), context.getDisplayName());
+        } catch (IOException e) {
+            logger.warn("Could not take the Redis statistics after {}", context.getDisplayName(), e);
+            return;
+        }
+        Map<String, String> entry = new LinkedHashMap<>();
+        entry.put("redis4j.commands", Long.toString(cost.commands()));
+        entry.put("redis4j.usec", Long.toString(cost.usec()));
+        entry.put("redis4j.keysCreated", Long.toString(cost.keysCreated()));
+        entry.put("redis4j.peakMemory", Long.toString(cost.peakMemory()));
+        entry.put("redis4j.slowlogEntries", Long.toString(cost.slowlogEntries()));
+        entry.put("redis4j.exclusive", Boolean.toString(cost.exclusive()));
+        context.publishReportEntry(entry);
+        String file = context.getConfigurationParameter(REPORT_FILE).orElse(DEFAULT_REPORT_FILE).trim();
+        if (!file.isEmpty()) {
+            context.getRoot().getStore(NAMESPACE)
+                    .getOrComputeIfAbsent(CostReport.class, k -> new CostReport(Path.of(file)), CostReport.class)
+                    .add(cost);
+        }
     }
 
-    private static Redis startRedis() throws ManagedProcessException {
-        Redis redis = Redis.newEmbeddedRedis();
-        redis.start();
-        int port = redis.getPort();
-        System.setProperty("redis.port", String.valueOf(port));
-        return redis;
+    @Override
+    public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        Class<?> type = parameterContext.getParameter().getType();
+        return type == Redis.class || type == RedisConnection.class || type == RedisNamespace.class
+                || type == RedisShard.class;
     }
 
     @Override
-    public void close() throws Throwable {
-        if (rootContext == null) {
-            return;
+    public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        Class<?> type = parameterContext.getParameter().getType();
+        IsolatedNamespace isolated = extensionContext.getStore(NAMESPACE)
+                .get(RedisNamespace.class, IsolatedNamespace.class);
+        if (type == RedisNamespace.class) {
+            return isolated == null ? new RedisNamespace(0, "", null) : isolated.namespace();
         }
+        Optional<RedisInstance> annotation = parameterContext.findAnnotation(RedisInstance.class);
+        InstanceKey key = annotation.isPresent()
+                ? InstanceKey.of(annotation, extensionContext)
+                : classKey(extensionContext);
+        ShardGroup.Shard shard = getShard(extensionContext, key);
+        if (type == RedisShard.class) {
+            return shard.handle();
+        }
+        if (type == Redis.class) {
+            return shard.redis();
+        }
+        try {
+            RedisConnection connection = shard.redis().openConnection();
+            extensionContext.getStore(NAMESPACE).put(parameterContext.getParameter(),
+                    (ExtensionContext.Store.CloseableResource) connection::close);
+            if (isolated != null && isolated.shard() == shard) {
+                isolated.confine(connection);
+            }
+            return connection;
+        } catch (IOException e) {
+            throw new ParameterResolutionException("Could not connect to Redis on port " + shard.redis().getPort(), e);
+        }
+    }
 
-        Object object = rootContext.getStore(ExtensionContext.Namespace.GLOBAL).get(Redis.class);
+    private static InstanceKey classKey(ExtensionContext context) {
+        // nested classes use the configuration of their enclosing class
+        return InstanceKey.of(AnnotationSupport.findAnnotation(context.getRequiredTestClass(), RedisInstance.class,
+                context.getEnclosingTestClasses()), context);
+    }
 
-        if (object instanceof Redis redis) {
-            redis.stop();
-        } else {
-            throw new IllegalStateException("Redis4jExtension not initialized properly.");
+    /**
+     * Starts the servers of the configuration if needed, and assigns the test class to one of them
+     * if it is not yet, the assignment being released when the class has run. Nested classes find
+     * the assignment of their enclosing class in its store.
+     */
+    private static ShardGroup.Shard getShard(ExtensionContext context, InstanceKey key) {
+        ShardGroup group = context.getRoot().getStore(NAMESPACE)
+                .getOrComputeIfAbsent(key, InstanceKey::start, ShardGroup.class);
+        ExtensionContext classContext = context;
+        while (classContext.getTestMethod().isPresent() && classContext.getParent().isPresent()) {
+            classContext = classContext.getParent().get();
         }
+        String testClass = classContext.getRequiredTestClass().getName();
+        return classContext.getStore(SHARDS)
+                .getOrComputeIfAbsent(key, k -> group.assign(testClass), ShardGroup.Assignment.class)
+                .shard();
+    }
 
+    /**
+     * The namespace of a running test, cleaned up when the test ends.
+     */
+    private record IsolatedNamespace(ShardGroup.Shard shard, RedisNamespace namespace)
+            implements ExtensionContext.Store.CloseableResource {
+
+        static IsolatedNamespace withPrefix(ShardGroup.Shard shard, String prefix) throws IOException {
+            String user = "redis4j-" + prefix.substring(0, prefix.length() - 1);
+            try (RedisConnection connection = shard.redis().openConnection()) {
+                connection.execute("ACL", "SETUSER", user, "on", "nopass", "~" + prefix + "*", "&" + prefix + "*",
+                        "+@all", "-flushall", "-flushdb", "-swapdb");
+            }
+            return new IsolatedNamespace(shard, new RedisNamespace(0, prefix, user));
+        }
+
+        void confine(RedisConnection connection) throws IOException {
+            if (namespace.getUser() != null) {
+                // any password is accepted for a nopass user
+                connection.execute("AUTH", namespace.getUser(), namespace.getUser());
+            } else {
+                connection.execute("SELECT", Integer.toString(namespace.getDatabase()));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (RedisConnection connection = shard.redis().openConnection()) {
+                if (namespace.getUser() == null) {
+                    connection.execute("SELECT", Integer.toString(namespace.getDatabase()));
+                    connection.execute("FLUSHDB", "ASYNC");
+                    return;
+                }
+                // deleting the user also disconnects the clients authenticated as it
+                connection.execute("ACL", "DELUSER", namespace.getUser());
+                String cursor = "0";
+                do {
+                    List<?> reply = (List<?>) connection.execute("SCAN", cursor, "MATCH",
+                            namespace.getKeyPrefix() + "*", "COUNT", "1000");
+                    cursor = (String) reply.get(0);
+                    List<?> keys = (List<?>) reply.get(1);
+                    if (!keys.isEmpty()) {
+                        List<String> command = new ArrayList<>(keys.size() + 1);
+                        command.add("UNLINK");
+                        keys.forEach(key -> command.add((String) key));
+                        connection.execute(command.toArray(new String[0]));
+                    }
+                } while (!"0".equals(cursor));
+            } finally {
+                if (namespace.getUser() == null) {
+                    shard.databases().release(namespace.getDatabase());
+                }
+            }
+        }
+    }
+
+    /**
+     * The configuration of a server, as given by a {@link RedisInstance}.
+     *
+     * @param databases the {@code databases} of the server with database isolation, 0 otherwise
+     * @param shards    the number of servers, resolved for {@code 0}
+     */
+    private record InstanceKey(int port, String version, String initRdbFile, String initAofFile,
+                               PerformanceProfile profile, Isolation isolation, int databases, int shards,
+                               ShardPolicy shardPolicy, List<String> args) {
+
+        static InstanceKey of(Optional<RedisInstance> annotation, ExtensionContext context) {
+            return annotation.map(instance -> new InstanceKey(instance.port(), instance.version(),
+                    instance.initRdbFile(), instance.initAofFile(), instance.profile(), instance.isolation(),
+                    instance.isolation() == Isolation.DATABASE ? databasesFor(context) : 0,
+                    ShardGroup.shardCount(instance.shards()),
+                    instance.shardPolicy(), List.of(instance.args()))).orElse(DEFAULT);
+        }
+
+        /**
+         * One database per test that can run at a time, with a margin as the fork join pool of
+         * JUnit may run more tests than its parallelism while some are blocked, plus database 0.
+         */
+        private static int databasesFor(ExtensionContext context) {
+            int processors = Runtime.getRuntime().availableProcessors();
+            String strategy = context.getConfigurationParameter("junit.jupiter.execution.parallel.config.strategy")
+                    .orElse("dynamic");
+            int parallelism;
+            try {
+                parallelism = switch (strategy) {
+                    case "fixed" -> context.getConfigurationParameter(
+                            "junit.jupiter.execution.parallel.config.fixed.parallelism").map(Integer::parseInt)
+                            .orElse(processors);
+                    case "dynamic" -> (int) Math.ceil(context.getConfigurationParameter(
+                            "junit.jupiter.execution.parallel.config.dynamic.factor").map(Double::parseDouble)
+                            .orElse(1d) * processors);
+                    default -> processors;
+                };
+            } catch (NumberFormatException e) {
+                parallelism = processors;
+            }
+            return Math.max(16, 2 * parallelism + 1);
+        }
+
+        ShardGroup start() {
+            return ShardGroup.start(toString(), shardPolicy, shards, this::start, databases > 0);
+        }
+
+        private Redis start(int shard) {
+            RedisConfigurationBuilder builder = RedisConfigurationBuilder.newBuilder()
+                    .setPort(port == 0 ? 0 : port + shard);
+            if (!version.isEmpty()) {
+                builder.setDatabaseVersion(version.startsWith("redis-") ? version : "redis-" + version);
+            }
+            if (!initRdbFile.isEmpty()) {
+                builder.setInitRdbFile(new File(initRdbFile));
+            }
+            if (!initAofFile.isEmpty()) {
+                builder.setInitAofFile(new File(initAofFile));
+            }
+            List<String> serverArgs = new ArrayList<>(profile.args());
+            if (databases > 0) {
+                serverArgs.add("--databases");
+                serverArgs.add(Integer.toString(databases));
+            }
+            serverArgs.addAll(args);
+            serverArgs.forEach(builder::addArg);
+            try {
+                // servers started at the same time cannot share the default data directory, that each
+                // one empties; this one is deleted when the JVM exits
+                builder.setDataDir(Files.createTempDirectory(
+                        Files.createDirectories(Path.of(SystemUtils.JAVA_IO_TMPDIR, "Redis4j")), "data-").toFile());
+                Redis redis = Redis.newEmbeddedRedis(builder.build());
+                redis.start();
+                if (equals(DEFAULT)) {
+                    System.setProperty("redis.port", String.valueOf(redis.getPort()));
+                }
+                return redis;
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not start Redis for " + this, e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("@RedisInstance(port=%d, version=%s, initRdbFile=%s, initAofFile=%s, profile=%s, "
+                            + "isolation=%s, shards=%d, shardPolicy=%s, args=%s)",
+                    port, version, initRdbFile, initAofFile, profile, isolation, shards, shardPolicy, args);
+        }
     }
 }
@@ -0,0 +1,85 @@
+package top.lihuu.redis4j.jupiter;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Configures the Redis server of a test class, and registers {@link Redis4jExtension}.
+ *
+ * <pre>
+ * &#64;RedisInstance(profile = PerformanceProfile.EPHEMERAL, initRdbFile = "src/test/resources/users.rdb")
+ * class UserRepositoryTest {
+ *
+ *     &#64;Test
+ *     void finds_users(RedisConnection connection) throws IOException {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * <p>One server is started per distinct configuration and shared by all test classes of the run
+ * that use the same one; it is stopped when the run ends. With {@link #shards()}, several servers
+ * are started for the configuration and the test classes are spread over them. On a parameter of
+ * type {@code Redis}, {@code RedisConnection} or {@code RedisShard}, the annotation selects another
+ * server than the one of the class; the {@link #isolation()} of the test only applies to the
+ * server of its class.
+ *
+ * @author lihuu
+ */
+@Target({ElementType.TYPE, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+@ExtendWith(Redis4jExtension.class)
+public @interface RedisInstance {
+
+    /**
+     * @return the port, 0 for a free one; with several {@link #shards()}, the port of the first one,
+     * the others using the next ports
+     */
+    int port() default 0;
+
+    /**
+     * @return the Redis version of the binaries on the class path, e.g. {@code 8.0.2}, empty for the
+     * default one
+     */
+    String version() default "";
+
+    /**
+     * @return the path of an RDB file to start with, empty for none
+     */
+    String initRdbFile() default "";
+
+    /**
+     * @return the path of an AOF, or of the directory of a multi-part AOF, to start with, empty for
+     * none
+     */
+    String initAofFile() default "";
+
+    PerformanceProfile profile() default PerformanceProfile.DEFAULT;
+
+    /**
+     * @return how the tests using the server are kept apart when they run in parallel
+     */
+    Isolation isolation() default Isolation.NONE;
+
+    /**
+     * @return the number of servers started for the configuration, 0 for one per available
+     * processor; each test class uses one of them, chosen by the {@link #shardPolicy()}, and can get
+     * it injected as a {@link RedisShard}
+     */
+    int shards() default 1;
+
+    ShardPolicy shardPolicy() default ShardPolicy.CONSISTENT_HASH;
+
+    /**
+     * @return additional server arguments, e.g. {@code {"--maxmemory", "100mb"}}
+     */
+    String[] args() default {};
+}
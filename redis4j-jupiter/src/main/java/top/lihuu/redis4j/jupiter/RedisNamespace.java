@@ -0,0 +1,54 @@
+package top.lihuu.redis4j.jupiter;
+
+/**
+ * The part of a shared server that a test owns under its {@link Isolation}, injected into test
+ * methods. Without isolation, it is database 0 with no prefix.
+ *
+ * @author lihuu
+ */
+public final class RedisNamespace {
+
+    private final int database;
+    private final String keyPrefix;
+    private final String user;
+
+    RedisNamespace(int database, String keyPrefix, String user) {
+        this.database = database;
+        this.keyPrefix = keyPrefix;
+        this.user = user;
+    }
+
+    /**
+     * @return the logical database of the test
+     */
+    public int getDatabase() {
+        return database;
+    }
+
+    /**
+     * @return the prefix that the keys of the test must start with, empty if any key may be used
+     */
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    /**
+     * @return the ACL user that enforces the prefix, or null
+     */
+    public String getUser() {
+        return user;
+    }
+
+    /**
+     * @param name a key name
+     * @return the key in this namespace
+     */
+    public String key(String name) {
+        return keyPrefix + name;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("database %d, key prefix '%s'", database, keyPrefix);
+    }
+}
@@ -0,0 +1,49 @@
+package top.lihuu.redis4j.jupiter;
+
+import top.lihuu.redis4j.Redis;
+
+/**
+ * The server a test class was assigned to, out of the shards of its configuration, injected into
+ * test constructors and methods. Without sharding, it is shard 0 of 1.
+ *
+ * @author lihuu
+ */
+public final class RedisShard {
+
+    private final int index;
+    private final int count;
+    private final Redis redis;
+
+    RedisShard(int index, int count, Redis redis) {
+        this.index = index;
+        this.count = count;
+        this.redis = redis;
+    }
+
+    /**
+     * @return the index of the shard, from 0
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the number of shards of the configuration
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public Redis getRedis() {
+        return redis;
+    }
+
+    public int getPort() {
+        return redis.getPort();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("shard %d of %d, port %d", index, count, getPort());
+    }
+}
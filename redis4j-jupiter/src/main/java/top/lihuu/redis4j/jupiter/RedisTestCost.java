@@ -0,0 +1,30 @@
+package top.lihuu.redis4j.jupiter;
+
+import java.time.Duration;
+
+/**
+ * The Redis work of one test method, from the server statistics before and after it.
+ *
+ * <p>The statistics are those of the whole server: when other tests use it at the same time, their
+ * work is counted too, and the cost is only exact for an {@link #exclusive()} test. With
+ * {@link Isolation#DATABASE}, {@link #keysCreated()} only counts the database of the test and is
+ * exact in any case.
+ *
+ * @param testClass      the name of the test class
+ * @param test           the display name of the test method
+ * @param port           the port of the server
+ * @param exclusive      whether no other test used the server while the test ran
+ * @param elapsed        the time between the two snapshots
+ * @param commands       the commands executed, apart from the {@code INFO} and {@code SLOWLOG}
+ *                       commands of the snapshots
+ * @param usec           the server side execution time of those commands, in microseconds
+ * @param keysCreated    the growth of the number of keys, negative if the test deleted more keys
+ *                       than it created
+ * @param peakMemory     the highest {@code used_memory} of the server seen during the test, in
+ *                       bytes
+ * @param slowlogEntries the commands added to the slow log
+ * @author lihuu
+ */
+public record RedisTestCost(String testClass, String test, int port, boolean exclusive, Duration elapsed,
+                            long commands, long usec, long keysCreated, long peakMemory, long slowlogEntries) {
+}
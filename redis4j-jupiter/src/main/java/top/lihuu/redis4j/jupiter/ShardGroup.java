@@ -0,0 +1,247 @@
+package top.lihuu.redis4j.jupiter;
+
+import ch.vorburger.exec.ManagedProcessException;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import top.lihuu.redis4j.InfoSnapshot;
+import top.lihuu.redis4j.Redis;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * The servers started for one configuration, one per shard, kept in the root store and stopped
+ * when the run ends, with a report of the load of each shard.
+ */
+final class ShardGroup implements ExtensionContext.Store.CloseableResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardGroup.class);
+
+    /**
+     * Points per shard on the hash ring, so that classes spread evenly over few shards.
+     */
+    private static final int VIRTUAL_NODES = 160;
+
+    private final String configuration;
+    private final ShardPolicy policy;
+    private final List<Shard> shards;
+    private final TreeMap<Long, Shard> ring = new TreeMap<>();
+
+    /**
+     * A server of the group and its load.
+     */
+    static final class Shard {
+
+        private final RedisShard handle;
+        private final DatabasePool databases;
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger classes = new AtomicInteger();
+        private final AtomicLong tests = new AtomicLong();
+        private final AtomicInteger runningTests = new AtomicInteger();
+
+        private Shard(RedisShard handle, DatabasePool databases) {
+            this.handle = handle;
+            this.databases = databases;
+        }
+
+        RedisShard handle() {
+            return handle;
+        }
+
+        Redis redis() {
+            return handle.getRedis();
+        }
+
+        /**
+         * @return the databases leased to tests, null without database isolation
+         */
+        DatabasePool databases() {
+            return databases;
+        }
+
+        /**
+         * @return whether no other test of the shard is running
+         */
+        boolean testStarted() {
+            tests.incrementAndGet();
+            return runningTests.incrementAndGet() == 1;
+        }
+
+        void testFinished() {
+            runningTests.decrementAndGet();
+        }
+
+        /**
+         * @return the number of tests started on the shard so far
+         */
+        long testsStarted() {
+            return tests.get();
+        }
+    }
+
+    /**
+     * The shard of a test class, released when the class has run.
+     */
+    record Assignment(Shard shard) implements ExtensionContext.Store.CloseableResource {
+
+        @Override
+        public void close() {
+            shard.running.decrementAndGet();
+        }
+    }
+
+    private ShardGroup(String configuration, ShardPolicy policy, List<Shard> shards) {
+        this.configuration = configuration;
+        this.policy = policy;
+        this.shards = shards;
+        for (Shard shard : shards) {
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                ring.put(hash(shard.handle.getIndex() + "#" + i), shard);
+            }
+        }
+    }
+
+    /**
+     * @param shards the {@link RedisInstance#shards()} of a configuration
+     * @return the number of servers to start for it
+     */
+    static int shardCount(int shards) {
+        return shards > 0 ? shards : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Starts the servers in parallel.
+     *
+     * @param configuration describes the configuration, for messages
+     * @param count         the number of shards
+     * @param starter       starts the server of a shard
+     * @param isolated      whether tests lease databases
+     * @throws RuntimeException if a server could not be started, after stopping the others
+     */
+    static ShardGroup start(String configuration, ShardPolicy policy, int count, IntFunction<Redis> starter,
+                            boolean isolated) {
+        List<CompletableFuture<Redis>> starting = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            starting.add(CompletableFuture.supplyAsync(() -> starter.apply(index)));
+        }
+        List<Redis> started = new ArrayList<>(count);
+        RuntimeException failure = null;
+        for (CompletableFuture<Redis> future : starting) {
+            try {
+                started.add(future.join());
+            } catch (CompletionException e) {
+                failure = e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        List<Shard> shards = new ArrayList<>(count);
+        try {
+            if (failure != null) {
+                throw failure;
+            }
+            for (Redis redis : started) {
+                // arguments may have changed the number of databases
+                DatabasePool databases = isolated
+                        ? new DatabasePool(Integer.parseInt(redis.configGet("databases"))) : null;
+                shards.add(new Shard(new RedisShard(shards.size(), count, redis), databases));
+            }
+            return new ShardGroup(configuration, policy, shards);
+        } catch (ManagedProcessException | RuntimeException e) {
+            for (Redis redis : started) {
+                try {
+                    redis.stop();
+                } catch (ManagedProcessException stopFailure) {
+                    e.addSuppressed(stopFailure);
+                }
+            }
+            throw e instanceof RuntimeException runtime ? runtime
+                    : new IllegalStateException("Could not start Redis for " + configuration, e);
+        }
+    }
+
+    /**
+     * @param testClass the name of the test class
+     * @return the shard for the class, released by closing the assignment
+     */
+    synchronized Assignment assign(String testClass) {
+        Shard shard;
+        if (shards.size() == 1) {
+            shard = shards.get(0);
+        } else if (policy == ShardPolicy.CONSISTENT_HASH) {
+            Map.Entry<Long, Shard> entry = ring.ceilingEntry(hash(testClass));
+            shard = (entry != null ? entry : ring.firstEntry()).getValue();
+        } else {
+            shard = shards.stream()
+                    .min(Comparator.<Shard>comparingInt(s -> s.running.get()).thenComparingInt(s -> s.classes.get()))
+                    .orElseThrow();
+        }
+        shard.running.incrementAndGet();
+        shard.classes.incrementAndGet();
+        return new Assignment(shard);
+    }
+
+    @Override
+    public void close() {
+        if (shards.size() > 1) {
+            logger.info("Load of the {} shards of {}:{}", shards.size(), configuration, loadReport());
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.redis().stop();
+                // each server has a data directory of its own
+                FileUtils.deleteDirectory(shard.redis().getConfiguration().getDataDir());
+            } catch (IOException e) {
+                logger.warn("Could not stop {}", shard.handle, e);
+            }
+        }
+    }
+
+    /**
+     * @return a line per shard: the classes and tests it served, the commands it processed and the
+     * CPU time it used
+     */
+    String loadReport() {
+        StringBuilder report = new StringBuilder();
+        for (Shard shard : shards) {
+            report.append(String.format(Locale.ROOT, "%n  %s: %d classes, %d tests", shard.handle, shard.classes.get(),
+                    shard.tests.get()));
+            try {
+                InfoSnapshot info = shard.redis().info("everything");
+                report.append(String.format(Locale.ROOT, ", %d commands, %.2f s CPU",
+                        info.getLong("total_commands_processed", 0),
+                        info.getDouble("used_cpu_user", 0) + info.getDouble("used_cpu_sys", 0)));
+            } catch (ManagedProcessException e) {
+                report.append(", INFO failed: ").append(e.getMessage());
+            }
+        }
+        return report.toString();
+    }
+
+    /**
+     * 64 bit FNV-1a with a final mix, so that close names land far apart on the ring.
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
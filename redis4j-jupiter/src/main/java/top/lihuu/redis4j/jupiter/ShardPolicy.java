@@ -0,0 +1,22 @@
+package top.lihuu.redis4j.jupiter;
+
+/**
+ * How test classes are assigned to the shards of a {@link RedisInstance#shards() sharded}
+ * configuration.
+ *
+ * @author lihuu
+ */
+public enum ShardPolicy {
+
+    /**
+     * By a consistent hash of the class name: a class always gets the same shard for the same
+     * number of shards, and adding classes does not move the others.
+     */
+    CONSISTENT_HASH,
+
+    /**
+     * The shard with the fewest test classes running at the time, then with the fewest assigned
+     * so far: the load is spread evenly, but the assignment depends on the execution order.
+     */
+    LEAST_LOADED
+}
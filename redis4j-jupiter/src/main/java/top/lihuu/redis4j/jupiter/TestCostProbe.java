@@ -0,0 +1,113 @@
+package top.lihuu.redis4j.jupiter;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import top.lihuu.redis4j.InfoSnapshot;
+import top.lihuu.redis4j.client.RedisConnection;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Snapshots the statistics of a server when a test starts and diffs them when it ends, over a
+ * connection of its own that is closed with the test.
+ */
+final class TestCostProbe implements ExtensionContext.Store.CloseableResource {
+
+    /**
+     * The commands of the snapshots, left out of the cost.
+     */
+    private static final Set<String> OWN_COMMANDS = Set.of("info", "slowlog", "slowlog|get");
+
+    private final ShardGroup.Shard shard;
+    private final int database;
+    private final RedisConnection connection;
+    private final boolean alone;
+    private final long testsStarted;
+    private final Snapshot before;
+
+    /**
+     * @param commandStats the {@code INFO commandstats} reply
+     * @param info         the default {@code INFO} reply
+     * @param lastSlowlog  the id of the last slow log entry, -1 if there is none
+     */
+    private record Snapshot(InfoSnapshot commandStats, InfoSnapshot info, long lastSlowlog) {
+
+        static Snapshot take(RedisConnection connection) throws IOException {
+            InfoSnapshot commandStats = InfoSnapshot.parse((String) connection.execute("INFO", "commandstats"));
+            InfoSnapshot info = InfoSnapshot.parse((String) connection.execute("INFO"));
+            List<?> slowlog = (List<?>) connection.execute("SLOWLOG", "GET", "1");
+            long lastSlowlog = slowlog.isEmpty() ? -1 : (Long) ((List<?>) slowlog.get(0)).get(0);
+            return new Snapshot(commandStats, info, lastSlowlog);
+        }
+
+        long keys(int database) {
+            Map<Integer, Long> keyspace = info.keyspace();
+            return database < 0
+                    ? keyspace.values().stream().mapToLong(Long::longValue).sum()
+                    : keyspace.getOrDefault(database, 0L);
+        }
+    }
+
+    private TestCostProbe(ShardGroup.Shard shard, int database, RedisConnection connection, boolean alone,
+                          long testsStarted, Snapshot before) {
+        this.shard = shard;
+        this.database = database;
+        this.connection = connection;
+        this.alone = alone;
+        this.testsStarted = testsStarted;
+        this.before = before;
+    }
+
+    /**
+     * @param shard    the server of the test
+     * @param database the database of the test, whose keys are counted, -1 to count all of them
+     * @param alone    whether no other test of the shard was running when the test started
+     */
+    static TestCostProbe start(ShardGroup.Shard shard, int database, boolean alone) throws IOException {
+        long testsStarted = shard.testsStarted();
+        RedisConnection connection = shard.redis().openConnection();
+        try {
+            return new TestCostProbe(shard, database, connection, alone, testsStarted, Snapshot.take(connection));
+        } catch (IOException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    RedisTestCost finish(String testClass, String test) throws IOException {
+        Snapshot after = Snapshot.take(connection);
+        Map<String, InfoSnapshot.CommandStat> previous = before.commandStats().commandStats();
+        long commands = 0;
+        long usec = 0;
+        for (Map.Entry<String, InfoSnapshot.CommandStat> entry : after.commandStats().commandStats().entrySet()) {
+            if (OWN_COMMANDS.contains(entry.getKey())) {
+                continue;
+            }
+            InfoSnapshot.CommandStat stat = entry.getValue();
+            InfoSnapshot.CommandStat was = previous.get(entry.getKey());
+            // CONFIG RESETSTAT in between makes the counters go backwards, ignore those commands
+            if (was == null || stat.calls() >= was.calls()) {
+                commands += stat.calls() - (was == null ? 0 : was.calls());
+                usec += stat.usec() - (was == null ? 0 : was.usec());
+            }
+        }
+        long peakBefore = before.info().getLong("used_memory_peak", 0);
+        long peakAfter = after.info().getLong("used_memory_peak", 0);
+        long peakMemory = peakAfter > peakBefore
+                ? peakAfter
+                : Math.max(before.info().getLong("used_memory", 0), after.info().getLong("used_memory", 0));
+        return new RedisTestCost(testClass, test, shard.handle().getPort(),
+                alone && shard.testsStarted() == testsStarted,
+                Duration.ofNanos(after.info().getCapturedAtNanos() - before.info().getCapturedAtNanos()),
+                commands, usec, after.keys(database) - before.keys(database), peakMemory,
+                Math.max(0, after.lastSlowlog() - before.lastSlowlog()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        connection.close();
+    }
+}
@@ -0,0 +1,82 @@
+package top.lihuu.redis4j.jupiter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.platform.engine.reporting.ReportEntry;
+import org.junit.platform.testkit.engine.EngineExecutionResults;
+import org.junit.platform.testkit.engine.EngineTestKit;
+import top.lihuu.redis4j.client.RedisConnection;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectClass;
+
+public class CostReportTest {
+
+    private static final int KEYS = 50;
+
+    @Test
+    public void should_report_the_cost_of_a_test_as_csv(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("report.csv");
+        Map<String, String> entry = run(file);
+        assertTrue(Long.parseLong(entry.get("redis4j.commands")) >= KEYS, entry.toString());
+        assertEquals(Integer.toString(KEYS), entry.get("redis4j.keysCreated"));
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size(), lines.toString());
+        assertEquals("class,test,port,exclusive,elapsed_ms,commands,usec,keys_created,peak_memory,slowlog_entries",
+                lines.get(0));
+        String[] row = lines.get(1).split(",");
+        assertEquals(SetsKeys.class.getName(), row[0]);
+        assertEquals("sets_keys(RedisConnection)", row[1]);
+        assertEquals(entry.get("redis4j.commands"), row[5]);
+        assertEquals(Integer.toString(KEYS), row[7]);
+    }
+
+    @Test
+    public void should_report_the_cost_of_a_test_as_json(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("report.json");
+        Map<String, String> entry = run(file);
+        assertEquals(Integer.toString(KEYS), entry.get("redis4j.keysCreated"));
+
+        String json = Files.readString(file);
+        assertTrue(json.startsWith("[") && json.trim().endsWith("]"), json);
+        assertTrue(json.contains("\"class\": \"" + SetsKeys.class.getName() + "\""), json);
+        assertTrue(json.contains("\"commands\": " + entry.get("redis4j.commands") + ","), json);
+        assertTrue(json.contains("\"keysCreated\": " + KEYS + ","), json);
+    }
+
+    /**
+     * @return the cost report entry of the test
+     */
+    private static Map<String, String> run(Path file) {
+        EngineExecutionResults results = EngineTestKit.engine("junit-jupiter")
+                .configurationParameter("redis4j.report.file", file.toString())
+                .selectors(selectClass(SetsKeys.class))
+                .execute();
+        results.testEvents().assertStatistics(stats -> stats.started(1).succeeded(1));
+        List<Map<String, String>> entries = results.allEvents().reportingEntryPublished().stream()
+                .map(event -> event.getPayload(ReportEntry.class).orElseThrow().getKeyValuePairs())
+                .filter(pairs -> pairs.containsKey("redis4j.commands"))
+                .toList();
+        assertEquals(1, entries.size(), entries.toString());
+        return entries.get(0);
+    }
+
+    @RedisInstance
+    static class SetsKeys {
+
+        @Test
+        void sets_keys(RedisConnection connection) throws IOException {
+            for (int i = 0; i < KEYS; i++) {
+                connection.execute("SET", "key:" + i, "value " + i);
+            }
+        }
+    }
+}
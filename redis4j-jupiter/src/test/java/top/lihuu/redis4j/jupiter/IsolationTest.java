@@ -0,0 +1,121 @@
+package top.lihuu.redis4j.jupiter;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.platform.testkit.engine.EngineTestKit;
+import top.lihuu.redis4j.Redis;
+import top.lihuu.redis4j.client.RedisConnection;
+import top.lihuu.redis4j.client.RedisErrorException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectClass;
+
+public class IsolationTest {
+
+    private static final Map<String, RedisNamespace> NAMESPACES = new ConcurrentHashMap<>();
+
+    /**
+     * The keys left on the server of each class once its tests have run.
+     */
+    private static final Map<String, Map<Integer, Long>> KEYS_LEFT = new ConcurrentHashMap<>();
+
+    @Test
+    public void should_isolate_tests_running_in_parallel() {
+        NAMESPACES.clear();
+        KEYS_LEFT.clear();
+        EngineTestKit.engine("junit-jupiter")
+                .configurationParameter("junit.jupiter.execution.parallel.enabled", "true")
+                .configurationParameter("junit.jupiter.execution.parallel.mode.default", "concurrent")
+                .configurationParameter("junit.jupiter.execution.parallel.config.strategy", "fixed")
+                // the tests of a class wait for each other, whatever the number of processors
+                .configurationParameter("junit.jupiter.execution.parallel.config.fixed.parallelism", "4")
+                .configurationParameter("redis4j.report.file", "")
+                .selectors(selectClass(DatabaseIsolation.class), selectClass(KeyPrefixIsolation.class))
+                .execute()
+                .testEvents()
+                .assertStatistics(stats -> stats.started(4).succeeded(4));
+
+        assertNotEquals(NAMESPACES.get("database first").getDatabase(),
+                NAMESPACES.get("database second").getDatabase());
+        assertNotEquals(NAMESPACES.get("prefix first").getKeyPrefix(), NAMESPACES.get("prefix second").getKeyPrefix());
+        assertEquals(Map.of("database", Map.of(), "prefix", Map.of()), KEYS_LEFT);
+    }
+
+    @RedisInstance(isolation = Isolation.DATABASE)
+    static class DatabaseIsolation {
+
+        private static final CyclicBarrier RUNNING = new CyclicBarrier(2);
+
+        @Test
+        void first(RedisNamespace namespace, RedisConnection connection, TestInfo info) throws Exception {
+            run(namespace, connection, info);
+        }
+
+        @Test
+        void second(RedisNamespace namespace, RedisConnection connection, TestInfo info) throws Exception {
+            run(namespace, connection, info);
+        }
+
+        private static void run(RedisNamespace namespace, RedisConnection connection, TestInfo info)
+                throws Exception {
+            String test = info.getTestMethod().orElseThrow().getName();
+            assertTrue(namespace.getDatabase() > 0, namespace.toString());
+            NAMESPACES.put("database " + test, namespace);
+            connection.execute("SET", "key", test);
+            RUNNING.await(10, TimeUnit.SECONDS);
+            // the other test set the same key, in its own database
+            assertEquals(test, connection.execute("GET", "key"));
+            RUNNING.await(10, TimeUnit.SECONDS);
+        }
+
+        @AfterAll
+        static void keysLeft(Redis redis) throws Exception {
+            KEYS_LEFT.put("database", redis.info("keyspace").keyspace());
+        }
+    }
+
+    @RedisInstance(isolation = Isolation.KEY_PREFIX)
+    static class KeyPrefixIsolation {
+
+        private static final CyclicBarrier RUNNING = new CyclicBarrier(2);
+
+        @Test
+        void first(RedisNamespace namespace, RedisConnection connection, TestInfo info) throws Exception {
+            run(namespace, connection, info, "second");
+        }
+
+        @Test
+        void second(RedisNamespace namespace, RedisConnection connection, TestInfo info) throws Exception {
+            run(namespace, connection, info, "first");
+        }
+
+        private static void run(RedisNamespace namespace, RedisConnection connection, TestInfo info, String other)
+                throws Exception {
+            String test = info.getTestMethod().orElseThrow().getName();
+            NAMESPACES.put("prefix " + test, namespace);
+            connection.execute("SET", namespace.key("key"), test);
+            assertThrows(RedisErrorException.class, () -> connection.execute("FLUSHDB"));
+            assertThrows(RedisErrorException.class, () -> connection.execute("SET", "unprefixed", test));
+            RUNNING.await(10, TimeUnit.SECONDS);
+            String otherPrefix = NAMESPACES.get("prefix " + other).getKeyPrefix();
+            assertThrows(RedisErrorException.class, () -> connection.execute("GET", otherPrefix + "key"));
+            assertThrows(RedisErrorException.class, () -> connection.execute("DEL", otherPrefix + "key"));
+            assertEquals(test, connection.execute("GET", namespace.key("key")));
+            RUNNING.await(10, TimeUnit.SECONDS);
+        }
+
+        @AfterAll
+        static void keysLeft(Redis redis) throws Exception {
+            KEYS_LEFT.put("prefix", redis.info("keyspace").keyspace());
+        }
+    }
+}
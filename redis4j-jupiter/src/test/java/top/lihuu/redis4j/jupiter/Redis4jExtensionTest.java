@@ -0,0 +1,101 @@
+package top.lihuu.redis4j.jupiter;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.testkit.engine.EngineTestKit;
+import top.lihuu.redis4j.Redis;
+import top.lihuu.redis4j.client.RedisConnection;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectClass;
+
+public class Redis4jExtensionTest {
+
+    private static final Map<String, Integer> PORTS = new ConcurrentHashMap<>();
+
+    @Test
+    public void should_share_a_server_between_classes_with_the_same_configuration() {
+        PORTS.clear();
+        EngineTestKit.engine("junit-jupiter")
+                .configurationParameter("redis4j.report.file", "")
+                .selectors(selectClass(FirstClass.class), selectClass(SameConfiguration.class),
+                        selectClass(OtherConfiguration.class))
+                .execute()
+                .testEvents()
+                .assertStatistics(stats -> stats.started(4).succeeded(4));
+
+        assertEquals(4, PORTS.size(), PORTS.toString());
+        assertEquals(PORTS.get("first"), PORTS.get("same"));
+        assertEquals(PORTS.get("first"), PORTS.get("nested"));
+        assertNotEquals(PORTS.get("first"), PORTS.get("other"));
+    }
+
+    @Test
+    public void should_inject_the_shard_of_the_class() {
+        EngineTestKit.engine("junit-jupiter")
+                .configurationParameter("redis4j.report.file", "")
+                .selectors(selectClass(ShardedClass.class))
+                .execute()
+                .testEvents()
+                .assertStatistics(stats -> stats.started(1).succeeded(1));
+    }
+
+    @RedisInstance(args = {"--maxmemory", "64mb"})
+    static class FirstClass {
+
+        @Test
+        void resolves_the_server_and_a_connection(Redis redis, RedisConnection connection) throws IOException {
+            assertEquals("OK", connection.execute("SET", "hello", "world"));
+            try (RedisConnection other = redis.openConnection()) {
+                assertEquals("world", other.execute("GET", "hello"));
+            }
+            PORTS.put("first", redis.getPort());
+        }
+
+        @Nested
+        class NestedClass {
+
+            @Test
+            void uses_the_server_of_the_enclosing_class(Redis redis) {
+                PORTS.put("nested", redis.getPort());
+            }
+        }
+    }
+
+    @RedisInstance(args = {"--maxmemory", "64mb"})
+    static class SameConfiguration {
+
+        @Test
+        void shares_the_server(Redis redis) {
+            PORTS.put("same", redis.getPort());
+        }
+    }
+
+    @RedisInstance(args = {"--maxmemory", "32mb"})
+    static class OtherConfiguration {
+
+        @Test
+        void gets_a_server_of_its_own(Redis redis) {
+            PORTS.put("other", redis.getPort());
+        }
+    }
+
+    @RedisInstance(shards = 2)
+    static class ShardedClass {
+
+        @Test
+        void runs_on_its_shard(RedisShard shard, Redis redis, RedisConnection connection) throws IOException {
+            assertEquals(2, shard.getCount());
+            assertTrue(shard.getIndex() == 0 || shard.getIndex() == 1, shard.toString());
+            assertEquals(redis.getPort(), shard.getPort());
+            String client = (String) connection.execute("CLIENT", "INFO");
+            assertTrue(client.contains("laddr=127.0.0.1:" + shard.getPort() + " "), client);
+        }
+    }
+}
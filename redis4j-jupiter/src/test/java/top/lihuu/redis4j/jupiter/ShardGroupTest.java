@@ -0,0 +1,97 @@
+package top.lihuu.redis4j.jupiter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The assignment of test classes to shards, on groups without servers.
+ */
+public class ShardGroupTest {
+
+    @Test
+    public void should_assign_a_class_to_the_same_shard_every_time() {
+        ShardGroup group = group(ShardPolicy.CONSISTENT_HASH, 4);
+        ShardGroup other = group(ShardPolicy.CONSISTENT_HASH, 4);
+        int[] classes = new int[4];
+        for (int i = 0; i < 1000; i++) {
+            String testClass = "com.example.Test" + i;
+            int shard = index(group, testClass);
+            assertEquals(shard, index(group, testClass), testClass);
+            assertEquals(shard, index(other, testClass), testClass);
+            classes[shard]++;
+        }
+        // spread evenly by the virtual nodes
+        for (int count : classes) {
+            assertTrue(count > 150 && count < 350, "classes per shard " + Arrays.toString(classes));
+        }
+
+        // the assignments of a release must not change in the next one
+        assertEquals(List.of(2, 3, 3, 3), List.of(index(group, "com.example.UserTest"),
+                index(group, "com.example.OrderTest"), index(group, "com.example.CartTest"),
+                index(group, "top.lihuu.redis4j.RedisTest")));
+    }
+
+    @Test
+    public void should_only_move_classes_to_an_added_shard() {
+        ShardGroup four = group(ShardPolicy.CONSISTENT_HASH, 4);
+        ShardGroup five = group(ShardPolicy.CONSISTENT_HASH, 5);
+        int moved = 0;
+        for (int i = 0; i < 1000; i++) {
+            String testClass = "com.example.Test" + i;
+            int before = index(four, testClass);
+            int after = index(five, testClass);
+            if (before != after) {
+                assertEquals(4, after, testClass);
+                moved++;
+            }
+        }
+        assertTrue(moved > 100 && moved < 300, "moved " + moved);
+    }
+
+    @Test
+    public void should_assign_the_least_loaded_shard() {
+        ShardGroup group = group(ShardPolicy.LEAST_LOADED, 3);
+        List<ShardGroup.Assignment> running = new ArrayList<>();
+        Set<Integer> shards = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            ShardGroup.Assignment assignment = group.assign("com.example.SameName");
+            running.add(assignment);
+            shards.add(assignment.shard().handle().getIndex());
+        }
+        assertEquals(Set.of(0, 1, 2), shards);
+
+        // the shard of a finished class is free again
+        running.get(1).close();
+        assertEquals(running.get(1).shard(), group.assign("com.example.Next").shard());
+
+        // with as many classes running everywhere, the one assigned the fewest so far
+        running.get(0).close();
+        running.get(2).close();
+        assertEquals(running.get(0).shard(), group.assign("com.example.Last").shard());
+    }
+
+    @Test
+    public void should_start_a_shard_per_processor_for_zero() {
+        assertEquals(Runtime.getRuntime().availableProcessors(), ShardGroup.shardCount(0));
+        assertEquals(3, ShardGroup.shardCount(3));
+    }
+
+    private static ShardGroup group(ShardPolicy policy, int shards) {
+        // never closed, as there are no servers to stop
+        return ShardGroup.start("test", policy, shards, shard -> null, false);
+    }
+
+    private static int index(ShardGroup group, String testClass) {
+        ShardGroup.Assignment assignment = group.assign(testClass);
+        assignment.close();
+        return assignment.shard().handle().getIndex();
+    }
+}